@@ -0,0 +1,18 @@
+package org.example;
+
+import org.bson.Document;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Iterates over the articles of a store scan.
+ */
+public interface ArticleCursor extends Iterator<Document>, Closeable {
+
+    /**
+     * Releases the resources held by the scan.
+     */
+    @Override
+    void close();
+}
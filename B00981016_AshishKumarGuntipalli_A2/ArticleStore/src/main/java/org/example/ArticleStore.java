@@ -0,0 +1,107 @@
+package org.example;
+
+import org.bson.Document;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Stores ingested articles and scans them back. Articles are documents holding at least a title
+ * and a body, so ingest and scoring can run against MongoDB or a local file without change.
+ */
+public interface ArticleStore extends Closeable {
+
+    /**
+     * Appends an article. Appended articles may be buffered until the next flush.
+     *
+     * @param article The article to append.
+     * @throws IOException If the article or an earlier buffered batch cannot be written.
+     */
+    void append(Document article) throws IOException;
+
+    /**
+     * Hands any buffered articles to the backend. Closing the store waits for them to be stored.
+     *
+     * @throws IOException If the buffered articles cannot be written.
+     */
+    void flush() throws IOException;
+
+    /**
+     * Waits until every article appended so far is durably stored, so ingest progress can be
+     * recorded against it. Stores that are durable once flushed only need to flush.
+     *
+     * @throws IOException If the buffered articles cannot be written.
+     */
+    default void sync() throws IOException {
+        flush();
+    }
+
+    /**
+     * Drops every stored article after the first count, undoing appends made since a checkpoint
+     * so they can be replayed without duplicates. Stores that replace articles by key need not
+     * support it, as replayed articles then overwrite their earlier copies.
+     *
+     * @param count The number of articles to keep.
+     * @throws IOException If the store cannot be truncated.
+     * @throws UnsupportedOperationException If the store cannot drop articles.
+     */
+    default void truncate(long count) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot drop articles");
+    }
+
+    /**
+     * Counts the articles stored so far.
+     *
+     * @return The number of stored articles.
+     * @throws IOException If the store cannot be read.
+     */
+    long count() throws IOException;
+
+    /**
+     * Scans every stored article.
+     *
+     * @param fields The fields to read, or none to read every field.
+     * @return A cursor over the articles; it must be closed to release its resources.
+     * @throws IOException If the store cannot be read.
+     */
+    ArticleCursor scan(String... fields) throws IOException;
+
+    /**
+     * Reads the given text fields of every stored article into an off-heap corpus, so they can be
+     * scored repeatedly without scanning the store again or holding them on the heap.
+     *
+     * @param fields The text fields to read, such as "title" and "body".
+     * @return The corpus holding the fields of every article, in scan order.
+     * @throws IOException If the store cannot be read.
+     */
+    default CompactCorpus load(String... fields) throws IOException {
+        CompactCorpus corpus = new CompactCorpus(fields);
+        CharSequence[] values = new CharSequence[fields.length];
+        try (ArticleCursor cursor = scan(fields)) {
+            while (cursor.hasNext()) {
+                Document article = cursor.next();
+                for (int f = 0; f < fields.length; f++) {
+                    values[f] = article.getString(fields[f]);
+                }
+                corpus.add(values);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Error retrieving articles: " + e.getMessage(), e);
+        }
+        return corpus;
+    }
+
+    /**
+     * Retrieves the number of articles written by this store so far.
+     *
+     * @return The number of articles written.
+     */
+    long getWrittenCount();
+
+    /**
+     * Retrieves the number of batches written by this store so far.
+     *
+     * @return The number of batches.
+     */
+    long getBatchCount();
+}
@@ -0,0 +1,388 @@
+package org.example;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes documents to a MongoDB collection in batches bounded by document count and estimated size.
+ * Several batches can be in flight at once. Documents that failed with a transient server error
+ * are retried individually instead of resending the whole batch, and documents the server rejects
+ * for good fail the writer at once.
+ */
+public class BatchedBulkWriter implements Closeable {
+
+    private static final long RETRY_BACKOFF_MILLIS = 100;
+    private static final int FIELD_OVERHEAD_BYTES = 16;
+    // Server error codes of a write that may succeed if sent again: a primary stepping down or
+    // shutting down, an unreachable host, a network error or timeout
+    private static final Set<Integer> TRANSIENT_ERROR_CODES = new HashSet<>(Arrays.asList(
+            6, 7, 89, 91, 189, 262, 9001, 10107, 11600, 11602, 13435, 13436));
+
+    private static final Metrics.Timer BULK_WRITE =
+            Metrics.timer("mongo_bulk_write_seconds", "Latency of one MongoDB bulkWrite call");
+    private static final Metrics.Histogram BULK_WRITE_DOCUMENTS =
+            Metrics.histogram("mongo_bulk_write_documents", "Documents sent in one MongoDB bulkWrite call");
+    private static final Metrics.Counter DOCUMENTS_WRITTEN =
+            Metrics.counter("mongo_documents_written_total", "Documents acknowledged by MongoDB");
+    private static final Metrics.Counter RETRIES =
+            Metrics.counter("mongo_bulk_write_retries_total", "MongoDB bulkWrite calls repeated for failed documents");
+    private static final Metrics.Counter DUPLICATES =
+            Metrics.counter("mongo_duplicate_documents_total", "Inserted documents rejected as duplicate keys");
+
+    private final MongoCollection<Document> collection;
+    private final int maxBatchDocuments;
+    private final long maxBatchBytes;
+    private final boolean ordered;
+    private final int maxRetries;
+    private final String upsertKey;
+    private final ExecutorService pool;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+
+    private List<Document> batch = new ArrayList<>();
+    private long batchBytes;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Constructs a BatchedBulkWriter.
+     *
+     * @param collection        The MongoDB collection to write to.
+     * @param maxBatchDocuments The maximum number of documents in one bulk write.
+     * @param maxBatchBytes     The maximum estimated size in bytes of one bulk write.
+     * @param ordered           Whether the server should stop a batch at the first failed document.
+     * @param maxInFlight       The number of batches that may be written concurrently.
+     * @param maxRetries        The number of times failed documents are retried before giving up.
+     * @param upsertKey         The field used to replace existing documents instead of inserting
+     *                          duplicates, or null to always insert. Documents without the field
+     *                          are inserted.
+     */
+    public BatchedBulkWriter(MongoCollection<Document> collection, int maxBatchDocuments, long maxBatchBytes,
+                             boolean ordered, int maxInFlight, int maxRetries, String upsertKey) {
+        this.collection = collection;
+        this.maxBatchDocuments = maxBatchDocuments;
+        this.maxBatchBytes = maxBatchBytes;
+        this.ordered = ordered;
+        this.maxInFlight = maxInFlight;
+        this.maxRetries = maxRetries;
+        this.upsertKey = upsertKey;
+        this.pool = Executors.newFixedThreadPool(maxInFlight);
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Adds a document to the current batch, sending the batch once it is full. Blocks while the
+     * maximum number of batches is already in flight.
+     *
+     * @param document The document to write.
+     * @throws IOException If an earlier batch failed permanently.
+     */
+    public synchronized void add(Document document) throws IOException {
+        checkFailure();
+        long size = estimateSize(document);
+        if (!batch.isEmpty() && batchBytes + size > maxBatchBytes) {
+            flush();
+        }
+        batch.add(document);
+        batchBytes += size;
+        if (batch.size() >= maxBatchDocuments) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the current batch without waiting for it to complete. Once a batch has failed the
+     * current batch is dropped instead, so it is neither held nor written by a later flush.
+     *
+     * @throws IOException If an earlier batch failed permanently.
+     */
+    public synchronized void flush() throws IOException {
+        List<Document> toWrite = batch;
+        batch = new ArrayList<>();
+        batchBytes = 0;
+        checkFailure();
+        if (toWrite.isEmpty()) {
+            return;
+        }
+
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to write batch", e);
+        }
+        pool.execute(() -> {
+            try {
+                writeWithRetry(toWrite);
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Sends the current batch and waits for every batch in flight to complete, leaving the writer
+     * open for more documents.
+     *
+     * @throws IOException If any batch failed permanently.
+     */
+    public synchronized void sync() throws IOException {
+        flush();
+        awaitBatches();
+        checkFailure();
+    }
+
+    /**
+     * Flushes the remaining documents and waits for every batch in flight to complete.
+     *
+     * @throws IOException If any batch failed permanently.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            awaitBatches();
+        } finally {
+            pool.shutdown();
+        }
+        if (duplicates.get() > 0) {
+            System.out.println("Skipped " + duplicates.get() + " documents whose key was already stored");
+        }
+        checkFailure();
+    }
+
+    private void awaitBatches() throws IOException {
+        try {
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for batches to complete", e);
+        }
+    }
+
+    /**
+     * Retrieves the number of documents acknowledged by the server so far.
+     *
+     * @return The number of documents inserted, upserted or replaced.
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * Retrieves the number of inserted documents the server rejected because a document with the
+     * same unique key was already stored. Documents replaced by their upsert key are not counted.
+     *
+     * @return The number of duplicates.
+     */
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    /**
+     * Retrieves the number of batches completed so far.
+     *
+     * @return The number of batches.
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Writes one batch, retrying only the documents that failed with a transient error. A batch
+     * whose call failed on the network or timed out is sent again whole; documents it had already
+     * stored keep the _id the driver gave them, so they come back as duplicate keys and are counted
+     * as written rather than as duplicates.
+     *
+     * @param documents The documents in the batch.
+     * @throws IOException If the server rejects a document for good, or documents still fail after
+     *                     the allowed number of retries.
+     */
+    private void writeWithRetry(List<Document> documents) throws IOException {
+        List<Document> pending = documents;
+        boolean resent = false;
+        for (int attempt = 0; ; attempt++) {
+            BULK_WRITE_DOCUMENTS.record(pending.size());
+            List<WriteModel<Document>> models = toModels(pending);
+            try {
+                BulkWriteResult result = BULK_WRITE.time(
+                        () -> collection.bulkWrite(models, new BulkWriteOptions().ordered(ordered)));
+                written.addAndGet(acknowledged(result));
+                DOCUMENTS_WRITTEN.add(acknowledged(result));
+                batches.incrementAndGet();
+                return;
+            } catch (MongoBulkWriteException e) {
+                List<Document> retry = handleErrors(pending, e, resent);
+                if (retry.isEmpty()) {
+                    batches.incrementAndGet();
+                    return;
+                }
+                if (attempt >= maxRetries) {
+                    throw new IOException("Bulk write failed for " + retry.size() + " documents after "
+                            + maxRetries + " retries: " + e.getMessage(), e);
+                }
+                pending = retry;
+                RETRIES.increment();
+            } catch (MongoSocketException | MongoTimeoutException e) {
+                if (attempt >= maxRetries) {
+                    throw new IOException("Bulk write of " + pending.size() + " documents failed after "
+                            + maxRetries + " retries: " + e.getMessage(), e);
+                }
+                resent = true;
+                RETRIES.increment();
+            }
+            sleep(RETRY_BACKOFF_MILLIS << attempt);
+        }
+    }
+
+    /**
+     * Counts what a partially failed bulk write stored and collects the documents that should be
+     * sent again. An upsert that lost a race with another one for the same key is retried, and
+     * replaces the document the other stored; an insert rejected as a duplicate key is counted as
+     * a duplicate, or as written if the batch was resent after a network error. In ordered mode
+     * the server skips everything after the first error, so those documents are retried as well.
+     *
+     * @throws IOException If the server rejected a document with an error that is not transient,
+     *                     such as a failed validation or a document that is too large.
+     */
+    private List<Document> handleErrors(List<Document> pending, MongoBulkWriteException e, boolean resent)
+            throws IOException {
+        long stored = acknowledged(e.getWriteResult());
+        long duplicated = 0;
+        List<Document> retry = new ArrayList<>();
+        BulkWriteError rejected = null;
+        int rejectedCount = 0;
+        int lastIndex = -1;
+        for (BulkWriteError error : e.getWriteErrors()) {
+            lastIndex = Math.max(lastIndex, error.getIndex());
+            Document document = pending.get(error.getIndex());
+            boolean duplicate = ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY;
+            if (duplicate && !isUpsert(document)) {
+                if (resent) {
+                    stored++;
+                } else {
+                    duplicated++;
+                }
+            } else if (duplicate || isTransient(error)) {
+                retry.add(document);
+            } else {
+                rejected = rejected == null ? error : rejected;
+                rejectedCount++;
+            }
+        }
+        written.addAndGet(stored);
+        DOCUMENTS_WRITTEN.add(stored);
+        duplicates.addAndGet(duplicated);
+        DUPLICATES.add(duplicated);
+        if (rejected != null) {
+            throw new IOException("MongoDB rejected " + rejectedCount + " documents, the first with error "
+                    + rejected.getCode() + ": " + rejected.getMessage(), e);
+        }
+        if (ordered && lastIndex >= 0) {
+            retry.addAll(pending.subList(lastIndex + 1, pending.size()));
+        }
+        return retry;
+    }
+
+    private static boolean isTransient(BulkWriteError error) {
+        return TRANSIENT_ERROR_CODES.contains(error.getCode())
+                || ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.EXECUTION_TIMEOUT;
+    }
+
+    private boolean isUpsert(Document document) {
+        return upsertKey != null && document.get(upsertKey) != null;
+    }
+
+    private List<WriteModel<Document>> toModels(List<Document> documents) {
+        List<WriteModel<Document>> models = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            if (!isUpsert(document)) {
+                // Without a key every such document would match eq(key, null) and replace the others
+                models.add(new InsertOneModel<>(document));
+            } else {
+                models.add(new ReplaceOneModel<>(Filters.eq(upsertKey, document.get(upsertKey)), document,
+                        new ReplaceOptions().upsert(true)));
+            }
+        }
+        return models;
+    }
+
+    private static long acknowledged(BulkWriteResult result) {
+        return (long) result.getInsertedCount() + result.getMatchedCount() + result.getUpserts().size();
+    }
+
+    /**
+     * Estimates the encoded size of a document from the UTF-8 lengths of its keys and strings.
+     */
+    private static long estimateSize(Object value) {
+        if (value instanceof String) {
+            return Utf8.length((String) value) + FIELD_OVERHEAD_BYTES;
+        }
+        if (value instanceof Map) {
+            long size = FIELD_OVERHEAD_BYTES;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += Utf8.length(entry.getKey().toString()) + estimateSize(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof List) {
+            long size = FIELD_OVERHEAD_BYTES;
+            for (Object item : (List<?>) value) {
+                size += estimateSize(item);
+            }
+            return size;
+        }
+        return FIELD_OVERHEAD_BYTES;
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable error = failure.get();
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error != null) {
+            throw new IOException("Error writing to MongoDB: " + error.getMessage(), error);
+        }
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while retrying bulk write", e);
+        }
+    }
+}
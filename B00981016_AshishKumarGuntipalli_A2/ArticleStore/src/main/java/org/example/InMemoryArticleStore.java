@@ -0,0 +1,165 @@
+package org.example;
+
+import org.bson.Document;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps articles in memory in _id order and scans them the way a MongoDB collection would, in
+ * batches that each cost a simulated round trip. It stands in for MongoDB when trying scan and
+ * scoring settings, such as the number of scan partitions, without a server.
+ *
+ * <p>Articles without an _id are given the next number in sequence, as MongoDB would give them an
+ * ObjectId.
+ */
+public class InMemoryArticleStore implements ArticleStore, RangeScanSource {
+
+    private final ConcurrentSkipListMap<Object, Document> articles = new ConcurrentSkipListMap<>();
+    private final int scanBatchSize;
+    private final long roundTripMicros;
+    private final int scanPartitions;
+    private long nextId;
+    private long written;
+
+    /**
+     * Constructs an empty InMemoryArticleStore.
+     *
+     * @param scanBatchSize   The number of articles fetched per simulated round trip when scanning.
+     * @param roundTripMicros The simulated time of each round trip in microseconds.
+     * @param scanPartitions  The number of _id ranges scanned at once; 1 scans with a single cursor.
+     */
+    public InMemoryArticleStore(int scanBatchSize, long roundTripMicros, int scanPartitions) {
+        this.scanBatchSize = scanBatchSize;
+        this.roundTripMicros = roundTripMicros;
+        this.scanPartitions = scanPartitions;
+    }
+
+    @Override
+    public synchronized void append(Document article) {
+        Object id = article.get("_id");
+        if (id == null) {
+            id = nextId++;
+            article.put("_id", id);
+        }
+        articles.put(id, article);
+        written++;
+    }
+
+    @Override
+    public void flush() {
+        // Appends are stored immediately
+    }
+
+    @Override
+    public long count() {
+        return articles.size();
+    }
+
+    @Override
+    public ArticleCursor scan(String... fields) throws IOException {
+        if (scanPartitions > 1) {
+            return new ParallelArticleScan(this, scanPartitions, 2 * scanPartitions * scanBatchSize, fields);
+        }
+        return scanRange(null, null, fields);
+    }
+
+    /**
+     * Splits the articles into ranges of equal size, as an exact stand-in for sampling.
+     */
+    @Override
+    public List<Object> splitPoints(int partitions) {
+        if (partitions < 2) {
+            return Collections.emptyList();
+        }
+        return MongoArticleStore.quantiles(new ArrayList<>(articles.keySet()), partitions);
+    }
+
+    @Override
+    public ArticleCursor scanRange(Object from, Object to, String... fields) {
+        Map<Object, Document> range = articles;
+        if (from != null && to != null) {
+            range = articles.subMap(from, true, to, false);
+        } else if (from != null) {
+            range = articles.tailMap(from, true);
+        } else if (to != null) {
+            range = articles.headMap(to, false);
+        }
+        return new InMemoryArticleCursor(range.values().iterator(), fields);
+    }
+
+    @Override
+    public synchronized long getWrittenCount() {
+        return written;
+    }
+
+    @Override
+    public long getBatchCount() {
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release; the articles stay readable
+    }
+
+    /**
+     * Copies the requested fields of each article, and pauses for a round trip at the start of each batch.
+     */
+    private class InMemoryArticleCursor implements ArticleCursor {
+        private final Iterator<Document> iterator;
+        private final String[] fields;
+        private int leftInBatch;
+
+        InMemoryArticleCursor(Iterator<Document> iterator, String[] fields) {
+            this.iterator = iterator;
+            this.fields = fields;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (leftInBatch <= 0 && roundTripMicros > 0 && iterator.hasNext()) {
+                try {
+                    TimeUnit.MICROSECONDS.sleep(roundTripMicros);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                leftInBatch = scanBatchSize;
+            }
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Document next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Document article = iterator.next();
+            leftInBatch--;
+            if (fields.length == 0) {
+                return new Document(article);
+            }
+            // Like a MongoDB projection, the _id is always included
+            Document projected = new Document("_id", article.get("_id"));
+            for (String field : fields) {
+                if (article.containsKey(field)) {
+                    projected.append(field, article.get(field));
+                }
+            }
+            return projected;
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+    }
+}
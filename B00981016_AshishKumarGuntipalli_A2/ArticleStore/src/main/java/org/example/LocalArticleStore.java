@@ -0,0 +1,451 @@
+package org.example;
+
+import org.bson.Document;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Stores articles in a local directory so ingest and scoring can run without MongoDB. Every field
+ * is kept in its own append-only column file holding the UTF-8 values back to back, and an offset
+ * index holds, for every article, the end offset of its value in each column. Scans memory-map
+ * the files and read them sequentially, touching only the columns asked for.
+ *
+ * <p>The index is always written after the column data it points to, so a store left behind by a
+ * crash reopens at the last complete article and the partial data after it is truncated.
+ */
+public class LocalArticleStore implements ArticleStore {
+
+    private static final String SCHEMA_FILE = "columns";
+    private static final String INDEX_FILE = "offsets.idx";
+    private static final String COLUMN_SUFFIX = ".col";
+    // Set on an index entry when the field was missing; the rest of the entry is the unchanged end offset
+    private static final long NULL_FLAG = Long.MIN_VALUE;
+    private static final long MAP_WINDOW = 1L << 28;
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final String[] columns;
+    private final int entrySize;
+    private final FileChannel[] columnChannels;
+    private final ByteBuffer[] columnBuffers;
+    private final long[] columnEnds;
+    private final long[] rowEntry;
+    private final FileChannel indexChannel;
+    private final ByteBuffer indexBuffer;
+
+    private long appended;
+    private long flushed;
+    private long written;
+    private long batches;
+    private boolean closed;
+
+    /**
+     * Opens a store, creating it with the given columns if the directory holds none yet.
+     *
+     * @param directory The directory holding the store files.
+     * @param columns   The fields stored for each article; may be omitted for an existing store.
+     * @return The opened store.
+     * @throws IOException If the store cannot be opened or was created with other columns.
+     */
+    public static LocalArticleStore open(Path directory, String... columns) throws IOException {
+        return open(directory, DEFAULT_BUFFER_SIZE, columns);
+    }
+
+    /**
+     * Opens a store, creating it with the given columns if the directory holds none yet.
+     *
+     * @param directory  The directory holding the store files.
+     * @param bufferSize The number of bytes buffered per column before they are written.
+     * @param columns    The fields stored for each article; may be omitted for an existing store.
+     * @return The opened store.
+     * @throws IOException If the store cannot be opened or was created with other columns.
+     */
+    public static LocalArticleStore open(Path directory, int bufferSize, String... columns) throws IOException {
+        Files.createDirectories(directory);
+        Path schema = directory.resolve(SCHEMA_FILE);
+        if (Files.exists(schema)) {
+            String[] stored = Files.readAllLines(schema, StandardCharsets.UTF_8).toArray(new String[0]);
+            if (columns.length > 0 && !Arrays.equals(stored, columns)) {
+                throw new IOException("Article store " + directory + " has columns " + Arrays.toString(stored)
+                        + ", not " + Arrays.toString(columns));
+            }
+            columns = stored;
+        } else if (columns.length == 0) {
+            throw new IOException("No columns given for new article store " + directory);
+        } else {
+            Files.write(schema, Arrays.asList(columns), StandardCharsets.UTF_8);
+        }
+        return new LocalArticleStore(directory, columns, bufferSize);
+    }
+
+    private LocalArticleStore(Path directory, String[] columns, int bufferSize) throws IOException {
+        this.directory = directory;
+        this.columns = columns;
+        this.entrySize = Long.BYTES * columns.length;
+        this.columnChannels = new FileChannel[columns.length];
+        this.columnBuffers = new ByteBuffer[columns.length];
+        this.columnEnds = new long[columns.length];
+        this.rowEntry = new long[columns.length];
+        this.indexChannel = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.indexBuffer = ByteBuffer.allocate(Math.max(entrySize, bufferSize / entrySize * entrySize));
+        for (int i = 0; i < columns.length; i++) {
+            columnChannels[i] = FileChannel.open(columnPath(directory, columns[i]), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            columnBuffers[i] = ByteBuffer.allocate(bufferSize);
+        }
+        recover();
+    }
+
+    /**
+     * Drops any partial index entry and any column data past the last complete article.
+     */
+    private void recover() throws IOException {
+        truncateFiles(indexChannel.size() / entrySize);
+    }
+
+    /**
+     * Cuts the index and column files back to the end of an article.
+     *
+     * @param entries The number of articles to keep.
+     */
+    private void truncateFiles(long entries) throws IOException {
+        indexChannel.truncate(entries * entrySize);
+        indexChannel.position(entries * entrySize);
+        Arrays.fill(columnEnds, 0);
+        if (entries > 0) {
+            ByteBuffer last = ByteBuffer.allocate(entrySize);
+            readFully(indexChannel, last, (entries - 1) * entrySize);
+            for (int i = 0; i < columns.length; i++) {
+                columnEnds[i] = last.getLong(i * Long.BYTES) & ~NULL_FLAG;
+            }
+        }
+        for (int i = 0; i < columns.length; i++) {
+            columnChannels[i].truncate(columnEnds[i]);
+            columnChannels[i].position(columnEnds[i]);
+        }
+        appended = entries;
+        flushed = entries;
+    }
+
+    /**
+     * Appends the stored fields of an article. Fields that are not strings are stored as text.
+     * After a failed append the store should be reopened, which drops the articles not yet flushed.
+     *
+     * @param article The article to append.
+     * @throws IOException If the buffered data cannot be written.
+     */
+    @Override
+    public synchronized void append(Document article) throws IOException {
+        checkOpen();
+        if (indexBuffer.remaining() < entrySize) {
+            flush();
+        }
+        for (int i = 0; i < columns.length; i++) {
+            Object value = article.get(columns[i]);
+            if (value == null) {
+                rowEntry[i] = columnEnds[i] | NULL_FLAG;
+                continue;
+            }
+            byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = columnBuffers[i];
+            if (buffer.remaining() < bytes.length) {
+                writeColumn(i);
+            }
+            if (bytes.length > buffer.capacity()) {
+                writeFully(columnChannels[i], ByteBuffer.wrap(bytes));
+            } else {
+                buffer.put(bytes);
+            }
+            columnEnds[i] += bytes.length;
+            rowEntry[i] = columnEnds[i];
+        }
+        for (long entry : rowEntry) {
+            indexBuffer.putLong(entry);
+        }
+        appended++;
+    }
+
+    /**
+     * Writes the buffered column data and then the index entries pointing to it.
+     *
+     * @throws IOException If the files cannot be written.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        checkOpen();
+        if (appended == flushed) {
+            return;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            writeColumn(i);
+        }
+        indexBuffer.flip();
+        writeFully(indexChannel, indexBuffer);
+        indexBuffer.clear();
+        written += appended - flushed;
+        flushed = appended;
+        batches++;
+    }
+
+    /**
+     * Flushes the buffered articles and forces the column files and then the index to disk.
+     *
+     * @throws IOException If the files cannot be written.
+     */
+    @Override
+    public synchronized void sync() throws IOException {
+        flush();
+        force();
+    }
+
+    /**
+     * Drops the buffered articles and every stored article after the first count. Open cursors
+     * must not be read afterwards.
+     *
+     * @param count The number of articles to keep.
+     * @throws IOException If the files cannot be truncated or hold fewer articles than count.
+     */
+    @Override
+    public synchronized void truncate(long count) throws IOException {
+        checkOpen();
+        if (count > flushed) {
+            throw new IOException("Article store " + directory + " holds " + flushed + " articles, not " + count);
+        }
+        for (ByteBuffer buffer : columnBuffers) {
+            buffer.clear();
+        }
+        indexBuffer.clear();
+        truncateFiles(count);
+        force();
+    }
+
+    @Override
+    public synchronized long count() {
+        return flushed;
+    }
+
+    @Override
+    public ArticleCursor scan(String... fields) throws IOException {
+        long entries;
+        synchronized (this) {
+            checkOpen();
+            entries = flushed;
+        }
+        List<Integer> selected = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            if (fields.length == 0 || Arrays.asList(fields).contains(columns[i])) {
+                selected.add(i);
+            }
+        }
+        return new LocalArticleCursor(entries, selected);
+    }
+
+    @Override
+    public synchronized long getWrittenCount() {
+        return written;
+    }
+
+    @Override
+    public synchronized long getBatchCount() {
+        return batches;
+    }
+
+    /**
+     * Flushes the buffered articles, forces them to disk and closes the files.
+     *
+     * @throws IOException If the files cannot be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+            force();
+        } finally {
+            closed = true;
+            for (FileChannel channel : columnChannels) {
+                channel.close();
+            }
+            indexChannel.close();
+        }
+    }
+
+    private void force() throws IOException {
+        for (FileChannel channel : columnChannels) {
+            channel.force(false);
+        }
+        indexChannel.force(false);
+    }
+
+    private void writeColumn(int column) throws IOException {
+        ByteBuffer buffer = columnBuffers[column];
+        buffer.flip();
+        writeFully(columnChannels[column], buffer);
+        buffer.clear();
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Article store " + directory + " is closed");
+        }
+    }
+
+    private static Path columnPath(Path directory, String column) {
+        return directory.resolve(column + COLUMN_SUFFIX);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Reads the articles flushed when the scan started, one row of the index at a time. Each
+     * cursor opens its own read-only view of the files, so appends can continue during a scan.
+     */
+    private class LocalArticleCursor implements ArticleCursor {
+        private final long entries;
+        private final int[] selected;
+        private final long[] starts;
+        private final MappedRegion index;
+        private final MappedRegion[] values;
+        private final List<FileChannel> channels = new ArrayList<>();
+        private byte[] scratch = new byte[256];
+        private long row;
+
+        LocalArticleCursor(long entries, List<Integer> selected) throws IOException {
+            this.entries = entries;
+            this.selected = selected.stream().mapToInt(Integer::intValue).toArray();
+            this.starts = new long[this.selected.length];
+            this.values = new MappedRegion[this.selected.length];
+            try {
+                index = new MappedRegion(openForRead(directory.resolve(INDEX_FILE)), entries * entrySize);
+                for (int i = 0; i < this.selected.length; i++) {
+                    FileChannel channel = openForRead(columnPath(directory, columns[this.selected[i]]));
+                    values[i] = new MappedRegion(channel, channel.size());
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        private FileChannel openForRead(Path path) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            channels.add(channel);
+            return channel;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return row < entries;
+        }
+
+        @Override
+        public Document next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                Document article = new Document();
+                long rowOffset = row * entrySize;
+                for (int i = 0; i < selected.length; i++) {
+                    long entry = index.getLong(rowOffset + (long) selected[i] * Long.BYTES);
+                    long end = entry & ~NULL_FLAG;
+                    article.append(columns[selected[i]], entry < 0 ? null : readString(values[i], starts[i], end));
+                    starts[i] = end;
+                }
+                row++;
+                return article;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading article store " + directory, e);
+            }
+        }
+
+        private String readString(MappedRegion region, long start, long end) throws IOException {
+            int length = (int) (end - start);
+            if (length == 0) {
+                return "";
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            region.read(start, scratch, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() {
+            for (FileChannel channel : channels) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // Nothing left to release
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps a file in windows of up to MAP_WINDOW bytes, moving the window as reads go past it.
+     */
+    private static class MappedRegion {
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long windowEnd;
+
+        MappedRegion(FileChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+        }
+
+        long getLong(long position) throws IOException {
+            return window(position, Long.BYTES).getLong((int) (position - windowStart));
+        }
+
+        void read(long position, byte[] destination, int length) throws IOException {
+            ByteBuffer buffer = window(position, length);
+            buffer.position((int) (position - windowStart));
+            buffer.get(destination, 0, length);
+        }
+
+        private MappedByteBuffer window(long position, int length) throws IOException {
+            if (window == null || position < windowStart || position + length > windowEnd) {
+                long mapLength = Math.min(size - position, Math.max(length, MAP_WINDOW));
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, mapLength);
+                windowStart = position;
+                windowEnd = position + mapLength;
+            }
+            return window;
+        }
+    }
+}
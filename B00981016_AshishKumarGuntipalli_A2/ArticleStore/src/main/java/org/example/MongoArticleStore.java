@@ -0,0 +1,261 @@
+package org.example;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stores articles in a MongoDB collection. Appends go through a BatchedBulkWriter and scans read
+ * from a cursor in batches, or from several cursors over _id ranges at once when the store is
+ * given more than one scan partition.
+ */
+public class MongoArticleStore implements ArticleStore, RangeScanSource {
+
+    // Ids sampled per partition when choosing split points; more give more even ranges
+    private static final int SAMPLES_PER_PARTITION = 32;
+
+    private final MongoCollection<Document> collection;
+    private final int scanBatchSize;
+    private final int scanPartitions;
+    private BatchedBulkWriter writer;
+
+    /**
+     * Constructs a MongoArticleStore that appends with default batch settings. The writer is only
+     * created on the first append, so a store used for scanning starts no threads.
+     *
+     * @param collection    The collection holding the articles.
+     * @param scanBatchSize The number of articles fetched per round trip when scanning.
+     */
+    public MongoArticleStore(MongoCollection<Document> collection, int scanBatchSize) {
+        this(collection, null, scanBatchSize);
+    }
+
+    /**
+     * Constructs a MongoArticleStore.
+     *
+     * @param collection    The collection holding the articles.
+     * @param writer        The writer used to append articles to the collection.
+     * @param scanBatchSize The number of articles fetched per round trip when scanning.
+     */
+    public MongoArticleStore(MongoCollection<Document> collection, BatchedBulkWriter writer, int scanBatchSize) {
+        this(collection, writer, scanBatchSize, 1);
+    }
+
+    /**
+     * Constructs a MongoArticleStore.
+     *
+     * @param collection     The collection holding the articles.
+     * @param writer         The writer used to append articles to the collection, or null to create one on the first append.
+     * @param scanBatchSize  The number of articles fetched per round trip when scanning.
+     * @param scanPartitions The number of _id ranges scanned at once; 1 scans with a single cursor.
+     */
+    public MongoArticleStore(MongoCollection<Document> collection, BatchedBulkWriter writer, int scanBatchSize,
+                             int scanPartitions) {
+        this.collection = collection;
+        this.writer = writer;
+        this.scanBatchSize = scanBatchSize;
+        this.scanPartitions = scanPartitions;
+    }
+
+    /**
+     * Retrieves the connection string of the MongoDB deployment the jobs read and write, from
+     * -Dmongo.uri or else the MONGODB_URI environment variable. There is no default, so credentials
+     * never have to be kept in the source.
+     *
+     * @return The connection string.
+     * @throws IllegalStateException If neither is set.
+     */
+    public static String connectionString() {
+        String uri = System.getProperty("mongo.uri", System.getenv("MONGODB_URI"));
+        if (uri == null || uri.isEmpty()) {
+            throw new IllegalStateException("No MongoDB deployment given: set -Dmongo.uri or MONGODB_URI,"
+                    + " or use -Dstore=local");
+        }
+        return uri;
+    }
+
+    @Override
+    public synchronized void append(Document article) throws IOException {
+        if (writer == null) {
+            writer = new BatchedBulkWriter(collection, 1000, 16L * 1024 * 1024, false, 2, 3, null);
+        }
+        writer.add(article);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Waits until every appended article has been acknowledged by the server. Articles are not
+     * dropped by {@link #truncate(long)}; replayed articles are replaced by key when the writer
+     * upserts.
+     *
+     * @throws IOException If any batch failed permanently.
+     */
+    @Override
+    public synchronized void sync() throws IOException {
+        if (writer != null) {
+            writer.sync();
+        }
+    }
+
+    @Override
+    public long count() throws IOException {
+        try {
+            return collection.countDocuments();
+        } catch (Exception e) {
+            throw new IOException("Error counting articles: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ArticleCursor scan(String... fields) throws IOException {
+        if (scanPartitions > 1) {
+            return new ParallelArticleScan(this, scanPartitions, 2 * scanPartitions * scanBatchSize, fields);
+        }
+        return scanRange(null, null, fields);
+    }
+
+    /**
+     * Chooses split points from a random sample of _id values, so the ranges hold about the same
+     * number of articles whatever the ids look like.
+     */
+    @Override
+    public List<Object> splitPoints(int partitions) throws IOException {
+        if (partitions < 2) {
+            return Collections.emptyList();
+        }
+        List<Object> ids = new ArrayList<>();
+        try {
+            for (Document sampled : collection.aggregate(Arrays.asList(
+                    Aggregates.sample(partitions * SAMPLES_PER_PARTITION),
+                    Aggregates.project(Projections.include("_id"))))) {
+                ids.add(sampled.get("_id"));
+            }
+        } catch (Exception e) {
+            throw new IOException("Error sampling articles: " + e.getMessage(), e);
+        }
+        return quantiles(ids, partitions);
+    }
+
+    @Override
+    public ArticleCursor scanRange(Object from, Object to, String... fields) throws IOException {
+        try {
+            List<Bson> bounds = new ArrayList<>(2);
+            if (from != null) {
+                bounds.add(Filters.gte("_id", from));
+            }
+            if (to != null) {
+                bounds.add(Filters.lt("_id", to));
+            }
+            FindIterable<Document> find = bounds.isEmpty() ? collection.find()
+                    : collection.find(bounds.size() == 1 ? bounds.get(0) : Filters.and(bounds));
+            find = find.batchSize(scanBatchSize);
+            if (fields.length > 0) {
+                find = find.projection(Projections.include(fields));
+            }
+            return new MongoArticleCursor(find.iterator());
+        } catch (Exception e) {
+            throw new IOException("Error retrieving articles: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Picks the values splitting a sample into equal parts. Ids of mixed types cannot be ordered,
+     * in which case the store is scanned as one range.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static List<Object> quantiles(List<Object> sample, int partitions) {
+        List<Comparable> sorted = new ArrayList<>(sample.size());
+        for (Object id : sample) {
+            if (!(id instanceof Comparable)) {
+                return Collections.emptyList();
+            }
+            sorted.add((Comparable) id);
+        }
+        try {
+            Collections.sort(sorted);
+        } catch (ClassCastException e) {
+            return Collections.emptyList();
+        }
+        List<Object> splits = new ArrayList<>(partitions - 1);
+        for (int i = 1; i < partitions && !sorted.isEmpty(); i++) {
+            Comparable split = sorted.get(i * sorted.size() / partitions);
+            // Duplicate split points would give empty ranges
+            if (splits.isEmpty() || ((Comparable) splits.get(splits.size() - 1)).compareTo(split) < 0) {
+                splits.add(split);
+            }
+        }
+        return splits;
+    }
+
+    @Override
+    public synchronized long getWrittenCount() {
+        return writer == null ? 0 : writer.getWrittenCount();
+    }
+
+    @Override
+    public synchronized long getBatchCount() {
+        return writer == null ? 0 : writer.getBatchCount();
+    }
+
+    /**
+     * Waits for every batch in flight to be written. The collection itself is left open.
+     *
+     * @throws IOException If any batch failed permanently.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Adapts a MongoDB cursor to an article cursor.
+     */
+    private static class MongoArticleCursor implements ArticleCursor {
+        private static final Metrics.Timer CURSOR_WAIT = Metrics.timer("mongo_cursor_wait_seconds",
+                "Time waiting on a MongoDB cursor for the next document, including getMore round trips");
+        private static final Metrics.Counter DOCUMENTS_READ =
+                Metrics.counter("mongo_documents_read_total", "Documents read from MongoDB cursors");
+
+        private final MongoCursor<Document> cursor;
+
+        MongoArticleCursor(MongoCursor<Document> cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return CURSOR_WAIT.time(cursor::hasNext);
+        }
+
+        @Override
+        public Document next() {
+            Document document = cursor.next();
+            DOCUMENTS_READ.increment();
+            return document;
+        }
+
+        @Override
+        public void close() {
+            cursor.close();
+        }
+    }
+}
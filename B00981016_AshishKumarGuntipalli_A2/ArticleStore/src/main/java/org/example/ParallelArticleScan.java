@@ -0,0 +1,222 @@
+package org.example;
+
+import org.bson.Document;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Scans a store as several _id ranges at once, one cursor per range, and hands the articles to
+ * the caller through a bounded queue. While one cursor waits on a round trip the others keep
+ * fetching, so a scan bound by network latency runs up to partitions times faster. Articles
+ * arrive in no particular order.
+ *
+ * <p>When the scan is finished, the number of articles and the throughput of each range are
+ * printed, so skewed split points show up. The distribution of range scan times is recorded in
+ * the scan_partition_seconds timer when metrics are enabled.
+ *
+ * <p>If a range fails, the scan is closed and the failure is thrown from {@link #hasNext()}, and
+ * again from every later call.
+ */
+public class ParallelArticleScan implements ArticleCursor {
+
+    private static final Metrics.Timer PARTITION_SCAN =
+            Metrics.timer("scan_partition_seconds", "Time to scan one _id range of a parallel scan");
+    // Marks the end of one range in the queue
+    private static final Document END = new Document();
+
+    private final BlockingQueue<Document> queue;
+    private final ExecutorService executor;
+    private final long[] counts;
+    private final long[] nanos;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final long started = System.nanoTime();
+    private int running;
+    private boolean failed;
+    private Document next;
+    private volatile boolean closed;
+
+    /**
+     * Starts scanning a store.
+     *
+     * @param source        The store to scan.
+     * @param partitions    The number of ranges scanned at once.
+     * @param queueCapacity The number of articles fetched ahead of the caller.
+     * @param fields        The fields to read, or none to read every field.
+     * @throws IOException If the split points cannot be chosen.
+     */
+    public ParallelArticleScan(RangeScanSource source, int partitions, int queueCapacity, String... fields)
+            throws IOException {
+        List<Object> splits = source.splitPoints(partitions);
+        List<Object> bounds = new ArrayList<>(splits.size() + 2);
+        bounds.add(null);
+        bounds.addAll(splits);
+        bounds.add(null);
+
+        int ranges = bounds.size() - 1;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.executor = newExecutor(ranges);
+        this.counts = new long[ranges];
+        this.nanos = new long[ranges];
+        this.running = ranges;
+        for (int i = 0; i < ranges; i++) {
+            int range = i;
+            Object from = bounds.get(i);
+            Object to = bounds.get(i + 1);
+            executor.execute(() -> scanRange(source, range, from, to, fields));
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            if (failed) {
+                rethrowFailure();
+            }
+            if (running == 0) {
+                return false;
+            }
+            Document document;
+            try {
+                document = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while scanning articles", e);
+            }
+            if (document == END) {
+                running--;
+                rethrowFailure();
+                if (running == 0) {
+                    executor.shutdown();
+                    printReport();
+                }
+            } else {
+                next = document;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Document next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Document document = next;
+        next = null;
+        return document;
+    }
+
+    /**
+     * Retrieves the number of articles read from each range so far.
+     *
+     * @return One count per range, in _id order.
+     */
+    public long[] getPartitionCounts() {
+        synchronized (counts) {
+            return counts.clone();
+        }
+    }
+
+    /**
+     * Stops the cursors of every range that is still running.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        queue.clear();
+    }
+
+    private void scanRange(RangeScanSource source, int range, Object from, Object to, String[] fields) {
+        long start = System.nanoTime();
+        try (ArticleCursor cursor = source.scanRange(from, to, fields)) {
+            while (!closed && cursor.hasNext()) {
+                queue.put(cursor.next());
+                synchronized (counts) {
+                    counts[range]++;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed while waiting for room in the queue
+            return;
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        }
+        long elapsed = System.nanoTime() - start;
+        PARTITION_SCAN.record(elapsed);
+        synchronized (counts) {
+            nanos[range] = elapsed;
+        }
+        try {
+            if (!closed) {
+                queue.put(END);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void rethrowFailure() {
+        Throwable e = failure.get();
+        if (e == null) {
+            return;
+        }
+        // The other ranges never put their END once closed, so waiting on the queue again would
+        // block forever
+        failed = true;
+        running = 0;
+        close();
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof IOException) {
+            throw new UncheckedIOException((IOException) e);
+        }
+        throw new IllegalStateException("Error scanning articles: " + e.getMessage(), e);
+    }
+
+    private void printReport() {
+        long total = 0;
+        synchronized (counts) {
+            for (int i = 0; i < counts.length; i++) {
+                total += counts[i];
+                System.out.println("Partition " + (i + 1) + " of " + counts.length + ": " + counts[i] + " articles in "
+                        + nanos[i] / 1_000_000 + " ms (" + perSecond(counts[i], nanos[i]) + " articles/s)");
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        System.out.println("Scanned " + total + " articles in " + elapsed / 1_000_000 + " ms ("
+                + perSecond(total, elapsed) + " articles/s)");
+    }
+
+    private static long perSecond(long count, long nanos) {
+        return nanos == 0 ? 0 : count * 1_000_000_000L / nanos;
+    }
+
+    /**
+     * Runs each range on a virtual thread where the runtime has them (Java 21), since the threads
+     * mostly wait on the network; otherwise on a daemon thread of its own.
+     */
+    private static ExecutorService newExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger number = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "article-scan-" + number.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
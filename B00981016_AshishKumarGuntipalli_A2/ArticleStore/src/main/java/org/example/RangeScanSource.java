@@ -0,0 +1,31 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * An article store whose articles can be split into ranges of their _id and each range scanned
+ * on its own, so a {@link ParallelArticleScan} can keep several cursors busy at once.
+ */
+public interface RangeScanSource {
+
+    /**
+     * Chooses the _id values splitting the articles into roughly equal ranges.
+     *
+     * @param partitions The number of ranges wanted.
+     * @return Fewer than partitions split points in ascending order; none if the articles cannot be split.
+     * @throws IOException If the store cannot be read.
+     */
+    List<Object> splitPoints(int partitions) throws IOException;
+
+    /**
+     * Scans the articles whose _id lies in a range.
+     *
+     * @param from   The lowest _id scanned, or null to start at the first article.
+     * @param to     The _id the scan stops before, or null to scan to the last article.
+     * @param fields The fields to read, or none to read every field.
+     * @return A cursor over the articles in the range; it must be closed to release its resources.
+     * @throws IOException If the store cannot be read.
+     */
+    ArticleCursor scanRange(Object from, Object to, String... fields) throws IOException;
+}
@@ -0,0 +1,165 @@
+package org.example;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BatchedBulkWriterTest {
+
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int SHUTDOWN_IN_PROGRESS = 91;
+    private static final int DOCUMENT_VALIDATION_FAILURE = 121;
+
+    private final List<List<Document>> calls = new ArrayList<>();
+
+    @Test
+    void retriesOnlyDocumentsWithTransientErrors() throws IOException {
+        BatchedBulkWriter writer = writer(null, 1L << 20, documents -> {
+            if (calls.size() == 1) {
+                throw bulkWriteException(documents.size() - 1, error(1, SHUTDOWN_IN_PROGRESS));
+            }
+            return inserted(documents.size());
+        });
+        writer.add(new Document("newid", "1"));
+        writer.add(new Document("newid", "2"));
+        writer.add(new Document("newid", "3"));
+        writer.close();
+
+        assertEquals(2, calls.size());
+        assertEquals(Collections.singletonList(new Document("newid", "2")), calls.get(1));
+        assertEquals(3, writer.getWrittenCount());
+    }
+
+    @Test
+    void failsAtOnceOnPermanentErrors() throws IOException {
+        BatchedBulkWriter writer = writer(null, 1L << 20,
+                documents -> {
+                    throw bulkWriteException(documents.size() - 1, error(0, DOCUMENT_VALIDATION_FAILURE));
+                });
+        writer.add(new Document("newid", "1"));
+        writer.add(new Document("newid", "2"));
+
+        IOException e = assertThrows(IOException.class, writer::close);
+        assertEquals(1, calls.size());
+        assertEquals(1, writer.getWrittenCount());
+        assertEquals(MongoBulkWriteException.class, e.getCause().getClass());
+    }
+
+    @Test
+    void countsDuplicateInsertsWithoutRetrying() throws IOException {
+        BatchedBulkWriter writer = writer(null, 1L << 20,
+                documents -> {
+                    throw bulkWriteException(documents.size() - 1, error(0, DUPLICATE_KEY));
+                });
+        writer.add(new Document("newid", "1"));
+        writer.add(new Document("newid", "2"));
+        writer.close();
+
+        assertEquals(1, calls.size());
+        assertEquals(1, writer.getWrittenCount());
+        assertEquals(1, writer.getDuplicateCount());
+    }
+
+    @Test
+    void countsDuplicatesOfAResentBatchAsWritten() throws IOException {
+        BatchedBulkWriter writer = writer(null, 1L << 20, documents -> {
+            if (calls.size() == 1) {
+                throw new MongoSocketException("Connection reset", new ServerAddress());
+            }
+            // The first call stored the first document before the connection dropped
+            throw bulkWriteException(documents.size() - 1, error(0, DUPLICATE_KEY));
+        });
+        writer.add(new Document("newid", "1"));
+        writer.add(new Document("newid", "2"));
+        writer.close();
+
+        assertEquals(2, calls.size());
+        assertEquals(2, writer.getWrittenCount());
+        assertEquals(0, writer.getDuplicateCount());
+    }
+
+    @Test
+    void retriesUpsertsThatRacedForTheSameKey() throws IOException {
+        BatchedBulkWriter writer = writer("newid", 1L << 20, documents -> {
+            if (calls.size() == 1) {
+                throw bulkWriteException(0, error(0, DUPLICATE_KEY));
+            }
+            return BulkWriteResult.acknowledged(0, 1, 0, 1, Collections.emptyList());
+        });
+        writer.add(new Document("newid", "1"));
+        writer.close();
+
+        assertEquals(2, calls.size());
+        assertEquals(1, writer.getWrittenCount());
+        assertEquals(0, writer.getDuplicateCount());
+    }
+
+    @Test
+    void boundsBatchesByEncodedBytes() throws IOException {
+        // 100 chars but 200 bytes in UTF-8, so two of them do not fit in 300 bytes
+        String body = String.join("", Collections.nCopies(100, "é"));
+        BatchedBulkWriter writer = writer(null, 300, documents -> inserted(documents.size()));
+        writer.add(new Document("body", body));
+        writer.add(new Document("body", body));
+        writer.close();
+
+        assertEquals(2, calls.size());
+        assertEquals(2, writer.getWrittenCount());
+    }
+
+    /**
+     * Creates a writer with one batch in flight over a collection whose bulkWrite records the
+     * documents it is sent and answers with the given function.
+     */
+    @SuppressWarnings("unchecked")
+    private BatchedBulkWriter writer(String upsertKey, long maxBatchBytes,
+                                     Function<List<Document>, BulkWriteResult> bulkWrite) {
+        MongoCollection<Document> collection = (MongoCollection<Document>) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{MongoCollection.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("bulkWrite")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    List<Document> documents = new ArrayList<>();
+                    for (WriteModel<Document> model : (List<WriteModel<Document>>) args[0]) {
+                        documents.add(model instanceof InsertOneModel
+                                ? ((InsertOneModel<Document>) model).getDocument()
+                                : ((ReplaceOneModel<Document>) model).getReplacement());
+                    }
+                    calls.add(documents);
+                    return bulkWrite.apply(documents);
+                });
+        return new BatchedBulkWriter(collection, 100, maxBatchBytes, false, 1, 3, upsertKey);
+    }
+
+    private static BulkWriteResult inserted(int count) {
+        return BulkWriteResult.acknowledged(count, 0, 0, 0, Collections.emptyList());
+    }
+
+    private static BulkWriteError error(int index, int code) {
+        return new BulkWriteError(code, "error " + code, new BsonDocument(), index);
+    }
+
+    private static MongoBulkWriteException bulkWriteException(int insertedCount, BulkWriteError error) {
+        return new MongoBulkWriteException(inserted(insertedCount), Collections.singletonList(error), null,
+                new ServerAddress());
+    }
+}
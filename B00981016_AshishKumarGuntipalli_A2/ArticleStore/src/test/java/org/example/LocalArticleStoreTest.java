@@ -0,0 +1,151 @@
+package org.example;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocalArticleStoreTest {
+
+    private static final String[] COLUMNS = {"title", "body", "newid"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackEveryFieldAcrossFlushes() throws IOException {
+        List<Document> articles = articles(50);
+        // Buffers smaller than some values, so values are also written around the buffer
+        try (LocalArticleStore store = LocalArticleStore.open(directory, 64, COLUMNS)) {
+            for (Document article : articles) {
+                store.append(article);
+            }
+        }
+
+        try (LocalArticleStore store = LocalArticleStore.open(directory)) {
+            assertEquals(50, store.count());
+            assertEquals(articles, scan(store));
+            List<Document> titles = new ArrayList<>();
+            for (Document article : articles) {
+                titles.add(new Document("title", article.get("title")));
+            }
+            assertEquals(titles, scan(store, "title"));
+        }
+    }
+
+    @Test
+    void reopensAtTheLastCompleteArticleAfterACrash() throws IOException {
+        List<Document> articles = articles(10);
+        try (LocalArticleStore store = LocalArticleStore.open(directory, COLUMNS)) {
+            for (Document article : articles) {
+                store.append(article);
+            }
+        }
+        long bodySize = Files.size(directory.resolve("body.col"));
+        // A crash while the next batch was written: its column data and part of its index entry made it to disk
+        Files.write(directory.resolve("title.col"), "PARTIAL TITLE".getBytes(), StandardOpenOption.APPEND);
+        Files.write(directory.resolve("body.col"), new byte[1000], StandardOpenOption.APPEND);
+        Files.write(directory.resolve("offsets.idx"), new byte[13], StandardOpenOption.APPEND);
+
+        try (LocalArticleStore store = LocalArticleStore.open(directory)) {
+            assertEquals(10, store.count());
+            assertEquals(bodySize, Files.size(directory.resolve("body.col")));
+            assertEquals(articles, scan(store));
+            store.append(new Document("title", "after").append("body", "recovery").append("newid", "11"));
+        }
+
+        List<Document> expected = new ArrayList<>(articles);
+        expected.add(new Document("title", "after").append("body", "recovery").append("newid", "11"));
+        try (LocalArticleStore store = LocalArticleStore.open(directory)) {
+            assertEquals(expected, scan(store));
+        }
+    }
+
+    @Test
+    void dropsColumnDataWrittenBeforeTheFirstIndexEntry() throws IOException {
+        LocalArticleStore.open(directory, COLUMNS).close();
+        Files.write(directory.resolve("title.col"), "orphan".getBytes(), StandardOpenOption.APPEND);
+
+        try (LocalArticleStore store = LocalArticleStore.open(directory)) {
+            assertEquals(0, store.count());
+            assertEquals(0, Files.size(directory.resolve("title.col")));
+            store.append(new Document("title", "first"));
+        }
+        try (LocalArticleStore store = LocalArticleStore.open(directory)) {
+            assertEquals(Collections.singletonList(new Document("title", "first").append("body", null)
+                    .append("newid", null)), scan(store));
+        }
+    }
+
+    @Test
+    void truncateDropsBufferedAndStoredArticles() throws IOException {
+        List<Document> articles = articles(20);
+        try (LocalArticleStore store = LocalArticleStore.open(directory, COLUMNS)) {
+            for (Document article : articles.subList(0, 15)) {
+                store.append(article);
+            }
+            store.sync();
+            for (Document article : articles.subList(15, 20)) {
+                store.append(article);
+            }
+            store.truncate(10);
+            assertEquals(10, store.count());
+            store.append(articles.get(19));
+        }
+
+        List<Document> expected = new ArrayList<>(articles.subList(0, 10));
+        expected.add(articles.get(19));
+        try (LocalArticleStore store = LocalArticleStore.open(directory)) {
+            assertEquals(expected, scan(store));
+            assertThrows(IOException.class, () -> store.truncate(12));
+        }
+    }
+
+    @Test
+    void rejectsOtherColumnsAndAClosedStore() throws IOException {
+        assertThrows(IOException.class, () -> LocalArticleStore.open(directory));
+        LocalArticleStore store = LocalArticleStore.open(directory, COLUMNS);
+        store.close();
+
+        assertThrows(IOException.class, () -> LocalArticleStore.open(directory, "title", "body"));
+        assertThrows(IOException.class, () -> store.append(new Document("title", "late")));
+        assertThrows(IOException.class, store::scan);
+    }
+
+    /**
+     * Creates articles with missing fields, empty and non-ASCII text, numbers stored as text and
+     * bodies larger than a small write buffer.
+     */
+    private static List<Document> articles(int count) {
+        List<Document> articles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            char[] body = new char[i * 7 % 150];
+            Arrays.fill(body, i % 2 == 0 ? 'x' : 'é');
+            articles.add(new Document("title", i % 5 == 0 ? null : "Title " + i + " 東京")
+                    .append("body", new String(body))
+                    .append("newid", Integer.toString(1000 + i)));
+        }
+        return articles;
+    }
+
+    private static List<Document> scan(ArticleStore store, String... fields) throws IOException {
+        List<Document> articles = new ArrayList<>();
+        try (ArticleCursor cursor = store.scan(fields)) {
+            while (cursor.hasNext()) {
+                articles.add(cursor.next());
+            }
+        }
+        return articles;
+    }
+}
@@ -0,0 +1,86 @@
+package org.example;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelArticleScanTest {
+
+    @Test
+    void readsEveryArticleOnceAndReportsEachRange() throws IOException {
+        InMemoryArticleStore store = new InMemoryArticleStore(7, 0, 4);
+        for (int i = 0; i < 100; i++) {
+            store.append(new Document("newid", String.valueOf(i)));
+        }
+
+        Set<String> seen = new HashSet<>();
+        String report = captureOutput(() -> {
+            try (ParallelArticleScan scan = new ParallelArticleScan(store, 4, 8, "newid")) {
+                while (scan.hasNext()) {
+                    assertTrue(seen.add(scan.next().getString("newid")));
+                }
+                long[] counts = scan.getPartitionCounts();
+                assertEquals(4, counts.length);
+                assertEquals(100, counts[0] + counts[1] + counts[2] + counts[3]);
+            }
+        });
+
+        assertEquals(100, seen.size());
+        // Printed whether or not metrics are enabled
+        assertTrue(report.contains("Partition 4 of 4: 25 articles"), report);
+        assertTrue(report.contains("Scanned 100 articles"), report);
+    }
+
+    @Test
+    void throwsARangeFailureFromEveryLaterCall() throws IOException {
+        IOException failure = new IOException("connection reset");
+        RangeScanSource source = new RangeScanSource() {
+            @Override
+            public List<Object> splitPoints(int partitions) {
+                return List.of(10L);
+            }
+
+            @Override
+            public ArticleCursor scanRange(Object from, Object to, String... fields) throws IOException {
+                throw failure;
+            }
+        };
+
+        ParallelArticleScan scan = new ParallelArticleScan(source, 2, 4);
+        UncheckedIOException first = assertThrows(UncheckedIOException.class, scan::hasNext);
+        assertEquals(failure, first.getCause());
+        // Does not block waiting for ranges closed by the failure
+        assertThrows(UncheckedIOException.class, scan::hasNext);
+        scan.close();
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    private interface Scan {
+        void run() throws IOException;
+    }
+
+    private static String captureOutput(Scan scan) throws IOException {
+        PrintStream out = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            scan.run();
+        } finally {
+            System.setOut(out);
+        }
+        return captured.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,107 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replaces files atomically. A file is written under a temporary name next to it, forced to disk,
+ * and then moved over the old file, so a reader or a restarted job sees either the old contents
+ * or the new ones, never a partly written file.
+ */
+public class AtomicFiles {
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * Writes the contents of a file to a channel.
+     */
+    @FunctionalInterface
+    public interface ChannelWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+
+    /**
+     * Writes the contents of a file to a stream.
+     */
+    @FunctionalInterface
+    public interface StreamWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Replaces a file with what the writer writes to a channel.
+     *
+     * @param file   The path of the file.
+     * @param writer Writes the whole contents, from position 0.
+     * @throws IOException If the file cannot be written or moved into place.
+     */
+    public static void write(Path file, ChannelWriter writer) throws IOException {
+        Path temporary = temporary(file);
+        try (FileChannel channel = create(temporary)) {
+            writer.write(channel);
+            channel.force(false);
+        }
+        commit(temporary, file);
+    }
+
+    /**
+     * Replaces a file with what the writer writes to a buffered stream. Streams the writer wraps
+     * around it, other than plain filters such as DataOutputStream, must be flushed by the writer.
+     *
+     * @param file   The path of the file.
+     * @param writer Writes the whole contents.
+     * @throws IOException If the file cannot be written or moved into place.
+     */
+    public static void writeStream(Path file, StreamWriter writer) throws IOException {
+        write(file, channel -> {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            writer.write(out);
+            out.flush();
+        });
+    }
+
+    /**
+     * Retrieves the temporary name a file is written under before it is moved into place, for
+     * files written over a longer time than one call.
+     *
+     * @param file The path of the file.
+     * @return The temporary path next to it.
+     */
+    public static Path temporary(Path file) {
+        return file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+    }
+
+    /**
+     * Creates or truncates a temporary file for writing.
+     *
+     * @param temporary The temporary path, as returned by {@link #temporary(Path)}.
+     * @return A channel positioned at the start of the empty file.
+     * @throws IOException If the file cannot be created.
+     */
+    public static FileChannel create(Path temporary) throws IOException {
+        return FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Moves a finished temporary file over the file it replaces. The temporary file should have
+     * been forced to disk and closed.
+     *
+     * @param temporary The temporary path, as returned by {@link #temporary(Path)}.
+     * @param file      The path of the file.
+     * @throws IOException If the file cannot be moved.
+     */
+    public static void commit(Path temporary, Path file) throws IOException {
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
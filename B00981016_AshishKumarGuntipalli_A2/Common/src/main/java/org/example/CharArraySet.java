@@ -0,0 +1,58 @@
+package org.example;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * Small open-addressing set of lower-case words that can be probed with a slice of a char array.
+ */
+class CharArraySet implements Serializable {
+    private final char[][] table;
+    private final int mask;
+
+    CharArraySet(Collection<String> words) {
+        int capacity = Integer.highestOneBit(Math.max(4, words.size() * 4) - 1) << 1;
+        table = new char[capacity][];
+        mask = capacity - 1;
+        for (String word : words) {
+            char[] key = word.toLowerCase().toCharArray();
+            int slot = hash(key, 0, key.length, false) & mask;
+            while (table[slot] != null && !equalsIgnoreCase(table[slot], key, 0, key.length)) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = key;
+        }
+    }
+
+    boolean containsIgnoreCase(char[] buffer, int offset, int length) {
+        int slot = hash(buffer, offset, length, true) & mask;
+        char[] key;
+        while ((key = table[slot]) != null) {
+            if (equalsIgnoreCase(key, buffer, offset, length)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private static int hash(char[] buffer, int offset, int length, boolean lowerCase) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + (lowerCase ? Character.toLowerCase(buffer[i]) : buffer[i]);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equalsIgnoreCase(char[] key, char[] buffer, int offset, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != Character.toLowerCase(buffer[offset + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
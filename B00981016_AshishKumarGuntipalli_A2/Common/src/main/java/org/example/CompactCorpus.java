@@ -0,0 +1,386 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Holds the text fields of many articles as UTF-8 in off-heap arenas, so a large corpus can be
+ * kept in memory and scored repeatedly with a small heap. Each article has the same named fields;
+ * the heap only holds an index of arena, offset and length per field, and text is read back
+ * through {@link TextView}s that decode from the arena instead of materializing Strings.
+ *
+ * <p>Articles are added from one thread at a time. Once added they can be read from any number
+ * of threads, provided the reads happen after the adds, e.g. in tasks submitted afterwards. The
+ * arenas are direct buffers, released when the corpus is garbage collected; their total is
+ * bounded by -XX:MaxDirectMemorySize.
+ */
+public class CompactCorpus implements Iterable<Integer> {
+
+    private static final int DEFAULT_ARENA_SIZE = 64 * 1024 * 1024;
+    // Set in an entry's length when the text contains a non-ASCII character
+    private static final int NON_ASCII = 0x80000000;
+    private static final int NULL_ARENA = -1;
+
+    private final String[] fields;
+    private final int arenaSize;
+    private final List<ByteBuffer> arenas = new ArrayList<>();
+    private ByteBuffer current;
+    private int[] entryArenas = new int[0];
+    private int[] entryOffsets = new int[0];
+    private int[] entryLengths = new int[0];
+    private int size;
+    private long usedBytes;
+
+    /**
+     * Constructs an empty CompactCorpus with 64MB arenas.
+     *
+     * @param fields The names of the text fields of each article, such as "title" and "body".
+     */
+    public CompactCorpus(String... fields) {
+        this(DEFAULT_ARENA_SIZE, fields);
+    }
+
+    /**
+     * Constructs an empty CompactCorpus.
+     *
+     * @param arenaSize The size in bytes of each off-heap arena; larger texts get an arena of their own.
+     * @param fields    The names of the text fields of each article, such as "title" and "body".
+     */
+    public CompactCorpus(int arenaSize, String... fields) {
+        if (fields.length == 0) {
+            throw new IllegalArgumentException("A corpus needs at least one field");
+        }
+        this.arenaSize = arenaSize;
+        this.fields = fields.clone();
+    }
+
+    /**
+     * Adds an article.
+     *
+     * @param values The text of each field, in the order the fields were named; null is kept as null.
+     * @return The index of the article.
+     */
+    public int add(CharSequence... values) {
+        if (values.length != fields.length) {
+            throw new IllegalArgumentException("Expected " + fields.length + " fields but got " + values.length);
+        }
+        int first = size * fields.length;
+        ensureEntries(first + fields.length);
+        for (int f = 0; f < fields.length; f++) {
+            store(first + f, values[f]);
+        }
+        return size++;
+    }
+
+    /**
+     * Retrieves the number of articles.
+     *
+     * @return The number of articles.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the position of a field in the values passed to {@link #add(CharSequence...)}.
+     *
+     * @param field The name of the field.
+     * @return The index of the field.
+     */
+    public int fieldIndex(String field) {
+        for (int f = 0; f < fields.length; f++) {
+            if (fields[f].equals(field)) {
+                return f;
+            }
+        }
+        throw new IllegalArgumentException("Unknown field: " + field);
+    }
+
+    /**
+     * Retrieves the text of one field of an article as a view over the arena.
+     *
+     * @param article The index of the article.
+     * @param field   The index of the field.
+     * @return A view of the text, or null if the field was null.
+     */
+    public TextView text(int article, int field) {
+        TextView view = new TextView();
+        return view(article, field, view) ? view : null;
+    }
+
+    /**
+     * Points a reusable view at the text of one field of an article, so a scan over many articles
+     * allocates nothing per article.
+     *
+     * @param article The index of the article.
+     * @param field   The index of the field.
+     * @param view    The view to point at the text.
+     * @return false if the field was null, in which case the view is left unchanged.
+     */
+    public boolean view(int article, int field, TextView view) {
+        int entry = entry(article, field);
+        int arena = entryArenas[entry];
+        if (arena == NULL_ARENA) {
+            return false;
+        }
+        int length = entryLengths[entry];
+        view.reset(arenas.get(arena), entryOffsets[entry], length & ~NON_ASCII, (length & NON_ASCII) == 0);
+        return true;
+    }
+
+    /**
+     * Retrieves the UTF-8 bytes of one field of an article without copying them.
+     *
+     * @param article The index of the article.
+     * @param field   The index of the field.
+     * @return A read-only buffer positioned over the bytes, or null if the field was null.
+     */
+    public ByteBuffer bytes(int article, int field) {
+        int entry = entry(article, field);
+        int arena = entryArenas[entry];
+        if (arena == NULL_ARENA) {
+            return null;
+        }
+        ByteBuffer slice = arenas.get(arena).asReadOnlyBuffer();
+        slice.limit(entryOffsets[entry] + (entryLengths[entry] & ~NON_ASCII)).position(entryOffsets[entry]);
+        return slice.slice();
+    }
+
+    /**
+     * Iterates over the text of one field of every article in order, through a single view that
+     * is moved from article to article. Null fields are skipped.
+     *
+     * @param field The index of the field.
+     * @return An iterator whose elements must not be kept past the next call to next().
+     */
+    public Iterator<CharSequence> texts(int field) {
+        return new Iterator<CharSequence>() {
+            private final TextView view = new TextView();
+            private int next = advance(0);
+
+            private int advance(int from) {
+                while (from < size && entryArenas[entry(from, field)] == NULL_ARENA) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public CharSequence next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                view(next, field, view);
+                next = advance(next + 1);
+                return view;
+            }
+        };
+    }
+
+    /**
+     * Iterates over the article indexes.
+     *
+     * @return An iterator from 0 to size() - 1.
+     */
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Integer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return next++;
+            }
+        };
+    }
+
+    /**
+     * Retrieves the number of bytes of text stored.
+     *
+     * @return The UTF-8 size of every field of every article.
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Retrieves the off-heap memory reserved by the arenas.
+     *
+     * @return The total capacity of the arenas in bytes.
+     */
+    public long getReservedBytes() {
+        long reserved = 0;
+        for (ByteBuffer arena : arenas) {
+            reserved += arena.capacity();
+        }
+        return reserved;
+    }
+
+    private int entry(int article, int field) {
+        if (article < 0 || article >= size) {
+            throw new IndexOutOfBoundsException("Article " + article + " of " + size);
+        }
+        if (field < 0 || field >= fields.length) {
+            throw new IndexOutOfBoundsException("Field " + field + " of " + fields.length);
+        }
+        return article * fields.length + field;
+    }
+
+    private void ensureEntries(int entries) {
+        if (entries > entryArenas.length) {
+            int capacity = Math.max(entries, Math.max(16, entryArenas.length * 2));
+            entryArenas = Arrays.copyOf(entryArenas, capacity);
+            entryOffsets = Arrays.copyOf(entryOffsets, capacity);
+            entryLengths = Arrays.copyOf(entryLengths, capacity);
+        }
+    }
+
+    /**
+     * Encodes text straight into the current arena. Room for the worst case of three bytes per
+     * char is reserved up front, so a text never spans two arenas.
+     */
+    private void store(int entry, CharSequence text) {
+        if (text == null) {
+            entryArenas[entry] = NULL_ARENA;
+            return;
+        }
+        int n = text.length();
+        long worstCase = 3L * n;
+        if (worstCase > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Text too large for one arena: " + n + " chars");
+        }
+        if (current == null || current.remaining() < worstCase) {
+            current = ByteBuffer.allocateDirect(Math.max(arenaSize, (int) worstCase));
+            arenas.add(current);
+        }
+        int start = current.position();
+        boolean ascii = true;
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                current.put((byte) c);
+                continue;
+            }
+            ascii = false;
+            if (c < 0x800) {
+                current.put((byte) (0xC0 | (c >> 6)));
+                current.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                current.put((byte) (0xF0 | (codePoint >> 18)));
+                current.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                current.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                current.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates are replaced, as String.getBytes(UTF_8) does
+                current.put((byte) '?');
+            } else {
+                current.put((byte) (0xE0 | (c >> 12)));
+                current.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                current.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        int length = current.position() - start;
+        entryArenas[entry] = arenas.size() - 1;
+        entryOffsets[entry] = start;
+        entryLengths[entry] = ascii ? length : length | NON_ASCII;
+        usedBytes += length;
+    }
+
+    /**
+     * A CharSequence over text in an arena. ASCII text, the common case for Reuters articles, is
+     * read byte for byte with no copy; other text is decoded once, on first access.
+     */
+    public static final class TextView implements CharSequence {
+        private ByteBuffer arena;
+        private int offset;
+        private int byteLength;
+        private boolean ascii;
+        private String decoded;
+
+        /**
+         * Constructs a view over no text, to be pointed at an article with
+         * {@link CompactCorpus#view(int, int, TextView)}.
+         */
+        public TextView() {
+            this.arena = ByteBuffer.allocate(0);
+            this.ascii = true;
+        }
+
+        void reset(ByteBuffer arena, int offset, int byteLength, boolean ascii) {
+            this.arena = arena;
+            this.offset = offset;
+            this.byteLength = byteLength;
+            this.ascii = ascii;
+            this.decoded = null;
+        }
+
+        @Override
+        public int length() {
+            return ascii ? byteLength : decoded().length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (!ascii) {
+                return decoded().charAt(index);
+            }
+            if (index < 0 || index >= byteLength) {
+                throw new IndexOutOfBoundsException("Index " + index + " of " + byteLength);
+            }
+            return (char) arena.get(offset + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (!ascii) {
+                return decoded().subSequence(start, end);
+            }
+            if (start < 0 || end > byteLength || start > end) {
+                throw new IndexOutOfBoundsException("Range " + start + ".." + end + " of " + byteLength);
+            }
+            TextView view = new TextView();
+            view.reset(arena, offset + start, end - start, true);
+            return view;
+        }
+
+        @Override
+        public String toString() {
+            if (!ascii) {
+                return decoded();
+            }
+            byte[] bytes = new byte[byteLength];
+            for (int i = 0; i < byteLength; i++) {
+                bytes[i] = arena.get(offset + i);
+            }
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        private String decoded() {
+            if (decoded == null) {
+                ByteBuffer slice = arena.duplicate();
+                slice.limit(offset + byteLength).position(offset);
+                decoded = StandardCharsets.UTF_8.decode(slice).toString();
+            }
+            return decoded;
+        }
+    }
+}
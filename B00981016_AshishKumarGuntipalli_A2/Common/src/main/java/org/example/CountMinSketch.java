@@ -0,0 +1,96 @@
+package org.example;
+
+import java.io.Serializable;
+
+/**
+ * Estimates term counts in fixed memory. Each term is counted in one cell of every row, and its
+ * estimate is the smallest of those cells, so it can be too high by collisions but never too low.
+ * With width w and depth d the error is at most 2N/w with probability 1 - 2^-d, where N is the
+ * total count.
+ */
+public class CountMinSketch implements Serializable {
+
+    // Saved as part of WordFrequencyStats
+    private static final long serialVersionUID = 1L;
+
+    private final int width;
+    private final int depth;
+    private final long[] cells;
+    private long totalCount;
+
+    /**
+     * Constructs an empty CountMinSketch.
+     *
+     * @param width The number of cells per row; rounded up to a power of two.
+     * @param depth The number of rows.
+     */
+    public CountMinSketch(int width, int depth) {
+        this.width = Integer.highestOneBit(Math.max(2, width) - 1) << 1;
+        this.depth = depth;
+        this.cells = new long[this.width * depth];
+    }
+
+    /**
+     * Adds occurrences of a term.
+     *
+     * @param term  The term to count.
+     * @param count The number of occurrences to add.
+     */
+    public void add(String term, long count) {
+        int h1 = mix(term.hashCode());
+        int h2 = mix(h1 ^ 0x5BD1E995) | 1;
+        for (int row = 0; row < depth; row++) {
+            cells[row * width + ((h1 + row * h2) & (width - 1))] += count;
+        }
+        totalCount += count;
+    }
+
+    /**
+     * Estimates the count of a term.
+     *
+     * @param term The term to look up.
+     * @return An upper bound on the number of occurrences of the term.
+     */
+    public long estimate(String term) {
+        int h1 = mix(term.hashCode());
+        int h2 = mix(h1 ^ 0x5BD1E995) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, cells[row * width + ((h1 + row * h2) & (width - 1))]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Adds every count of another sketch of the same dimensions to this one.
+     *
+     * @param other The sketch to merge into this one.
+     */
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge sketches of different dimensions");
+        }
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] += other.cells[i];
+        }
+        totalCount += other.totalCount;
+    }
+
+    /**
+     * Retrieves the total number of occurrences added.
+     *
+     * @return The total count.
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    // Murmur3 finalizer, so every bit of the hash code reaches the cell index
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,112 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A byte array that grows as variable-byte encoded values are written to it. Used to assemble
+ * the sections of binary files, such as posting lists and column blocks, before they are written.
+ */
+public class GrowableBuffer {
+    private byte[] bytes = new byte[1024];
+    private int size;
+
+    /**
+     * Retrieves the number of bytes written.
+     *
+     * @return The size in bytes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Discards the bytes written, keeping the allocated array for reuse.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Writes one byte.
+     *
+     * @param value The byte, in the low eight bits.
+     */
+    public void writeByte(int value) {
+        ensure(1);
+        bytes[size++] = (byte) value;
+    }
+
+    /**
+     * Writes an int as an unsigned variable-byte value.
+     *
+     * @param value The value.
+     */
+    public void writeVInt(int value) {
+        writeVLong(value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Writes a long as an unsigned variable-byte value: seven bits per byte, low bits first, with
+     * the high bit marking that another byte follows.
+     *
+     * @param value The value.
+     */
+    public void writeVLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    /**
+     * Writes a string as its UTF-8 length followed by its UTF-8 bytes.
+     *
+     * @param value The string; null is written as an empty string.
+     */
+    public void writeString(String value) {
+        byte[] data = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        writeVInt(data.length);
+        write(data);
+    }
+
+    /**
+     * Writes raw bytes.
+     *
+     * @param data The bytes.
+     */
+    public void write(byte[] data) {
+        ensure(data.length);
+        System.arraycopy(data, 0, bytes, size, data.length);
+        size += data.length;
+    }
+
+    /**
+     * Writes the bytes written to another buffer.
+     *
+     * @param other The buffer to copy.
+     */
+    public void write(GrowableBuffer other) {
+        ensure(other.size);
+        System.arraycopy(other.bytes, 0, bytes, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Wraps the bytes written, without copying them.
+     *
+     * @return A buffer positioned at the first byte and limited to the size.
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(bytes, 0, size);
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(size + extra, bytes.length * 2));
+        }
+    }
+}
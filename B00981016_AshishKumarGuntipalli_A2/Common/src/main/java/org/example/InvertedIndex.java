@@ -0,0 +1,507 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A read-only inverted index mapping each term to the documents containing it. The files written
+ * by {@link InvertedIndexBuilder} are memory-mapped; only the term dictionaries are loaded onto
+ * the heap, and posting lists are decoded from the mappings when they are read.
+ *
+ * <p>File layout: a header (magic, version, term count, document count, dictionary offset), the
+ * posting lists, then the dictionary of sorted terms. Each posting list is a sequence of
+ * variable-byte encoded (document id delta, term frequency) pairs; each dictionary entry holds
+ * the term, its document frequency and the delta from the previous term's posting list offset.
+ *
+ * <p>An index may be extended by segments: files in the same layout named after the index file
+ * with a sequence number appended, such as title.idx.1 and title.idx.2. Reads merge the posting
+ * lists of every segment, and where a document appears in several segments for the same term the
+ * newest segment gives its frequency, as if the documents had been added to one builder in order.
+ */
+public class InvertedIndex {
+
+    static final int MAGIC = 0x52494458;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+
+    private static final PostingList EMPTY = new PostingList(ByteBuffer.allocate(0), 0, 0);
+
+    // Oldest first, so later segments win when merging
+    private final Segment[] segments;
+    private final String[] terms;
+    private volatile int documentCount = -1;
+
+    private InvertedIndex(Segment[] segments) {
+        this.segments = segments;
+        this.terms = segments.length == 1 ? segments[0].terms : unionOfTerms(segments);
+        if (segments.length == 1) {
+            documentCount = segments[0].documentCount;
+        }
+    }
+
+    /**
+     * Opens an index file written by {@link InvertedIndexBuilder#write(Path)}, along with any
+     * segments written after it by {@link InvertedIndexBuilder#flushSegment(Path)}.
+     *
+     * @param file The path of the index file.
+     * @return The opened index.
+     * @throws IOException If a file cannot be read or is not an index file.
+     */
+    public static InvertedIndex open(Path file) throws IOException {
+        return open(segmentFiles(file));
+    }
+
+    /**
+     * Opens the given segment files as one index.
+     *
+     * @param files The segment files, oldest first; at least one.
+     * @return The opened index.
+     * @throws IOException If a file cannot be read or is not an index file.
+     */
+    static InvertedIndex open(List<Path> files) throws IOException {
+        Segment[] segments = new Segment[files.size()];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = Segment.open(files.get(i));
+        }
+        return new InvertedIndex(segments);
+    }
+
+    /**
+     * Lists the files making up an index: the index file itself, then its segments in the order
+     * they were written.
+     *
+     * @param file The path of the index file.
+     * @return The files, oldest first. The index file is listed even if it does not exist yet.
+     * @throws IOException If the directory cannot be listed.
+     */
+    public static List<Path> segmentFiles(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Pattern segmentName = Pattern.compile(Pattern.quote(file.getFileName().toString()) + "\\.(\\d+)");
+        TreeMap<Long, Path> numbered = new TreeMap<>();
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> children = Files.list(directory)) {
+                children.forEach(child -> {
+                    Matcher matcher = segmentName.matcher(child.getFileName().toString());
+                    if (matcher.matches()) {
+                        numbered.put(Long.parseLong(matcher.group(1)), file.resolveSibling(child.getFileName()));
+                    }
+                });
+            }
+        }
+        List<Path> files = new ArrayList<>(numbered.size() + 1);
+        files.add(file);
+        files.addAll(numbered.values());
+        return files;
+    }
+
+    /**
+     * Retrieves every term in the index in sorted order.
+     *
+     * @return An unmodifiable list of terms.
+     */
+    public List<String> terms() {
+        return Collections.unmodifiableList(Arrays.asList(terms));
+    }
+
+    /**
+     * Retrieves the number of distinct terms in the index.
+     *
+     * @return The number of terms.
+     */
+    public int getTermCount() {
+        return terms.length;
+    }
+
+    /**
+     * Retrieves the number of segments the index is read from.
+     *
+     * @return The number of files, 1 for an index without segments.
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Retrieves the number of documents containing at least one term. With several segments this
+     * reads every posting list the first time it is called.
+     *
+     * @return The number of documents.
+     */
+    public int getDocumentCount() {
+        if (documentCount < 0) {
+            BitSet documents = new BitSet();
+            for (String term : terms) {
+                PostingList list = postings(term);
+                while (list.next()) {
+                    documents.set(list.doc());
+                }
+            }
+            documentCount = documents.cardinality();
+        }
+        return documentCount;
+    }
+
+    /**
+     * Retrieves the number of documents containing a term.
+     *
+     * @param term The term, in lower case.
+     * @return The document frequency, or 0 if the term is not indexed.
+     */
+    public int docFreq(String term) {
+        return postings(term).size();
+    }
+
+    /**
+     * Opens the posting list of a term.
+     *
+     * @param term The term, in lower case.
+     * @return A cursor over the documents containing the term; empty if the term is not indexed.
+     */
+    public PostingList postings(String term) {
+        if (segments.length == 1) {
+            return segments[0].postings(term);
+        }
+        List<PostingList> parts = new ArrayList<>(segments.length);
+        for (Segment segment : segments) {
+            PostingList part = segment.postings(term);
+            if (part != EMPTY) {
+                parts.add(part);
+            }
+        }
+        if (parts.isEmpty()) {
+            return EMPTY;
+        }
+        return parts.size() == 1 ? parts.get(0) : new MergedPostingList(this, term, parts.toArray(new PostingList[0]));
+    }
+
+    /**
+     * Finds the documents containing a term.
+     *
+     * @param term The term, in lower case.
+     * @return The ids of the matching documents in ascending order.
+     */
+    public int[] lookup(String term) {
+        PostingList list = postings(term);
+        int[] docs = new int[list.size()];
+        for (int i = 0; list.next(); i++) {
+            docs[i] = list.doc();
+        }
+        return docs;
+    }
+
+    /**
+     * Finds the documents containing every one of the given terms. Lists are intersected from
+     * the rarest term up, so the work is bounded by the shortest posting list.
+     *
+     * @param terms The terms, in lower case.
+     * @return The ids of the matching documents in ascending order.
+     */
+    public int[] and(Collection<String> terms) {
+        if (terms.isEmpty()) {
+            return new int[0];
+        }
+        String[] byFrequency = terms.toArray(new String[0]);
+        long[] order = new long[byFrequency.length];
+        for (int i = 0; i < byFrequency.length; i++) {
+            order[i] = ((long) docFreq(byFrequency[i]) << 32) | i;
+        }
+        Arrays.sort(order);
+
+        int[] result = lookup(byFrequency[(int) order[0]]);
+        int size = result.length;
+        for (int t = 1; t < order.length && size > 0; t++) {
+            PostingList list = postings(byFrequency[(int) order[t]]);
+            int kept = 0;
+            boolean more = list.next();
+            for (int i = 0; i < size && more; i++) {
+                while (more && list.doc() < result[i]) {
+                    more = list.next();
+                }
+                if (more && list.doc() == result[i]) {
+                    result[kept++] = result[i];
+                }
+            }
+            size = kept;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Finds the documents containing at least one of the given terms, such as every word of one
+     * polarity in a sentiment lexicon.
+     *
+     * @param terms The terms, in lower case.
+     * @return The ids of the matching documents in ascending order.
+     */
+    public int[] or(Collection<String> terms) {
+        BitSet docs = new BitSet();
+        for (String term : terms) {
+            PostingList list = postings(term);
+            while (list.next()) {
+                docs.set(list.doc());
+            }
+        }
+        return docs.stream().toArray();
+    }
+
+    private static String[] unionOfTerms(Segment[] segments) {
+        List<String> all = new ArrayList<>();
+        for (Segment segment : segments) {
+            all.addAll(Arrays.asList(segment.terms));
+        }
+        Collections.sort(all);
+        List<String> distinct = new ArrayList<>(all.size());
+        for (String term : all) {
+            if (distinct.isEmpty() || !distinct.get(distinct.size() - 1).equals(term)) {
+                distinct.add(term);
+            }
+        }
+        return distinct.toArray(new String[0]);
+    }
+
+    private static long readVLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * One memory-mapped index file with its term dictionary.
+     */
+    private static class Segment {
+        private final ByteBuffer data;
+        private final String[] terms;
+        private final int[] offsets;
+        private final int[] docFreqs;
+        private final int documentCount;
+
+        private Segment(ByteBuffer data, String[] terms, int[] offsets, int[] docFreqs, int documentCount) {
+            this.data = data;
+            this.terms = terms;
+            this.offsets = offsets;
+            this.docFreqs = docFreqs;
+            this.documentCount = documentCount;
+        }
+
+        static Segment open(Path file) throws IOException {
+            ByteBuffer data;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Index file too large: " + file);
+                }
+                data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                throw new IOException("Not an index file: " + file);
+            }
+            int termCount = data.getInt(8);
+            int documentCount = data.getInt(12);
+            long dictionaryOffset = data.getLong(16);
+
+            String[] terms = new String[termCount];
+            int[] offsets = new int[termCount];
+            int[] docFreqs = new int[termCount];
+            ByteBuffer dictionary = data.duplicate();
+            dictionary.position((int) dictionaryOffset);
+            byte[] bytes = new byte[64];
+            long offset = HEADER_SIZE;
+            for (int i = 0; i < termCount; i++) {
+                int length = (int) readVLong(dictionary);
+                if (bytes.length < length) {
+                    bytes = new byte[length];
+                }
+                dictionary.get(bytes, 0, length);
+                terms[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+                docFreqs[i] = (int) readVLong(dictionary);
+                offset += readVLong(dictionary);
+                offsets[i] = (int) offset;
+            }
+            return new Segment(data, terms, offsets, docFreqs, documentCount);
+        }
+
+        PostingList postings(String term) {
+            int i = Arrays.binarySearch(terms, term);
+            return i < 0 ? EMPTY : new PostingList(data, offsets[i], docFreqs[i]);
+        }
+    }
+
+    /**
+     * Iterates over the documents of one posting list in ascending id order.
+     */
+    public static class PostingList {
+        private final ByteBuffer data;
+        private final int size;
+        private int position;
+        private int read;
+        private int doc;
+        private int frequency;
+
+        PostingList(ByteBuffer data, int offset, int size) {
+            this.data = data;
+            this.position = offset;
+            this.size = size;
+        }
+
+        /**
+         * Moves to the next document.
+         *
+         * @return false once every document has been read.
+         */
+        public boolean next() {
+            if (read == size) {
+                return false;
+            }
+            doc += readVInt();
+            frequency = readVInt();
+            read++;
+            return true;
+        }
+
+        /**
+         * Retrieves the id of the current document.
+         *
+         * @return The document id.
+         */
+        public int doc() {
+            return doc;
+        }
+
+        /**
+         * Retrieves the number of times the term occurs in the current document.
+         *
+         * @return The term frequency.
+         */
+        public int frequency() {
+            return frequency;
+        }
+
+        /**
+         * Retrieves the number of documents in the list.
+         *
+         * @return The document frequency of the term.
+         */
+        public int size() {
+            return size;
+        }
+
+        // Reads with absolute gets so many lists can share one mapping without copying it
+        private int readVInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data.get(position++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    /**
+     * Merges the posting lists of one term from several segments. A document found in more than
+     * one takes its frequency from the newest.
+     */
+    private static class MergedPostingList extends PostingList {
+        private final InvertedIndex index;
+        private final String term;
+        // Oldest first
+        private final PostingList[] parts;
+        private final boolean[] current;
+        private int size = -1;
+        private int doc;
+        private int frequency;
+        private boolean started;
+
+        MergedPostingList(InvertedIndex index, String term, PostingList[] parts) {
+            super(null, 0, 0);
+            this.index = index;
+            this.term = term;
+            this.parts = parts;
+            this.current = new boolean[parts.length];
+        }
+
+        @Override
+        public boolean next() {
+            if (!started) {
+                for (int i = 0; i < parts.length; i++) {
+                    current[i] = parts[i].next();
+                }
+                started = true;
+            }
+            int next = -1;
+            for (int i = 0; i < parts.length; i++) {
+                if (current[i] && (next < 0 || parts[i].doc() <= parts[next].doc())) {
+                    next = i;
+                }
+            }
+            if (next < 0) {
+                return false;
+            }
+            doc = parts[next].doc();
+            frequency = parts[next].frequency();
+            for (int i = 0; i < parts.length; i++) {
+                if (current[i] && parts[i].doc() == doc) {
+                    current[i] = parts[i].next();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int doc() {
+            return doc;
+        }
+
+        @Override
+        public int frequency() {
+            return frequency;
+        }
+
+        /**
+         * Counts the documents with a second cursor the first time it is called, since the
+         * segments may share documents.
+         */
+        @Override
+        public int size() {
+            if (size < 0) {
+                PostingList[] copies = new PostingList[parts.length];
+                int found = 0;
+                for (Segment segment : index.segments) {
+                    PostingList part = segment.postings(term);
+                    if (part != EMPTY) {
+                        copies[found++] = part;
+                    }
+                }
+                MergedPostingList counter = new MergedPostingList(index, term, copies);
+                int count = 0;
+                while (counter.next()) {
+                    count++;
+                }
+                size = count;
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds an {@link InvertedIndex} from documents added one at a time. Text is split into terms by
+ * a {@link Tokenizer}, which should be configured like the one BOWSentiment builds its bag of
+ * words with, and each term keeps the ids of the documents containing it along with its frequency
+ * in each.
+ *
+ * <p>Documents may be added in any order and from several threads. Adding a document id again
+ * replaces the frequencies it had for the terms it still contains.
+ */
+public class InvertedIndexBuilder {
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final TermCounter documentTerms = new TermCounter();
+    private final Tokenizer tokenizer;
+
+    /**
+     * Constructs an InvertedIndexBuilder splitting text into lower-cased words.
+     */
+    public InvertedIndexBuilder() {
+        this(new Tokenizer());
+    }
+
+    /**
+     * Constructs an InvertedIndexBuilder.
+     *
+     * @param tokenizer The tokenizer splitting each document into terms.
+     */
+    public InvertedIndexBuilder(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * Adds the terms of one document.
+     *
+     * @param docId The id of the document; must not be negative.
+     * @param text  The cleaned text of the document.
+     */
+    public synchronized void add(int docId, CharSequence text) {
+        if (docId < 0) {
+            throw new IllegalArgumentException("Document id must not be negative: " + docId);
+        }
+        documentTerms.clear();
+        tokenizer.tokenize(text, documentTerms::add);
+        documentTerms.forEach((term, count) -> postings.computeIfAbsent(term, t -> new Postings()).add(docId, count));
+    }
+
+    /**
+     * Drops every document added since the builder was created or last flushed.
+     */
+    public synchronized void clear() {
+        postings.clear();
+    }
+
+    /**
+     * Retrieves the number of distinct terms added since the builder was created or last flushed.
+     *
+     * @return The number of terms.
+     */
+    public synchronized int getTermCount() {
+        return postings.size();
+    }
+
+    /**
+     * Writes the index to a file. The file is written under a temporary name and then moved into
+     * place, so readers never see a partly written index.
+     *
+     * @param file The path of the index file.
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized void write(Path file) throws IOException {
+        String[] terms = postings.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        AtomicFiles.write(file, channel -> {
+            SegmentWriter writer = new SegmentWriter(channel);
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                list.finish();
+                for (int i = 0; i < list.size; i++) {
+                    writer.add(list.data[2 * i], list.data[2 * i + 1]);
+                }
+                writer.endTerm(term);
+            }
+            writer.finish();
+        });
+    }
+
+    /**
+     * Writes the documents added since the last flush as a new segment of an index, and empties
+     * the builder for the next one. The first flush writes the index file itself; later ones write
+     * segments next to it, which {@link InvertedIndex#open(Path)} reads along with it, so extending
+     * a large index costs only the size of what was added.
+     *
+     * @param file The path of the index file.
+     * @return The path written, or null if nothing was added and the index file already exists.
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized Path flushSegment(Path file) throws IOException {
+        List<Path> files = InvertedIndex.segmentFiles(file);
+        boolean exists = Files.exists(file);
+        if (postings.isEmpty() && exists) {
+            return null;
+        }
+        Path segment = file;
+        if (exists) {
+            Path last = files.get(files.size() - 1);
+            long number = last.equals(file) ? 1
+                    : Long.parseLong(last.getFileName().toString().substring(file.getFileName().toString().length() + 1)) + 1;
+            segment = file.resolveSibling(file.getFileName() + "." + number);
+        }
+        write(segment);
+        postings.clear();
+        return segment;
+    }
+
+    /**
+     * Merges the segments of an index on disk once there are more than the given number. Posting
+     * lists are streamed from the mapped segments into the merged file, so only the term
+     * dictionary is held on the heap. Usually only the segments are merged into one; the index
+     * file is rewritten with them once they are together as large as it, so it is rewritten a
+     * number of times logarithmic in its size rather than on every flush.
+     *
+     * @param file        The path of the index file.
+     * @param maxSegments The number of files, the index file included, kept without merging.
+     * @return true if segments were merged.
+     * @throws IOException If the segments cannot be read or the merged file cannot be written.
+     */
+    public static boolean compact(Path file, int maxSegments) throws IOException {
+        List<Path> files = InvertedIndex.segmentFiles(file);
+        if (files.size() <= Math.max(1, maxSegments)) {
+            return false;
+        }
+        long added = 0;
+        for (Path segment : files.subList(1, files.size())) {
+            added += Files.size(segment);
+        }
+        List<Path> merged = added >= Files.size(file) || maxSegments < 2 ? files : files.subList(1, files.size());
+        // The merged file keeps the name of the index file or of the newest segment, so any
+        // segment left behind by a crash before the others are deleted only repeats what it holds
+        Path target = merged.get(0).equals(file) ? file : merged.get(merged.size() - 1);
+        InvertedIndex index = InvertedIndex.open(merged);
+        AtomicFiles.write(target, channel -> {
+            SegmentWriter writer = new SegmentWriter(channel);
+            for (String term : index.terms()) {
+                InvertedIndex.PostingList list = index.postings(term);
+                while (list.next()) {
+                    writer.add(list.doc(), list.frequency());
+                }
+                writer.endTerm(term);
+            }
+            writer.finish();
+        });
+        // Oldest first, so an interrupted delete leaves only segments newer than the merged data
+        for (Path segment : merged) {
+            if (!segment.equals(target)) {
+                Files.delete(segment);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Streams posting lists in term order to a channel, keeping only the dictionary on the heap,
+     * and finishes the file with the dictionary and header.
+     */
+    private static class SegmentWriter {
+        private static final int FLUSH_BYTES = 1 << 20;
+
+        private final FileChannel channel;
+        private final GrowableBuffer postingBytes = new GrowableBuffer();
+        private final GrowableBuffer dictionary = new GrowableBuffer();
+        private final BitSet documents = new BitSet();
+        private long flushed;
+        private long termOffset;
+        private long previousOffset;
+        private int termCount;
+        private int listSize;
+        private int previousDoc;
+
+        SegmentWriter(FileChannel channel) throws IOException {
+            this.channel = channel;
+            channel.position(InvertedIndex.HEADER_SIZE);
+        }
+
+        void add(int doc, int frequency) {
+            postingBytes.writeVInt(doc - previousDoc);
+            postingBytes.writeVInt(frequency);
+            documents.set(doc);
+            previousDoc = doc;
+            listSize++;
+        }
+
+        void endTerm(String term) throws IOException {
+            if (listSize > 0) {
+                byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+                dictionary.writeVInt(bytes.length);
+                dictionary.write(bytes);
+                dictionary.writeVInt(listSize);
+                dictionary.writeVLong(termOffset - previousOffset);
+                previousOffset = termOffset;
+                termCount++;
+            }
+            if (postingBytes.size() >= FLUSH_BYTES) {
+                writeFully(postingBytes.toByteBuffer());
+                flushed += postingBytes.size();
+                postingBytes.clear();
+            }
+            termOffset = flushed + postingBytes.size();
+            listSize = 0;
+            previousDoc = 0;
+        }
+
+        void finish() throws IOException {
+            writeFully(postingBytes.toByteBuffer());
+            flushed += postingBytes.size();
+            writeFully(dictionary.toByteBuffer());
+            ByteBuffer header = ByteBuffer.allocate(InvertedIndex.HEADER_SIZE)
+                    .putInt(InvertedIndex.MAGIC)
+                    .putInt(InvertedIndex.VERSION)
+                    .putInt(termCount)
+                    .putInt(documents.cardinality())
+                    .putLong(InvertedIndex.HEADER_SIZE + flushed);
+            header.flip();
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += channel.write(header, position);
+            }
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * The documents and frequencies of one term as interleaved (doc, frequency) pairs.
+     */
+    private static class Postings {
+        private int[] data = new int[4];
+        private int size;
+        private boolean sorted = true;
+
+        void add(int doc, int frequency) {
+            if (size > 0 && doc <= data[2 * size - 2]) {
+                sorted = false;
+            }
+            if (2 * size == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[2 * size] = doc;
+            data[2 * size + 1] = frequency;
+            size++;
+        }
+
+        /**
+         * Sorts the pairs by document and keeps only the last pair added for each document.
+         */
+        void finish() {
+            if (sorted) {
+                return;
+            }
+            long[] order = new long[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = ((long) data[2 * i] << 32) | i;
+            }
+            Arrays.sort(order);
+            int[] result = new int[2 * size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (i + 1 < size && order[i + 1] >>> 32 == order[i] >>> 32) {
+                    continue;
+                }
+                int index = (int) order[i];
+                result[2 * count] = data[2 * index];
+                result[2 * count + 1] = data[2 * index + 1];
+                count++;
+            }
+            data = result;
+            size = count;
+            sorted = true;
+        }
+    }
+}
@@ -0,0 +1,605 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters, timers and histograms for the ingest, cleaning and scoring hot paths.
+ * Metrics are registered once in static fields of the classes they measure and exported as a
+ * JSON snapshot or in the Prometheus text format.
+ *
+ * <p>Metrics are off unless one of these system properties is set when the class is loaded:
+ * <ul>
+ *     <li>{@code -Dmetrics=true} records metrics, for {@link #toJson()} or {@link #toPrometheus()};</li>
+ *     <li>{@code -Dmetrics.port=9404} also serves them on http://127.0.0.1:9404/metrics and
+ *     /metrics.json for as long as the job runs;</li>
+ *     <li>{@code -Dmetrics.json=metrics.json} also writes a JSON snapshot when the JVM exits.</li>
+ * </ul>
+ * The server and the snapshot are only set up by {@link #start()}, which each job calls from its
+ * main method, so loading this class on a Spark executor or in a test starts nothing.
+ * When metrics are off every metric is inert: recording is a single null check, and timers do
+ * not read the clock.
+ */
+public final class Metrics {
+
+    private static final Map<String, Metric> REGISTRY = new LinkedHashMap<>();
+    private static final long START_NANOS = System.nanoTime();
+    private static final boolean ENABLED = Boolean.getBoolean("metrics")
+            || System.getProperty("metrics.port") != null
+            || System.getProperty("metrics.json") != null;
+    private static final com.sun.management.ThreadMXBean THREADS = ENABLED ? allocationBean() : null;
+    // Returns the bytes allocated by the calling thread; null when allocation is not measured
+    private static final MethodHandle ALLOCATED_BYTES = THREADS == null ? null : allocatedBytesHandle(THREADS);
+    private static final AtomicBoolean STARTED = new AtomicBoolean();
+
+    private Metrics() {
+    }
+
+    /**
+     * Checks whether metrics are recorded.
+     *
+     * @return true if metrics were enabled with a system property.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Registers a counter, or returns the one already registered under the name.
+     *
+     * @param name The metric name, such as "reuters_articles_parsed_total".
+     * @param help A one-line description of the metric.
+     * @return The counter.
+     */
+    public static Counter counter(String name, String help) {
+        return register(Counter.class, new Counter(name, help));
+    }
+
+    /**
+     * Registers a histogram of values such as sizes, or returns the one already registered.
+     *
+     * @param name The metric name, such as "mongo_bulk_write_documents".
+     * @param help A one-line description of the metric.
+     * @return The histogram.
+     */
+    public static Histogram histogram(String name, String help) {
+        return register(Histogram.class, new Histogram(name, help, 1));
+    }
+
+    /**
+     * Registers a timer of durations, or returns the one already registered under the name.
+     *
+     * @param name The metric name, such as "mongo_bulk_write_seconds".
+     * @param help A one-line description of the metric.
+     * @return The timer.
+     */
+    public static Timer timer(String name, String help) {
+        return register(Timer.class, new Timer(name, help, null));
+    }
+
+    /**
+     * Registers a timer that also records the bytes the measuring thread allocates between the
+     * start and end of each span, in a histogram named after the timer with "_allocated_bytes"
+     * in place of "_seconds".
+     *
+     * @param name The metric name, ending in "_seconds".
+     * @param help A one-line description of the stage.
+     * @return The timer.
+     */
+    public static Timer stageTimer(String name, String help) {
+        String allocationName = name.replaceFirst("_seconds$", "") + "_allocated_bytes";
+        Histogram allocation = ALLOCATED_BYTES == null ? null
+                : histogram(allocationName, "Bytes allocated per span: " + help);
+        return register(Timer.class, new Timer(name, help, allocation));
+    }
+
+    /**
+     * Formats every metric as a JSON object, with rates per second since the process started.
+     *
+     * @return The JSON snapshot.
+     */
+    public static String toJson() {
+        double uptime = (System.nanoTime() - START_NANOS) / 1e9;
+        StringBuilder json = new StringBuilder("{\"enabled\":").append(ENABLED)
+                .append(",\"uptimeSeconds\":").append(format(uptime))
+                .append(",\"metrics\":{");
+        String separator = "";
+        for (Metric metric : metrics()) {
+            json.append(separator).append('"').append(metric.name).append("\":{");
+            metric.writeJson(json, uptime);
+            json.append('}');
+            separator = ",";
+        }
+        return json.append("}}").toString();
+    }
+
+    /**
+     * Formats every metric in the Prometheus text exposition format.
+     *
+     * @return The metrics text.
+     */
+    public static String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        for (Metric metric : metrics()) {
+            text.append("# HELP ").append(metric.name).append(' ').append(metric.help).append('\n');
+            metric.writePrometheus(text);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes the JSON snapshot to a file, replacing it atomically.
+     *
+     * @param file The path of the snapshot file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeJson(Path file) throws IOException {
+        byte[] json = toJson().getBytes(StandardCharsets.UTF_8);
+        AtomicFiles.writeStream(file, out -> out.write(json));
+    }
+
+    /**
+     * Serves the metrics on the loopback interface: Prometheus text on /metrics and the JSON
+     * snapshot on /metrics.json. The server runs on daemon threads, so it does not keep the JVM
+     * alive once the job is done.
+     *
+     * @param port The port to listen on.
+     * @throws IOException If the server cannot be started.
+     */
+    public static void serve(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            boolean json = exchange.getRequestURI().getPath().endsWith(".json");
+            respond(exchange, json ? toJson() : toPrometheus(),
+                    json ? "application/json" : "text/plain; version=0.0.4; charset=utf-8");
+        });
+        // The dispatcher thread inherits daemon status from the thread that starts the server
+        Thread starter = new Thread(server::start, "metrics-server-start");
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while starting the metrics server", e);
+        }
+        System.out.println("Serving metrics on http://127.0.0.1:" + server.getAddress().getPort() + "/metrics");
+    }
+
+    /**
+     * Starts the exports the system properties ask for: the HTTP server for -Dmetrics.port and
+     * the snapshot written at exit for -Dmetrics.json. Only the first call does anything, so a job
+     * run from the cli module can call it again.
+     */
+    public static void start() {
+        if (!ENABLED || !STARTED.compareAndSet(false, true)) {
+            return;
+        }
+        String port = System.getProperty("metrics.port");
+        if (port != null) {
+            try {
+                serve(Integer.parseInt(port));
+            } catch (IOException | NumberFormatException e) {
+                System.out.println("Error starting metrics server: " + e.getMessage());
+            }
+        }
+        String json = System.getProperty("metrics.json");
+        if (json != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    writeJson(Paths.get(json));
+                } catch (IOException e) {
+                    System.out.println("Error writing metrics: " + e.getMessage());
+                }
+            }, "metrics-json"));
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String body, String contentType) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static <T extends Metric> T register(Class<T> type, T metric) {
+        synchronized (REGISTRY) {
+            Metric existing = REGISTRY.putIfAbsent(metric.name, metric);
+            if (existing == null) {
+                return metric;
+            }
+            if (!type.isInstance(existing)) {
+                throw new IllegalArgumentException("Metric " + metric.name + " is already registered as "
+                        + existing.getClass().getSimpleName());
+            }
+            return type.cast(existing);
+        }
+    }
+
+    private static List<Metric> metrics() {
+        synchronized (REGISTRY) {
+            return new ArrayList<>(REGISTRY.values());
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+                if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                    return threads;
+                }
+            }
+        } catch (LinkageError e) {
+            // Not a HotSpot-derived JVM; allocation is simply not measured
+        }
+        return null;
+    }
+
+    /**
+     * Binds the bean's measurement of the calling thread. getCurrentThreadAllocatedBytes() only
+     * exists from JDK 14, and Thread.getId(), which the older lookup by id needs, is deprecated from
+     * JDK 19, so neither is called directly and the tree compiles without warnings on either side.
+     */
+    private static MethodHandle allocatedBytesHandle(com.sun.management.ThreadMXBean threads) {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        MethodType returnsLong = MethodType.methodType(long.class);
+        try {
+            return lookup.findVirtual(com.sun.management.ThreadMXBean.class,
+                    "getCurrentThreadAllocatedBytes", returnsLong).bindTo(threads);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            // JDK 11 to 13: look the calling thread up by id instead
+        }
+        try {
+            MethodHandle byId = lookup.findVirtual(com.sun.management.ThreadMXBean.class,
+                    "getThreadAllocatedBytes", MethodType.methodType(long.class, long.class)).bindTo(threads);
+            MethodHandle currentThread = lookup.findStatic(Thread.class, "currentThread",
+                    MethodType.methodType(Thread.class));
+            MethodHandle threadId = lookup.findVirtual(Thread.class, "getId", returnsLong);
+            return MethodHandles.collectArguments(byId, 0,
+                    MethodHandles.filterReturnValue(currentThread, threadId));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static long allocatedBytes() {
+        try {
+            return (long) ALLOCATED_BYTES.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Error measuring allocated bytes: " + e.getMessage(), e);
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.6g", value);
+    }
+
+    /**
+     * A named metric that can be exported.
+     */
+    private abstract static class Metric {
+        final String name;
+        final String help;
+
+        Metric(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        abstract void writeJson(StringBuilder json, double uptimeSeconds);
+
+        abstract void writePrometheus(StringBuilder text);
+    }
+
+    /**
+     * A monotonically increasing count, such as articles parsed or bytes read.
+     */
+    public static final class Counter extends Metric {
+        private final LongAdder value = ENABLED ? new LongAdder() : null;
+
+        private Counter(String name, String help) {
+            super(name, help);
+        }
+
+        /**
+         * Adds one to the count.
+         */
+        public void increment() {
+            if (value != null) {
+                value.increment();
+            }
+        }
+
+        /**
+         * Adds to the count.
+         *
+         * @param amount The amount to add.
+         */
+        public void add(long amount) {
+            if (value != null) {
+                value.add(amount);
+            }
+        }
+
+        /**
+         * Retrieves the count.
+         *
+         * @return The count, or 0 if metrics are off.
+         */
+        public long get() {
+            return value == null ? 0 : value.sum();
+        }
+
+        @Override
+        void writeJson(StringBuilder json, double uptimeSeconds) {
+            long count = get();
+            json.append("\"type\":\"counter\",\"count\":").append(count)
+                    .append(",\"ratePerSecond\":").append(format(uptimeSeconds > 0 ? count / uptimeSeconds : 0));
+        }
+
+        @Override
+        void writePrometheus(StringBuilder text) {
+            text.append("# TYPE ").append(name).append(" counter\n")
+                    .append(name).append(' ').append(get()).append('\n');
+        }
+    }
+
+    /**
+     * A distribution of non-negative values in power-of-two buckets: bucket b holds the values
+     * from 2^(b-1) to 2^b - 1, so recording is a leading-zero count and an add, and quantiles are
+     * accurate to within a factor of two.
+     */
+    public static class Histogram extends Metric {
+        private static final int BUCKETS = 64;
+
+        private final double scale;
+        private final LongAdder[] buckets;
+        private final LongAdder count;
+        private final LongAdder sum;
+        private final LongAccumulator max;
+
+        private Histogram(String name, String help, double scale) {
+            super(name, help);
+            this.scale = scale;
+            if (ENABLED) {
+                buckets = new LongAdder[BUCKETS];
+                for (int i = 0; i < BUCKETS; i++) {
+                    buckets[i] = new LongAdder();
+                }
+                count = new LongAdder();
+                sum = new LongAdder();
+                max = new LongAccumulator(Math::max, 0);
+            } else {
+                buckets = null;
+                count = null;
+                sum = null;
+                max = null;
+            }
+        }
+
+        /**
+         * Records one value.
+         *
+         * @param value The value; negative values are recorded as 0.
+         */
+        public void record(long value) {
+            if (buckets == null) {
+                return;
+            }
+            long v = Math.max(0, value);
+            buckets[Math.min(BUCKETS - 1, BUCKETS - Long.numberOfLeadingZeros(v))].increment();
+            count.increment();
+            sum.add(v);
+            max.accumulate(v);
+        }
+
+        /**
+         * Retrieves the number of values recorded.
+         *
+         * @return The count, or 0 if metrics are off.
+         */
+        public long getCount() {
+            return count == null ? 0 : count.sum();
+        }
+
+        /**
+         * Estimates a quantile as the upper bound of the bucket it falls in.
+         *
+         * @param q The quantile, between 0 and 1.
+         * @return The estimate in the recorded unit, or 0 if nothing was recorded.
+         */
+        public long quantile(double q) {
+            long total = getCount();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(q * total);
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += buckets[b].sum();
+                if (seen >= Math.max(1, rank)) {
+                    return Math.min(upperBound(b), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        private static long upperBound(int bucket) {
+            return bucket == 0 ? 0 : bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+        }
+
+        @Override
+        void writeJson(StringBuilder json, double uptimeSeconds) {
+            long total = getCount();
+            long totalSum = sum == null ? 0 : sum.sum();
+            json.append("\"type\":\"").append(scale == 1 ? "histogram" : "timer").append('"')
+                    .append(",\"count\":").append(total)
+                    .append(",\"ratePerSecond\":").append(format(uptimeSeconds > 0 ? total / uptimeSeconds : 0))
+                    .append(",\"sum\":").append(format(totalSum * scale))
+                    .append(",\"mean\":").append(format(total == 0 ? 0 : totalSum * scale / total))
+                    .append(",\"p50\":").append(format(quantile(0.5) * scale))
+                    .append(",\"p90\":").append(format(quantile(0.9) * scale))
+                    .append(",\"p99\":").append(format(quantile(0.99) * scale))
+                    .append(",\"max\":").append(format((max == null ? 0 : max.get()) * scale));
+        }
+
+        @Override
+        void writePrometheus(StringBuilder text) {
+            text.append("# TYPE ").append(name).append(" histogram\n");
+            long cumulative = 0;
+            if (buckets != null) {
+                int last = BUCKETS - 1;
+                while (last > 0 && buckets[last].sum() == 0) {
+                    last--;
+                }
+                for (int b = 0; b <= last && b < BUCKETS - 1; b++) {
+                    cumulative += buckets[b].sum();
+                    text.append(name).append("_bucket{le=\"").append(format(upperBound(b) * scale)).append("\"} ")
+                            .append(cumulative).append('\n');
+                }
+            }
+            text.append(name).append("_bucket{le=\"+Inf\"} ").append(getCount()).append('\n')
+                    .append(name).append("_sum ").append(format((sum == null ? 0 : sum.sum()) * scale)).append('\n')
+                    .append(name).append("_count ").append(getCount()).append('\n');
+        }
+    }
+
+    /**
+     * A histogram of durations, recorded in nanoseconds and exported in seconds.
+     */
+    public static final class Timer extends Histogram {
+        private final Histogram allocation;
+
+        private Timer(String name, String help, Histogram allocation) {
+            super(name, help, 1e-9);
+            this.allocation = allocation;
+        }
+
+        /**
+         * Starts timing a span of work, to be ended on the same thread with {@link Span#close()}
+         * in a finally block. {@link #time(Call)} and {@link #time(Action)} do both.
+         *
+         * @return The running span.
+         */
+        public Span start() {
+            if (!ENABLED) {
+                return Span.NOOP;
+            }
+            return new Span(this, System.nanoTime(), allocation == null ? 0 : allocatedBytes());
+        }
+
+        /**
+         * Times work that returns a result.
+         *
+         * @param work The work to time.
+         * @param <T>  The type of the result.
+         * @param <E>  The checked exception the work may throw.
+         * @return The result of the work.
+         * @throws E If the work fails; the span is still recorded.
+         */
+        public <T, E extends Exception> T time(Call<T, E> work) throws E {
+            Span span = start();
+            try {
+                return work.call();
+            } finally {
+                span.close();
+            }
+        }
+
+        /**
+         * Times work that returns nothing.
+         *
+         * @param work The work to time.
+         * @param <E>  The checked exception the work may throw.
+         * @throws E If the work fails; the span is still recorded.
+         */
+        public <E extends Exception> void time(Action<E> work) throws E {
+            Span span = start();
+            try {
+                work.run();
+            } finally {
+                span.close();
+            }
+        }
+
+        /**
+         * Records a duration measured elsewhere.
+         *
+         * @param startNanos The {@link System#nanoTime()} at the start of the work.
+         */
+        public void recordSince(long startNanos) {
+            if (ENABLED) {
+                record(System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    /**
+     * Work timed by {@link Timer#time(Call)}.
+     */
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * Work timed by {@link Timer#time(Action)}.
+     */
+    public interface Action<E extends Exception> {
+        void run() throws E;
+    }
+
+    /**
+     * One timed span of work.
+     */
+    public static final class Span implements AutoCloseable {
+        private static final Span NOOP = new Span(null, 0, 0);
+
+        private final Timer timer;
+        private final long startNanos;
+        private final long startAllocated;
+
+        private Span(Timer timer, long startNanos, long startAllocated) {
+            this.timer = timer;
+            this.startNanos = startNanos;
+            this.startAllocated = startAllocated;
+        }
+
+        /**
+         * Ends the span and records its duration, and its allocation for stage timers.
+         */
+        @Override
+        public void close() {
+            if (timer == null) {
+                return;
+            }
+            timer.record(System.nanoTime() - startNanos);
+            if (timer.allocation != null) {
+                timer.allocation.record(allocatedBytes() - startAllocated);
+            }
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package org.example;
+
+/**
+ * Reduces English words to their stem with the Porter (1980) algorithm, e.g. "gains" and
+ * "gained" to "gain". Words are stemmed in place in a char buffer, so no String is created.
+ * Only lower-case ASCII words are stemmed; anything else is left unchanged.
+ *
+ * <p>Instances hold the state of the word being stemmed and are not thread-safe.
+ */
+public class PorterStemmer {
+
+    private char[] b;
+    private int j;
+    private int k;
+
+    /**
+     * Stems a word held in a char buffer. A stem is never longer than its word, so the result is
+     * written over the start of the word.
+     *
+     * @param buffer The buffer holding the word.
+     * @param offset The start of the word in the buffer.
+     * @param length The number of characters in the word.
+     * @return The length of the stem.
+     */
+    public int stem(char[] buffer, int offset, int length) {
+        if (length <= 2 || !isLowerAscii(buffer, offset, length)) {
+            return length;
+        }
+        if (offset != 0) {
+            // The steps index from 0, so work on a copy when the word does not start the buffer
+            char[] word = new char[length];
+            System.arraycopy(buffer, offset, word, 0, length);
+            int stemLength = stem(word, 0, length);
+            System.arraycopy(word, 0, buffer, offset, stemLength);
+            return stemLength;
+        }
+        b = buffer;
+        k = length - 1;
+        step1();
+        step2();
+        step3();
+        step4();
+        step5();
+        step6();
+        b = null;
+        return k + 1;
+    }
+
+    /**
+     * Stems a word.
+     *
+     * @param word The word to stem.
+     * @return The stem of the word.
+     */
+    public String stem(String word) {
+        char[] buffer = word.toCharArray();
+        return new String(buffer, 0, stem(buffer, 0, buffer.length));
+    }
+
+    private static boolean isLowerAscii(char[] buffer, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (buffer[i] < 'a' || buffer[i] > 'z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean cons(int i) {
+        switch (b[i]) {
+            case 'a':
+            case 'e':
+            case 'i':
+            case 'o':
+            case 'u':
+                return false;
+            case 'y':
+                return i == 0 || !cons(i - 1);
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Counts the consonant-vowel sequences in b[0..j], the "measure" of the stem.
+     */
+    private int m() {
+        int n = 0;
+        int i = 0;
+        while (true) {
+            if (i > j) {
+                return n;
+            }
+            if (!cons(i)) {
+                break;
+            }
+            i++;
+        }
+        i++;
+        while (true) {
+            while (true) {
+                if (i > j) {
+                    return n;
+                }
+                if (cons(i)) {
+                    break;
+                }
+                i++;
+            }
+            i++;
+            n++;
+            while (true) {
+                if (i > j) {
+                    return n;
+                }
+                if (!cons(i)) {
+                    break;
+                }
+                i++;
+            }
+            i++;
+        }
+    }
+
+    private boolean vowelInStem() {
+        for (int i = 0; i <= j; i++) {
+            if (!cons(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean doubleConsonant(int i) {
+        return i >= 1 && b[i] == b[i - 1] && cons(i);
+    }
+
+    /**
+     * Checks for consonant-vowel-consonant ending at i where the last consonant is not w, x or y,
+     * as in "hop" but not "snow".
+     */
+    private boolean cvc(int i) {
+        if (i < 2 || !cons(i) || cons(i - 1) || !cons(i - 2)) {
+            return false;
+        }
+        char ch = b[i];
+        return ch != 'w' && ch != 'x' && ch != 'y';
+    }
+
+    private boolean ends(String s) {
+        int length = s.length();
+        int start = k - length + 1;
+        if (start < 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (b[start + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        j = k - length;
+        return true;
+    }
+
+    private void setTo(String s) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            b[j + 1 + i] = s.charAt(i);
+        }
+        k = j + length;
+    }
+
+    private void replaceIfMeasured(String s) {
+        if (m() > 0) {
+            setTo(s);
+        }
+    }
+
+    /**
+     * Removes plurals and -ed or -ing.
+     */
+    private void step1() {
+        if (b[k] == 's') {
+            if (ends("sses")) {
+                k -= 2;
+            } else if (ends("ies")) {
+                setTo("i");
+            } else if (b[k - 1] != 's') {
+                k--;
+            }
+        }
+        if (ends("eed")) {
+            if (m() > 0) {
+                k--;
+            }
+        } else if ((ends("ed") || ends("ing")) && vowelInStem()) {
+            k = j;
+            if (ends("at")) {
+                setTo("ate");
+            } else if (ends("bl")) {
+                setTo("ble");
+            } else if (ends("iz")) {
+                setTo("ize");
+            } else if (doubleConsonant(k)) {
+                k--;
+                char ch = b[k];
+                if (ch == 'l' || ch == 's' || ch == 'z') {
+                    k++;
+                }
+            } else if (m() == 1 && cvc(k)) {
+                setTo("e");
+            }
+        }
+    }
+
+    /**
+     * Turns a terminal y into i when there is another vowel in the stem.
+     */
+    private void step2() {
+        if (ends("y") && vowelInStem()) {
+            b[k] = 'i';
+        }
+    }
+
+    /**
+     * Maps double suffixes to single ones, e.g. -ization to -ize.
+     */
+    private void step3() {
+        if (k == 0) {
+            return;
+        }
+        switch (b[k - 1]) {
+            case 'a':
+                if (ends("ational")) {
+                    replaceIfMeasured("ate");
+                } else if (ends("tional")) {
+                    replaceIfMeasured("tion");
+                }
+                break;
+            case 'c':
+                if (ends("enci")) {
+                    replaceIfMeasured("ence");
+                } else if (ends("anci")) {
+                    replaceIfMeasured("ance");
+                }
+                break;
+            case 'e':
+                if (ends("izer")) {
+                    replaceIfMeasured("ize");
+                }
+                break;
+            case 'l':
+                if (ends("bli")) {
+                    replaceIfMeasured("ble");
+                } else if (ends("alli")) {
+                    replaceIfMeasured("al");
+                } else if (ends("entli")) {
+                    replaceIfMeasured("ent");
+                } else if (ends("eli")) {
+                    replaceIfMeasured("e");
+                } else if (ends("ousli")) {
+                    replaceIfMeasured("ous");
+                }
+                break;
+            case 'o':
+                if (ends("ization")) {
+                    replaceIfMeasured("ize");
+                } else if (ends("ation")) {
+                    replaceIfMeasured("ate");
+                } else if (ends("ator")) {
+                    replaceIfMeasured("ate");
+                }
+                break;
+            case 's':
+                if (ends("alism")) {
+                    replaceIfMeasured("al");
+                } else if (ends("iveness")) {
+                    replaceIfMeasured("ive");
+                } else if (ends("fulness")) {
+                    replaceIfMeasured("ful");
+                } else if (ends("ousness")) {
+                    replaceIfMeasured("ous");
+                }
+                break;
+            case 't':
+                if (ends("aliti")) {
+                    replaceIfMeasured("al");
+                } else if (ends("iviti")) {
+                    replaceIfMeasured("ive");
+                } else if (ends("biliti")) {
+                    replaceIfMeasured("ble");
+                }
+                break;
+            case 'g':
+                if (ends("logi")) {
+                    replaceIfMeasured("log");
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Handles -ic-, -full, -ness and similar suffixes.
+     */
+    private void step4() {
+        switch (b[k]) {
+            case 'e':
+                if (ends("icate")) {
+                    replaceIfMeasured("ic");
+                } else if (ends("ative")) {
+                    replaceIfMeasured("");
+                } else if (ends("alize")) {
+                    replaceIfMeasured("al");
+                }
+                break;
+            case 'i':
+                if (ends("iciti")) {
+                    replaceIfMeasured("ic");
+                }
+                break;
+            case 'l':
+                if (ends("ical")) {
+                    replaceIfMeasured("ic");
+                } else if (ends("ful")) {
+                    replaceIfMeasured("");
+                }
+                break;
+            case 's':
+                if (ends("ness")) {
+                    replaceIfMeasured("");
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Removes -ant, -ence and similar suffixes when the stem is long enough.
+     */
+    private void step5() {
+        if (k == 0) {
+            return;
+        }
+        boolean matched;
+        switch (b[k - 1]) {
+            case 'a':
+                matched = ends("al");
+                break;
+            case 'c':
+                matched = ends("ance") || ends("ence");
+                break;
+            case 'e':
+                matched = ends("er");
+                break;
+            case 'i':
+                matched = ends("ic");
+                break;
+            case 'l':
+                matched = ends("able") || ends("ible");
+                break;
+            case 'n':
+                matched = ends("ant") || ends("ement") || ends("ment") || ends("ent");
+                break;
+            case 'o':
+                matched = ends("ion") && j >= 0 && (b[j] == 's' || b[j] == 't') || ends("ou");
+                break;
+            case 's':
+                matched = ends("ism");
+                break;
+            case 't':
+                matched = ends("ate") || ends("iti");
+                break;
+            case 'u':
+                matched = ends("ous");
+                break;
+            case 'v':
+                matched = ends("ive");
+                break;
+            case 'z':
+                matched = ends("ize");
+                break;
+            default:
+                matched = false;
+                break;
+        }
+        if (matched && m() > 1) {
+            k = j;
+        }
+    }
+
+    /**
+     * Removes a final -e and reduces a final -ll when the stem is long enough.
+     */
+    private void step6() {
+        j = k;
+        if (b[k] == 'e') {
+            int a = m();
+            if (a > 1 || a == 1 && !cvc(k - 1)) {
+                k--;
+            }
+        }
+        if (b[k] == 'l' && doubleConsonant(k) && m() > 1) {
+            k--;
+        }
+    }
+}
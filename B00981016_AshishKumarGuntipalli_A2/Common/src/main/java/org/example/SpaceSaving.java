@@ -0,0 +1,201 @@
+package org.example;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks the most frequent terms of a stream in a fixed number of counters (the Space-Saving
+ * algorithm). When every counter is taken, a new term replaces the term with the smallest count
+ * and inherits that count as its possible overestimate. Any term occurring more than N/capacity
+ * times is guaranteed to be tracked, where N is the total count.
+ *
+ * <p>Counters are kept in a min-heap indexed by term, so each update is O(log capacity).
+ */
+public class SpaceSaving implements Serializable {
+
+    // Saved as part of WordFrequencyStats
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+    private final String[] terms;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<String, Integer> positions;
+    private int size;
+
+    /**
+     * Constructs an empty SpaceSaving summary.
+     *
+     * @param capacity The number of terms tracked.
+     */
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+        this.terms = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Adds occurrences of a term.
+     *
+     * @param term  The term to count.
+     * @param count The number of occurrences to add.
+     */
+    public void add(String term, long count) {
+        Integer position = positions.get(term);
+        if (position != null) {
+            counts[position] += count;
+            siftDown(position);
+        } else if (size < capacity) {
+            set(size, term, count, 0);
+            siftUp(size++);
+        } else {
+            positions.remove(terms[0]);
+            set(0, term, counts[0] + count, counts[0]);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Retrieves the smallest tracked count, which bounds the count of any untracked term.
+     *
+     * @return The smallest count, or 0 while fewer terms than the capacity have been seen.
+     */
+    public long getMinCount() {
+        return size < capacity ? 0 : counts[0];
+    }
+
+    /**
+     * Retrieves the estimated count of a term.
+     *
+     * @param term The term to look up.
+     * @return The tracked count, which may be too high by the term's error, or the smallest
+     *         tracked count if the term is not tracked.
+     */
+    public long estimate(String term) {
+        Integer position = positions.get(term);
+        return position == null ? getMinCount() : counts[position];
+    }
+
+    /**
+     * Retrieves the largest possible overestimate of a tracked term.
+     *
+     * @param term The term to look up.
+     * @return The error of the term, or the smallest tracked count if it is not tracked.
+     */
+    public long error(String term) {
+        Integer position = positions.get(term);
+        return position == null ? getMinCount() : errors[position];
+    }
+
+    /**
+     * Combines another summary into this one. A term missing from one summary is counted with
+     * that summary's smallest count, and the largest combined counts are kept.
+     *
+     * @param other The summary to merge into this one.
+     */
+    public void merge(SpaceSaving other) {
+        long minThis = getMinCount();
+        long minOther = other.getMinCount();
+        Map<String, long[]> combined = new HashMap<>((size + other.size) * 2);
+        for (int i = 0; i < size; i++) {
+            combined.put(terms[i], new long[]{counts[i] + minOther, errors[i] + minOther});
+        }
+        for (int i = 0; i < other.size; i++) {
+            long[] entry = combined.get(other.terms[i]);
+            if (entry == null) {
+                combined.put(other.terms[i], new long[]{other.counts[i] + minThis, other.errors[i] + minThis});
+            } else {
+                entry[0] += other.counts[i] - minOther;
+                entry[1] += other.errors[i] - minOther;
+            }
+        }
+
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(combined.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[0]).reversed());
+        positions.clear();
+        size = 0;
+        for (Map.Entry<String, long[]> entry : entries.subList(0, Math.min(capacity, entries.size()))) {
+            set(size, entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+            siftUp(size++);
+        }
+    }
+
+    /**
+     * Retrieves the tracked terms with the largest counts.
+     *
+     * @param k The number of terms to return.
+     * @return Up to k terms in descending order of count.
+     */
+    public List<WordCount> top(int k) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> counts[a] != counts[b] ? Long.compare(counts[b], counts[a]) : terms[a].compareTo(terms[b]));
+        List<WordCount> result = new ArrayList<>(Math.min(k, size));
+        for (int i = 0; i < Math.min(k, size); i++) {
+            result.add(new WordCount(terms[order[i]], counts[order[i]]));
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the number of tracked terms.
+     *
+     * @return The number of terms.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void set(int position, String term, long count, long error) {
+        terms[position] = term;
+        counts[position] = count;
+        errors[position] = error;
+        positions.put(term, position);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (left + 1 < size && counts[left + 1] < counts[smallest]) {
+                smallest = left + 1;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        String term = terms[a];
+        long count = counts[a];
+        long error = errors[a];
+        set(a, terms[b], counts[b], errors[b]);
+        set(b, term, count, error);
+    }
+}
@@ -0,0 +1,273 @@
+package org.example;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts occurrences of terms in an open-addressing hash table with primitive int counts.
+ * Compared to a HashMap&lt;String, Integer&gt; there is no boxing, no entry object per term and a
+ * single hash lookup per increment. Terms can be counted straight from a char buffer, in which
+ * case a String is only created the first time a term is seen.
+ *
+ * <p>Instances are not thread-safe; give each thread its own counter and combine them with
+ * {@link #merge(TermCounter)}.
+ */
+public class TermCounter implements Serializable {
+
+    // Saved as part of WordFrequencyStats
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Receives the terms and counts of a TermCounter.
+     */
+    public interface TermConsumer {
+        /**
+         * Accepts one term.
+         *
+         * @param term  The term.
+         * @param count The number of times the term was counted.
+         */
+        void accept(String term, int count);
+    }
+
+    private static final int MIN_CAPACITY = 16;
+
+    private String[] keys;
+    private int[] hashes;
+    private int[] counts;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    /**
+     * Constructs an empty TermCounter.
+     */
+    public TermCounter() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * Constructs an empty TermCounter sized for the given number of distinct terms.
+     *
+     * @param expectedTerms The number of distinct terms expected.
+     */
+    public TermCounter(int expectedTerms) {
+        allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedTerms) * 2 - 1) << 1));
+    }
+
+    /**
+     * Adds one occurrence of a term.
+     *
+     * @param term The term to count.
+     * @return The new count of the term.
+     */
+    public int add(String term) {
+        return add(term, 1);
+    }
+
+    /**
+     * Adds several occurrences of a term.
+     *
+     * @param term  The term to count.
+     * @param count The number of occurrences to add.
+     * @return The new count of the term.
+     */
+    public int add(String term, int count) {
+        int hash = mix(term.hashCode());
+        int slot = hash & mask;
+        String key;
+        while ((key = keys[slot]) != null) {
+            if (hashes[slot] == hash && key.equals(term)) {
+                return counts[slot] += count;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return insert(slot, term, hash, count);
+    }
+
+    /**
+     * Adds one occurrence of the term held in a slice of a char buffer.
+     *
+     * @param buffer The buffer holding the term.
+     * @param offset The start of the term in the buffer.
+     * @param length The number of characters in the term.
+     * @return The new count of the term.
+     */
+    public int add(char[] buffer, int offset, int length) {
+        int hash = mix(hash(buffer, offset, length));
+        int slot = hash & mask;
+        String key;
+        while ((key = keys[slot]) != null) {
+            if (hashes[slot] == hash && equals(key, buffer, offset, length)) {
+                return ++counts[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return insert(slot, new String(buffer, offset, length), hash, 1);
+    }
+
+    /**
+     * Retrieves the count of a term.
+     *
+     * @param term The term to look up.
+     * @return The count, or 0 if the term was never counted.
+     */
+    public int get(String term) {
+        int hash = mix(term.hashCode());
+        int slot = hash & mask;
+        String key;
+        while ((key = keys[slot]) != null) {
+            if (hashes[slot] == hash && key.equals(term)) {
+                return counts[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Retrieves the number of distinct terms.
+     *
+     * @return The number of terms.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether no term has been counted.
+     *
+     * @return true if the counter is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds every count of another counter to this one.
+     *
+     * @param other The counter to merge into this one.
+     */
+    public void merge(TermCounter other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != null) {
+                addHashed(other.keys[slot], other.hashes[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Passes every term and its count to the consumer, in no particular order.
+     *
+     * @param consumer The consumer receiving the terms.
+     */
+    public void forEach(TermConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                consumer.accept(keys[slot], counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Copies the counts into a map.
+     *
+     * @return A map from term to count.
+     */
+    public Map<String, Integer> toMap() {
+        Map<String, Integer> map = new HashMap<>(size * 2);
+        forEach(map::put);
+        return map;
+    }
+
+    /**
+     * Removes every term while keeping the allocated table.
+     */
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    private void addHashed(String term, int hash, int count) {
+        int slot = hash & mask;
+        String key;
+        while ((key = keys[slot]) != null) {
+            if (hashes[slot] == hash && key.equals(term)) {
+                counts[slot] += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, term, hash, count);
+    }
+
+    private int insert(int slot, String term, int hash, int count) {
+        keys[slot] = term;
+        hashes[slot] = hash;
+        counts[slot] = count;
+        if (++size > resizeAt) {
+            resize();
+        }
+        return count;
+    }
+
+    private void resize() {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        int[] oldCounts = counts;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity / 4 * 3;
+    }
+
+    /**
+     * Computes the same value as String.hashCode for the characters of the slice.
+     */
+    private static int hash(char[] buffer, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + buffer[i];
+        }
+        return h;
+    }
+
+    /**
+     * Spreads the bits of a String hash so that linear probing over a power-of-two table works well.
+     */
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(String key, char[] buffer, int offset, int length) {
+        if (key.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
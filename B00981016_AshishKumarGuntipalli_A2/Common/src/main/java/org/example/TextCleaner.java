@@ -0,0 +1,321 @@
+package org.example;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Cleans text in a single pass, fusing steps that used to be separate String.replaceAll calls:
+ * tag stripping, entity stripping, filtering to letters (and optionally digits), dropping short
+ * tokens and dropping stop words. Tokens are handed to a consumer as slices of a reusable buffer,
+ * so no intermediate Strings are built.
+ *
+ * <p>Tags are matched like the regex {@code <[^>]+>} and entities like {@code &[^;]+;} applied
+ * after tag removal, so the output matches the replaceAll chains it replaces.
+ */
+public class TextCleaner implements Serializable {
+
+    /**
+     * Receives the tokens produced by a TextCleaner.
+     */
+    public interface TokenConsumer {
+        /**
+         * Accepts one token. The buffer is reused, so the characters must be copied if kept.
+         *
+         * @param buffer The buffer holding the token.
+         * @param offset The start of the token in the buffer.
+         * @param length The number of characters in the token.
+         */
+        void accept(char[] buffer, int offset, int length);
+    }
+
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private boolean stripTags;
+    private boolean stripEntities;
+    private boolean keepDigits;
+    private int minTokenLength = 1;
+    private CharArraySet stopWords;
+    private String dropSequence;
+
+    /**
+     * Removes SGML/XML tags, treating each one as a word separator.
+     *
+     * @return This cleaner.
+     */
+    public TextCleaner stripTags() {
+        this.stripTags = true;
+        return this;
+    }
+
+    /**
+     * Removes entities such as {@code &lt;}, treating each one as a word separator.
+     *
+     * @return This cleaner.
+     */
+    public TextCleaner stripEntities() {
+        this.stripEntities = true;
+        return this;
+    }
+
+    /**
+     * Keeps ASCII digits as word characters. By default only ASCII letters are kept.
+     *
+     * @return This cleaner.
+     */
+    public TextCleaner keepDigits() {
+        this.keepDigits = true;
+        return this;
+    }
+
+    /**
+     * Drops tokens shorter than the given length.
+     *
+     * @param length The minimum number of characters in a token.
+     * @return This cleaner.
+     */
+    public TextCleaner minTokenLength(int length) {
+        this.minTokenLength = length;
+        return this;
+    }
+
+    /**
+     * Drops tokens that match one of the given words, ignoring case.
+     *
+     * @param words The stop words.
+     * @return This cleaner.
+     */
+    public TextCleaner stopWords(Collection<String> words) {
+        this.stopWords = new CharArraySet(words);
+        return this;
+    }
+
+    /**
+     * Deletes every occurrence of a literal character sequence before any other filtering.
+     * Only used by {@link #filter(CharSequence)}.
+     *
+     * @param sequence The sequence to delete.
+     * @return This cleaner.
+     */
+    public TextCleaner dropSequence(String sequence) {
+        this.dropSequence = sequence;
+        return this;
+    }
+
+    /**
+     * Splits the text into cleaned tokens.
+     *
+     * @param text     The text to clean.
+     * @param consumer The consumer receiving each token.
+     */
+    public void tokenize(CharSequence text, TokenConsumer consumer) {
+        Scanner scanner = new Scanner(text);
+        char[] token = new char[32];
+        int length = 0;
+        int n = text.length();
+        int i = 0;
+
+        while (i < n) {
+            char c = text.charAt(i);
+            int skipTo = scanner.markupEnd(i, c);
+            if (skipTo >= 0) {
+                emit(token, length, consumer);
+                length = 0;
+                i = skipTo + 1;
+                continue;
+            }
+            if (isWordChar(c)) {
+                if (length == token.length) {
+                    char[] larger = new char[token.length * 2];
+                    System.arraycopy(token, 0, larger, 0, length);
+                    token = larger;
+                }
+                token[length++] = c;
+            } else {
+                emit(token, length, consumer);
+                length = 0;
+            }
+            i++;
+        }
+        emit(token, length, consumer);
+    }
+
+    /**
+     * Splits the text into cleaned tokens.
+     *
+     * @param text The text to clean.
+     * @return The list of tokens.
+     */
+    public List<String> tokens(CharSequence text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, (buffer, offset, length) -> tokens.add(new String(buffer, offset, length)));
+        return tokens;
+    }
+
+    /**
+     * Cleans the text and joins the resulting tokens with single spaces.
+     *
+     * @param text The text to clean.
+     * @return The cleaned text.
+     */
+    public String clean(CharSequence text) {
+        StringBuilder result = new StringBuilder(text.length());
+        tokenize(text, (buffer, offset, length) -> {
+            if (result.length() > 0) {
+                result.append(' ');
+            }
+            result.append(buffer, offset, length);
+        });
+        return result.toString();
+    }
+
+    /**
+     * Deletes every character that is neither a word character nor whitespace, keeping the layout
+     * of the text. Tags, entities and the drop sequence are deleted first when configured.
+     *
+     * @param text The text to filter.
+     * @return The filtered text.
+     */
+    public String filter(CharSequence text) {
+        Scanner scanner = new Scanner(text);
+        int n = text.length();
+        char[] result = new char[n];
+        int length = 0;
+        int i = 0;
+
+        while (i < n) {
+            char c = text.charAt(i);
+            if (dropSequence != null && startsWith(text, i, dropSequence)) {
+                i += dropSequence.length();
+                continue;
+            }
+            int skipTo = scanner.markupEnd(i, c);
+            if (skipTo >= 0) {
+                i = skipTo + 1;
+                continue;
+            }
+            if (isWordChar(c) || isWhitespace(c)) {
+                result[length++] = c;
+            }
+            i++;
+        }
+        return new String(result, 0, length);
+    }
+
+    private void emit(char[] token, int length, TokenConsumer consumer) {
+        if (length == 0 || length < minTokenLength) {
+            return;
+        }
+        if (stopWords != null && stopWords.containsIgnoreCase(token, 0, length)) {
+            return;
+        }
+        consumer.accept(token, 0, length);
+    }
+
+    private boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (keepDigits && c >= '0' && c <= '9');
+    }
+
+    /**
+     * Matches the characters of the regex class {@code \s}.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean startsWith(CharSequence text, int offset, String prefix) {
+        if (offset + prefix.length() > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the ends of tags and entities for one pass over a text. The positions of the next
+     * '>' and ';' are cached so the look-ahead stays linear in the length of the text.
+     */
+    private class Scanner {
+        private final CharSequence text;
+        private int greaterFrom = NONE;
+        private int nextGreater = -1;
+        private int entityFrom = NONE;
+        private int entityEnd = -1;
+
+        Scanner(CharSequence text) {
+            this.text = text;
+        }
+
+        /**
+         * Returns the index of the last character of the tag or entity starting at i, or -1.
+         */
+        int markupEnd(int i, char c) {
+            if (stripTags && c == '<') {
+                return tagEnd(i);
+            }
+            if (stripEntities && c == '&') {
+                return entityEnd(i);
+            }
+            return -1;
+        }
+
+        /**
+         * Matches {@code <[^>]+>} at position i.
+         */
+        private int tagEnd(int i) {
+            if (i + 1 >= text.length() || text.charAt(i + 1) == '>') {
+                return -1;
+            }
+            if (i + 1 < greaterFrom || (nextGreater != NONE && nextGreater <= i)) {
+                greaterFrom = i + 1;
+                nextGreater = indexOf(text, '>', greaterFrom);
+            }
+            return nextGreater == NONE ? -1 : nextGreater;
+        }
+
+        /**
+         * Matches {@code &[^;]+;} at position i in the text as it would read with tags removed.
+         */
+        private int entityEnd(int i) {
+            int from = i + 1;
+            if (from >= text.length() || text.charAt(from) == ';') {
+                return -1;
+            }
+            if (from < entityFrom || (entityEnd != NONE && from > entityEnd)) {
+                entityFrom = from;
+                entityEnd = NONE;
+                int j = from;
+                while (j < text.length()) {
+                    char c = text.charAt(j);
+                    if (stripTags && c == '<') {
+                        int end = tagEnd(j);
+                        if (end >= 0) {
+                            j = end + 1;
+                            continue;
+                        }
+                    }
+                    if (c == ';') {
+                        entityEnd = j;
+                        break;
+                    }
+                    j++;
+                }
+            }
+            return entityEnd == NONE ? -1 : entityEnd;
+        }
+
+        private int indexOf(CharSequence text, char target, int from) {
+            for (int j = from; j < text.length(); j++) {
+                if (text.charAt(j) == target) {
+                    return j;
+                }
+            }
+            return NONE;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package org.example;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into words for bags of words, word counts and the inverted index, without regular
+ * expressions. By default words are maximal runs of Unicode letters and digits, so "gains," and
+ * "gains" are the same word, and an apostrophe or hyphen between two word characters is kept, as
+ * in "can't" or "far-fetched". Words are lower-cased unless {@link #keepCase()} is set.
+ *
+ * <p>Words can optionally be reduced to their Porter stem, and n-grams of consecutive words can
+ * be produced alongside the single words, joined by {@link #NGRAM_SEPARATOR}, so phrases such as
+ * "not good" can be scored. N-grams never span sentence punctuation.
+ *
+ * <p>Tokens are handed to a consumer as slices of a per-thread buffer, so one Tokenizer can be
+ * shared by every thread scoring or counting text and no intermediate Strings are built.
+ */
+public class Tokenizer implements Serializable {
+
+    /** The character between the words of an n-gram. */
+    public static final char NGRAM_SEPARATOR = ' ';
+
+    private boolean keepCase;
+    private boolean splitOnWhitespace;
+    private boolean stem;
+    private int maxNgram = 1;
+    private int minTokenLength = 1;
+    private CharArraySet stopWords;
+    private long stopWordsHash;
+    private transient ThreadLocal<Buffers> buffers;
+
+    /**
+     * Keeps the case of each word. Stop words are still matched ignoring case.
+     *
+     * @return This tokenizer.
+     */
+    public Tokenizer keepCase() {
+        this.keepCase = true;
+        return this;
+    }
+
+    /**
+     * Splits only at whitespace, like splitting on {@code \s+}, so punctuation stays part of
+     * the words.
+     *
+     * @return This tokenizer.
+     */
+    public Tokenizer splitOnWhitespace() {
+        this.splitOnWhitespace = true;
+        return this;
+    }
+
+    /**
+     * Reduces each word to its Porter stem, e.g. "gains" and "gained" to "gain".
+     *
+     * @return This tokenizer.
+     */
+    public Tokenizer stem() {
+        this.stem = true;
+        return this;
+    }
+
+    /**
+     * Produces n-grams of up to the given number of consecutive words after each word.
+     *
+     * @param n The largest n-gram, 2 for bigrams or 3 for bigrams and trigrams.
+     * @return This tokenizer.
+     */
+    public Tokenizer ngrams(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("N-gram size must be at least 1: " + n);
+        }
+        this.maxNgram = n;
+        return this;
+    }
+
+    /**
+     * Drops words shorter than the given length.
+     *
+     * @param length The minimum number of characters in a word.
+     * @return This tokenizer.
+     */
+    public Tokenizer minTokenLength(int length) {
+        this.minTokenLength = length;
+        return this;
+    }
+
+    /**
+     * Drops words that match one of the given words, ignoring case. N-grams are formed from the
+     * words that remain.
+     *
+     * @param words The stop words.
+     * @return This tokenizer.
+     */
+    public Tokenizer stopWords(Collection<String> words) {
+        this.stopWords = new CharArraySet(words);
+        this.stopWordsHash = 0;
+        for (String word : words) {
+            // Summed so the order the words are given in does not matter
+            stopWordsHash += word.toLowerCase(Locale.ROOT).hashCode() * 0x9E3779B97F4A7C15L;
+        }
+        return this;
+    }
+
+    /**
+     * Checks whether words are reduced to their stem.
+     *
+     * @return true if stemming is enabled.
+     */
+    public boolean isStemming() {
+        return stem;
+    }
+
+    /**
+     * Retrieves the largest n-gram produced.
+     *
+     * @return 1 when only single words are produced.
+     */
+    public int getMaxNgram() {
+        return maxNgram;
+    }
+
+    /**
+     * Computes a fingerprint of the settings, which differs between tokenizers that can split the
+     * same text differently, so results cached for one are not reused by another.
+     *
+     * @return A 64-bit fingerprint of the settings.
+     */
+    public long fingerprint() {
+        long h = (keepCase ? 1 : 0) | (splitOnWhitespace ? 2 : 0) | (stem ? 4 : 0);
+        h = h * 31 + maxNgram;
+        h = h * 31 + minTokenLength;
+        h = h * 31 + (stopWords == null ? 0 : stopWordsHash);
+        h *= 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    /**
+     * Splits the text into words and n-grams. The consumer must not call back into this
+     * tokenizer with the same buffer still in use; nested calls get a buffer of their own.
+     *
+     * @param text     The text to split.
+     * @param consumer The consumer receiving each token.
+     */
+    public void tokenize(CharSequence text, TextCleaner.TokenConsumer consumer) {
+        Buffers local = buffers();
+        if (local.inUse) {
+            local = new Buffers();
+        }
+        local.start(maxNgram);
+        try {
+            int n = text.length();
+            int i = 0;
+            while (i < n) {
+                int c = text.charAt(i);
+                int width = 1;
+                if (Character.isHighSurrogate((char) c)) {
+                    c = Character.codePointAt(text, i);
+                    width = Character.charCount(c);
+                }
+                if (splitOnWhitespace) {
+                    if (isWhitespace(c)) {
+                        emit(local, consumer);
+                    } else {
+                        local.append(keepCase ? c : toLowerCase(c));
+                    }
+                } else if (isWordChar(c)) {
+                    local.append(keepCase ? c : toLowerCase(c));
+                } else if (local.length > 0 && isJoiner(c) && i + width < n
+                        && isWordChar(Character.codePointAt(text, i + width))) {
+                    local.append(c == '\u2019' ? '\'' : c);
+                } else {
+                    emit(local, consumer);
+                    if (isSentenceBreak(c)) {
+                        local.historySize = 0;
+                    }
+                }
+                i += width;
+            }
+            emit(local, consumer);
+        } finally {
+            local.inUse = false;
+        }
+    }
+
+    /**
+     * Splits the text into words and n-grams.
+     *
+     * @param text The text to split.
+     * @return The list of tokens.
+     */
+    public List<String> tokens(CharSequence text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, (buffer, offset, length) -> tokens.add(new String(buffer, offset, length)));
+        return tokens;
+    }
+
+    /**
+     * Normalizes a single word the way it would be tokenized, such as an entry of a lexicon that
+     * must match tokenized text. Case is folded and the word stemmed as configured, but it is not
+     * split, filtered or combined into n-grams.
+     *
+     * @param word The word to normalize.
+     * @return The normalized word.
+     */
+    public String normalize(String word) {
+        char[] buffer = (keepCase ? word : word.toLowerCase(Locale.ROOT)).toCharArray();
+        int length = stem ? buffers().stemmer.stem(buffer, 0, buffer.length) : buffer.length;
+        return new String(buffer, 0, length);
+    }
+
+    private Buffers buffers() {
+        // Not serialized with the settings, so created again after the tokenizer is shipped to a worker
+        ThreadLocal<Buffers> local = buffers;
+        if (local == null) {
+            local = ThreadLocal.withInitial(Buffers::new);
+            buffers = local;
+        }
+        return local.get();
+    }
+
+    private void emit(Buffers local, TextCleaner.TokenConsumer consumer) {
+        int length = local.length;
+        local.length = 0;
+        if (length == 0 || length < minTokenLength) {
+            return;
+        }
+        char[] token = local.token;
+        if (stopWords != null && stopWords.containsIgnoreCase(token, 0, length)) {
+            return;
+        }
+        if (stem) {
+            length = local.stemmer.stem(token, 0, length);
+        }
+        consumer.accept(token, 0, length);
+        if (maxNgram > 1) {
+            local.emitNgrams(length, consumer);
+        }
+    }
+
+    private static boolean isWordChar(int c) {
+        if (c < 0x80) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+        }
+        if (Character.isLetterOrDigit(c)) {
+            return true;
+        }
+        // Combining marks belong to the letter before them, e.g. in decomposed accented text
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    // Most text is ASCII, which is folded without the Unicode tables
+    private static int toLowerCase(int c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private static boolean isJoiner(int c) {
+        return c == '\'' || c == '\u2019' || c == '-';
+    }
+
+    private static boolean isSentenceBreak(int c) {
+        return c == '.' || c == ',' || c == ';' || c == ':' || c == '!' || c == '?';
+    }
+
+    /**
+     * Matches the characters of the regex class {@code \s}.
+     */
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * The buffers one thread tokenizes with: the current word, the previous words for n-grams
+     * in a ring, and the n-gram being assembled.
+     */
+    private static class Buffers {
+        private final PorterStemmer stemmer = new PorterStemmer();
+        private char[] token = new char[32];
+        private int length;
+        private char[] ngram = new char[64];
+        private char[][] history = new char[0][];
+        private int[] historyLengths = new int[0];
+        private int historySize;
+        private int historyNext;
+        private boolean inUse;
+
+        void start(int maxNgram) {
+            inUse = true;
+            length = 0;
+            historySize = 0;
+            historyNext = 0;
+            if (history.length != maxNgram - 1) {
+                history = new char[maxNgram - 1][];
+                historyLengths = new int[maxNgram - 1];
+                for (int i = 0; i < history.length; i++) {
+                    history[i] = new char[32];
+                }
+            }
+        }
+
+        void append(int c) {
+            if (length + 2 > token.length) {
+                char[] larger = new char[token.length * 2];
+                System.arraycopy(token, 0, larger, 0, length);
+                token = larger;
+            }
+            if (c < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                token[length++] = (char) c;
+            } else {
+                length += Character.toChars(c, token, length);
+            }
+        }
+
+        /**
+         * Emits the n-grams ending with the word in the token buffer, then remembers the word.
+         */
+        void emitNgrams(int wordLength, TextCleaner.TokenConsumer consumer) {
+            int capacity = history.length;
+            int gramLength = wordLength;
+            for (int back = 1; back <= historySize; back++) {
+                int slot = (historyNext - back + capacity) % capacity;
+                gramLength += historyLengths[slot] + 1;
+            }
+            if (gramLength > ngram.length) {
+                ngram = new char[Math.max(gramLength, ngram.length * 2)];
+            }
+            // Build the longest n-gram from the back, so each shorter one is a suffix of it
+            int start = ngram.length - wordLength;
+            System.arraycopy(token, 0, ngram, start, wordLength);
+            for (int back = 1; back <= historySize; back++) {
+                int slot = (historyNext - back + capacity) % capacity;
+                ngram[--start] = NGRAM_SEPARATOR;
+                start -= historyLengths[slot];
+                System.arraycopy(history[slot], 0, ngram, start, historyLengths[slot]);
+                consumer.accept(ngram, start, ngram.length - start);
+            }
+
+            if (history[historyNext].length < wordLength) {
+                history[historyNext] = new char[wordLength];
+            }
+            System.arraycopy(token, 0, history[historyNext], 0, wordLength);
+            historyLengths[historyNext] = wordLength;
+            historyNext = (historyNext + 1) % capacity;
+            historySize = Math.min(historySize + 1, capacity);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.example;
+
+/**
+ * Measures text in encoded UTF-8 bytes without encoding it, for byte counts and size bounds
+ * that String.length(), which counts UTF-16 chars, would underestimate.
+ */
+public final class Utf8 {
+
+    private Utf8() {
+    }
+
+    /**
+     * Computes the number of bytes a string takes in UTF-8. An unpaired surrogate counts as the
+     * one byte it is replaced by when encoded.
+     *
+     * @param text The text.
+     * @return The encoded length in bytes.
+     */
+    public static int length(CharSequence text) {
+        int length = text.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes++;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                // Four bytes for the two chars of the pair
+                bytes += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
+}
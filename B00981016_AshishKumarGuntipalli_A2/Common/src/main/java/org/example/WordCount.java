@@ -0,0 +1,45 @@
+package org.example;
+
+import java.io.Serializable;
+
+/**
+ * Represents a word and the number of times it occurs.
+ */
+public class WordCount implements Serializable {
+    private final String word;
+    private final long count;
+
+    /**
+     * Constructs a WordCount object.
+     *
+     * @param word  The word.
+     * @param count The number of occurrences of the word.
+     */
+    public WordCount(String word, long count) {
+        this.word = word;
+        this.count = count;
+    }
+
+    /**
+     * Retrieves the word.
+     *
+     * @return The word.
+     */
+    public String getWord() {
+        return word;
+    }
+
+    /**
+     * Retrieves the number of occurrences of the word.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return word + "=" + count;
+    }
+}
@@ -0,0 +1,277 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Accumulates word frequencies and answers top-K, bottom-K and frequency-of-frequency queries
+ * without materializing every word at a given frequency. Statistics from different partitions or
+ * runs are combined with {@link #merge(WordFrequencyStats)}, and the set of files already counted
+ * is kept alongside, so a saved state can be extended with new files without recounting.
+ *
+ * <p>In exact mode every word is counted in a {@link TermCounter}. In approximate mode memory is
+ * fixed: a {@link CountMinSketch} bounds the count of every word and a {@link SpaceSaving}
+ * summary tracks the most frequent ones. Only top-K queries are available in approximate mode.
+ */
+public class WordFrequencyStats implements Serializable {
+
+    // Part of the saved word frequency state; change it when the fields change incompatibly
+    private static final long serialVersionUID = 1L;
+
+    // Ascending count, ties broken alphabetically; top-K uses the reverse count order
+    private static final Comparator<WordCount> BOTTOM_ORDER =
+            Comparator.comparingLong(WordCount::getCount).thenComparing(WordCount::getWord);
+    private static final Comparator<WordCount> TOP_ORDER =
+            Comparator.comparingLong(WordCount::getCount).reversed().thenComparing(WordCount::getWord);
+
+    private final TermCounter counter;
+    private final CountMinSketch sketch;
+    private final SpaceSaving heavyHitters;
+    private final Set<String> processedFiles = new HashSet<>();
+    private long totalCount;
+
+    private WordFrequencyStats(TermCounter counter, CountMinSketch sketch, SpaceSaving heavyHitters) {
+        this.counter = counter;
+        this.sketch = sketch;
+        this.heavyHitters = heavyHitters;
+    }
+
+    /**
+     * Creates empty statistics that count every word exactly.
+     *
+     * @return The new statistics.
+     */
+    public static WordFrequencyStats exact() {
+        return new WordFrequencyStats(new TermCounter(), null, null);
+    }
+
+    /**
+     * Creates empty statistics that use fixed memory regardless of the vocabulary size.
+     *
+     * @param sketchWidth  The number of cells per row of the Count-Min Sketch.
+     * @param sketchDepth  The number of rows of the Count-Min Sketch.
+     * @param heavyHitters The number of frequent words tracked.
+     * @return The new statistics.
+     */
+    public static WordFrequencyStats approximate(int sketchWidth, int sketchDepth, int heavyHitters) {
+        return new WordFrequencyStats(null, new CountMinSketch(sketchWidth, sketchDepth), new SpaceSaving(heavyHitters));
+    }
+
+    /**
+     * Adds occurrences of a word.
+     *
+     * @param word  The word to count.
+     * @param count The number of occurrences to add.
+     */
+    public void add(String word, int count) {
+        if (counter != null) {
+            counter.add(word, count);
+        } else {
+            sketch.add(word, count);
+            heavyHitters.add(word, count);
+        }
+        totalCount += count;
+    }
+
+    /**
+     * Adds one occurrence of the word held in a slice of a char buffer, so it can be used
+     * directly as a {@link TextCleaner.TokenConsumer}.
+     *
+     * @param buffer The buffer holding the word.
+     * @param offset The start of the word in the buffer.
+     * @param length The number of characters in the word.
+     */
+    public void add(char[] buffer, int offset, int length) {
+        if (counter != null) {
+            counter.add(buffer, offset, length);
+            totalCount++;
+        } else {
+            add(new String(buffer, offset, length), 1);
+        }
+    }
+
+    /**
+     * Adds the counts and processed files of other statistics of the same mode to these.
+     *
+     * @param other The statistics to merge into these.
+     * @return These statistics.
+     */
+    public WordFrequencyStats merge(WordFrequencyStats other) {
+        if (isExact() != other.isExact()) {
+            throw new IllegalArgumentException("Cannot merge exact and approximate statistics");
+        }
+        if (counter != null) {
+            counter.merge(other.counter);
+        } else {
+            sketch.merge(other.sketch);
+            heavyHitters.merge(other.heavyHitters);
+        }
+        totalCount += other.totalCount;
+        processedFiles.addAll(other.processedFiles);
+        return this;
+    }
+
+    /**
+     * Checks whether every word is counted exactly.
+     *
+     * @return true in exact mode.
+     */
+    public boolean isExact() {
+        return counter != null;
+    }
+
+    /**
+     * Retrieves the total number of words counted.
+     *
+     * @return The total count.
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Retrieves the most frequent words. In approximate mode each count is the smaller of the
+     * Space-Saving and Count-Min estimates, both of which can only be too high.
+     *
+     * @param k The number of words to return.
+     * @return Up to k words in descending order of count, ties in alphabetical order.
+     */
+    public List<WordCount> top(int k) {
+        if (counter == null) {
+            List<WordCount> candidates = new ArrayList<>();
+            for (WordCount candidate : heavyHitters.top(heavyHitters.size())) {
+                candidates.add(new WordCount(candidate.getWord(),
+                        Math.min(candidate.getCount(), sketch.estimate(candidate.getWord()))));
+            }
+            candidates.sort(TOP_ORDER);
+            return candidates.subList(0, Math.min(k, candidates.size()));
+        }
+        return select(k, TOP_ORDER);
+    }
+
+    /**
+     * Retrieves the least frequent words. Only available in exact mode.
+     *
+     * @param k The number of words to return.
+     * @return Up to k words in ascending order of count, ties in alphabetical order.
+     */
+    public List<WordCount> bottom(int k) {
+        requireExact("bottom-K");
+        return select(k, BOTTOM_ORDER);
+    }
+
+    /**
+     * Counts the words occurring each number of times. Only available in exact mode.
+     *
+     * @return A map from frequency to the number of words with that frequency.
+     */
+    public SortedMap<Integer, Integer> histogram() {
+        requireExact("the frequency histogram");
+        SortedMap<Integer, Integer> histogram = new TreeMap<>();
+        counter.forEach((word, count) -> histogram.merge(count, 1, Integer::sum));
+        return histogram;
+    }
+
+    /**
+     * Checks whether a file has already been counted.
+     *
+     * @param file The path of the file.
+     * @return true if the file was marked as processed.
+     */
+    public boolean isProcessed(String file) {
+        return processedFiles.contains(file);
+    }
+
+    /**
+     * Records that a file has been counted.
+     *
+     * @param file The path of the file.
+     */
+    public void markProcessed(String file) {
+        processedFiles.add(file);
+    }
+
+    /**
+     * Retrieves the files counted so far.
+     *
+     * @return An unmodifiable set of file paths.
+     */
+    public Set<String> getProcessedFiles() {
+        return Collections.unmodifiableSet(processedFiles);
+    }
+
+    /**
+     * Saves the statistics to a file, replacing it atomically.
+     *
+     * @param file The path of the state file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        AtomicFiles.writeStream(file, out -> {
+            ObjectOutputStream objects = new ObjectOutputStream(out);
+            objects.writeObject(this);
+            objects.flush();
+        });
+    }
+
+    /**
+     * Loads statistics saved with {@link #save(Path)}.
+     *
+     * @param file The path of the state file.
+     * @return The loaded statistics.
+     * @throws IOException If the file cannot be read.
+     */
+    public static WordFrequencyStats load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file);
+             ObjectInputStream objects = new ObjectInputStream(in)) {
+            return (WordFrequencyStats) objects.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Error reading word frequency state: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Keeps the first k words in the given order with a heap of size k, whose head is the word
+     * that would be dropped next.
+     */
+    private List<WordCount> select(int k, Comparator<WordCount> order) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<WordCount> heap = new PriorityQueue<>(k, order.reversed());
+        counter.forEach((word, count) -> {
+            if (heap.size() < k) {
+                heap.add(new WordCount(word, count));
+            } else {
+                WordCount candidate = new WordCount(word, count);
+                if (order.compare(candidate, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(candidate);
+                }
+            }
+        });
+        List<WordCount> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
+
+    private void requireExact(String query) {
+        if (counter == null) {
+            throw new UnsupportedOperationException("Computing " + query + " requires exact mode");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountMinSketchTest {
+
+    @Test
+    void neverUnderestimatesAndStaysWithinTheErrorBound() {
+        // With width w each estimate exceeds the true count by at most e/w of the total, except with
+        // probability e^-depth per term
+        CountMinSketch sketch = new CountMinSketch(1024, 5);
+        Map<String, Long> exact = zipfCounts(20000, 2000, 42);
+        exact.forEach(sketch::add);
+
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(total, sketch.getTotalCount());
+        long bound = (long) Math.ceil(Math.E / 1024 * total);
+        int overBound = 0;
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            long estimate = sketch.estimate(entry.getKey());
+            assertTrue(estimate >= entry.getValue(), entry.getKey());
+            if (estimate - entry.getValue() > bound) {
+                overBound++;
+            }
+        }
+        assertTrue(overBound <= exact.size() / 100, overBound + " estimates over the bound");
+    }
+
+    @Test
+    void mergeEqualsCountingEverythingInOneSketch() {
+        CountMinSketch whole = new CountMinSketch(256, 4);
+        CountMinSketch left = new CountMinSketch(256, 4);
+        CountMinSketch right = new CountMinSketch(256, 4);
+        Map<String, Long> exact = zipfCounts(5000, 500, 7);
+        int i = 0;
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            whole.add(entry.getKey(), entry.getValue());
+            (i++ % 2 == 0 ? left : right).add(entry.getKey(), entry.getValue());
+        }
+        left.merge(right);
+
+        assertEquals(whole.getTotalCount(), left.getTotalCount());
+        for (String term : exact.keySet()) {
+            assertEquals(whole.estimate(term), left.estimate(term), term);
+        }
+    }
+
+    @Test
+    void unseenTermsOfAnEmptySketchEstimateZero() {
+        assertEquals(0, new CountMinSketch(64, 3).estimate("reuters"));
+    }
+
+    /**
+     * Draws words from a skewed distribution, as word frequencies are, and counts them.
+     */
+    static Map<String, Long> zipfCounts(int draws, int vocabulary, long seed) {
+        Random random = new Random(seed);
+        Map<String, Long> counts = new HashMap<>();
+        for (int i = 0; i < draws; i++) {
+            int rank = (int) Math.floor(Math.pow(vocabulary, random.nextDouble()));
+            counts.merge("w" + rank, 1L, Long::sum);
+        }
+        return counts;
+    }
+}
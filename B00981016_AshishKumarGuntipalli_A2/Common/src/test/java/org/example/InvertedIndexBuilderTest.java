@@ -0,0 +1,161 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvertedIndexBuilderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void answersLookupsFromTheWrittenFile() throws IOException {
+        InvertedIndexBuilder builder = new InvertedIndexBuilder();
+        builder.add(3, "Oil prices rose");
+        builder.add(1, "oil, oil and gold");
+        builder.add(7, "Gold fell");
+        Path file = directory.resolve("body.idx");
+        builder.write(file);
+
+        InvertedIndex index = InvertedIndex.open(file);
+        assertEquals(List.of("and", "fell", "gold", "oil", "prices", "rose"), index.terms());
+        assertEquals(3, index.getDocumentCount());
+        assertArrayEquals(new int[]{1, 3}, index.lookup("oil"));
+        assertEquals(2, index.docFreq("gold"));
+        assertEquals(Map.of(1, 2, 3, 1), postings(index, "oil"));
+        assertArrayEquals(new int[]{1}, index.and(List.of("gold", "oil")));
+        assertArrayEquals(new int[]{1, 3, 7}, index.or(List.of("gold", "rose")));
+        assertArrayEquals(new int[0], index.lookup("silver"));
+    }
+
+    @Test
+    void segmentsReadLikeOneIndexWithTheNewestFrequencies() throws IOException {
+        Path file = directory.resolve("body.idx");
+        InvertedIndexBuilder segmented = new InvertedIndexBuilder();
+        Map<String, Map<Integer, Integer>> expected = new TreeMap<>();
+        Random random = new Random(5);
+        for (int flush = 0; flush < 5; flush++) {
+            // Later flushes also add documents again, with new frequencies
+            for (int doc = 0; doc < 40; doc++) {
+                int docId = random.nextInt(120);
+                String text = randomText(random);
+                segmented.add(docId, text);
+                addToModel(expected, docId, text);
+            }
+            assertEquals(file.resolveSibling(flush == 0 ? "body.idx" : "body.idx." + flush), segmented.flushSegment(file));
+        }
+        assertNull(segmented.flushSegment(file));
+
+        InvertedIndex index = InvertedIndex.open(file);
+        assertEquals(5, index.getSegmentCount());
+        assertEquals(expected, allPostings(index));
+    }
+
+    @Test
+    void compactMergesOnlyTheSegmentsWhileTheyAreSmallerThanTheIndexFile() throws IOException {
+        Path file = directory.resolve("title.idx");
+        writeSegments(file, 400, 9, 5);
+        Map<String, Map<Integer, Integer>> before = allPostings(InvertedIndex.open(file));
+
+        assertTrue(InvertedIndexBuilder.compact(file, 4));
+        // The merged segments keep the name of the newest one
+        assertEquals(List.of(file, file.resolveSibling("title.idx.9")), InvertedIndex.segmentFiles(file));
+        assertEquals(before, allPostings(InvertedIndex.open(file)));
+        assertFalse(InvertedIndexBuilder.compact(file, 4));
+    }
+
+    @Test
+    void compactRewritesTheIndexFileOnceTheSegmentsOutgrowIt() throws IOException {
+        Path file = directory.resolve("title.idx");
+        writeSegments(file, 5, 9, 100);
+        Map<String, Map<Integer, Integer>> before = allPostings(InvertedIndex.open(file));
+
+        assertTrue(InvertedIndexBuilder.compact(file, 4));
+        assertEquals(List.of(file), InvertedIndex.segmentFiles(file));
+        assertEquals(before, allPostings(InvertedIndex.open(file)));
+    }
+
+    @Test
+    void compactMergesEverythingWhenOneFileIsAllowed() throws IOException {
+        Path file = directory.resolve("title.idx");
+        writeSegments(file, 400, 2, 5);
+        Map<String, Map<Integer, Integer>> before = allPostings(InvertedIndex.open(file));
+
+        assertTrue(InvertedIndexBuilder.compact(file, 1));
+        assertEquals(List.of(file), InvertedIndex.segmentFiles(file));
+        assertEquals(before, allPostings(InvertedIndex.open(file)));
+    }
+
+    /**
+     * Writes an index file of the given number of documents, then segments of the given size
+     * that also add earlier documents again.
+     */
+    private static void writeSegments(Path file, int indexDocs, int segments, int segmentDocs) throws IOException {
+        Random random = new Random(11);
+        InvertedIndexBuilder builder = new InvertedIndexBuilder();
+        for (int doc = 0; doc < indexDocs; doc++) {
+            builder.add(doc, randomText(random));
+        }
+        builder.flushSegment(file);
+        for (int segment = 0; segment < segments; segment++) {
+            for (int doc = 0; doc < segmentDocs; doc++) {
+                builder.add(random.nextInt(indexDocs + segments * segmentDocs), randomText(random));
+            }
+            builder.flushSegment(file);
+        }
+        assertEquals(segments + 1, InvertedIndex.segmentFiles(file).size());
+    }
+
+    private static void addToModel(Map<String, Map<Integer, Integer>> model, int docId, String text) {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (String term : text.split(" ")) {
+            counts.merge(term, 1, Integer::sum);
+        }
+        counts.forEach((term, count) -> model.computeIfAbsent(term, t -> new TreeMap<>()).put(docId, count));
+    }
+
+    private static Map<String, Map<Integer, Integer>> allPostings(InvertedIndex index) {
+        Map<String, Map<Integer, Integer>> all = new TreeMap<>();
+        for (String term : index.terms()) {
+            Map<Integer, Integer> list = postings(index, term);
+            assertEquals(list.size(), index.docFreq(term), term);
+            all.put(term, list);
+        }
+        return all;
+    }
+
+    private static Map<Integer, Integer> postings(InvertedIndex index, String term) {
+        Map<Integer, Integer> frequencies = new TreeMap<>();
+        InvertedIndex.PostingList list = index.postings(term);
+        int previous = -1;
+        while (list.next()) {
+            assertTrue(list.doc() > previous, term);
+            previous = list.doc();
+            frequencies.put(list.doc(), list.frequency());
+        }
+        return frequencies;
+    }
+
+    private static String randomText(Random random) {
+        List<String> words = new ArrayList<>();
+        int length = 1 + random.nextInt(12);
+        for (int i = 0; i < length; i++) {
+            words.add("w" + random.nextInt(random.nextBoolean() ? 8 : 60));
+        }
+        return String.join(" ", words);
+    }
+}
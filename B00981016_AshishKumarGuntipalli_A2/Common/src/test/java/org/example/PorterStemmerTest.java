@@ -0,0 +1,59 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PorterStemmerTest {
+
+    // Examples from each step of the algorithm in Porter's 1980 paper, word then stem
+    private static final String[][] PAPER_EXAMPLES = {
+            {"caresses", "caress"}, {"ponies", "poni"}, {"ties", "ti"}, {"caress", "caress"}, {"cats", "cat"},
+            {"feed", "feed"}, {"agreed", "agre"}, {"plastered", "plaster"}, {"bled", "bled"},
+            {"motoring", "motor"}, {"sing", "sing"}, {"conflated", "conflat"}, {"troubled", "troubl"},
+            {"sized", "size"}, {"hopping", "hop"}, {"tanned", "tan"}, {"falling", "fall"}, {"hissing", "hiss"},
+            {"fizzed", "fizz"}, {"failing", "fail"}, {"filing", "file"}, {"happy", "happi"}, {"sky", "sky"},
+            {"relational", "relat"}, {"conditional", "condit"}, {"rational", "ration"}, {"valenci", "valenc"},
+            {"hesitanci", "hesit"}, {"digitizer", "digit"}, {"conformabli", "conform"}, {"radicalli", "radic"},
+            {"differentli", "differ"}, {"vileli", "vile"}, {"analogousli", "analog"},
+            {"vietnamization", "vietnam"}, {"predication", "predic"}, {"operator", "oper"},
+            {"feudalism", "feudal"}, {"decisiveness", "decis"}, {"hopefulness", "hope"},
+            {"callousness", "callous"}, {"formaliti", "formal"}, {"sensitiviti", "sensit"},
+            {"sensibiliti", "sensibl"}, {"triplicate", "triplic"}, {"formative", "form"}, {"formalize", "formal"},
+            {"electriciti", "electr"}, {"electrical", "electr"}, {"hopeful", "hope"}, {"goodness", "good"},
+            {"revival", "reviv"}, {"allowance", "allow"}, {"inference", "infer"}, {"airliner", "airlin"},
+            {"gyroscopic", "gyroscop"}, {"adjustable", "adjust"}, {"defensible", "defens"},
+            {"irritant", "irrit"}, {"replacement", "replac"}, {"adjustment", "adjust"},
+            {"dependent", "depend"}, {"adoption", "adopt"}, {"homologou", "homolog"}, {"communism", "commun"},
+            {"activate", "activ"}, {"angulariti", "angular"}, {"homologous", "homolog"},
+            {"effective", "effect"}, {"bowdlerize", "bowdler"}, {"probate", "probat"}, {"rate", "rate"},
+            {"cease", "ceas"}, {"controll", "control"}, {"roll", "roll"}, {"generalizations", "gener"},
+            {"oscillators", "oscil"},
+    };
+
+    private final PorterStemmer stemmer = new PorterStemmer();
+
+    @Test
+    void stemsThePaperExamples() {
+        for (String[] example : PAPER_EXAMPLES) {
+            assertEquals(example[1], stemmer.stem(example[0]), example[0]);
+        }
+    }
+
+    @Test
+    void stemsAWordInsideABufferInPlace() {
+        char[] buffer = "xxhappyyy".toCharArray();
+
+        assertEquals(5, stemmer.stem(buffer, 2, 5));
+        assertEquals("xxhappiyy", new String(buffer));
+    }
+
+    @Test
+    void leavesShortAndNonLowerCaseWordsUnchanged() {
+        assertEquals("is", stemmer.stem("is"));
+        assertEquals("Gains", stemmer.stem("Gains"));
+        assertEquals("cafés", stemmer.stem("cafés"));
+        assertEquals("can't", stemmer.stem("can't"));
+        assertEquals("", stemmer.stem(""));
+    }
+}
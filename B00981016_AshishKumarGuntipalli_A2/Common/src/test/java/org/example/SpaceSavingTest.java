@@ -0,0 +1,74 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTest {
+
+    @Test
+    void countsExactlyWhileUnderCapacity() {
+        SpaceSaving summary = new SpaceSaving(10);
+        summary.add("oil", 3);
+        summary.add("gold", 5);
+        summary.add("oil", 4);
+
+        assertEquals(0, summary.getMinCount());
+        assertEquals(7, summary.estimate("oil"));
+        assertEquals(0, summary.error("oil"));
+        assertEquals("[oil=7, gold=5]", summary.top(10).toString());
+    }
+
+    @Test
+    void tracksEveryTermAboveTheGuaranteedThreshold() {
+        int capacity = 50;
+        SpaceSaving summary = new SpaceSaving(capacity);
+        Map<String, Long> exact = CountMinSketchTest.zipfCounts(20000, 2000, 42);
+        List<String> terms = new ArrayList<>(exact.keySet());
+        Collections.shuffle(terms, new Random(1));
+        for (String term : terms) {
+            // One occurrence at a time, as words arrive
+            for (long i = 0; i < exact.get(term); i++) {
+                summary.add(term, 1);
+            }
+        }
+
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(capacity, summary.size());
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            long estimate = summary.estimate(entry.getKey());
+            assertTrue(estimate >= entry.getValue(), entry.getKey());
+            assertTrue(estimate - summary.error(entry.getKey()) <= entry.getValue(), entry.getKey());
+            if (entry.getValue() > total / capacity) {
+                assertTrue(summary.top(capacity).stream().anyMatch(w -> w.getWord().equals(entry.getKey())),
+                        entry.getKey() + " not tracked");
+            }
+        }
+    }
+
+    @Test
+    void mergeKeepsTheLargestCombinedCounts() {
+        SpaceSaving left = new SpaceSaving(2);
+        left.add("oil", 10);
+        left.add("gold", 4);
+        left.add("grain", 1);
+        SpaceSaving right = new SpaceSaving(2);
+        right.add("gold", 6);
+        right.add("coffee", 3);
+
+        left.merge(right);
+
+        assertEquals(2, left.size());
+        List<WordCount> top = left.top(2);
+        // grain displaced gold on the left, so gold is counted there with the left's smallest count
+        assertEquals("[oil=13, gold=11]", top.toString());
+        assertEquals(5, left.error("gold"));
+    }
+}
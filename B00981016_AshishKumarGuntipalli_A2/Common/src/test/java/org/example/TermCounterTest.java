@@ -0,0 +1,97 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TermCounterTest {
+
+    @Test
+    void countsEqualAHashMapCountThroughManyResizes() {
+        List<String> words = randomWords(200000, 30000, 3);
+        Map<String, Integer> expected = new HashMap<>();
+        TermCounter counter = new TermCounter();
+        for (String word : words) {
+            expected.merge(word, 1, Integer::sum);
+            counter.add(word);
+        }
+
+        assertEquals(expected, counter.toMap());
+        assertEquals(expected.size(), counter.size());
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), counter.get(entry.getKey()));
+        }
+        assertEquals(0, counter.get("never-counted"));
+    }
+
+    @Test
+    void charSlicesAndStringsCountTheSameTerm() {
+        TermCounter counter = new TermCounter();
+        char[] buffer = "crude oil prices".toCharArray();
+        counter.add("oil");
+        assertEquals(2, counter.add(buffer, 6, 3));
+        assertEquals(1, counter.add(buffer, 0, 5));
+        assertEquals(2, counter.size());
+        assertEquals(1, counter.get("crude"));
+    }
+
+    @Test
+    void cleanedTextCountsEqualAHashMapCount() {
+        TextCleaner cleaner = new TextCleaner().stripTags().stripEntities().minTokenLength(2);
+        String text = "<REUTERS><TITLE>Oil &amp; gold</TITLE><BODY>Oil rose; gold fell. "
+                + "Café prices – naïve forecasts, oil again.</BODY></REUTERS>";
+        Map<String, Integer> expected = new HashMap<>();
+        for (String word : cleaner.tokens(text)) {
+            expected.merge(word, 1, Integer::sum);
+        }
+        TermCounter counter = new TermCounter();
+        cleaner.tokenize(text, counter::add);
+
+        assertEquals(expected, counter.toMap());
+    }
+
+    @Test
+    void mergeSumsTheCountsOfBothCounters() {
+        List<String> words = randomWords(50000, 5000, 11);
+        Map<String, Integer> expected = new HashMap<>();
+        TermCounter left = new TermCounter();
+        TermCounter right = new TermCounter(4);
+        for (int i = 0; i < words.size(); i++) {
+            expected.merge(words.get(i), 1, Integer::sum);
+            (i % 3 == 0 ? left : right).add(words.get(i));
+        }
+        left.merge(right);
+
+        assertEquals(expected, left.toMap());
+    }
+
+    @Test
+    void clearKeepsTheCounterUsable() {
+        TermCounter counter = new TermCounter();
+        for (String word : randomWords(1000, 500, 5)) {
+            counter.add(word);
+        }
+        counter.clear();
+        assertTrue(counter.isEmpty());
+        assertEquals(0, counter.get("w1"));
+        counter.add("w1", 3);
+        assertEquals(3, counter.get("w1"));
+        assertEquals(1, counter.size());
+    }
+
+    private static List<String> randomWords(int count, int vocabulary, long seed) {
+        Random random = new Random(seed);
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            words.add("w" + random.nextInt(vocabulary));
+        }
+        return words;
+    }
+}
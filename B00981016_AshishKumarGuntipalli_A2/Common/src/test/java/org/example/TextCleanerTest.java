@@ -0,0 +1,93 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TextCleanerTest {
+
+    // Markup, entity and whitespace characters in plenty, so random texts hit every edge case
+    private static final String ALPHABET = "<<>>&&;;/lltt  \t\n\r\u000B\fabcXYZ0123_é東-.";
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList("the", "of", "lt", "ab"));
+
+    @Test
+    void filterEqualsTheReutReaderRegexChain() {
+        TextCleaner cleaner = new TextCleaner().dropSequence("&lt;").keepDigits();
+        String sample = "Oil &&lt;lt; prices <b>rose</b> 3.5%\r\n to $18.20, São Paulo 東京";
+        assertEquals(filterWithRegex(sample), cleaner.filter(sample));
+        assertEquals("Oil lt prices broseb 35\r\n to 1820 So Paulo ", cleaner.filter(sample));
+
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String text = randomText(random);
+            assertEquals(filterWithRegex(text), cleaner.filter(text), text);
+        }
+    }
+
+    @Test
+    void filterWithMarkupEqualsRemovingTagsAndEntitiesFirst() {
+        TextCleaner cleaner = new TextCleaner().stripTags().stripEntities();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            String text = randomText(random);
+            String expected = text.replaceAll("<[^>]+>", "").replaceAll("&[^;]+;", "")
+                    .replaceAll("[^a-zA-Z\\s]", "");
+            assertEquals(expected, cleaner.filter(text), text);
+        }
+    }
+
+    @Test
+    void cleanEqualsTheDataCleanerRegexChain() {
+        TextCleaner cleaner = new TextCleaner().stripTags().stripEntities().minTokenLength(2).stopWords(STOP_WORDS);
+        String sample = "<TITLE>The price&#3; of OIL</TITLE> a b cd &lt;x&gt; The-end";
+        assertEquals(cleanWithRegex(sample), cleaner.clean(sample));
+        assertEquals("price OIL cd end", cleaner.clean(sample));
+
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+            String text = randomText(random);
+            assertEquals(cleanWithRegex(text), cleaner.clean(text), text);
+            assertEquals(cleaner.clean(text), String.join(" ", cleaner.tokens(text)), text);
+        }
+    }
+
+    @Test
+    void tokensWithoutOptionsAreTheRunsOfLetters() {
+        assertEquals(List.of("crude", "oil", "s", "rose"), new TextCleaner().tokens("crude-oil's 12 rose!"));
+        assertEquals(List.of("a1b"), new TextCleaner().keepDigits().tokens(" a1b "));
+        assertEquals(List.of(), new TextCleaner().tokens(""));
+    }
+
+    // ReutReader.cleanContent before the single-pass cleaner
+    private static String filterWithRegex(String text) {
+        return text.replaceAll("&lt;", "").replaceAll("[^a-zA-Z0-9\\s]", "");
+    }
+
+    // The FirstProb-1B cleaning before the single-pass cleaner, stop words matched ignoring case
+    private static String cleanWithRegex(String text) {
+        String content = text.replaceAll("<[^>]+>", " ").replaceAll("&[^;]+;", " ");
+        content = content.replaceAll("[^a-zA-Z\\s]", " ");
+        content = content.replaceAll("\\b\\w{1}\\b", "");
+        StringBuilder result = new StringBuilder();
+        for (String word : content.split("\\s+")) {
+            if (!STOP_WORDS.contains(word.toLowerCase())) {
+                result.append(word).append(" ");
+            }
+        }
+        return result.toString().trim();
+    }
+
+    private static String randomText(Random random) {
+        char[] text = new char[random.nextInt(40)];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+        return new String(text);
+    }
+}
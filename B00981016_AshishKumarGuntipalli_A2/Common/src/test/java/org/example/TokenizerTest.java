@@ -0,0 +1,98 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TokenizerTest {
+
+    @Test
+    void splitsOnNonWordCharactersKeepingJoinedWords() {
+        assertEquals(List.of("oil", "can't", "rise", "far-fetched", "café", "東京", "3", "5", "pct"),
+                new Tokenizer().tokens("Oil can’t rise, far-fetched CAFÉ (東京) 3.5 -pct- '"));
+        assertEquals(List.of("Oil", "CAFÉ"), new Tokenizer().keepCase().tokens("Oil, CAFÉ!"));
+        // A supplementary letter and a combining accent stay inside the word
+        assertEquals(List.of("a𝐀b", "été"), new Tokenizer().tokens("a𝐀b étÉ"));
+    }
+
+    @Test
+    void splitOnWhitespaceEqualsARegexSplit() {
+        Tokenizer tokenizer = new Tokenizer().splitOnWhitespace().keepCase();
+        String alphabet = "ab,.-' \t\n\r\u000B\f É";
+        Random random = new Random(3);
+        for (int i = 0; i < 10000; i++) {
+            char[] text = new char[random.nextInt(30)];
+            for (int c = 0; c < text.length; c++) {
+                text[c] = alphabet.charAt(random.nextInt(alphabet.length()));
+            }
+            List<String> expected = new ArrayList<>(Arrays.asList(new String(text).split("\\s+")));
+            expected.remove("");
+            assertEquals(expected, tokenizer.tokens(new String(text)), new String(text));
+        }
+    }
+
+    @Test
+    void filtersStopWordsAndShortWordsBeforeStemming() {
+        Tokenizer tokenizer = new Tokenizer().minTokenLength(4).stopWords(Set.of("The", "rising")).stem();
+
+        assertEquals(List.of("price", "gain", "sharpli"),
+                tokenizer.tokens("THE prices of oil rising, gained sharply"));
+        assertEquals("gain", tokenizer.normalize("Gained"));
+        assertEquals("Gained", new Tokenizer().keepCase().normalize("Gained"));
+    }
+
+    @Test
+    void producesNgramsThatDoNotSpanSentencePunctuation() {
+        Tokenizer tokenizer = new Tokenizer().ngrams(3).stopWords(Set.of("are"));
+
+        assertEquals(List.of("prices", "not", "prices not", "very", "not very", "prices not very",
+                        "good", "very good", "not very good", "oil", "fell", "oil fell"),
+                tokenizer.tokens("Prices are not very good. Oil fell"));
+        assertThrows(IllegalArgumentException.class, () -> new Tokenizer().ngrams(0));
+    }
+
+    @Test
+    void tokenizesTheSameTextFromAConsumerAndAfterSerialization() throws IOException, ClassNotFoundException {
+        Tokenizer tokenizer = new Tokenizer().ngrams(2).stem();
+        List<String> nested = new ArrayList<>();
+        tokenizer.tokenize("gains rose", (buffer, offset, length) ->
+                nested.addAll(tokenizer.tokens(new String(buffer, offset, length) + " fell")));
+
+        // The outer words and bigram are unchanged by the nested calls
+        assertEquals(List.of("gain", "fell", "gain fell", "rose", "fell", "rose fell",
+                "gain", "rose", "gain rose", "fell", "rose fell"), nested);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(tokenizer);
+        }
+        Tokenizer copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (Tokenizer) in.readObject();
+        }
+        assertEquals(tokenizer.tokens("Gains rose. Prices fell"), copy.tokens("Gains rose. Prices fell"));
+        assertEquals(tokenizer.fingerprint(), copy.fingerprint());
+    }
+
+    @Test
+    void fingerprintsDifferWithTheSettings() {
+        assertEquals(new Tokenizer().stopWords(List.of("a", "b")).fingerprint(),
+                new Tokenizer().stopWords(List.of("B", "a")).fingerprint());
+        assertNotEquals(new Tokenizer().fingerprint(), new Tokenizer().stem().fingerprint());
+        assertNotEquals(new Tokenizer().fingerprint(), new Tokenizer().ngrams(2).fingerprint());
+        assertNotEquals(new Tokenizer().fingerprint(), new Tokenizer().stopWords(List.of("a")).fingerprint());
+    }
+}
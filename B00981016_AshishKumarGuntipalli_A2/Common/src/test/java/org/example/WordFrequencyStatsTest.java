@@ -0,0 +1,44 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WordFrequencyStatsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void exactStatisticsSurviveSaveAndLoad() throws IOException {
+        WordFrequencyStats stats = WordFrequencyStats.exact();
+        stats.add("oil", 3);
+        stats.add("gold", 1);
+        stats.markProcessed("file:/data/reut2-000.sgm");
+        stats.save(dir.resolve("state"));
+
+        WordFrequencyStats loaded = WordFrequencyStats.load(dir.resolve("state"));
+        assertTrue(loaded.isExact());
+        assertEquals(4, loaded.getTotalCount());
+        assertEquals(stats.histogram(), loaded.histogram());
+        assertEquals(stats.top(2).toString(), loaded.top(2).toString());
+        assertTrue(loaded.isProcessed("file:/data/reut2-000.sgm"));
+    }
+
+    @Test
+    void approximateStatisticsSurviveSaveAndLoad() throws IOException {
+        WordFrequencyStats stats = WordFrequencyStats.approximate(256, 3, 10);
+        stats.add("oil", 30);
+        stats.add("gold", 10);
+        stats.save(dir.resolve("state"));
+
+        WordFrequencyStats loaded = WordFrequencyStats.load(dir.resolve("state"));
+        assertEquals(40, loaded.getTotalCount());
+        assertEquals(stats.top(2).toString(), loaded.top(2).toString());
+    }
+}
@@ -0,0 +1,148 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Ingests .sgm files one at a time, recording progress in an {@link IngestCheckpoint} every few
+ * articles once the store has made them durable. A restarted ingest skips the files already done
+ * and resumes each file at the byte offset of its last checkpoint, so completed work is neither
+ * parsed nor written again.
+ *
+ * <p>Articles appended after the last checkpoint of a killed run are written again on restart.
+ * They are dropped from the store first, or, for stores that replace articles by NEWID, simply
+ * overwritten, so the store ends up with every article exactly once.
+ */
+public class CheckpointedIngest {
+
+    private final ReutReader reader;
+    private final ArticleStore store;
+    private final IngestCheckpoint checkpoint;
+    private final int checkpointInterval;
+    private final boolean upserts;
+
+    /**
+     * Constructs a CheckpointedIngest.
+     *
+     * @param reader             The reader used to clean articles.
+     * @param store              The store the documents are appended to; it is closed once every file is ingested.
+     * @param checkpoint         The checkpoint recording progress, loaded from the previous run if there was one.
+     * @param checkpointInterval The number of articles appended between two checkpoints.
+     * @param upserts            Whether the store replaces articles by NEWID, so replayed articles need
+     *                           not be dropped; otherwise the store must support {@link ArticleStore#truncate(long)}.
+     */
+    public CheckpointedIngest(ReutReader reader, ArticleStore store, IngestCheckpoint checkpoint,
+                              int checkpointInterval, boolean upserts) {
+        this.reader = reader;
+        this.store = store;
+        this.checkpoint = checkpoint;
+        this.checkpointInterval = checkpointInterval;
+        this.upserts = upserts;
+    }
+
+    /**
+     * Finds the files to ingest under a path, in the order they are ingested.
+     *
+     * @param path A .sgm file, or a directory searched for .sgm files.
+     * @return The files, sorted by path.
+     * @throws IOException If the directory cannot be searched.
+     */
+    public static List<Path> sources(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            return paths
+                    .filter(p -> Files.isRegularFile(p) && p.getFileName().toString().endsWith(".sgm"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Ingests the given files, resuming from the checkpoint, and then closes the store.
+     *
+     * @param files The files to ingest, in the same order on every run.
+     * @throws IOException If a file cannot be read, the store cannot be written or a file has
+     *                     changed since it was checkpointed.
+     */
+    public void run(List<Path> files) throws IOException {
+        try {
+            rollBack();
+            for (Path file : files) {
+                ingest(file);
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * Drops the articles appended after the last checkpoint, or records the size of the store
+     * before the first run so a run killed before its first checkpoint can be undone too.
+     */
+    private void rollBack() throws IOException {
+        if (upserts) {
+            return;
+        }
+        long stored = checkpoint.getStoredArticles();
+        if (stored < 0) {
+            checkpoint.commit(store.count());
+            return;
+        }
+        long count = store.count();
+        if (count > stored) {
+            System.out.println("Dropping " + (count - stored) + " articles stored after the last checkpoint");
+            store.truncate(stored);
+        }
+    }
+
+    private void ingest(Path file) throws IOException {
+        long size = Files.size(file);
+        IngestCheckpoint.FileProgress progress = checkpoint.progress(file);
+        if (progress != null && progress.getSize() != size) {
+            throw new IOException("Error resuming " + file + ": its size changed from " + progress.getSize()
+                    + " to " + size + " bytes since it was checkpointed");
+        }
+        if (progress != null && progress.isComplete()) {
+            System.out.println("Skipping " + file + ": " + progress.getArticles() + " articles already ingested");
+            return;
+        }
+
+        long offset = progress == null ? 0 : progress.getOffset();
+        long articles = progress == null ? 0 : progress.getArticles();
+        String lastNewId = progress == null ? null : progress.getLastNewId();
+        if (offset > 0) {
+            System.out.println("Resuming " + file + " at byte " + offset + " after NEWID " + lastNewId);
+        }
+
+        try (ReutersStreamParser parser = ReutersStreamParser.open(file, offset)) {
+            int sinceCheckpoint = 0;
+            while (parser.hasNext()) {
+                ReutersArticle article = parser.next();
+                store.append(reader.toDocument(article));
+                lastNewId = article.getNewId();
+                articles++;
+                if (++sinceCheckpoint == checkpointInterval) {
+                    commit(file, new IngestCheckpoint.FileProgress(size, parser.getArticleEnd(), lastNewId,
+                            articles, false));
+                    sinceCheckpoint = 0;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        commit(file, new IngestCheckpoint.FileProgress(size, size, lastNewId, articles, true));
+        System.out.println("Ingested " + file + ": " + articles + " articles");
+    }
+
+    private void commit(Path file, IngestCheckpoint.FileProgress progress) throws IOException {
+        store.sync();
+        checkpoint.commit(file, progress, upserts ? -1 : store.count());
+    }
+}
@@ -0,0 +1,324 @@
+package org.example;
+
+import org.bson.Document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Builds an inverted index of the title and body of every article appended to another store.
+ * Articles are indexed by NEWID, and the index files are written to a directory when the store
+ * is synced or closed. An index left by an earlier ingest is extended with a new segment holding
+ * only the articles appended since, rather than read back and rewritten.
+ *
+ * <p>Next to the index, segments.properties records the range of store articles each index file
+ * was written for, by their position in the store. When a checkpointed ingest drops the articles
+ * stored after its last checkpoint, the segments written for them are deleted with them, so the
+ * replayed articles are indexed once. Files indexed before the ranges were recorded are listed
+ * from -1 and never deleted. A store replacing articles by NEWID is not truncated; the articles
+ * it is sent again are indexed again, and the newer segment gives their frequencies.
+ */
+public class IndexingArticleStore implements ArticleStore {
+
+    private static final String[] INDEXED_FIELDS = {"title", "body"};
+    // Files per index, segments included, before they are merged when the store is closed
+    private static final int MAX_SEGMENTS = 8;
+    private static final String RANGES_FILE = "segments.properties";
+    private static final String INDEXED_KEY = "indexed";
+
+    private final ArticleStore store;
+    private final Path directory;
+    private final InvertedIndexBuilder[] builders = new InvertedIndexBuilder[INDEXED_FIELDS.length];
+    private long skipped;
+    // The range of store articles each index file was written for, as "from,to"; loaded on first use
+    private Properties ranges;
+    // The number of store articles the index files cover, saved with the ranges
+    private long indexed;
+
+    /**
+     * Constructs an IndexingArticleStore.
+     *
+     * @param store     The store the articles are appended to.
+     * @param directory The directory holding one index file per indexed field.
+     */
+    public IndexingArticleStore(ArticleStore store, Path directory) {
+        this(store, directory, new Tokenizer());
+    }
+
+    /**
+     * Constructs an IndexingArticleStore splitting text with the given tokenizer. An existing
+     * index must have been built with the same tokenizer settings.
+     *
+     * @param store     The store the articles are appended to.
+     * @param directory The directory holding one index file per indexed field.
+     * @param tokenizer The tokenizer splitting titles and bodies into terms.
+     */
+    public IndexingArticleStore(ArticleStore store, Path directory, Tokenizer tokenizer) {
+        this.store = store;
+        this.directory = directory;
+        for (int i = 0; i < INDEXED_FIELDS.length; i++) {
+            builders[i] = new InvertedIndexBuilder(tokenizer);
+        }
+    }
+
+    /**
+     * Retrieves the path of the index file of a field.
+     *
+     * @param directory The directory holding the index files.
+     * @param field     The indexed field, "title" or "body".
+     * @return The path of the index file.
+     */
+    public static Path indexPath(Path directory, String field) {
+        return directory.resolve(field + ".idx");
+    }
+
+    @Override
+    public void append(Document article) throws IOException {
+        store.append(article);
+        Object newId = article.get("newid");
+        if (newId == null) {
+            // Sections extracted with the regex path carry no NEWID to index them by
+            synchronized (this) {
+                skipped++;
+            }
+            return;
+        }
+        int docId = newId instanceof Number ? ((Number) newId).intValue() : Integer.parseInt(newId.toString());
+        for (int i = 0; i < INDEXED_FIELDS.length; i++) {
+            Object text = article.get(INDEXED_FIELDS[i]);
+            if (text != null) {
+                builders[i].add(docId, text.toString());
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        store.flush();
+    }
+
+    /**
+     * Syncs the underlying store and then writes the articles indexed since the last sync as new
+     * segments, so the index on disk covers exactly the articles stored so far.
+     *
+     * @throws IOException If the store cannot be synced or the index cannot be written.
+     */
+    @Override
+    public synchronized void sync() throws IOException {
+        store.sync();
+        writeIndex(store.count());
+    }
+
+    /**
+     * Truncates the underlying store and drops what was indexed of the articles past the kept
+     * count: the documents added since the last sync, which all lie past the count the store was
+     * last synced at, and the index files written for later articles, such as by a sync whose
+     * checkpoint was never committed or by closing the store after a failure. Only meant for a
+     * store just opened, and for a count it was synced at.
+     *
+     * <p>An index file holding articles from both sides of the count, which only merging segments
+     * after a failure leaves, is kept. The replayed articles still end up indexed once, as the
+     * newest segment gives the frequencies of a document found in several.
+     *
+     * @param count The number of articles to keep.
+     * @throws IOException If the store cannot be truncated or the index files cannot be deleted.
+     */
+    @Override
+    public synchronized void truncate(long count) throws IOException {
+        loadRanges();
+        store.truncate(count);
+        for (InvertedIndexBuilder builder : builders) {
+            builder.clear();
+        }
+        int dropped = 0;
+        for (String field : INDEXED_FIELDS) {
+            List<Path> files = InvertedIndex.segmentFiles(indexPath(directory, field));
+            // Newest first, down to the first file written for articles that are kept
+            for (int f = files.size() - 1; f >= 0; f--) {
+                String name = files.get(f).getFileName().toString();
+                String range = ranges.getProperty(name);
+                if (range != null && from(range) < count) {
+                    if (to(range) > count) {
+                        System.out.println("Keeping " + name + ", which also holds articles stored before the last checkpoint;"
+                                + " the replayed articles replace the rest");
+                    }
+                    break;
+                }
+                // Written for dropped articles, or written before the ranges were saved again
+                if (Files.deleteIfExists(files.get(f))) {
+                    dropped++;
+                }
+                ranges.remove(name);
+            }
+        }
+        indexed = count;
+        saveRanges();
+        if (dropped > 0) {
+            System.out.println("Dropped " + dropped + " index files written after the last checkpoint");
+        }
+    }
+
+    @Override
+    public long count() throws IOException {
+        return store.count();
+    }
+
+    @Override
+    public ArticleCursor scan(String... fields) throws IOException {
+        return store.scan(fields);
+    }
+
+    @Override
+    public long getWrittenCount() {
+        return store.getWrittenCount();
+    }
+
+    @Override
+    public long getBatchCount() {
+        return store.getBatchCount();
+    }
+
+    /**
+     * Closes the underlying store, writes the remaining articles as new segments and merges the
+     * segments once there are too many.
+     *
+     * @throws IOException If the store cannot be closed or the index cannot be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        long count;
+        try {
+            loadRanges();
+            store.flush();
+            count = store.count();
+        } finally {
+            store.close();
+        }
+        writeIndex(count);
+        int[] termCounts = new int[INDEXED_FIELDS.length];
+        for (int i = 0; i < INDEXED_FIELDS.length; i++) {
+            Path file = indexPath(directory, INDEXED_FIELDS[i]);
+            compact(file);
+            termCounts[i] = InvertedIndex.open(file).getTermCount();
+        }
+        System.out.println("Indexed " + termCounts[0] + " title terms and "
+                + termCounts[1] + " body terms in " + directory);
+        if (skipped > 0) {
+            System.out.println("Skipped " + skipped + " articles without NEWID");
+        }
+    }
+
+    /**
+     * Writes the documents added since the last write as new segments, recorded as covering the
+     * store articles from the last write up to the given count.
+     */
+    private void writeIndex(long count) throws IOException {
+        loadRanges();
+        for (int i = 0; i < INDEXED_FIELDS.length; i++) {
+            Path written = builders[i].flushSegment(indexPath(directory, INDEXED_FIELDS[i]));
+            if (written != null) {
+                ranges.setProperty(written.getFileName().toString(), indexed + "," + count);
+            }
+        }
+        indexed = count;
+        saveRanges();
+    }
+
+    /**
+     * Merges the segments of an index once there are too many, and records the merged file as
+     * covering every range it took in. The index file and the newest segment, either of which the
+     * merge may be written to, are first recorded as covering them all, so an interrupted merge
+     * never leaves a file holding articles outside its recorded range.
+     */
+    private void compact(Path file) throws IOException {
+        List<Path> before = InvertedIndex.segmentFiles(file);
+        if (before.size() <= MAX_SEGMENTS) {
+            return;
+        }
+        long from = Long.MAX_VALUE;
+        long to = -1;
+        for (Path segment : before) {
+            String range = ranges.getProperty(segment.getFileName().toString());
+            from = Math.min(from, range == null ? -1 : from(range));
+            to = Math.max(to, range == null ? -1 : to(range));
+        }
+        ranges.setProperty(before.get(0).getFileName().toString(), from + "," + to);
+        ranges.setProperty(before.get(before.size() - 1).getFileName().toString(), from + "," + to);
+        saveRanges();
+
+        InvertedIndexBuilder.compact(file, MAX_SEGMENTS);
+        List<Path> after = InvertedIndex.segmentFiles(file);
+        Path target = after.get(after.size() - 1);
+        long mergedFrom = Long.MAX_VALUE;
+        long mergedTo = -1;
+        for (Path segment : before) {
+            String name = segment.getFileName().toString();
+            if (segment.equals(target) || !after.contains(segment)) {
+                String range = ranges.getProperty(name);
+                mergedFrom = Math.min(mergedFrom, range == null ? -1 : from(range));
+                mergedTo = Math.max(mergedTo, range == null ? -1 : to(range));
+                ranges.remove(name);
+            }
+        }
+        ranges.setProperty(target.getFileName().toString(), mergedFrom + "," + mergedTo);
+        saveRanges();
+    }
+
+    /**
+     * Loads the ranges of the index files. Without a ranges file, the index files already on disk
+     * were written before ranges were recorded, and are listed from -1 so they are always kept;
+     * they cover the articles the store holds now.
+     */
+    private void loadRanges() throws IOException {
+        if (ranges != null) {
+            return;
+        }
+        Properties loaded = new Properties();
+        Path file = directory.resolve(RANGES_FILE);
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                loaded.load(in);
+            }
+            try {
+                indexed = Long.parseLong(loaded.getProperty(INDEXED_KEY));
+            } catch (RuntimeException e) {
+                throw new IOException("Error reading index ranges " + file + ": " + e.getMessage(), e);
+            }
+            loaded.remove(INDEXED_KEY);
+            ranges = loaded;
+            return;
+        }
+        for (String field : INDEXED_FIELDS) {
+            for (Path segment : InvertedIndex.segmentFiles(indexPath(directory, field))) {
+                if (Files.exists(segment)) {
+                    loaded.setProperty(segment.getFileName().toString(), "-1,-1");
+                }
+            }
+        }
+        indexed = store.count();
+        ranges = loaded;
+        // Saved before any segment is written, so a segment missing from it was written after
+        saveRanges();
+    }
+
+    private void saveRanges() throws IOException {
+        Properties properties = new Properties();
+        properties.putAll(ranges);
+        properties.setProperty(INDEXED_KEY, Long.toString(indexed));
+        Files.createDirectories(directory);
+        AtomicFiles.writeStream(directory.resolve(RANGES_FILE),
+                out -> properties.store(out, "Store articles each index file was written for: from,to"));
+    }
+
+    private static long from(String range) {
+        return Long.parseLong(range.substring(0, range.indexOf(',')));
+    }
+
+    private static long to(String range) {
+        return Long.parseLong(range.substring(range.indexOf(',') + 1));
+    }
+}
@@ -0,0 +1,214 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Records how far an ingest has got through each source file: the byte offset just past the last
+ * article committed, its NEWID, how many articles of the file were committed and whether the file
+ * is done. It also records how many articles the store held at that point, so appends made after
+ * the checkpoint can be dropped before they are replayed.
+ *
+ * <p>The checkpoint is a properties file. Every commit writes it under a temporary name, forces it
+ * to disk and moves it into place, so a crash leaves either the previous checkpoint or the new one.
+ */
+public class IngestCheckpoint {
+
+    private static final String STORED_KEY = "stored";
+    private static final String SIZE_PREFIX = "size.";
+    private static final String OFFSET_PREFIX = "offset.";
+    private static final String NEWID_PREFIX = "newid.";
+    private static final String ARTICLES_PREFIX = "articles.";
+    private static final String COMPLETE_PREFIX = "complete.";
+
+    private final Path path;
+    private final Map<String, FileProgress> files = new TreeMap<>();
+    private long storedArticles = -1;
+
+    private IngestCheckpoint(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Loads a checkpoint, or starts an empty one if the file does not exist yet.
+     *
+     * @param path The path of the checkpoint file.
+     * @return The checkpoint.
+     * @throws IOException If the file exists but cannot be read.
+     */
+    public static IngestCheckpoint load(Path path) throws IOException {
+        IngestCheckpoint checkpoint = new IngestCheckpoint(path);
+        if (!Files.exists(path)) {
+            return checkpoint;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        }
+        try {
+            checkpoint.storedArticles = Long.parseLong(properties.getProperty(STORED_KEY, "-1"));
+            for (String key : properties.stringPropertyNames()) {
+                if (!key.startsWith(OFFSET_PREFIX)) {
+                    continue;
+                }
+                String source = key.substring(OFFSET_PREFIX.length());
+                checkpoint.files.put(source, new FileProgress(
+                        Long.parseLong(properties.getProperty(SIZE_PREFIX + source)),
+                        Long.parseLong(properties.getProperty(key)),
+                        properties.getProperty(NEWID_PREFIX + source),
+                        Long.parseLong(properties.getProperty(ARTICLES_PREFIX + source)),
+                        Boolean.parseBoolean(properties.getProperty(COMPLETE_PREFIX + source))));
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Error reading checkpoint " + path + ": " + e.getMessage(), e);
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Retrieves the progress recorded for a source file.
+     *
+     * @param source The source file.
+     * @return The progress, or null if nothing of the file has been committed.
+     */
+    public synchronized FileProgress progress(Path source) {
+        return files.get(key(source));
+    }
+
+    /**
+     * Retrieves the number of articles the store held at the last commit.
+     *
+     * @return The number of stored articles, or -1 if it was not recorded.
+     */
+    public synchronized long getStoredArticles() {
+        return storedArticles;
+    }
+
+    /**
+     * Records the number of articles in the store before anything is ingested, without any file progress.
+     *
+     * @param storedArticles The number of articles in the store, or -1 if it need not be recorded.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public synchronized void commit(long storedArticles) throws IOException {
+        this.storedArticles = storedArticles;
+        write();
+    }
+
+    /**
+     * Records the progress through a source file. The articles committed must already be durably
+     * stored.
+     *
+     * @param source         The source file.
+     * @param progress       The progress through the file.
+     * @param storedArticles The number of articles in the store, or -1 if it need not be recorded.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public synchronized void commit(Path source, FileProgress progress, long storedArticles) throws IOException {
+        files.put(key(source), progress);
+        this.storedArticles = storedArticles;
+        write();
+    }
+
+    private void write() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(STORED_KEY, Long.toString(storedArticles));
+        files.forEach((source, progress) -> {
+            properties.setProperty(SIZE_PREFIX + source, Long.toString(progress.getSize()));
+            properties.setProperty(OFFSET_PREFIX + source, Long.toString(progress.getOffset()));
+            if (progress.getLastNewId() != null) {
+                properties.setProperty(NEWID_PREFIX + source, progress.getLastNewId());
+            }
+            properties.setProperty(ARTICLES_PREFIX + source, Long.toString(progress.getArticles()));
+            properties.setProperty(COMPLETE_PREFIX + source, Boolean.toString(progress.isComplete()));
+        });
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        AtomicFiles.writeStream(path, out -> properties.store(out, "Reuters ingest checkpoint"));
+    }
+
+    private static String key(Path source) {
+        return source.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * The progress through one source file.
+     */
+    public static class FileProgress {
+        private final long size;
+        private final long offset;
+        private final String lastNewId;
+        private final long articles;
+        private final boolean complete;
+
+        /**
+         * Constructs a FileProgress.
+         *
+         * @param size      The size of the file when it was ingested, to detect files changed since.
+         * @param offset    The byte offset just past the last article committed.
+         * @param lastNewId The NEWID of the last article committed, or null if none was.
+         * @param articles  The number of articles of the file committed.
+         * @param complete  Whether every article of the file has been committed.
+         */
+        public FileProgress(long size, long offset, String lastNewId, long articles, boolean complete) {
+            this.size = size;
+            this.offset = offset;
+            this.lastNewId = lastNewId;
+            this.articles = articles;
+            this.complete = complete;
+        }
+
+        /**
+         * Retrieves the size of the file when it was ingested.
+         *
+         * @return The size in bytes.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Retrieves the byte offset just past the last article committed.
+         *
+         * @return The offset in the file.
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Retrieves the NEWID of the last article committed.
+         *
+         * @return The NEWID, or null if no article was committed.
+         */
+        public String getLastNewId() {
+            return lastNewId;
+        }
+
+        /**
+         * Retrieves the number of articles of the file committed.
+         *
+         * @return The number of articles.
+         */
+        public long getArticles() {
+            return articles;
+        }
+
+        /**
+         * Checks whether every article of the file has been committed.
+         *
+         * @return true if the file is done.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+}
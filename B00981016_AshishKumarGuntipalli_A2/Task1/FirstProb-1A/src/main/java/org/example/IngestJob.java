@@ -0,0 +1,101 @@
+package org.example;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import org.bson.Document;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Ingests Reuters .sgm files into MongoDB or a local article store.
+ */
+public class IngestJob {
+
+    public static void main(String[] args) throws IOException {
+        Metrics.start();
+
+        ReutReader r = new ReutReader();
+        String filePath = args.length > 0 ? args[0] : "reut2-009.sgm";
+
+        boolean local = "local".equals(System.getProperty("store"));
+        String checkpointPath = System.getProperty("ingest.checkpoint");
+        // -Dingest.upsert=true replaces articles by NEWID; so does a checkpointed ingest, as articles written after
+        // the last checkpoint are written again on restart and must replace their earlier copies
+        String upsertKey = Boolean.getBoolean("ingest.upsert") || checkpointPath != null ? "newid" : null;
+
+        // -Dstore=local writes to a local article store under -Dstore.path instead of MongoDB; stores created
+        // before dates, topics and places were kept open with -Dstore.columns=title,body,newid
+        ArticleStore store = local
+                ? LocalArticleStore.open(Paths.get(System.getProperty("store.path", "articles")),
+                        System.getProperty("store.columns", "title,body,newid,date,topics,places").split(","))
+                : openMongoStore(r, upsertKey);
+        if (System.getProperty("ingest.index") != null) {
+            // Also build an inverted index of titles and bodies under -Dingest.index, stemmed with -Dingest.stem=true
+            Tokenizer tokenizer = Boolean.getBoolean("ingest.stem") ? new Tokenizer().stem() : new Tokenizer();
+            store = new IndexingArticleStore(store, Paths.get(System.getProperty("ingest.index")), tokenizer);
+        }
+
+        Path path = Paths.get(filePath);
+        if (checkpointPath != null) {
+            // Resumable ingest of the file, or of every .sgm file in the directory, checkpointed under -Dingest.checkpoint
+            IngestCheckpoint checkpoint = IngestCheckpoint.load(Paths.get(checkpointPath));
+            CheckpointedIngest ingest = new CheckpointedIngest(r, store, checkpoint,
+                    Integer.getInteger("ingest.checkpointInterval", 1000), !local);
+            ingest.run(CheckpointedIngest.sources(path));
+            System.out.println("Inserted " + store.getWrittenCount() + " documents");
+        } else if (Files.isDirectory(path)) {
+            // Pipelined ingest of every .sgm file in the directory; stage sizes are tunable with -Dingest.*
+            int cores = Runtime.getRuntime().availableProcessors();
+            IngestPipeline pipeline = new IngestPipeline(r, store,
+                    Integer.getInteger("ingest.parseThreads", cores),
+                    Integer.getInteger("ingest.cleanThreads", cores),
+                    Integer.getInteger("ingest.queueCapacity", 10000),
+                    Long.getLong("ingest.reportIntervalMillis", 5000L));
+            pipeline.run(path);
+        } else {
+            try (Stream<ReutersArticle> articles = r.streamReuters(filePath)) {
+                r.extractTitleAndBody(articles, store);
+            } finally {
+                store.close();
+            }
+            System.out.println("Inserted " + store.getWrittenCount() + " documents");
+        }
+
+        System.out.println("Added documents to Collection Successfully");
+
+    }
+
+    private static ArticleStore openMongoStore(ReutReader r, String upsertKey) throws IOException {
+        MongoClient connection = MongoClients.create(MongoArticleStore.connectionString());
+        MongoDatabase db = connection.getDatabase("ReuterDb");
+        System.out.println("Connected to MongoDB Successfully");
+
+        if (!db.listCollectionNames().into(new ArrayList<>()).contains("news_articles")) {
+            db.createCollection("news_articles");
+            System.out.println("Collection Created Successfully");
+        }
+        MongoCollection<Document> collection = db.getCollection("news_articles");
+        if (upsertKey != null) {
+            // Re-running an ingest replaces articles by NEWID instead of inserting duplicates. The index only covers
+            // articles that have the key, so those stored without one by the regex path do not collide as nulls
+            try {
+                collection.createIndex(Indexes.ascending(upsertKey), new IndexOptions().unique(true)
+                        .partialFilterExpression(Filters.exists(upsertKey)));
+            } catch (MongoException e) {
+                throw new IOException("Error creating the unique " + upsertKey + " index upserts need on news_articles;"
+                        + " remove the duplicate articles or ingest without upserts: " + e.getMessage(), e);
+            }
+        }
+        return r.defaultStore(collection, upsertKey);
+    }
+}
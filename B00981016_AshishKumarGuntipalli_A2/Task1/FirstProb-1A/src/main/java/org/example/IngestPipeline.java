@@ -0,0 +1,277 @@
+package org.example;
+
+import org.bson.Document;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Ingests a directory of .sgm files through separate discovery, parse, clean and write stages.
+ * The stages are linked by bounded queues, so a slow store write blocks the cleaners, which in
+ * turn block the parsers, instead of letting parsed articles pile up on the heap.
+ */
+public class IngestPipeline {
+
+    private static final Path END_OF_FILES = Paths.get("");
+    private static final ReutersArticle END_OF_ARTICLES =
+            new ReutersArticle(null, null, null, null, null, null, null);
+    private static final Document END_OF_DOCUMENTS = new Document();
+    private static final long POLL_MILLIS = 100;
+
+    private final ReutReader reader;
+    private final ArticleStore store;
+    private final int parseThreads;
+    private final int cleanThreads;
+    private final long reportIntervalMillis;
+
+    private final BlockingQueue<Path> files;
+    private final BlockingQueue<ReutersArticle> articles;
+    private final BlockingQueue<Document> documents;
+
+    private final StageStats discoverStats = new StageStats("discover");
+    private final StageStats parseStats = new StageStats("parse");
+    private final StageStats cleanStats = new StageStats("clean");
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Constructs an IngestPipeline.
+     *
+     * @param reader               The reader used to parse and clean articles.
+     * @param store                The store the documents are appended to; it is closed when the run
+     *                             ends, whether or not it succeeds. For MongoDB, the writer's number
+     *                             of batches in flight sets the parallelism of the write stage.
+     * @param parseThreads         The number of threads parsing files.
+     * @param cleanThreads         The number of threads cleaning articles.
+     * @param queueCapacity        The capacity of each queue between two stages.
+     * @param reportIntervalMillis The interval between progress reports, or 0 to disable them.
+     */
+    public IngestPipeline(ReutReader reader, ArticleStore store, int parseThreads, int cleanThreads,
+                          int queueCapacity, long reportIntervalMillis) {
+        this.reader = reader;
+        this.store = store;
+        this.parseThreads = parseThreads;
+        this.cleanThreads = cleanThreads;
+        this.reportIntervalMillis = reportIntervalMillis;
+        this.files = new ArrayBlockingQueue<>(queueCapacity);
+        this.articles = new ArrayBlockingQueue<>(queueCapacity);
+        this.documents = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Ingests every .sgm file found under the given directory.
+     *
+     * @param directory The directory to search for .sgm files.
+     * @throws IOException If any stage fails.
+     */
+    public void run(Path directory) throws IOException {
+        ExecutorService discoverPool = Executors.newSingleThreadExecutor();
+        ExecutorService parsePool = Executors.newFixedThreadPool(parseThreads);
+        ExecutorService cleanPool = Executors.newFixedThreadPool(cleanThreads);
+        ExecutorService writePool = Executors.newSingleThreadExecutor();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        long start = System.nanoTime();
+
+        if (reportIntervalMillis > 0) {
+            reporter.scheduleAtFixedRate(() -> report(start), reportIntervalMillis,
+                    reportIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        try {
+            discoverPool.execute(() -> discover(directory));
+            for (int i = 0; i < parseThreads; i++) {
+                parsePool.execute(this::parse);
+            }
+            for (int i = 0; i < cleanThreads; i++) {
+                cleanPool.execute(this::clean);
+            }
+            writePool.execute(this::write);
+
+            awaitStage(discoverPool, files, END_OF_FILES, parseThreads);
+            awaitStage(parsePool, articles, END_OF_ARTICLES, cleanThreads);
+            awaitStage(cleanPool, documents, END_OF_DOCUMENTS, 1);
+            awaitTermination(writePool);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } finally {
+            reporter.shutdownNow();
+            discoverPool.shutdownNow();
+            parsePool.shutdownNow();
+            cleanPool.shutdownNow();
+            writePool.shutdownNow();
+            closeStore(writePool);
+        }
+
+        report(start);
+        Throwable error = failure.get();
+        if (error != null) {
+            throw new IOException("Error ingesting " + directory + ": " + error.getMessage(), error);
+        }
+    }
+
+    /**
+     * Waits for a stage to finish and then tells every worker of the next stage to stop.
+     * Returns early without signalling if any stage has failed.
+     */
+    private <T> void awaitStage(ExecutorService pool, BlockingQueue<T> output, T endMarker, int consumers)
+            throws InterruptedException {
+        awaitTermination(pool);
+        for (int i = 0; i < consumers && failure.get() == null; i++) {
+            while (!output.offer(endMarker, POLL_MILLIS, TimeUnit.MILLISECONDS) && failure.get() == null) {
+                // the next stage is still draining the queue
+            }
+        }
+    }
+
+    /**
+     * Closes the store once the write stage has stopped, after a failure too, so the store's writer
+     * threads do not keep the JVM running. A failure to close is added to the first failure.
+     */
+    private void closeStore(ExecutorService writePool) {
+        try {
+            while (!writePool.awaitTermination(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                // an append in progress finishes before the worker sees the interrupt
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            store.close();
+        } catch (IOException | RuntimeException e) {
+            if (!failure.compareAndSet(null, e)) {
+                failure.get().addSuppressed(e);
+            }
+        }
+    }
+
+    private void awaitTermination(ExecutorService pool) throws InterruptedException {
+        pool.shutdown();
+        while (!pool.awaitTermination(POLL_MILLIS, TimeUnit.MILLISECONDS) && failure.get() == null) {
+            // keep waiting unless another stage has failed
+        }
+    }
+
+    private void discover(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            Iterator<Path> iterator = paths
+                    .filter(p -> Files.isRegularFile(p) && p.getFileName().toString().endsWith(".sgm"))
+                    .sorted()
+                    .iterator();
+            while (iterator.hasNext() && failure.get() == null) {
+                Path file = iterator.next();
+                files.put(file);
+                discoverStats.record(Files.size(file));
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    private void parse() {
+        try {
+            Path file;
+            while ((file = files.take()) != END_OF_FILES) {
+                try (ReutersStreamParser parser = ReutersStreamParser.open(file)) {
+                    long end = 0;
+                    while (parser.hasNext() && failure.get() == null) {
+                        articles.put(parser.next());
+                        // Bytes of the file read up to the end of this article
+                        parseStats.record(parser.getArticleEnd() - end);
+                        end = parser.getArticleEnd();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    private void clean() {
+        try {
+            ReutersArticle article;
+            while ((article = articles.take()) != END_OF_ARTICLES) {
+                Document document = reader.toDocument(article);
+                documents.put(document);
+                cleanStats.record(utf8Length(document.get("title")) + utf8Length(document.get("body")));
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    private void write() {
+        try {
+            Document document;
+            while ((document = documents.take()) != END_OF_DOCUMENTS) {
+                store.append(document);
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Records the first failure. The coordinating thread then interrupts every stage.
+     */
+    private void fail(Throwable e) {
+        failure.compareAndSet(null, e);
+    }
+
+    private void report(long start) {
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        System.out.println(discoverStats.format(seconds) + " | " + parseStats.format(seconds) + " | "
+                + cleanStats.format(seconds)
+                + String.format(" | write %d (%.1f/s) in %d batches", store.getWrittenCount(),
+                        store.getWrittenCount() / seconds, store.getBatchCount())
+                + " | queues files=" + files.size() + " articles=" + articles.size()
+                + " documents=" + documents.size());
+    }
+
+    private static int utf8Length(Object text) {
+        return text == null ? 0 : Utf8.length(text.toString());
+    }
+
+    /**
+     * Running totals for one pipeline stage.
+     */
+    private static class StageStats {
+        private final String name;
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+
+        StageStats(String name) {
+            this.name = name;
+        }
+
+        void record(long byteCount) {
+            record(1, byteCount);
+        }
+
+        void record(long itemCount, long byteCount) {
+            items.addAndGet(itemCount);
+            bytes.addAndGet(byteCount);
+        }
+
+        String format(double seconds) {
+            long n = items.get();
+            String result = String.format("%s %d (%.1f/s)", name, n, n / seconds);
+            long b = bytes.get();
+            if (b > 0) {
+                result += String.format(" %.2f MB/s", b / seconds / (1024 * 1024));
+            }
+            return result;
+        }
+    }
+}
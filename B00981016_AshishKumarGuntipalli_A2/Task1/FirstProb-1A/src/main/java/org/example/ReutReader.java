@@ -1,24 +1,49 @@
 package org.example;
 
-import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.MongoCollection;
-import com.mongodb.client.model.InsertOneModel;
 import org.bson.Document;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 public class ReutReader {
 
+    private static final Pattern TITLE_PATTERN = Pattern.compile("<TITLE>(.*?)</TITLE>");
+    private static final Pattern BODY_PATTERN = Pattern.compile("<BODY>(.*?)</BODY>", Pattern.DOTALL);
+    // Single pass equivalent of removing "&lt;" and then every character outside [a-zA-Z0-9\s]
+    private static final TextCleaner CONTENT_CLEANER = new TextCleaner().dropSequence("&lt;").keepDigits();
+
+    // Shared by name with ReutersStreamParser, so both extraction paths report the same counters
+    private static final Metrics.Counter ARTICLES_PARSED =
+            Metrics.counter("reuters_articles_parsed_total", "Reuters articles parsed");
+    private static final Metrics.Counter BYTES_READ =
+            Metrics.counter("reuters_bytes_read_total", "Bytes of Reuters SGML read");
+    private static final Metrics.Timer CLEAN =
+            Metrics.stageTimer("reuters_clean_seconds", "Time to clean the title and body of one article");
+
     ReutReader(){}
 
     /**
-     * Extracts Reuters sections from a file.
+     * Streams Reuters articles from a file one at a time without loading the whole file.
+     *
+     * @param filePath The path to the file containing Reuters data.
+     * @return A stream of parsed articles; it must be closed to release the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public Stream<ReutersArticle> streamReuters(String filePath) throws IOException {
+        return ReutersStreamParser.open(Paths.get(filePath)).stream();
+    }
+
+    /**
+     * Extracts Reuters sections from a file. The file is memory-mapped and split into chunks, and
+     * each chunk's article boundaries are found and its sections decoded on a separate thread.
      *
      * @param filePath The path to the file containing Reuters data.
      * @return A list of strings representing individual Reuters sections.
@@ -26,26 +51,36 @@ public class ReutReader {
      */
     public List<String> extractReuters(String filePath) throws IOException {
         List<String> reuters = new ArrayList<>();
-
-        BufferedReader reader = new BufferedReader(new FileReader(filePath));
-        StringBuilder contentBuilder = new StringBuilder();
-        String line;
-
-        while ((line = reader.readLine()) != null) {
-            contentBuilder.append(line);
+        try (ReutersBoundaryScanner scanner = ReutersBoundaryScanner.open(Paths.get(filePath))) {
+            List<List<String>> chunks = scanner.scanChunks(Runtime.getRuntime().availableProcessors(),
+                    ranges -> sections(scanner, ranges));
+            for (List<String> chunk : chunks) {
+                reuters.addAll(chunk);
+            }
+            BYTES_READ.add(scanner.size());
         }
-        reader.close();
-
-        String fileContent = contentBuilder.toString();
-
-        Pattern reutersPattern = Pattern.compile("<REUTERS[^>]*>(.*?)</REUTERS>", Pattern.DOTALL);
-        Matcher reutersMatcher = reutersPattern.matcher(fileContent);
+        ARTICLES_PARSED.add(reuters.size());
+        return reuters;
+    }
 
-        while (reutersMatcher.find()) {
-            String reutersSection = reutersMatcher.group(1).trim();
-            reuters.add(reutersSection);
+    /**
+     * Decodes the content of each article, with line breaks removed so titles and bodies read as
+     * they did when the file was joined line by line.
+     */
+    private static List<String> sections(ReutersBoundaryScanner scanner, ReutersBoundaryScanner.ArticleRanges ranges)
+            throws IOException {
+        List<String> sections = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            byte[] bytes = scanner.read(ranges.contentStart(i), ranges.contentEnd(i));
+            int length = 0;
+            for (byte b : bytes) {
+                if (b != '\n' && b != '\r') {
+                    bytes[length++] = b;
+                }
+            }
+            sections.add(new String(bytes, 0, length, StandardCharsets.UTF_8).trim());
         }
-        return reuters;
+        return sections;
     }
 
     /**
@@ -53,18 +88,43 @@ public class ReutReader {
      *
      * @param reuters    The list of Reuters sections to process.
      * @param collection The MongoDB collection where the data will be inserted.
+     * @throws IOException If the documents cannot be written.
      */
-    public void extractTitleAndBody(List<String> reuters, MongoCollection<Document> collection) {
-        Map<String, String> titlesAndBodies = new HashMap<>();
-        List<InsertOneModel<Document>> documentsToInsert = new ArrayList<>();
+    public void extractTitleAndBody(List<String> reuters, MongoCollection<Document> collection) throws IOException {
+        ArticleStore store = defaultStore(collection);
+        try {
+            extractTitleAndBody(reuters, store);
+        } finally {
+            store.close();
+        }
+        System.out.println("Inserted " + store.getWrittenCount() + " documents");
+    }
 
+    /**
+     * Extracts title and body from a list of Reuters sections and appends them to an article store.
+     *
+     * @param reuters The list of Reuters sections to process.
+     * @param store   The store the documents are appended to.
+     * @throws IOException If the documents cannot be written.
+     */
+    public void extractTitleAndBody(List<String> reuters, ArticleStore store) throws IOException {
         for (String reutersSection : reuters) {
+            store.append(toDocument(reutersSection));
+        }
+    }
+
+    /**
+     * Extracts the title and body of one Reuters section into the document stored in MongoDB.
+     *
+     * @param reutersSection The Reuters section to process.
+     * @return A document holding the cleaned title and body.
+     */
+    public Document toDocument(String reutersSection) {
+        return CLEAN.time(() -> {
             String title = "null";
             String body = "null";
-            Pattern titlePattern = Pattern.compile("<TITLE>(.*?)</TITLE>");
-            Pattern bodyPattern = Pattern.compile("<BODY>(.*?)</BODY>", Pattern.DOTALL);
-            Matcher titleMatcher = titlePattern.matcher(reutersSection);
-            Matcher bodyMatcher = bodyPattern.matcher(reutersSection);
+            Matcher titleMatcher = TITLE_PATTERN.matcher(reutersSection);
+            Matcher bodyMatcher = BODY_PATTERN.matcher(reutersSection);
 
             if (titleMatcher.find()) {
                 title = cleanContent(titleMatcher.group(1));
@@ -73,18 +133,131 @@ public class ReutReader {
             if (bodyMatcher.find()) {
                 body = cleanContent(bodyMatcher.group(1));
             }
-            if (title != null && body != null) {
-                titlesAndBodies.put(title, body);
-            }
-            Document document = new Document("title", title).append("body", body);
-            documentsToInsert.add(new InsertOneModel<>(document));
+            return new Document("title", title).append("body", body);
+        });
+    }
+
+    /**
+     * Extracts title and body from a stream of Reuters articles and inserts them into a MongoDB collection.
+     * Documents are written in batches so that memory does not grow with the number of articles.
+     *
+     * @param articles   The stream of articles to process.
+     * @param collection The MongoDB collection where the data will be inserted.
+     * @throws IOException If the documents cannot be written.
+     */
+    public void extractTitleAndBody(Stream<ReutersArticle> articles, MongoCollection<Document> collection) throws IOException {
+        ArticleStore store = defaultStore(collection);
+        try {
+            extractTitleAndBody(articles, store);
+        } finally {
+            store.close();
         }
+        System.out.println("Inserted " + store.getWrittenCount() + " documents");
+    }
 
-        if (!documentsToInsert.isEmpty()) {
-            BulkWriteResult result = collection.bulkWrite(documentsToInsert);
-            System.out.println("Inserted " + result.getInsertedCount() + " documents");
+    /**
+     * Extracts title and body from a stream of Reuters articles and appends them to an article store.
+     *
+     * @param articles The stream of articles to process.
+     * @param store    The store the documents are appended to.
+     * @throws IOException If the documents cannot be written.
+     */
+    public void extractTitleAndBody(Stream<ReutersArticle> articles, ArticleStore store) throws IOException {
+        Iterator<ReutersArticle> iterator = articles.iterator();
+        while (iterator.hasNext()) {
+            store.append(toDocument(iterator.next()));
+        }
+    }
+
+    /**
+     * Extracts title and body from a stream of Reuters articles into an in-memory corpus, so the
+     * articles can be scored repeatedly without storing them first.
+     *
+     * @param articles The stream of articles to process.
+     * @param corpus   The corpus the cleaned text is added to; its fields must be title and body, in any order.
+     */
+    public void extractTitleAndBody(Stream<ReutersArticle> articles, CompactCorpus corpus) {
+        int titleField = corpus.fieldIndex("title");
+        int bodyField = corpus.fieldIndex("body");
+        CharSequence[] values = new CharSequence[2];
+        Iterator<ReutersArticle> iterator = articles.iterator();
+        while (iterator.hasNext()) {
+            ReutersArticle article = iterator.next();
+            CLEAN.time(() -> {
+                values[titleField] = article.getTitle() == null ? "null" : cleanContent(article.getTitle());
+                values[bodyField] = article.getBody() == null ? "null" : cleanContent(article.getBody());
+            });
+            corpus.add(values);
         }
+    }
+
+    /**
+     * Converts a parsed article into the document stored in MongoDB.
+     *
+     * @param article The article to convert.
+     * @return A document holding the cleaned title and body along with the article metadata.
+     */
+    public Document toDocument(ReutersArticle article) {
+        Document document = CLEAN.time(() -> new Document("title",
+                article.getTitle() == null ? "null" : cleanContent(article.getTitle()))
+                .append("body", article.getBody() == null ? "null" : cleanContent(article.getBody())));
+
+        return document
+                .append("newid", article.getNewId())
+                .append("lewissplit", article.getLewisSplit())
+                .append("date", article.getDate())
+                .append("topics", article.getTopics())
+                .append("places", article.getPlaces());
+    }
 
+    /**
+     * Creates a writer with the batch settings given by the -Dingest.* system properties, replacing
+     * articles by NEWID if -Dingest.upsert=true.
+     *
+     * @param collection The MongoDB collection to write to.
+     * @return A new batched writer.
+     */
+    public BatchedBulkWriter defaultWriter(MongoCollection<Document> collection) {
+        return defaultWriter(collection, Boolean.getBoolean("ingest.upsert") ? "newid" : null);
+    }
+
+    /**
+     * Creates a writer with the batch settings given by the -Dingest.* system properties.
+     *
+     * @param collection The MongoDB collection to write to.
+     * @param upsertKey  The field articles are replaced by, or null to insert every article.
+     * @return A new batched writer.
+     */
+    public BatchedBulkWriter defaultWriter(MongoCollection<Document> collection, String upsertKey) {
+        return new BatchedBulkWriter(collection,
+                Integer.getInteger("ingest.batchSize", 1000),
+                Long.getLong("ingest.batchBytes", 16L * 1024 * 1024),
+                Boolean.getBoolean("ingest.ordered"),
+                Integer.getInteger("ingest.writeThreads", 2),
+                Integer.getInteger("ingest.retries", 3),
+                upsertKey);
+    }
+
+    /**
+     * Creates a MongoDB article store that writes through {@link #defaultWriter(MongoCollection)}.
+     *
+     * @param collection The MongoDB collection to write to.
+     * @return A new article store.
+     */
+    public ArticleStore defaultStore(MongoCollection<Document> collection) {
+        return defaultStore(collection, Boolean.getBoolean("ingest.upsert") ? "newid" : null);
+    }
+
+    /**
+     * Creates a MongoDB article store that writes through {@link #defaultWriter(MongoCollection, String)}.
+     *
+     * @param collection The MongoDB collection to write to.
+     * @param upsertKey  The field articles are replaced by, or null to insert every article.
+     * @return A new article store.
+     */
+    public ArticleStore defaultStore(MongoCollection<Document> collection, String upsertKey) {
+        return new MongoArticleStore(collection, defaultWriter(collection, upsertKey),
+                Integer.getInteger("ingest.batchSize", 1000));
     }
 
     /**
@@ -94,7 +267,6 @@ public class ReutReader {
      * @return The cleaned string.
      */
     public String cleanContent(String s){
-        String result = s.replaceAll("&lt;", "");
-        return result.replaceAll("[^a-zA-Z0-9\\s]", "");
+        return CONTENT_CLEANER.filter(s);
     }
 }
@@ -0,0 +1,101 @@
+package org.example;
+
+import java.util.List;
+
+/**
+ * Represents a single article parsed from a Reuters SGML file.
+ */
+public class ReutersArticle {
+    private final String newId;
+    private final String lewisSplit;
+    private final String date;
+    private final List<String> topics;
+    private final List<String> places;
+    private final String title;
+    private final String body;
+
+    /**
+     * Constructs a ReutersArticle object.
+     *
+     * @param newId      The NEWID attribute of the REUTERS tag.
+     * @param lewisSplit The LEWISSPLIT attribute of the REUTERS tag.
+     * @param date       The raw content of the DATE element.
+     * @param topics     The values listed under the TOPICS element.
+     * @param places     The values listed under the PLACES element.
+     * @param title      The raw content of the TITLE element, or null if absent.
+     * @param body       The raw content of the BODY element, or null if absent.
+     */
+    public ReutersArticle(String newId, String lewisSplit, String date, List<String> topics,
+                          List<String> places, String title, String body) {
+        this.newId = newId;
+        this.lewisSplit = lewisSplit;
+        this.date = date;
+        this.topics = topics;
+        this.places = places;
+        this.title = title;
+        this.body = body;
+    }
+
+    /**
+     * Retrieves the NEWID attribute of the article.
+     *
+     * @return The NEWID, or null if the attribute was missing.
+     */
+    public String getNewId() {
+        return newId;
+    }
+
+    /**
+     * Retrieves the LEWISSPLIT attribute of the article.
+     *
+     * @return The LEWISSPLIT value, or null if the attribute was missing.
+     */
+    public String getLewisSplit() {
+        return lewisSplit;
+    }
+
+    /**
+     * Retrieves the date of the article as written in the file.
+     *
+     * @return The date, or null if absent.
+     */
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * Retrieves the topics the article is tagged with.
+     *
+     * @return The list of topics.
+     */
+    public List<String> getTopics() {
+        return topics;
+    }
+
+    /**
+     * Retrieves the places the article is tagged with.
+     *
+     * @return The list of places.
+     */
+    public List<String> getPlaces() {
+        return places;
+    }
+
+    /**
+     * Retrieves the raw title of the article.
+     *
+     * @return The title, or null if absent.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Retrieves the raw body of the article.
+     *
+     * @return The body, or null if absent.
+     */
+    public String getBody() {
+        return body;
+    }
+}
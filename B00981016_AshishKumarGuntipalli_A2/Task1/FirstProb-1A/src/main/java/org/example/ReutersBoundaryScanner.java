@@ -0,0 +1,327 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Finds the byte ranges of the articles in a Reuters .sgm file without decoding it. The file is
+ * memory-mapped and searched for '<' eight bytes at a time, by testing a whole long for a
+ * matching byte at once; only the bytes at a '<' are compared against the REUTERS tags.
+ *
+ * <p>The file can be split into chunks scanned on separate threads. A chunk owns the articles
+ * whose opening tag starts in it, and follows an article past its end to the closing tag, so an
+ * article straddling two chunks is found exactly once. This relies on "&lt;REUTERS" only appearing
+ * as a tag, as SGML text escapes '<'.
+ */
+public class ReutersBoundaryScanner implements Closeable {
+
+    private static final byte[] OPEN_TAG = "<REUTERS".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLOSE_TAG = "</REUTERS>".getBytes(StandardCharsets.US_ASCII);
+    private static final long MAP_WINDOW = 1L << 26;
+    private static final long MIN_CHUNK = 1L << 20;
+
+    // Every byte of a long set to 0x01 or 0x80, for finding a byte in all eight lanes at once
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long size;
+
+    private ReutersBoundaryScanner(Path file, FileChannel channel) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    /**
+     * Opens a scanner over a file.
+     *
+     * @param file The path to the .sgm file.
+     * @return The scanner; it must be closed to release the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static ReutersBoundaryScanner open(Path file) throws IOException {
+        return new ReutersBoundaryScanner(file, FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    /**
+     * Retrieves the size of the file.
+     *
+     * @return The size in bytes.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Finds the articles whose opening tag starts in a range of the file. The last of them may
+     * end past the range. An article missing its closing tag at the end of the file is dropped.
+     *
+     * @param from The offset of the first byte of the range.
+     * @param to   The offset just past the range.
+     * @return The articles found, in file order.
+     * @throws IOException If the file cannot be mapped.
+     */
+    public ArticleRanges scan(long from, long to) throws IOException {
+        ArticleRanges ranges = new ArticleRanges();
+        Window window = new Window();
+        long position = from;
+        while (true) {
+            long tag = window.indexOf((byte) '<', position, to);
+            if (tag < 0) {
+                return ranges;
+            }
+            position = tag + 1;
+            if (!window.matches(tag, OPEN_TAG)) {
+                continue;
+            }
+            long after = tag + OPEN_TAG.length;
+            if (after < size && window.get(after) != ' ' && window.get(after) != '>') {
+                continue;
+            }
+
+            long contentStart = window.indexOf((byte) '>', after, size) + 1;
+            if (contentStart == 0) {
+                return ranges;
+            }
+            long close = window.indexOf((byte) '<', contentStart, size);
+            while (close >= 0 && !window.matches(close, CLOSE_TAG)) {
+                close = window.indexOf((byte) '<', close + 1, size);
+            }
+            if (close < 0) {
+                return ranges;
+            }
+            ranges.add(tag, contentStart, close);
+            position = close + CLOSE_TAG.length;
+        }
+    }
+
+    /**
+     * Splits the file into chunks and scans them on separate threads, handing the articles of
+     * each chunk to a function on the thread that found them, such as a parser.
+     *
+     * @param parallelism The number of threads.
+     * @param function    The function applied to the articles of each chunk.
+     * @param <T>         The type of the result for one chunk.
+     * @return The results for the chunks, in file order.
+     * @throws IOException If the file cannot be mapped or the function fails.
+     */
+    public <T> List<T> scanChunks(int parallelism, ChunkFunction<T> function) throws IOException {
+        // A few chunks per thread, so one slow chunk does not hold up the rest
+        long chunkSize = Math.max(MIN_CHUNK, (size + 4L * parallelism - 1) / (4L * parallelism));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<Future<T>> chunks = new ArrayList<>();
+        try {
+            for (long from = 0; from < size; from += chunkSize) {
+                long start = from;
+                long end = Math.min(size, from + chunkSize);
+                chunks.add(pool.submit(() -> function.apply(scan(start, end))));
+            }
+            List<T> results = new ArrayList<>(chunks.size());
+            for (Future<T> chunk : chunks) {
+                results.add(chunk.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning " + file, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error scanning " + file + ": " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads a range of the file.
+     *
+     * @param from The offset of the first byte.
+     * @param to   The offset just past the last byte.
+     * @return The bytes of the range.
+     * @throws IOException If the file cannot be read.
+     */
+    public byte[] read(long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(to - from));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, from + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + file);
+            }
+        }
+        return buffer.array();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Finds the first byte equal to a value in eight bytes read as one little-endian long.
+     *
+     * @return The index of the byte within the long, or 8 if there is none.
+     */
+    private static int firstByte(long word, long pattern) {
+        long x = word ^ pattern;
+        // A byte of x is zero where it matched; subtracting 1 borrows into its high bit. Bytes after
+        // the first match can be flagged spuriously, but the lowest flag is always exact.
+        long found = (x - LOW_BITS) & ~x & HIGH_BITS;
+        return Long.numberOfTrailingZeros(found) >>> 3;
+    }
+
+    /**
+     * Functions applied to the articles of one chunk.
+     *
+     * @param <T> The type of the result.
+     */
+    public interface ChunkFunction<T> {
+        T apply(ArticleRanges ranges) throws IOException;
+    }
+
+    /**
+     * The byte ranges of a list of articles: for each, the offset of its opening tag, the offset
+     * just past that tag where its content starts, and the offset of its closing tag.
+     */
+    public static class ArticleRanges {
+        private long[] offsets = new long[3 * 64];
+        private int size;
+
+        void add(long start, long contentStart, long contentEnd) {
+            if (3 * size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[3 * size] = start;
+            offsets[3 * size + 1] = contentStart;
+            offsets[3 * size + 2] = contentEnd;
+            size++;
+        }
+
+        /**
+         * Retrieves the number of articles.
+         *
+         * @return The number of articles.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Retrieves the offset of the opening tag of an article.
+         *
+         * @param article The index of the article.
+         * @return The offset of the '<' starting the tag.
+         */
+        public long start(int article) {
+            return offsets[3 * article];
+        }
+
+        /**
+         * Retrieves the offset just past the closing tag of an article.
+         *
+         * @param article The index of the article.
+         * @return The offset of the byte after the closing tag.
+         */
+        public long end(int article) {
+            return offsets[3 * article + 2] + CLOSE_TAG.length;
+        }
+
+        /**
+         * Retrieves the offset where the content of an article starts, after its opening tag.
+         *
+         * @param article The index of the article.
+         * @return The offset of the first byte of content.
+         */
+        public long contentStart(int article) {
+            return offsets[3 * article + 1];
+        }
+
+        /**
+         * Retrieves the offset where the content of an article ends, at its closing tag.
+         *
+         * @param article The index of the article.
+         * @return The offset of the '<' starting the closing tag.
+         */
+        public long contentEnd(int article) {
+            return offsets[3 * article + 2];
+        }
+    }
+
+    /**
+     * A mapped window of the file, moved forward as the scan passes its end.
+     */
+    private class Window {
+        private MappedByteBuffer buffer;
+        private long start;
+        private long end;
+
+        byte get(long position) throws IOException {
+            map(position, 1);
+            return buffer.get((int) (position - start));
+        }
+
+        boolean matches(long position, byte[] literal) throws IOException {
+            if (position + literal.length > size) {
+                return false;
+            }
+            map(position, literal.length);
+            int index = (int) (position - start);
+            for (int i = 0; i < literal.length; i++) {
+                if (buffer.get(index + i) != literal[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Finds the first occurrence of a byte in a range of the file.
+         *
+         * @return The offset of the byte, or -1 if the range does not contain it.
+         */
+        long indexOf(byte value, long from, long to) throws IOException {
+            long pattern = LOW_BITS * (value & 0xFF);
+            long position = from;
+            while (position < to) {
+                map(position, 1);
+                int index = (int) (position - start);
+                int limit = (int) (Math.min(to, end) - start);
+                for (; index + Long.BYTES <= limit; index += Long.BYTES) {
+                    int match = firstByte(buffer.getLong(index), pattern);
+                    if (match < Long.BYTES) {
+                        return start + index + match;
+                    }
+                }
+                for (; index < limit; index++) {
+                    if (buffer.get(index) == value) {
+                        return start + index;
+                    }
+                }
+                position = start + limit;
+            }
+            return -1;
+        }
+
+        private void map(long position, int length) throws IOException {
+            if (buffer == null || position < start || position + length > end) {
+                long mapLength = Math.min(size - position, Math.max(length, MAP_WINDOW));
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, mapLength);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                start = position;
+                end = position + mapLength;
+            }
+        }
+    }
+}
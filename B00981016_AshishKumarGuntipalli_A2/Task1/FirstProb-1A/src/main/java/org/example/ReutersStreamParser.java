@@ -0,0 +1,347 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Single-pass parser that reads Reuters SGML from a channel and emits one article at a time.
+ * Only the article currently being parsed is held in memory, so the heap used does not depend
+ * on the size of the file. Text is decoded as UTF-8 with line breaks removed, as
+ * {@link ReutReader#extractReuters(String)} decodes it, so both paths store the same strings.
+ */
+public class ReutersStreamParser implements Iterator<ReutersArticle>, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_TAG_LENGTH = 1024;
+
+    private static final Metrics.Counter ARTICLES_PARSED =
+            Metrics.counter("reuters_articles_parsed_total", "Reuters articles parsed");
+    private static final Metrics.Counter BYTES_READ =
+            Metrics.counter("reuters_bytes_read_total", "Bytes of Reuters SGML read");
+    private static final Metrics.Timer PARSE =
+            Metrics.stageTimer("reuters_parse_seconds", "Time to parse one Reuters article");
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final StringBuilder tag = new StringBuilder();
+    private byte[] text = new byte[256];
+    private int textLength;
+    private boolean capturing;
+    private boolean eof;
+    private ReutersArticle next;
+    // The source offset just past the bytes in the buffer
+    private long bufferEnd;
+    private long nextEnd;
+    private long articleEnd;
+
+    private boolean inArticle;
+    private String newId;
+    private String lewisSplit;
+    private String date;
+    private String title;
+    private String body;
+    private List<String> topics;
+    private List<String> places;
+    private List<String> currentList;
+
+    /**
+     * Constructs a parser reading from the given channel.
+     *
+     * @param channel The channel containing Reuters SGML data.
+     */
+    public ReutersStreamParser(ReadableByteChannel channel) {
+        this(channel, 0);
+    }
+
+    /**
+     * Constructs a parser reading from a channel that starts partway through its source.
+     *
+     * @param channel  The channel containing Reuters SGML data.
+     * @param position The offset in the source of the first byte read from the channel.
+     */
+    public ReutersStreamParser(ReadableByteChannel channel, long position) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.buffer.flip();
+        this.bufferEnd = position;
+        this.articleEnd = position;
+    }
+
+    /**
+     * Opens a parser over the given file.
+     *
+     * @param filePath The path to the .sgm file.
+     * @return A parser positioned at the start of the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static ReutersStreamParser open(Path filePath) throws IOException {
+        return open(filePath, 0);
+    }
+
+    /**
+     * Opens a parser over the given file, starting at an offset previously returned by
+     * {@link #getArticleEnd()} so the articles before it are not read again.
+     *
+     * @param filePath The path to the .sgm file.
+     * @param position The offset in the file to start parsing from.
+     * @return A parser positioned at the offset.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static ReutersStreamParser open(Path filePath, long position) throws IOException {
+        FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ);
+        try {
+            channel.position(position);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new ReutersStreamParser(channel, position);
+    }
+
+    /**
+     * Retrieves the offset just past the closing tag of the article last returned by
+     * {@link #next()}. Parsing again from this offset yields the articles that follow it.
+     *
+     * @return The offset in the source, or the starting offset if no article has been returned.
+     */
+    public long getArticleEnd() {
+        return articleEnd;
+    }
+
+    /**
+     * Returns the remaining articles as a sequential stream. Closing the stream closes the parser.
+     *
+     * @return A stream of articles.
+     */
+    public Stream<ReutersArticle> stream() {
+        Spliterator<ReutersArticle> spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !eof) {
+            try {
+                next = PARSE.time(this::readArticle);
+                if (next != null) {
+                    ARTICLES_PARSED.increment();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading Reuters data: " + e.getMessage(), e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public ReutersArticle next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ReutersArticle article = next;
+        next = null;
+        articleEnd = nextEnd;
+        return article;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Runs the state machine until a complete article has been read or the input is exhausted.
+     *
+     * @return The next article, or null at the end of the input.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    private ReutersArticle readArticle() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '<') {
+                if (!readTag()) {
+                    break;
+                }
+                ReutersArticle article = handleTag();
+                if (article != null) {
+                    nextEnd = bufferEnd - buffer.remaining();
+                    return article;
+                }
+            } else if (capturing && c != '\n' && c != '\r') {
+                if (textLength == text.length) {
+                    text = Arrays.copyOf(text, 2 * text.length);
+                }
+                text[textLength++] = (byte) c;
+            }
+        }
+        eof = true;
+        return null;
+    }
+
+    /**
+     * Reads the tag following a '<' into the tag buffer.
+     *
+     * @return false if the input ended before the tag was closed.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    private boolean readTag() throws IOException {
+        tag.setLength(0);
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '>') {
+                return true;
+            }
+            if (tag.length() < MAX_TAG_LENGTH) {
+                tag.append((char) c);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Updates the parser state for the tag just read.
+     *
+     * @return The finished article if the tag closed one, otherwise null.
+     */
+    private ReutersArticle handleTag() {
+        String name = tagName();
+        if (name.equals("REUTERS")) {
+            startArticle();
+            return null;
+        }
+        if (!inArticle) {
+            return null;
+        }
+        switch (name) {
+            case "/REUTERS":
+                inArticle = false;
+                capturing = false;
+                return new ReutersArticle(newId, lewisSplit, date, topics, places, title, body);
+            case "TITLE":
+            case "BODY":
+            case "DATE":
+                startCapture();
+                break;
+            case "/TITLE":
+                title = endCapture();
+                break;
+            case "/BODY":
+                body = endCapture();
+                break;
+            case "/DATE":
+                date = endCapture().trim();
+                break;
+            case "TOPICS":
+                currentList = topics;
+                break;
+            case "PLACES":
+                currentList = places;
+                break;
+            case "/TOPICS":
+            case "/PLACES":
+                currentList = null;
+                break;
+            case "D":
+                if (currentList != null) {
+                    startCapture();
+                }
+                break;
+            case "/D":
+                if (currentList != null && capturing) {
+                    currentList.add(endCapture().trim());
+                }
+                break;
+            default:
+                break;
+        }
+        return null;
+    }
+
+    private void startArticle() {
+        inArticle = true;
+        capturing = false;
+        newId = attribute("NEWID");
+        lewisSplit = attribute("LEWISSPLIT");
+        date = null;
+        title = null;
+        body = null;
+        topics = new ArrayList<>();
+        places = new ArrayList<>();
+        currentList = null;
+    }
+
+    private void startCapture() {
+        textLength = 0;
+        capturing = true;
+    }
+
+    private String endCapture() {
+        capturing = false;
+        return new String(text, 0, textLength, StandardCharsets.UTF_8);
+    }
+
+    private String tagName() {
+        int end = 0;
+        while (end < tag.length() && !Character.isWhitespace(tag.charAt(end))) {
+            end++;
+        }
+        return tag.substring(0, end);
+    }
+
+    /**
+     * Extracts a quoted attribute value from the current tag.
+     *
+     * @param name The attribute name.
+     * @return The attribute value, or null if the attribute is not present.
+     */
+    private String attribute(String name) {
+        String key = " " + name + "=\"";
+        int start = tag.indexOf(key);
+        if (start < 0) {
+            return null;
+        }
+        start += key.length();
+        int end = tag.indexOf("\"", start);
+        return end < 0 ? null : tag.substring(start, end);
+    }
+
+    private int read() throws IOException {
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            int n;
+            do {
+                n = channel.read(buffer);
+            } while (n == 0);
+            buffer.flip();
+            if (n < 0) {
+                return -1;
+            }
+            bufferEnd += n;
+            BYTES_READ.add(n);
+        }
+        return buffer.get() & 0xFF;
+    }
+}
@@ -0,0 +1,194 @@
+package org.example;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CheckpointedIngestTest {
+
+    private static final Path SOURCE = Paths.get("reut2-009.sgm");
+    private static final String[] COLUMNS = {"title", "body", "newid"};
+    // Few enough syncs that no segments are merged on close, which would hide a document indexed twice
+    private static final int INTERVAL = 200;
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void resumeAfterAFailedAppendStoresAndIndexesEveryArticleOnce() throws IOException {
+        Path reference = ingest(temp.resolve("reference"), 0, 0);
+        Path resumed = temp.resolve("resumed");
+
+        // Closing the store after the failure indexes the articles appended since the last checkpoint
+        assertThrows(IOException.class, () -> ingest(resumed, 550, 0));
+        ingest(resumed, 0, 0);
+
+        assertSameIngest(reference, resumed);
+    }
+
+    @Test
+    void resumeAfterAKillBetweenSyncAndCheckpointStoresAndIndexesEveryArticleOnce() throws IOException {
+        Path reference = ingest(temp.resolve("reference"), 0, 0);
+        Path resumed = temp.resolve("resumed");
+
+        // The third sync writes its segments, and the run dies before the checkpoint records them
+        assertThrows(IOException.class, () -> ingest(resumed, 0, 3));
+        assertThrows(IOException.class, () -> ingest(resumed, 0, 2));
+        ingest(resumed, 0, 0);
+
+        assertSameIngest(reference, resumed);
+    }
+
+    /**
+     * Runs a checkpointed ingest into a local store and index under a directory, failing the
+     * given append or killing the run after the given sync; 0 for neither.
+     */
+    private static Path ingest(Path directory, int failingAppend, int failingSync) throws IOException {
+        LocalArticleStore local = LocalArticleStore.open(directory.resolve("store"), COLUMNS);
+        ArticleStore store = new FailingStore(new IndexingArticleStore(local, directory.resolve("index")), local,
+                failingAppend, failingSync);
+        IngestCheckpoint checkpoint = IngestCheckpoint.load(directory.resolve("checkpoint.properties"));
+        new CheckpointedIngest(new ReutReader(), store, checkpoint, INTERVAL, false).run(List.of(SOURCE));
+        return directory;
+    }
+
+    private static void assertSameIngest(Path expected, Path actual) throws IOException {
+        List<String> newIds = newIds(actual);
+        assertEquals(newIds(expected), newIds);
+        assertEquals(newIds.size(), new HashSet<>(newIds).size());
+
+        for (String field : new String[]{"title", "body"}) {
+            Path expectedFile = IndexingArticleStore.indexPath(expected.resolve("index"), field);
+            Path actualFile = IndexingArticleStore.indexPath(actual.resolve("index"), field);
+            InvertedIndex expectedIndex = InvertedIndex.open(expectedFile);
+            InvertedIndex actualIndex = InvertedIndex.open(actualFile);
+            List<InvertedIndex> segments = new ArrayList<>();
+            for (Path segment : InvertedIndex.segmentFiles(actualFile)) {
+                segments.add(InvertedIndex.open(List.of(segment)));
+            }
+
+            assertEquals(expectedIndex.terms(), actualIndex.terms());
+            assertEquals(expectedIndex.getDocumentCount(), actualIndex.getDocumentCount());
+            for (String term : expectedIndex.terms()) {
+                assertArrayEquals(postings(expectedIndex, term), postings(actualIndex, term), term);
+                // No document is indexed in two segments, so none was indexed twice
+                int segmentDocs = 0;
+                for (InvertedIndex segment : segments) {
+                    segmentDocs += segment.docFreq(term);
+                }
+                assertEquals(actualIndex.docFreq(term), segmentDocs, term);
+            }
+        }
+    }
+
+    private static List<String> newIds(Path directory) throws IOException {
+        List<String> newIds = new ArrayList<>();
+        try (LocalArticleStore store = LocalArticleStore.open(directory.resolve("store"), COLUMNS);
+             ArticleCursor cursor = store.scan("newid")) {
+            while (cursor.hasNext()) {
+                newIds.add(cursor.next().get("newid").toString());
+            }
+        }
+        return newIds;
+    }
+
+    // Alternating document ids and frequencies
+    private static int[] postings(InvertedIndex index, String term) {
+        InvertedIndex.PostingList list = index.postings(term);
+        int[] postings = new int[list.size() * 2];
+        for (int i = 0; list.next(); i += 2) {
+            postings[i] = list.doc();
+            postings[i + 1] = list.frequency();
+        }
+        return postings;
+    }
+
+    /**
+     * Passes articles to a store, failing one append, or dying after one sync: the sync completes
+     * but the checkpoint is never committed, and closing only releases the files of the
+     * underlying store, as a killed process writes nothing more.
+     */
+    private static class FailingStore implements ArticleStore {
+        private final ArticleStore store;
+        private final ArticleStore underlying;
+        private final int failingAppend;
+        private final int failingSync;
+        private int appends;
+        private int syncs;
+        private boolean killed;
+
+        FailingStore(ArticleStore store, ArticleStore underlying, int failingAppend, int failingSync) {
+            this.store = store;
+            this.underlying = underlying;
+            this.failingAppend = failingAppend;
+            this.failingSync = failingSync;
+        }
+
+        @Override
+        public void append(Document article) throws IOException {
+            if (++appends == failingAppend) {
+                throw new IOException("Append failed");
+            }
+            store.append(article);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            store.flush();
+        }
+
+        @Override
+        public void sync() throws IOException {
+            store.sync();
+            if (++syncs == failingSync) {
+                killed = true;
+                throw new IOException("Killed");
+            }
+        }
+
+        @Override
+        public void truncate(long count) throws IOException {
+            store.truncate(count);
+        }
+
+        @Override
+        public long count() throws IOException {
+            return store.count();
+        }
+
+        @Override
+        public ArticleCursor scan(String... fields) throws IOException {
+            return store.scan(fields);
+        }
+
+        @Override
+        public long getWrittenCount() {
+            return store.getWrittenCount();
+        }
+
+        @Override
+        public long getBatchCount() {
+            return store.getBatchCount();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (killed) {
+                underlying.close();
+            } else {
+                store.close();
+            }
+        }
+    }
+}
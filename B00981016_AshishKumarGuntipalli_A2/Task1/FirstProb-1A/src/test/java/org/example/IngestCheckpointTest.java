@@ -0,0 +1,60 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngestCheckpointTest {
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void startsEmptyWithoutAFile() throws IOException {
+        IngestCheckpoint checkpoint = IngestCheckpoint.load(temp.resolve("checkpoint.properties"));
+
+        assertEquals(-1, checkpoint.getStoredArticles());
+        assertNull(checkpoint.progress(temp.resolve("reut2-000.sgm")));
+    }
+
+    @Test
+    void reloadsTheLastCommit() throws IOException {
+        Path file = temp.resolve("state").resolve("checkpoint.properties");
+        Path first = temp.resolve("reut2-000.sgm");
+        Path second = temp.resolve("reut2-001.sgm");
+        IngestCheckpoint checkpoint = IngestCheckpoint.load(file);
+        checkpoint.commit(0);
+        checkpoint.commit(first, new IngestCheckpoint.FileProgress(1000, 1000, "1000", 100, true), 100);
+        checkpoint.commit(second, new IngestCheckpoint.FileProgress(2000, 700, "1042", 42, false), 142);
+
+        IngestCheckpoint loaded = IngestCheckpoint.load(file);
+        assertEquals(142, loaded.getStoredArticles());
+        IngestCheckpoint.FileProgress done = loaded.progress(first);
+        assertEquals(1000, done.getSize());
+        assertEquals(100, done.getArticles());
+        assertTrue(done.isComplete());
+        IngestCheckpoint.FileProgress partial = loaded.progress(temp.resolve("x").resolve("..").resolve("reut2-001.sgm"));
+        assertEquals(2000, partial.getSize());
+        assertEquals(700, partial.getOffset());
+        assertEquals("1042", partial.getLastNewId());
+        assertEquals(42, partial.getArticles());
+        assertFalse(partial.isComplete());
+    }
+
+    @Test
+    void rejectsACorruptFile() throws IOException {
+        Path file = temp.resolve("checkpoint.properties");
+        Files.writeString(file, "stored=many\n");
+
+        assertThrows(IOException.class, () -> IngestCheckpoint.load(file));
+    }
+}
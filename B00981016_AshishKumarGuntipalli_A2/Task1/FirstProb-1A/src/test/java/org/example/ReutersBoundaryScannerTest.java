@@ -0,0 +1,101 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReutersBoundaryScannerTest {
+
+    private static final Path SOURCE = Paths.get("reut2-009.sgm");
+    // Articles with escaped and look-alike tags, one with no content and one never closed
+    private static final String SAMPLE = "<!DOCTYPE lewis SYSTEM \"lewis.dtd\">\n"
+            + "<REUTERS NEWID=\"1\">\n<BODY>quotes &lt;REUTERS> and &lt;/REUTERS> as text</BODY>\n</REUTERS>\n"
+            + "<REUTERSX>not an article</REUTERSX>\r\n"
+            + "<REUTERS TOPICS=\"YES\" NEWID=\"2\"><TITLE>CAFÉ 東京</TITLE></REUTERS>"
+            + "<REUTERS></REUTERS>"
+            + "<REUTERS NEWID=\"4\">\n<BODY>a < b and </REUTER at the end</BODY>\n</REUTERS>\n"
+            + "<REUTERS NEWID=\"5\">\n<BODY>cut off";
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void findsTheSameArticlesWhereverTheChunkEdgeFalls() throws IOException {
+        Path file = temp.resolve("sample.sgm");
+        byte[] bytes = SAMPLE.getBytes(StandardCharsets.UTF_8);
+        Files.write(file, bytes);
+        List<List<Long>> expected = naiveScan(bytes);
+        assertEquals(4, expected.size());
+
+        try (ReutersBoundaryScanner scanner = ReutersBoundaryScanner.open(file)) {
+            assertEquals(expected, ranges(scanner.scan(0, bytes.length)));
+            for (int edge = 0; edge <= bytes.length; edge++) {
+                List<List<Long>> found = ranges(scanner.scan(0, edge));
+                found.addAll(ranges(scanner.scan(edge, bytes.length)));
+                assertEquals(expected, found, "chunk edge at " + edge);
+            }
+        }
+    }
+
+    @Test
+    void findsTheSameArticlesInAReutersFileSplitInsideOpeningTags() throws IOException {
+        byte[] bytes = Files.readAllBytes(SOURCE);
+        List<List<Long>> expected = naiveScan(bytes);
+        assertEquals(1000, expected.size());
+
+        try (ReutersBoundaryScanner scanner = ReutersBoundaryScanner.open(SOURCE)) {
+            assertEquals(expected, ranges(scanner.scan(0, bytes.length)));
+            List<List<Long>> chunked = new ArrayList<>();
+            for (ReutersBoundaryScanner.ArticleRanges chunk : scanner.scanChunks(4, ranges -> ranges)) {
+                chunked.addAll(ranges(chunk));
+            }
+            assertEquals(expected, chunked);
+
+            // Three chunks, with both edges somewhere inside "<REUTERS" of two articles
+            for (int article = 1; article < expected.size(); article += 37) {
+                long first = expected.get(article - 1).get(0);
+                long second = expected.get(article).get(0);
+                for (int offset = 0; offset <= "<REUTERS".length(); offset++) {
+                    List<List<Long>> found = ranges(scanner.scan(0, first + offset));
+                    found.addAll(ranges(scanner.scan(first + offset, second + offset)));
+                    found.addAll(ranges(scanner.scan(second + offset, bytes.length)));
+                    assertEquals(expected, found, "chunk edges at " + (first + offset) + " and " + (second + offset));
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the start, content start and content end of every article with a regex over the
+     * bytes, read one char per byte so matches are byte offsets.
+     */
+    private static List<List<Long>> naiveScan(byte[] bytes) {
+        String text = new String(bytes, StandardCharsets.ISO_8859_1);
+        Matcher matcher = Pattern.compile("<REUTERS(?: [^>]*)?>(.*?)</REUTERS>", Pattern.DOTALL).matcher(text);
+        List<List<Long>> articles = new ArrayList<>();
+        while (matcher.find()) {
+            articles.add(List.of((long) matcher.start(), (long) matcher.start(1), (long) matcher.end(1)));
+        }
+        return articles;
+    }
+
+    private static List<List<Long>> ranges(ReutersBoundaryScanner.ArticleRanges ranges) {
+        List<List<Long>> articles = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            articles.add(List.of(ranges.start(i), ranges.contentStart(i), ranges.contentEnd(i)));
+            assertEquals(ranges.contentEnd(i) + "</REUTERS>".length(), ranges.end(i));
+        }
+        return articles;
+    }
+}
@@ -0,0 +1,178 @@
+package org.example;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReutersStreamParserTest {
+
+    private static final Path SOURCE = Paths.get("reut2-009.sgm");
+    // Windows line breaks, text spanning lines, entities, accents and a non-Latin script
+    private static final String SAMPLE = "<!DOCTYPE lewis SYSTEM \"lewis.dtd\">\r\n"
+            + "<REUTERS TOPICS=\"YES\" LEWISSPLIT=\"TRAIN\" NEWID=\"101\">\r\n"
+            + "<DATE>26-FEB-1987 15:01:01.79</DATE>\r\n"
+            + "<TOPICS><D>cocoa</D><D>coffee</D></TOPICS>\r\n"
+            + "<PLACES><D>el-salvador</D></PLACES>\r\n"
+            + "<TEXT>&#2;\r\n"
+            + "<TITLE>BAHIA COCOA &lt;REVIEW> CAFÉ</TITLE>\r\n"
+            + "<BODY>Showers continued through-\r\nout the week in São Paulo,\r\n"
+            + "prices rose 3.5 pct to 1,200 cruzados; 東京 &amp; Zürich\r\n"
+            + " REUTER\r\n&#3;</BODY></TEXT>\r\n"
+            + "</REUTERS>\r\n"
+            + "<REUTERS TOPICS=\"NO\" LEWISSPLIT=\"TEST\" NEWID=\"102\">\n"
+            + "<TEXT TYPE=\"BRIEF\">&#2;\n<TITLE>OIL ÖL\n</TITLE>\n</TEXT>\n"
+            + "</REUTERS>\r"
+            + "<REUTERS TOPICS=\"NO\" NEWID=\"103\"><TEXT><BODY>no title, ñ\r</BODY></TEXT></REUTERS>\r\n";
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void matchesTheRegexPathOnAReutersFile() throws IOException {
+        assertMatchesRegexPath(SOURCE, 1000);
+    }
+
+    @Test
+    void matchesTheRegexPathAcrossLineBreaksAndNonAsciiText() throws IOException {
+        Path file = temp.resolve("sample.sgm");
+        Files.write(file, SAMPLE.getBytes(StandardCharsets.UTF_8));
+
+        assertMatchesRegexPath(file, 3);
+        try (ReutersStreamParser parser = ReutersStreamParser.open(file)) {
+            ReutersArticle article = parser.next();
+            assertEquals("101", article.getNewId());
+            assertEquals("TRAIN", article.getLewisSplit());
+            assertEquals(List.of("cocoa", "coffee"), article.getTopics());
+            assertEquals(List.of("el-salvador"), article.getPlaces());
+            assertEquals("BAHIA COCOA &lt;REVIEW> CAFÉ", article.getTitle());
+        }
+    }
+
+    @Test
+    void readsArticlesSplitAcrossAnyNumberOfReads() throws IOException {
+        byte[] bytes = SAMPLE.getBytes(StandardCharsets.UTF_8);
+        List<Document> expected = parse(new ReutersStreamParser(new TrickleChannel(bytes, bytes.length)));
+        for (int readSize = 1; readSize <= 13; readSize++) {
+            assertEquals(expected, parse(new ReutersStreamParser(new TrickleChannel(bytes, readSize))));
+        }
+    }
+
+    private static void assertMatchesRegexPath(Path file, int articles) throws IOException {
+        List<Document> expected = new ArrayList<>();
+        for (String section : regexSections(file)) {
+            expected.add(regexDocument(section));
+        }
+        List<Document> streamed = parse(ReutersStreamParser.open(file));
+
+        assertEquals(articles, expected.size());
+        assertEquals(expected, streamed);
+        ReutReader reader = new ReutReader();
+        List<Document> scanned = new ArrayList<>();
+        for (String section : reader.extractReuters(file.toString())) {
+            scanned.add(reader.toDocument(section));
+        }
+        assertEquals(expected, scanned);
+    }
+
+    // The cleaned title and body of each article, as the regex path stores them
+    private static List<Document> parse(ReutersStreamParser parser) throws IOException {
+        ReutReader reader = new ReutReader();
+        List<Document> documents = new ArrayList<>();
+        try (parser) {
+            while (parser.hasNext()) {
+                Document document = reader.toDocument(parser.next());
+                documents.add(new Document("title", document.get("title")).append("body", document.get("body")));
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Splits a file into Reuters sections as the original regex path did: the lines joined
+     * without their line breaks, then each REUTERS element matched.
+     */
+    private static List<String> regexSections(Path file) throws IOException {
+        StringBuilder content = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                content.append(line);
+            }
+        }
+        List<String> sections = new ArrayList<>();
+        Matcher matcher = Pattern.compile("<REUTERS[^>]*>(.*?)</REUTERS>", Pattern.DOTALL).matcher(content);
+        while (matcher.find()) {
+            sections.add(matcher.group(1).trim());
+        }
+        return sections;
+    }
+
+    /**
+     * Extracts and cleans the title and body of a section as the original regex path did.
+     */
+    private static Document regexDocument(String section) {
+        String title = "null";
+        String body = "null";
+        Matcher titleMatcher = Pattern.compile("<TITLE>(.*?)</TITLE>").matcher(section);
+        Matcher bodyMatcher = Pattern.compile("<BODY>(.*?)</BODY>", Pattern.DOTALL).matcher(section);
+        if (titleMatcher.find()) {
+            title = titleMatcher.group(1).replaceAll("&lt;", "").replaceAll("[^a-zA-Z0-9\\s]", "");
+        }
+        if (bodyMatcher.find()) {
+            body = bodyMatcher.group(1).replaceAll("&lt;", "").replaceAll("[^a-zA-Z0-9\\s]", "");
+        }
+        return new Document("title", title).append("body", body);
+    }
+
+    /**
+     * Hands out bytes at most a few at a time, so tags and multi-byte characters are split
+     * between reads.
+     */
+    private static class TrickleChannel implements ReadableByteChannel {
+        private final byte[] bytes;
+        private final int readSize;
+        private int position;
+
+        TrickleChannel(byte[] bytes, int readSize) {
+            this.bytes = bytes;
+            this.readSize = readSize;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (position == bytes.length) {
+                return -1;
+            }
+            int length = Math.min(Math.min(readSize, dst.remaining()), bytes.length - position);
+            dst.put(bytes, position, length);
+            position += length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
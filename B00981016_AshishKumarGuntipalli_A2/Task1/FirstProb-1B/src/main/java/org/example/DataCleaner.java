@@ -3,6 +3,7 @@ package org.example;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * This class provides methods for cleaning text data by removing single characters,
@@ -10,6 +11,23 @@ import java.util.Set;
  */
 public class DataCleaner {
 
+    private static final Pattern SINGLE_CHARACTER = Pattern.compile("\\b\\w{1}\\b");
+    private static final Pattern XML_TAG = Pattern.compile("<[^>]+>");
+    private static final Pattern XML_ENTITY = Pattern.compile("&[^;]+;");
+    private static final Set<String> STOP_WORDS = getStopWords();
+    // Splits like \s+ and drops stop words ignoring case, keeping the case of the other words
+    private static final Tokenizer STOP_WORD_FILTER = new Tokenizer()
+            .splitOnWhitespace()
+            .keepCase()
+            .stopWords(STOP_WORDS);
+
+    private static final Metrics.Timer SINGLE_CHARACTERS = Metrics.timer("datacleaner_single_characters_seconds",
+            "Time to remove single characters from one text");
+    private static final Metrics.Timer TAGS_AND_ENTITIES = Metrics.timer("datacleaner_tags_entities_seconds",
+            "Time to remove XML tags and entities from one text");
+    private static final Metrics.Timer STOP_WORD_REMOVAL = Metrics.timer("datacleaner_stop_words_seconds",
+            "Time to remove stop words from one text");
+
     /**
      * Removes single characters from the given text.
      *
@@ -17,7 +35,7 @@ public class DataCleaner {
      * @return The text with single characters removed.
      */
     public String removeSingleCharacters(String text) {
-        return text.replaceAll("\\b\\w{1}\\b", "");
+        return SINGLE_CHARACTERS.time(() -> SINGLE_CHARACTER.matcher(text).replaceAll(""));
     }
 
     /**
@@ -27,13 +45,13 @@ public class DataCleaner {
      * @return The text with XML tags and entities removed.
      */
     public String removeXmlTagsAndEntities(String text) {
-        // Remove XML tags
-        text = text.replaceAll("<[^>]+>", " ");
+        return TAGS_AND_ENTITIES.time(() -> {
+            // Remove XML tags
+            String withoutTags = XML_TAG.matcher(text).replaceAll(" ");
 
-        // Remove XML entities
-        text = text.replaceAll("&[^;]+;", " ");
-
-        return text;
+            // Remove XML entities
+            return XML_ENTITY.matcher(withoutTags).replaceAll(" ");
+        });
     }
 
     /**
@@ -67,19 +85,29 @@ public class DataCleaner {
      * @return The text with stop words removed.
      */
     public String removeStopWords(String text) {
-        // Get the set of stop words
-        Set<String> stopWords = getStopWords();
-
-        // Tokenize the text into words
-        String[] words = text.split("\\s+");
+        return STOP_WORD_REMOVAL.time(() -> {
+            StringBuilder result = new StringBuilder(text.length());
+            STOP_WORD_FILTER.tokenize(text, (buffer, offset, length) -> {
+                if (result.length() > 0) {
+                    result.append(' ');
+                }
+                result.append(buffer, offset, length);
+            });
+            return result.toString();
+        });
+    }
 
-        // Remove stop words from the text
-        StringBuilder result = new StringBuilder();
-        for (String word : words) {
-            if (!stopWords.contains(word.toLowerCase())) {
-                result.append(word).append(" ");
-            }
-        }
-        return result.toString().trim();
+    /**
+     * Creates a single-pass cleaner equivalent to removing XML tags and entities, replacing
+     * non-letters with spaces, removing single characters and removing stop words in turn.
+     *
+     * @return A cleaner producing the remaining words as tokens.
+     */
+    public TextCleaner textCleaner() {
+        return new TextCleaner()
+                .stripTags()
+                .stripEntities()
+                .minTokenLength(2)
+                .stopWords(STOP_WORDS);
     }
 }
@@ -0,0 +1,184 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Counts words in this JVM on a few threads, for inputs on the local file system that are too
+ * small to be worth starting Spark for. Files are listed, decoded and cleaned as the Spark engine
+ * does: a file, directory or glob names the files, each file is decoded as UTF-8 and cleaned as a
+ * whole, and files are named "file:/absolute/path" as Hadoop names them.
+ */
+public class LocalWordFrequency {
+
+    private static final Pattern URI_SCHEME = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]+:.*");
+    private static final String FILE_SCHEME = "file:";
+
+    /**
+     * Checks whether a path names files on the local file system: it has no URI scheme, or the
+     * "file:" scheme.
+     *
+     * @param filePath A file, directory or glob.
+     * @return true if the local engine can read it.
+     */
+    public static boolean isLocal(String filePath) {
+        return filePath.startsWith(FILE_SCHEME) || !URI_SCHEME.matcher(filePath).matches();
+    }
+
+    /**
+     * Checks whether a file found in a directory or by a glob is an input: a Reuters .sgm file.
+     *
+     * @param fileName The name of the file.
+     * @return true if the file is counted.
+     */
+    public static boolean isInput(String fileName) {
+        return fileName.endsWith(".sgm");
+    }
+
+    /**
+     * Expands a file, directory or glob into the files it names. A directory names the .sgm files
+     * directly inside it and a glob the .sgm files it matches; a file named explicitly is taken
+     * whatever its name.
+     *
+     * @param filePath A local file, directory or glob, with or without the "file:" scheme.
+     * @return The names of the files, sorted.
+     * @throws IOException If a directory cannot be listed.
+     */
+    public static List<String> listFiles(String filePath) throws IOException {
+        List<Path> matches = new ArrayList<>();
+        Path pattern = toPath(filePath).toAbsolutePath().normalize();
+        boolean glob = isGlob(pattern.toString());
+        if (!glob) {
+            if (Files.exists(pattern)) {
+                matches.add(pattern);
+            }
+        } else {
+            // Walk from the deepest directory without glob characters, as deep as the pattern goes
+            Path base = pattern.getRoot();
+            int depth = 0;
+            for (Path name : pattern) {
+                if (depth == 0 && !isGlob(name.toString())) {
+                    base = base.resolve(name);
+                } else {
+                    depth++;
+                }
+            }
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+            if (Files.isDirectory(base)) {
+                try (Stream<Path> paths = Files.walk(base, depth)) {
+                    paths.filter(matcher::matches).forEach(matches::add);
+                }
+            }
+        }
+
+        List<String> files = new ArrayList<>();
+        for (Path match : matches) {
+            if (Files.isDirectory(match)) {
+                try (Stream<Path> children = Files.list(match)) {
+                    files.addAll(children.filter(Files::isRegularFile)
+                            .filter(child -> isInput(child.getFileName().toString()))
+                            .map(LocalWordFrequency::name)
+                            .collect(Collectors.toList()));
+                }
+            } else if (!glob || isInput(match.getFileName().toString())) {
+                files.add(name(match));
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Sums the sizes of files.
+     *
+     * @param files The names of the files, as returned by {@link #listFiles(String)}.
+     * @return The total size in bytes.
+     * @throws IOException If a file cannot be read.
+     */
+    public static long totalSize(List<String> files) throws IOException {
+        long size = 0;
+        for (String file : files) {
+            size += Files.size(toPath(file));
+        }
+        return size;
+    }
+
+    /**
+     * Counts the words of files. Each thread takes the next file not yet taken and counts it into
+     * statistics of its own, which are merged at the end.
+     *
+     * @param files       The names of the files, as returned by {@link #listFiles(String)}.
+     * @param cleaner     The cleaner splitting each file into words.
+     * @param emptyStats  Creates the statistics each thread counts into.
+     * @param parallelism The number of threads.
+     * @return The statistics of all the files.
+     * @throws IOException If a file cannot be read.
+     */
+    public static WordFrequencyStats count(List<String> files, TextCleaner cleaner,
+                                           WordFrequencyJob.StatsSupplier emptyStats, int parallelism)
+            throws IOException {
+        WordFrequencyStats stats = emptyStats.get();
+        if (files.isEmpty()) {
+            return stats;
+        }
+        int threads = Math.max(1, Math.min(parallelism, files.size()));
+        AtomicInteger next = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<Future<WordFrequencyStats>> tasks = new ArrayList<>(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                tasks.add(pool.submit(() -> {
+                    WordFrequencyStats threadStats = emptyStats.get();
+                    for (int f = next.getAndIncrement(); f < files.size(); f = next.getAndIncrement()) {
+                        String content = new String(Files.readAllBytes(toPath(files.get(f))), StandardCharsets.UTF_8);
+                        WordFrequencyJob.countFile(cleaner, content, threadStats::add);
+                    }
+                    return threadStats;
+                }));
+            }
+            for (Future<WordFrequencyStats> task : tasks) {
+                stats.merge(task.get());
+            }
+            return stats;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while counting words", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error counting words: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    static boolean isGlob(String path) {
+        return path.indexOf('*') >= 0 || path.indexOf('?') >= 0 || path.indexOf('[') >= 0 || path.indexOf('{') >= 0;
+    }
+
+    // "file:///a/b" and "file:/a/b" both name /a/b
+    private static Path toPath(String file) {
+        if (!file.startsWith(FILE_SCHEME)) {
+            return Paths.get(file);
+        }
+        String path = file.substring(FILE_SCHEME.length());
+        return Paths.get(path.startsWith("///") ? path.substring(2) : path);
+    }
+
+    private static String name(Path path) {
+        return FILE_SCHEME + path.toAbsolutePath().normalize();
+    }
+}
@@ -0,0 +1,180 @@
+package org.example;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.sql.SparkSession;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Counts words on a Spark cluster. Kept apart from {@link WordFrequencyJob} so Spark classes are
+ * only loaded when this engine runs, and the local engine also works where Spark is not on the
+ * classpath.
+ */
+public class SparkWordFrequency {
+
+    /**
+     * Counts the files not yet processed and marks them processed.
+     *
+     * <p>Exact counts are summed per word with reduceByKey and summarized on the executors, so only
+     * the summary reaches the driver. When they must be added to the statistics to be saved, they
+     * are streamed to the driver one partition at a time instead. Approximate statistics are fixed
+     * in size, so those of each partition are merged on the driver.
+     *
+     * @param filePath   A file, directory or glob of .sgm files, in any file system Hadoop supports.
+     * @param master     The Spark master, such as "local[*]".
+     * @param stats      The statistics counted into.
+     * @param cleaner    The cleaner splitting each file into words.
+     * @param emptyStats Creates the statistics each partition is counted into.
+     * @param keepCounts Whether exact counts are added to the statistics rather than only summarized.
+     * @return The summary of the exact counts of the new files, or null if there were none or they
+     *         were added to the statistics.
+     * @throws IOException If the files cannot be listed.
+     */
+    public static WordFrequencyJob.ExactSummary count(String filePath, String master, WordFrequencyStats stats,
+                                                      TextCleaner cleaner, WordFrequencyJob.StatsSupplier emptyStats,
+                                                      boolean keepCounts) throws IOException {
+        SparkSession spark = SparkSession.builder()
+                .appName("ReutersParser")
+                .master(master)
+                .getOrCreate();
+        try {
+            JavaSparkContext sc = new JavaSparkContext(spark.sparkContext());
+            List<String> newFiles = new ArrayList<>();
+            for (String file : listFiles(sc, filePath)) {
+                if (!stats.isProcessed(file)) {
+                    newFiles.add(file);
+                }
+            }
+            if (newFiles.isEmpty()) {
+                return null;
+            }
+
+            // Cleaning and counting run on the executors; each file is cleaned as a whole so tags and
+            // entities spanning lines are handled exactly as before
+            JavaRDD<String> contents = sc.wholeTextFiles(String.join(",", newFiles), sc.defaultParallelism()).values();
+            WordFrequencyJob.ExactSummary summary = null;
+            if (stats.isExact()) {
+                JavaPairRDD<String, Integer> counts = contents
+                        .mapPartitionsToPair(files -> {
+                            TermCounter partitionCounts = new TermCounter();
+                            while (files.hasNext()) {
+                                WordFrequencyJob.countFile(cleaner, files.next(), partitionCounts::add);
+                            }
+                            List<Tuple2<String, Integer>> pairs = new ArrayList<>(partitionCounts.size());
+                            partitionCounts.forEach((word, count) -> pairs.add(new Tuple2<>(word, count)));
+                            return pairs.iterator();
+                        })
+                        .reduceByKey(Integer::sum);
+                if (keepCounts) {
+                    Iterator<Tuple2<String, Integer>> iterator = counts.toLocalIterator();
+                    while (iterator.hasNext()) {
+                        Tuple2<String, Integer> entry = iterator.next();
+                        stats.add(entry._1(), entry._2());
+                    }
+                } else {
+                    summary = summarize(counts.cache());
+                }
+            } else {
+                stats.merge(contents
+                        .mapPartitions(files -> {
+                            WordFrequencyStats partitionStats = emptyStats.get();
+                            while (files.hasNext()) {
+                                WordFrequencyJob.countFile(cleaner, files.next(), partitionStats::add);
+                            }
+                            return Collections.singletonList(partitionStats).iterator();
+                        })
+                        .treeReduce(WordFrequencyStats::merge));
+            }
+            newFiles.forEach(stats::markProcessed);
+            return summary;
+        } finally {
+            spark.stop();
+        }
+    }
+
+    /**
+     * Computes the frequency histogram, the least frequent words and the words at the maximum
+     * frequency on the executors. Only as many values as there are distinct frequencies, sample
+     * words and most frequent words come back to the driver.
+     */
+    private static WordFrequencyJob.ExactSummary summarize(JavaPairRDD<String, Integer> counts) {
+        SortedMap<Integer, Integer> histogram = new TreeMap<>();
+        for (Map.Entry<Integer, Long> entry : counts.values().countByValue().entrySet()) {
+            histogram.put(entry.getKey(), Math.toIntExact(entry.getValue()));
+        }
+        if (histogram.isEmpty()) {
+            return new WordFrequencyJob.ExactSummary(histogram, new ArrayList<>(), new ArrayList<>());
+        }
+        int maxFreq = histogram.lastKey();
+        List<WordCount> leastFrequent = toWordCounts(
+                counts.takeOrdered(WordFrequencyJob.LEAST_FREQUENT_SHOWN, new BottomOrder()));
+        List<WordCount> mostFrequent = toWordCounts(counts.filter(entry -> entry._2() == maxFreq).collect());
+        mostFrequent.sort(Comparator.comparing(WordCount::getWord));
+        return new WordFrequencyJob.ExactSummary(histogram, leastFrequent, mostFrequent);
+    }
+
+    private static List<WordCount> toWordCounts(List<Tuple2<String, Integer>> entries) {
+        List<WordCount> words = new ArrayList<>(entries.size());
+        for (Tuple2<String, Integer> entry : entries) {
+            words.add(new WordCount(entry._1(), entry._2()));
+        }
+        return words;
+    }
+
+    /**
+     * Expands a file, directory or glob into the paths of the files it names, as
+     * {@link LocalWordFrequency#listFiles(String)} does.
+     */
+    private static List<String> listFiles(JavaSparkContext sc, String filePath) throws IOException {
+        Path pattern = new Path(filePath);
+        FileSystem fs = pattern.getFileSystem(sc.hadoopConfiguration());
+        FileStatus[] matches = fs.globStatus(pattern);
+        List<String> files = new ArrayList<>();
+        if (matches == null) {
+            return files;
+        }
+        boolean glob = LocalWordFrequency.isGlob(filePath);
+        for (FileStatus match : matches) {
+            if (match.isDirectory()) {
+                for (FileStatus child : fs.listStatus(match.getPath())) {
+                    if (child.isFile() && LocalWordFrequency.isInput(child.getPath().getName())) {
+                        files.add(child.getPath().toString());
+                    }
+                }
+            } else if (!glob || LocalWordFrequency.isInput(match.getPath().getName())) {
+                files.add(match.getPath().toString());
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Orders word counts by ascending count, ties alphabetically, as {@link WordFrequencyStats#bottom(int)} does.
+     * Serializable so takeOrdered can use it on the executors.
+     */
+    private static class BottomOrder implements Comparator<Tuple2<String, Integer>>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(Tuple2<String, Integer> a, Tuple2<String, Integer> b) {
+            int byCount = Integer.compare(a._2(), b._2());
+            return byCount != 0 ? byCount : a._1().compareTo(b._1());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Counts the words of Reuters .sgm files after cleaning them. Inputs on the local file system that
+ * are small enough are counted in this JVM by {@link LocalWordFrequency}, so a short run does not
+ * pay for starting Spark; the rest are counted on a Spark cluster by {@link SparkWordFrequency}.
+ * Both engines clean and count exactly the same way and record processed files under the same
+ * names, so a word frequency state can be carried from one engine to the other.
+ */
+public class WordFrequencyJob {
+    // Recorded on the executors; with -Dmetrics.* in local mode they appear in the driver's snapshot
+    static final Metrics.Timer COUNT_FILE =
+            Metrics.stageTimer("wordfreq_file_seconds", "Time to clean and count the words of one file");
+    static final Metrics.Counter CHARS_COUNTED =
+            Metrics.counter("wordfreq_chars_counted_total", "Characters of text cleaned and counted");
+    // The number of least frequent words printed in exact mode
+    static final int LEAST_FREQUENT_SHOWN = 20;
+
+    /**
+     * Creates the empty statistics each file or partition is counted into. Serializable so Spark
+     * can ship it to the executors.
+     */
+    public interface StatsSupplier extends Serializable {
+        WordFrequencyStats get();
+    }
+
+    /**
+     * What is printed of exact counts: the frequency histogram, the least frequent words and the
+     * words at the maximum frequency. The Spark engine computes it on the executors so the counts
+     * themselves never reach the driver.
+     */
+    static class ExactSummary {
+        final SortedMap<Integer, Integer> histogram;
+        final List<WordCount> leastFrequent;
+        final List<WordCount> mostFrequent;
+
+        ExactSummary(SortedMap<Integer, Integer> histogram, List<WordCount> leastFrequent, List<WordCount> mostFrequent) {
+            this.histogram = histogram;
+            this.leastFrequent = leastFrequent;
+            this.mostFrequent = mostFrequent;
+        }
+
+        /**
+         * Summarizes exact statistics held in this JVM.
+         *
+         * @param stats The exact statistics.
+         * @return The summary.
+         */
+        static ExactSummary of(WordFrequencyStats stats) {
+            // Minimum and maximum frequency and the number of words at each come from the histogram,
+            // so only the words actually printed are collected
+            SortedMap<Integer, Integer> histogram = stats.histogram();
+            if (histogram.isEmpty()) {
+                return new ExactSummary(histogram, new ArrayList<>(), new ArrayList<>());
+            }
+            return new ExactSummary(histogram, stats.bottom(LEAST_FREQUENT_SHOWN),
+                    stats.top(histogram.get(histogram.lastKey())));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Metrics.start();
+
+        // A file, directory or glob of .sgm files, optionally followed by the Spark master
+        String filePath = args.length > 0 ? args[0] : "file:///home/ashishkumarg0877/reut2-009.sgm";
+        String master = args.length > 1 ? args[1] : "local[*]";
+
+        // -Dwordfreq.state keeps the counts between runs so only new files are counted;
+        // -Dwordfreq.approximate=true counts in fixed memory for very large vocabularies
+        String statePath = System.getProperty("wordfreq.state");
+        boolean approximate = Boolean.getBoolean("wordfreq.approximate");
+        int sketchWidth = Integer.getInteger("wordfreq.sketchWidth", 1 << 20);
+        int sketchDepth = Integer.getInteger("wordfreq.sketchDepth", 5);
+        int heavyHitters = Integer.getInteger("wordfreq.heavyHitters", 10000);
+
+        WordFrequencyStats stats = statePath != null && Files.exists(Paths.get(statePath))
+                ? WordFrequencyStats.load(Paths.get(statePath))
+                : approximate ? WordFrequencyStats.approximate(sketchWidth, sketchDepth, heavyHitters)
+                : WordFrequencyStats.exact();
+        boolean exact = stats.isExact();
+        StatsSupplier emptyStats = exact ? WordFrequencyStats::exact
+                : () -> WordFrequencyStats.approximate(sketchWidth, sketchDepth, heavyHitters);
+        TextCleaner cleaner = new DataCleaner().textCleaner();
+
+        int processedBefore = stats.getProcessedFiles().size();
+        ExactSummary summary = null;
+        if (useLocalEngine(filePath, master)) {
+            List<String> newFiles = new ArrayList<>();
+            for (String file : LocalWordFrequency.listFiles(filePath)) {
+                if (!stats.isProcessed(file)) {
+                    newFiles.add(file);
+                }
+            }
+            stats.merge(LocalWordFrequency.count(newFiles, cleaner, emptyStats,
+                    Integer.getInteger("wordfreq.parallelism", Runtime.getRuntime().availableProcessors())));
+            newFiles.forEach(stats::markProcessed);
+        } else if (isSparkAvailable()) {
+            // Without a state file the exact counts are only summarized, on the executors
+            summary = SparkWordFrequency.count(filePath, master, stats, cleaner, emptyStats, statePath != null);
+        } else {
+            throw new IOException("Spark is not on the classpath; count " + filePath + " with -Dwordfreq.engine=local");
+        }
+
+        int processed = stats.getProcessedFiles().size();
+        System.out.println("Counted " + (processed - processedBefore) + " new files, " + processed + " in total");
+        if (exact) {
+            if (summary == null) {
+                summary = ExactSummary.of(stats);
+            }
+            if (summary.histogram.isEmpty()) {
+                System.out.println("No words found in " + filePath);
+            } else {
+                printExact(summary);
+            }
+        } else if (stats.getTotalCount() == 0) {
+            System.out.println("No words found in " + filePath);
+        } else {
+            System.out.println("Most frequent words (approximate): " + stats.top(20));
+        }
+
+        if (statePath != null) {
+            stats.save(Paths.get(statePath));
+        }
+    }
+
+    /**
+     * Chooses the engine: -Dwordfreq.engine=local or spark forces one, while auto, the default,
+     * counts in this JVM when the master is local and the input is local and at most
+     * -Dwordfreq.localMaxBytes (256MB by default).
+     */
+    private static boolean useLocalEngine(String filePath, String master) throws IOException {
+        String engine = System.getProperty("wordfreq.engine", "auto");
+        if ("local".equals(engine)) {
+            return true;
+        }
+        if ("spark".equals(engine) || !master.startsWith("local") || !LocalWordFrequency.isLocal(filePath)) {
+            return false;
+        }
+        long size = LocalWordFrequency.totalSize(LocalWordFrequency.listFiles(filePath));
+        return size <= Long.getLong("wordfreq.localMaxBytes", 256L << 20);
+    }
+
+    private static boolean isSparkAvailable() {
+        try {
+            Class.forName("org.apache.spark.sql.SparkSession", false, WordFrequencyJob.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Cleans one file and counts its words.
+     *
+     * @param cleaner  The cleaner splitting the file into words.
+     * @param content  The text of the file.
+     * @param consumer Receives each word.
+     */
+    static void countFile(TextCleaner cleaner, String content, TextCleaner.TokenConsumer consumer) {
+        COUNT_FILE.time(() -> cleaner.tokenize(content, consumer));
+        CHARS_COUNTED.add(content.length());
+    }
+
+    private static void printExact(ExactSummary summary) {
+        SortedMap<Integer, Integer> histogram = summary.histogram;
+        int minFreq = histogram.firstKey();
+        int maxFreq = histogram.lastKey();
+
+        System.out.println("First 20 words with minimum frequency (" + minFreq + "):");
+        for (WordCount entry : summary.leastFrequent) {
+            if (entry.getCount() == minFreq) {
+                System.out.println(entry.getWord());
+            }
+        }
+        List<String> maxFreqWords = new ArrayList<>();
+        for (WordCount entry : summary.mostFrequent) {
+            maxFreqWords.add(entry.getWord());
+        }
+        System.out.println("Words with maximum frequency (" + maxFreq + "): " + maxFreqWords);
+
+        System.out.println("No. words with min frequnecy: "+histogram.get(minFreq));
+        System.out.println("No. words with max frequnecy: "+maxFreqWords.size());
+        System.out.println("Words by frequency (frequency=words): " + histogram.headMap(11));
+    }
+}
@@ -1,20 +1,92 @@
 package org.example;
 
 import com.opencsv.CSVReader;
-import com.opencsv.CSVWriter;
 import com.opencsv.exceptions.CsvException;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 public class BOWSentiment {
 
+    static final String[] CSV_HEADINGS = {"News#", "Title Content", "Matched Words", "Score", "Polarity"};
+
+    // Words that reverse the polarity of an opinion word following them, with and without apostrophe
+    private static final String[] NEGATIONS = {
+            "not", "no", "never", "nor", "neither", "none", "nothing", "without", "hardly", "cannot",
+            "don't", "dont", "doesn't", "doesnt", "didn't", "didnt", "isn't", "isnt", "wasn't", "wasnt",
+            "aren't", "arent", "weren't", "werent", "can't", "cant", "won't", "wont", "couldn't", "couldnt",
+            "shouldn't", "shouldnt", "wouldn't", "wouldnt"
+    };
+
+    private static final Metrics.Timer SCORE_TITLE =
+            Metrics.stageTimer("sentiment_title_score_seconds", "Time to score one title and format its CSV row");
+    private static final Metrics.Counter TITLES_SCORED =
+            Metrics.counter("sentiment_titles_scored_total", "Titles scored against the opinion lexicon");
+
+    private final Tokenizer tokenizer;
+    private final Set<String> negations = new HashSet<>();
+    private ScoreCache cache;
+
+    /**
+     * Constructs a BOWSentiment splitting text into lower-cased words.
+     */
+    public BOWSentiment() {
+        this(new Tokenizer());
+    }
+
+    /**
+     * Constructs a BOWSentiment. When the tokenizer produces n-grams, an opinion word preceded by
+     * a negation such as "not" or "never", directly or with one word between, counts with the
+     * opposite polarity.
+     *
+     * @param tokenizer The tokenizer building the bag of words.
+     */
+    public BOWSentiment(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+        for (String negation : Arrays.asList(NEGATIONS)) {
+            negations.add(tokenizer.normalize(negation));
+        }
+    }
+
+    /**
+     * Serves the sentiment of titles seen before from a cache instead of scoring them again.
+     *
+     * @param cache The cache, or null to score every title.
+     * @return This BOWSentiment.
+     */
+    public BOWSentiment cache(ScoreCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * Computes the version a score cache is keyed by, which changes with the lexicon words and
+     * with the tokenizer settings, as either can change the score of the same title.
+     *
+     * @param lexicon The lexicon giving the polarity of opinion words.
+     * @return The 64-bit version.
+     */
+    public long cacheVersion(SentimentLexicon lexicon) {
+        long h = lexicon.getVersion() * 0x9E3779B97F4A7C15L + tokenizer.fingerprint();
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * Retrieves the tokenizer building the bag of words, so a lexicon can be normalized to match.
+     *
+     * @return The tokenizer.
+     */
+    public Tokenizer getTokenizer() {
+        return tokenizer;
+    }
+
     /**
      * Reads a file and returns its content as a list of words.
      *
@@ -27,7 +99,11 @@ public class BOWSentiment {
         try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
             String line;
             while ((line = reader.readLine()) != null) {
-                wordsList.add(line.trim());
+                line = line.trim();
+                // Skip blank lines and the ';' comment header of the opinion-lexicon files
+                if (!line.isEmpty() && line.charAt(0) != ';') {
+                    wordsList.add(line);
+                }
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -39,112 +115,222 @@ public class BOWSentiment {
      * Creates a bag of words from the given text.
      *
      * @param text The text to create the bag of words from.
-     * @return A map representing the bag of words with word frequencies.
+     * @return A counter holding the frequency of each word.
      */
-    public Map<String, Integer> createBagOfWords(String text) {
-        Map<String, Integer> bagOfWords = new HashMap<>();
-
-        String[] words = text.split("\\s+");
-
-        for (String word : words) {
-            word = word.toLowerCase();
-            bagOfWords.put(word, bagOfWords.getOrDefault(word, 0) + 1);
-        }
+    public TermCounter createBagOfWords(CharSequence text) {
+        TermCounter bagOfWords = new TermCounter();
+        tokenizer.tokenize(text, bagOfWords::add);
         return bagOfWords;
     }
 
     /**
      * Counts the sentiment of a document using a bag of words approach.
      *
-     * @param document      The document to analyze.
-     * @param bagOfWords    The bag of words to use for sentiment analysis.
-     * @param positiveWords A list of positive words.
-     * @param negativeWords A list of negative words.
+     * @param document   The document to analyze.
+     * @param bagOfWords The bag of words to use for sentiment analysis.
+     * @param lexicon    The lexicon giving the polarity of opinion words.
      * @return A SentimentAnalysisResult object containing matched words and sentiment score.
      */
-    public SentimentAnalysisResult countSentiment(String document, Map<String, Integer> bagOfWords, List<String> positiveWords, List<String> negativeWords) {
+    public SentimentAnalysisResult countSentiment(String document, TermCounter bagOfWords, SentimentLexicon lexicon) {
         List<String> matchedWords = new ArrayList<>();
-        int sentimentScore = 0;
-
-        for (Map.Entry<String, Integer> entry : bagOfWords.entrySet()) {
-            String word = entry.getKey();
-            int count = entry.getValue();
+        int[] sentimentScore = {0};
 
-            if (positiveWords.contains(word)) {
-                matchedWords.add(word);
-                sentimentScore += count;
-            } else if (negativeWords.contains(word)) {
+        bagOfWords.forEach((word, count) -> {
+            int last = word.lastIndexOf(Tokenizer.NGRAM_SEPARATOR);
+            if (last < 0) {
+                int weight = lexicon.weight(word);
+                if (weight != 0) {
+                    matchedWords.add(word);
+                    sentimentScore[0] += weight * count;
+                }
+                return;
+            }
+            // The opinion word was already counted on its own, so a negated occurrence takes it back twice
+            int weight = negatedWeight(word, last, lexicon);
+            if (weight != 0) {
                 matchedWords.add(word);
-                sentimentScore -= count;
+                sentimentScore[0] -= 2 * weight * count;
             }
+        });
+
+        return new SentimentAnalysisResult(document, matchedWords, sentimentScore[0]);
+    }
+
+    /**
+     * Counts the sentiment of a document, serving documents seen before from the score cache when
+     * one is set.
+     *
+     * @param document The document to analyze.
+     * @param lexicon  The lexicon giving the polarity of opinion words.
+     * @return A SentimentAnalysisResult object containing matched words and sentiment score.
+     */
+    public SentimentAnalysisResult countSentiment(String document, SentimentLexicon lexicon) {
+        SentimentAnalysisResult result = countSentiment(document, document, lexicon);
+        return result.getDocument() == null
+                ? new SentimentAnalysisResult(document, result.getMatchedWords(), result.getSentimentScore())
+                : result;
+    }
+
+    /**
+     * Counts the sentiment of a text through the score cache when one is set.
+     *
+     * @return The result; taken from the cache, it has no document.
+     */
+    private SentimentAnalysisResult countSentiment(CharSequence text, String document, SentimentLexicon lexicon) {
+        ScoreCache scoreCache = cache;
+        if (scoreCache == null) {
+            return countSentiment(document, createBagOfWords(text), lexicon);
         }
+        long key = ScoreCache.key(text, cacheVersion(lexicon));
+        SentimentAnalysisResult result = scoreCache.get(key);
+        if (result == null) {
+            result = countSentiment(document, createBagOfWords(text), lexicon);
+            scoreCache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the weight a matched word counted with, so matched words can be told apart by
+     * polarity. A negation such as "not good" counts with the opposite polarity of its opinion word.
+     *
+     * @param matchedWord A word or n-gram from {@link SentimentAnalysisResult#getMatchedWords()}.
+     * @param lexicon     The lexicon giving the polarity of opinion words.
+     * @return The weight, or 0 if the word is not an opinion word or negation.
+     */
+    public int wordWeight(String matchedWord, SentimentLexicon lexicon) {
+        int last = matchedWord.lastIndexOf(Tokenizer.NGRAM_SEPARATOR);
+        return last < 0 ? lexicon.weight(matchedWord) : -negatedWeight(matchedWord, last, lexicon);
+    }
 
-        return new SentimentAnalysisResult(document, matchedWords, sentimentScore);
+    /**
+     * Finds the opinion word negated by an n-gram such as "not good" or "not very good": the first
+     * word is a negation, the last is an opinion word and any word between is neither.
+     *
+     * @return The weight of the negated word, or 0 if the n-gram is not a negation.
+     */
+    private int negatedWeight(String ngram, int last, SentimentLexicon lexicon) {
+        int first = ngram.indexOf(Tokenizer.NGRAM_SEPARATOR);
+        if (!negations.contains(ngram.substring(0, first))) {
+            return 0;
+        }
+        int weight = lexicon.weight(ngram.substring(last + 1));
+        if (weight == 0 || first == last) {
+            return weight;
+        }
+        String between = ngram.substring(first + 1, last);
+        if (between.indexOf(Tokenizer.NGRAM_SEPARATOR) >= 0 || negations.contains(between)
+                || lexicon.weight(between) != 0) {
+            return 0;
+        }
+        return weight;
     }
 
     /**
-     * Writes sentiment analysis results to a CSV file.
+     * Writes sentiment analysis results to a CSV file. Each title is written as soon as it is
+     * scored, so no rows are held in memory.
      *
      * @param titlesList A list of titles.
-     * @param positive   A list of positive words.
-     * @param negative   A list of negative words.
+     * @param lexicon    The lexicon giving the polarity of opinion words.
      * @throws IOException If an I/O error occurs.
      */
-    public void writeToCSV(List<String> titlesList, List<String> positive, List<String> negative) throws IOException {
-        List<String[]> allRows = new ArrayList<>();
-
-        String[] headings = {"News#", "Title Content", "Matched Words", "Score", "Polarity"};
-        allRows.add(headings);
-
-        for (int i = 0; i < titlesList.size(); i++) {
-            String titleContent = titlesList.get(i);
-            int newsNo = i + 1;
+    public void writeToCSV(List<String> titlesList, SentimentLexicon lexicon) throws IOException {
+        try (ResultSink sink = new CsvResultSink(Paths.get("sentiments.csv"))) {
+            for (int i = 0; i < titlesList.size(); i++) {
+                sink.write(score(i + 1, titlesList.get(i), lexicon));
+            }
+        } catch (IOException e) {
+            throw new IOException("Error writing to CSV: " + e.getMessage());
+        }
+        System.out.println("Data written successfully to sentiments.csv");
+    }
 
-            Map<String, Integer> bagOfWords = createBagOfWords(titleContent);
-            SentimentAnalysisResult sentimentResult = countSentiment(titleContent, bagOfWords, positive, negative);
+    /**
+     * Scores one title.
+     *
+     * @param newsNo       The number of the article in the output.
+     * @param titleContent The title to score, which may be a view into a {@link CompactCorpus}.
+     * @param lexicon      The lexicon giving the polarity of opinion words.
+     * @return The row holding the news number, title, matched words, score and polarity.
+     */
+    public SentimentRow score(long newsNo, CharSequence titleContent, SentimentLexicon lexicon) {
+        return SCORE_TITLE.time(() -> {
+            // The title is only copied to the heap for the row it is written in
+            String title = titleContent.toString();
+            SentimentAnalysisResult sentimentResult = countSentiment(titleContent, title, lexicon);
             List<String> matchedWords = sentimentResult.getMatchedWords();
             int sentimentScore = sentimentResult.getSentimentScore();
+            TITLES_SCORED.increment();
 
-            String polarity;
-            if (sentimentScore > 0) {
-                polarity = "Positive";
-            } else if (sentimentScore < 0) {
-                polarity = "Negative";
-            } else {
-                polarity = "Neutral";
-            }
+            return new SentimentRow(newsNo, title, String.join(", ", matchedWords), sentimentScore,
+                    polarity(sentimentScore));
+        });
+    }
 
-            String[] row = {String.valueOf(newsNo), titleContent, String.join(", ", matchedWords), String.valueOf(sentimentScore), polarity};
-            allRows.add(row);
-        }
+    /**
+     * Scores one title and formats it as a row of the sentiments CSV file.
+     *
+     * @param newsNo       The number of the article in the output.
+     * @param titleContent The title to score, which may be a view into a {@link CompactCorpus}.
+     * @param lexicon      The lexicon giving the polarity of opinion words.
+     * @return The row holding the news number, title, matched words, score and polarity.
+     */
+    public String[] scoreRow(long newsNo, CharSequence titleContent, SentimentLexicon lexicon) {
+        return score(newsNo, titleContent, lexicon).toCsvRow();
+    }
 
-        try (CSVWriter writer = new CSVWriter(new FileWriter("sentiments.csv"))) {
-            writer.writeAll(allRows);
-            System.out.println("Data written successfully to sentiments.csv");
-        } catch (IOException e) {
-            throw new IOException("Error writing to CSV: " + e.getMessage());
+    /**
+     * Converts a sentiment score into a polarity label.
+     *
+     * @param sentimentScore The sentiment score.
+     * @return "Positive", "Negative" or "Neutral".
+     */
+    public static String polarity(int sentimentScore) {
+        if (sentimentScore > 0) {
+            return "Positive";
+        } else if (sentimentScore < 0) {
+            return "Negative";
+        } else {
+            return "Neutral";
         }
     }
 
     /**
-     * Reads and displays data from a CSV file on console.
+     * Reads and displays data from the sentiments CSV file on console.
      */
     public void readDisplayCSV(){
-        try (CSVReader reader = new CSVReader(new FileReader("sentiments.csv"))) {
-            List<String[]> rows = reader.readAll();
-            int rowCount = 0;
+        readDisplayCSV("sentiments.csv");
+    }
 
-            List<Integer> columnWidths = getColumnWidths(rows);
+    /**
+     * Reads and displays data from a CSV file on console. The file is streamed twice, once to
+     * size the columns and once to print them, so it is never held in memory.
+     *
+     * @param csvPath The path of the CSV file to display.
+     */
+    public void readDisplayCSV(String csvPath) {
+        try {
+            List<Integer> columnWidths = new ArrayList<>();
+            try (CSVReader reader = new CSVReader(new FileReader(csvPath))) {
+                String[] row;
+                while ((row = reader.readNext()) != null) {
+                    updateColumnWidths(columnWidths, row);
+                }
+            }
 
-            for (String[] row : rows) {
-                if (rowCount == 0) {
-                    printSeparator(columnWidths);
-                    printRow(row, columnWidths);
-                    printSeparator(columnWidths);
-                } else {
-                    printRow(row, columnWidths);
+            int rowCount = 0;
+            try (CSVReader reader = new CSVReader(new FileReader(csvPath))) {
+                String[] row;
+                while ((row = reader.readNext()) != null) {
+                    if (rowCount == 0) {
+                        printSeparator(columnWidths);
+                        printRow(row, columnWidths);
+                        printSeparator(columnWidths);
+                    } else {
+                        printRow(row, columnWidths);
+                    }
+                    rowCount++;
                 }
-                rowCount++;
             }
 
             System.out.println("\nTotal rows: " + rowCount);
@@ -183,25 +369,19 @@ public class BOWSentiment {
     }
 
     /**
-     * Calculates the widths of columns in a list of rows.
+     * Widens the columns to fit a row.
      *
-     * @param rows The list of rows.
-     * @return A list of column widths.
+     * @param columnWidths The widths of columns so far.
+     * @param row          The row to fit.
      */
-    private static List<Integer> getColumnWidths(List<String[]> rows) {
-        List<Integer> columnWidths = new ArrayList<>();
-
-        for (String[] row : rows) {
-            for (int i = 0; i < row.length; i++) {
-                if (columnWidths.size() <= i) {
-                    columnWidths.add(row[i].length());
-                } else {
-                    int width = Math.max(columnWidths.get(i), row[i].length());
-                    columnWidths.set(i, width);
-                }
+    private static void updateColumnWidths(List<Integer> columnWidths, String[] row) {
+        for (int i = 0; i < row.length; i++) {
+            if (columnWidths.size() <= i) {
+                columnWidths.add(row[i].length());
+            } else {
+                int width = Math.max(columnWidths.get(i), row[i].length());
+                columnWidths.set(i, width);
             }
         }
-
-        return columnWidths;
     }
 }
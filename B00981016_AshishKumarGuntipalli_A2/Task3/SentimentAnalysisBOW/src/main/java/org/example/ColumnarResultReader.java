@@ -0,0 +1,308 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a file written by {@link ColumnarResultSink}. Only the footer is loaded when the file is
+ * opened; blocks are read one at a time as rows are iterated, so memory does not grow with the
+ * file. Summaries read just the polarity and score columns of each block.
+ */
+public class ColumnarResultReader implements Closeable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final String[] polarities;
+    private final long[] blockPositions;
+    private final long[] blockFirstNewsNos;
+    private final int[] blockRows;
+    private final int[] blockLengths;
+    private final int[] blockSummaryLengths;
+    private final long rowCount;
+
+    private ColumnarResultReader(Path file, FileChannel channel, String[] polarities, long[] blockPositions,
+                                 long[] blockFirstNewsNos, int[] blockRows, int[] blockLengths,
+                                 int[] blockSummaryLengths) {
+        this.file = file;
+        this.channel = channel;
+        this.polarities = polarities;
+        this.blockPositions = blockPositions;
+        this.blockFirstNewsNos = blockFirstNewsNos;
+        this.blockRows = blockRows;
+        this.blockLengths = blockLengths;
+        this.blockSummaryLengths = blockSummaryLengths;
+        long rows = 0;
+        for (int count : blockRows) {
+            rows += count;
+        }
+        this.rowCount = rows;
+    }
+
+    /**
+     * Opens a columnar results file.
+     *
+     * @param file The path of the file.
+     * @return The opened reader; it must be closed to release the file.
+     * @throws IOException If the file cannot be read or is not a columnar results file.
+     */
+    public static ColumnarResultReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < ColumnarResultSink.HEADER_SIZE + ColumnarResultSink.TRAILER_SIZE) {
+                throw new IOException("Not a columnar results file: " + file);
+            }
+            ByteBuffer header = read(channel, 0, ColumnarResultSink.HEADER_SIZE);
+            ByteBuffer trailer = read(channel, size - ColumnarResultSink.TRAILER_SIZE, ColumnarResultSink.TRAILER_SIZE);
+            long footerPosition = trailer.getLong();
+            if (header.getInt() != ColumnarResultSink.MAGIC || header.getInt() != ColumnarResultSink.VERSION
+                    || trailer.getInt() != ColumnarResultSink.MAGIC
+                    || footerPosition < ColumnarResultSink.HEADER_SIZE
+                    || footerPosition > size - ColumnarResultSink.TRAILER_SIZE) {
+                throw new IOException("Not a columnar results file: " + file);
+            }
+
+            ByteBuffer footer = read(channel, footerPosition, (int) (size - ColumnarResultSink.TRAILER_SIZE - footerPosition));
+            String[] polarities = new String[readVInt(footer)];
+            for (int i = 0; i < polarities.length; i++) {
+                polarities[i] = readString(footer);
+            }
+            int blockCount = readVInt(footer);
+            long[] positions = new long[blockCount];
+            long[] firstNewsNos = new long[blockCount];
+            int[] rows = new int[blockCount];
+            int[] lengths = new int[blockCount];
+            int[] summaryLengths = new int[blockCount];
+            long position = 0;
+            for (int i = 0; i < blockCount; i++) {
+                position += readVLong(footer);
+                positions[i] = position;
+                firstNewsNos[i] = readVLong(footer);
+                rows[i] = readVInt(footer);
+                lengths[i] = (int) readVLong(footer);
+                summaryLengths[i] = (int) readVLong(footer);
+            }
+            return new ColumnarResultReader(file, channel, polarities, positions, firstNewsNos, rows, lengths,
+                    summaryLengths);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the number of rows in the file.
+     *
+     * @return The number of rows.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Retrieves the number of blocks in the file.
+     *
+     * @return The number of blocks.
+     */
+    public int getBlockCount() {
+        return blockPositions.length;
+    }
+
+    /**
+     * Iterates over every row in the file.
+     *
+     * @return An iterator reading one block at a time.
+     */
+    public Iterator<SentimentRow> rows() {
+        return new RowIterator(0, Long.MIN_VALUE);
+    }
+
+    /**
+     * Iterates over the rows from a News# on, reading only the block holding it and those after.
+     *
+     * @param newsNo The first News# wanted.
+     * @return An iterator over the rows whose News# is at least newsNo.
+     */
+    public Iterator<SentimentRow> rowsFrom(long newsNo) {
+        // The last block starting at or before newsNo, found by binary search of the block index
+        int low = 0;
+        int high = blockFirstNewsNos.length - 1;
+        int block = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blockFirstNewsNos[mid] <= newsNo) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return new RowIterator(block, newsNo);
+    }
+
+    /**
+     * Counts the rows of each polarity and of each score, without decoding titles or words.
+     *
+     * @return The summary of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    public ResultSummary summarize() throws IOException {
+        ResultSummary summary = new ResultSummary();
+        long[] polarityCounts = new long[polarities.length];
+        for (int block = 0; block < blockPositions.length; block++) {
+            ByteBuffer data = read(channel, blockPositions[block], blockSummaryLengths[block]);
+            int rows = readVInt(data);
+            readVLong(data);
+            column(data);
+            ByteBuffer codes = column(data);
+            ByteBuffer scores = column(data);
+            for (int i = 0; i < rows; i++) {
+                polarityCounts[codes.get() & 0xFF]++;
+                summary.addScore(unzigzag(readVInt(scores)));
+            }
+        }
+        for (int i = 0; i < polarities.length; i++) {
+            summary.addPolarity(polarities[i], polarityCounts[i]);
+        }
+        return summary;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer readBlock(int block) throws IOException {
+        return read(channel, blockPositions[block], blockLengths[block]);
+    }
+
+    private static ByteBuffer column(ByteBuffer data) {
+        int length = readVInt(data);
+        ByteBuffer column = data.slice();
+        column.limit(length);
+        data.position(data.position() + length);
+        return column;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of columnar results file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int readVInt(ByteBuffer buffer) {
+        return (int) readVLong(buffer);
+    }
+
+    private static long readVLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readVInt(buffer);
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void skipString(ByteBuffer buffer) {
+        int length = readVInt(buffer);
+        buffer.position(buffer.position() + length);
+    }
+
+    /**
+     * Decodes the rows of one block at a time, keeping a cursor into each column.
+     */
+    private class RowIterator implements Iterator<SentimentRow> {
+        private int nextBlock;
+        private final long fromNewsNo;
+        private int rowsLeft;
+        private long newsNo;
+        private ByteBuffer newsNos;
+        private ByteBuffer codes;
+        private ByteBuffer scores;
+        private ByteBuffer titles;
+        private ByteBuffer words;
+        private SentimentRow next;
+
+        RowIterator(int firstBlock, long fromNewsNo) {
+            this.nextBlock = firstBlock;
+            this.fromNewsNo = fromNewsNo;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (rowsLeft == 0 && !loadBlock()) {
+                    return false;
+                }
+                rowsLeft--;
+                newsNo += readVLong(newsNos);
+                String polarity = polarities[codes.get() & 0xFF];
+                int score = unzigzag(readVInt(scores));
+                if (newsNo < fromNewsNo) {
+                    skipString(titles);
+                    skipString(words);
+                    continue;
+                }
+                next = new SentimentRow(newsNo, readString(titles), readString(words), score, polarity);
+            }
+            return true;
+        }
+
+        @Override
+        public SentimentRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            SentimentRow row = next;
+            next = null;
+            return row;
+        }
+
+        private boolean loadBlock() {
+            if (nextBlock >= blockPositions.length) {
+                return false;
+            }
+            ByteBuffer data;
+            try {
+                data = readBlock(nextBlock++);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading " + file, e);
+            }
+            rowsLeft = readVInt(data);
+            newsNo = readVLong(data);
+            newsNos = column(data);
+            codes = column(data);
+            scores = column(data);
+            titles = column(data);
+            words = column(data);
+            return rowsLeft > 0 || loadBlock();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes sentiment rows in a compact columnar binary format read by {@link ColumnarResultReader}.
+ * Rows are grouped into blocks, and each block stores its columns one after the other, so a
+ * reader can skip the titles and words when it only needs scores and polarities.
+ *
+ * <p>File layout: a header (magic, version), the blocks, a footer, then a trailer (footer offset,
+ * magic). Each block holds its row count and first News#, then five columns, each prefixed with
+ * its length in bytes: News# deltas, polarity codes, zigzag scores, titles and matched words.
+ * Numbers are variable-byte encoded and strings are length-prefixed UTF-8. Polarities are stored
+ * as one-byte codes into a dictionary kept in the footer, along with the offset, first News#,
+ * row count, length and length up to the end of the score column of every block, so a reader can
+ * seek straight to any row and a summary reads only the leading columns.
+ *
+ * <p>The file is written under a temporary name and moved into place when the sink is closed.
+ */
+public class ColumnarResultSink implements ResultSink {
+
+    /** The extension of files written in this format. */
+    public static final String EXTENSION = ".cols";
+
+    static final int MAGIC = 0x534E5443;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int TRAILER_SIZE = 12;
+    static final int COLUMNS = 5;
+    // The News#, polarity and score columns, which is all a summary reads
+    static final int SUMMARY_COLUMNS = 3;
+
+    private static final int DEFAULT_BLOCK_ROWS = 4096;
+
+    private final Path path;
+    private final Path temporary;
+    private final FileChannel channel;
+    private final int blockRows;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> polarities = new ArrayList<>();
+    private final GrowableBuffer[] columns = new GrowableBuffer[COLUMNS];
+    private final GrowableBuffer blockIndex = new GrowableBuffer();
+    private int blockCount;
+    private int rowsInBlock;
+    private long firstNewsNo;
+    private long previousNewsNo;
+    private long position = HEADER_SIZE;
+    private long previousBlockPosition;
+    private boolean closed;
+
+    /**
+     * Creates a columnar file with blocks of 4096 rows.
+     *
+     * @param path The path of the file to write.
+     * @throws IOException If the file cannot be created.
+     */
+    public ColumnarResultSink(Path path) throws IOException {
+        this(path, DEFAULT_BLOCK_ROWS);
+    }
+
+    /**
+     * Creates a columnar file.
+     *
+     * @param path      The path of the file to write.
+     * @param blockRows The number of rows per block; smaller blocks seek more precisely, larger ones compress better.
+     * @throws IOException If the file cannot be created.
+     */
+    public ColumnarResultSink(Path path, int blockRows) throws IOException {
+        this.path = path;
+        this.temporary = AtomicFiles.temporary(path);
+        this.blockRows = blockRows;
+        for (int i = 0; i < COLUMNS; i++) {
+            columns[i] = new GrowableBuffer();
+        }
+        this.channel = AtomicFiles.create(temporary);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        writeFully(header);
+    }
+
+    @Override
+    public void write(SentimentRow row) throws IOException {
+        if (rowsInBlock == 0) {
+            firstNewsNo = row.getNewsNo();
+            previousNewsNo = firstNewsNo;
+        }
+        columns[0].writeVLong(row.getNewsNo() - previousNewsNo);
+        previousNewsNo = row.getNewsNo();
+        columns[1].writeByte(code(row.getPolarity()));
+        columns[2].writeVInt(zigzag(row.getScore()));
+        columns[3].writeString(row.getTitle());
+        columns[4].writeString(row.getMatchedWords());
+        if (++rowsInBlock == blockRows) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (rowsInBlock > 0) {
+                writeBlock();
+            }
+            GrowableBuffer footer = new GrowableBuffer();
+            footer.writeVInt(polarities.size());
+            for (String polarity : polarities) {
+                footer.writeString(polarity);
+            }
+            footer.writeVInt(blockCount);
+            footer.write(blockIndex);
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE).putLong(position).putInt(MAGIC);
+            trailer.flip();
+            writeFully(footer.toByteBuffer());
+            writeFully(trailer);
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+        AtomicFiles.commit(temporary, path);
+    }
+
+    private void writeBlock() throws IOException {
+        GrowableBuffer blockHeader = new GrowableBuffer();
+        blockHeader.writeVInt(rowsInBlock);
+        blockHeader.writeVLong(firstNewsNo);
+        ByteBuffer[] buffers = new ByteBuffer[1 + 2 * COLUMNS];
+        long length = 0;
+        long summaryLength = 0;
+        for (int i = 0; i < COLUMNS; i++) {
+            GrowableBuffer columnLength = new GrowableBuffer();
+            columnLength.writeVInt(columns[i].size());
+            buffers[1 + 2 * i] = columnLength.toByteBuffer();
+            buffers[2 + 2 * i] = columns[i].toByteBuffer();
+            length += columnLength.size() + columns[i].size();
+            if (i == SUMMARY_COLUMNS - 1) {
+                summaryLength = blockHeader.size() + length;
+            }
+        }
+        buffers[0] = blockHeader.toByteBuffer();
+        length += blockHeader.size();
+        while (buffers[buffers.length - 1].hasRemaining()) {
+            channel.write(buffers);
+        }
+
+        blockIndex.writeVLong(position - previousBlockPosition);
+        blockIndex.writeVLong(firstNewsNo);
+        blockIndex.writeVInt(rowsInBlock);
+        blockIndex.writeVLong(length);
+        blockIndex.writeVLong(summaryLength);
+        previousBlockPosition = position;
+        position += length;
+        blockCount++;
+        rowsInBlock = 0;
+        for (GrowableBuffer column : columns) {
+            column.clear();
+        }
+    }
+
+    private int code(String polarity) {
+        Integer code = dictionary.get(polarity);
+        if (code == null) {
+            if (polarities.size() == 256) {
+                throw new IllegalArgumentException("Too many distinct polarities: " + polarity);
+            }
+            code = polarities.size();
+            dictionary.put(polarity, code);
+            polarities.add(polarity);
+        }
+        return code;
+    }
+
+    // Small negative scores take as few bytes as small positive ones
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.example;
+
+import com.opencsv.CSVWriter;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes sentiment rows to a CSV file under {@link BOWSentiment#CSV_HEADINGS}, one row at a time.
+ * Cells are only quoted when they contain a separator, quote or line break.
+ */
+public class CsvResultSink implements ResultSink {
+
+    private final Path path;
+    private final CSVWriter writer;
+
+    /**
+     * Creates the CSV file and writes its headings.
+     *
+     * @param path The path of the CSV file to write.
+     * @throws IOException If the file cannot be created.
+     */
+    public CsvResultSink(Path path) throws IOException {
+        this.path = path;
+        this.writer = new CSVWriter(new FileWriter(path.toFile()));
+        writer.writeNext(BOWSentiment.CSV_HEADINGS, false);
+    }
+
+    @Override
+    public void write(SentimentRow row) {
+        writer.writeNext(row.toCsvRow(), false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // CSVWriter reports write failures through checkError rather than by throwing
+        boolean failed = writer.checkError();
+        writer.close();
+        if (failed) {
+            throw new IOException("Error writing to CSV: " + path);
+        }
+    }
+}
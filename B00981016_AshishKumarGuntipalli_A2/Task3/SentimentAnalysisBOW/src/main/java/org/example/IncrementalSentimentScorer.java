@@ -0,0 +1,172 @@
+package org.example;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scores the title and body of articles added since the previous run and writes the result back
+ * onto each article document. The _id of the last article scored is kept as a watermark in a
+ * state collection, so a run only reads articles inserted after it.
+ *
+ * <p>The watermark relies on _id values increasing with insertion order, which holds for the
+ * ObjectIds generated by the ingest job.
+ *
+ * <p>When given {@link MongoSentimentAggregates}, each batch is also summed into the stored
+ * summaries before the watermark moves past it. A run failing between the two adds the batch to
+ * the summaries again on the next run, counting it twice.
+ */
+public class IncrementalSentimentScorer {
+
+    private static final String STATE_ID = "sentiment";
+
+    private static final Metrics.Timer BULK_WRITE =
+            Metrics.timer("mongo_bulk_write_seconds", "Latency of one MongoDB bulkWrite call");
+    private static final Metrics.Timer SCORE_ARTICLE =
+            Metrics.stageTimer("sentiment_article_score_seconds", "Time to score the title and body of one article");
+
+    private final BOWSentiment bow;
+    private final SentimentLexicon lexicon;
+    private final double titleWeight;
+    private final double bodyWeight;
+    private final int batchSize;
+    private MongoSentimentAggregates aggregates;
+
+    /**
+     * Constructs an IncrementalSentimentScorer.
+     *
+     * @param bow         The scorer used for titles and bodies.
+     * @param lexicon     The lexicon giving the polarity of opinion words.
+     * @param titleWeight The weight given to the title score.
+     * @param bodyWeight  The weight given to the body score.
+     * @param batchSize   The number of articles updated in one bulk write.
+     */
+    public IncrementalSentimentScorer(BOWSentiment bow, SentimentLexicon lexicon, double titleWeight,
+                                      double bodyWeight, int batchSize) {
+        this.bow = bow;
+        this.lexicon = lexicon;
+        this.titleWeight = titleWeight;
+        this.bodyWeight = bodyWeight;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sums the sentiment of every scored article into stored summaries by topic, place and day.
+     *
+     * @param aggregates The stored summaries, or null to keep none.
+     * @return This IncrementalSentimentScorer.
+     */
+    public IncrementalSentimentScorer aggregates(MongoSentimentAggregates aggregates) {
+        this.aggregates = aggregates;
+        return this;
+    }
+
+    /**
+     * Scores every article inserted after the stored watermark.
+     *
+     * @param articles The collection of news articles.
+     * @param state    The collection holding the watermark.
+     * @return The number of articles scored.
+     * @throws IOException If the articles cannot be read or updated.
+     */
+    public long run(MongoCollection<Document> articles, MongoCollection<Document> state) throws IOException {
+        Document watermark = state.find(Filters.eq("_id", STATE_ID)).first();
+        Object lastId = watermark == null ? null : watermark.get("lastId");
+        Bson filter = lastId == null ? new Document() : Filters.gt("_id", lastId);
+
+        List<WriteModel<Document>> updates = new ArrayList<>(batchSize);
+        SentimentAggregates delta = new SentimentAggregates(bow.cacheVersion(lexicon));
+        long scored = 0;
+
+        try (MongoCursor<Document> cursor = articles.find(filter)
+                .projection(Projections.include("title", "body", "date", "topics", "places"))
+                .sort(Sorts.ascending("_id"))
+                .batchSize(batchSize)
+                .iterator()) {
+            while (cursor.hasNext()) {
+                Document article = cursor.next();
+                lastId = article.get("_id");
+                WeightedSentiment sentiment = score(article);
+                updates.add(new UpdateOneModel<>(Filters.eq("_id", lastId),
+                        Updates.set("sentiment", toDocument(sentiment))));
+                if (aggregates != null) {
+                    delta.add(article, sentiment.getScore(), sentiment.getMatchedWords());
+                }
+                scored++;
+
+                if (updates.size() >= batchSize) {
+                    commit(articles, state, updates, delta, lastId);
+                }
+            }
+            commit(articles, state, updates, delta, lastId);
+        } catch (Exception e) {
+            throw new IOException("Error scoring new articles: " + e.getMessage(), e);
+        }
+
+        System.out.println("Scored " + scored + " new articles");
+        return scored;
+    }
+
+    /**
+     * Scores the title and body of one article.
+     *
+     * @param article The article document.
+     * @return The combined sentiment of the article.
+     */
+    public WeightedSentiment score(Document article) {
+        String title = article.getString("title");
+        String body = article.getString("body");
+        title = title == null ? "" : title;
+        body = body == null ? "" : body;
+
+        Metrics.Span span = SCORE_ARTICLE.start();
+        try {
+            SentimentAnalysisResult titleResult = bow.countSentiment(title, lexicon);
+            SentimentAnalysisResult bodyResult = bow.countSentiment(body, bow.createBagOfWords(body), lexicon);
+            return new WeightedSentiment(titleResult, bodyResult, titleWeight, bodyWeight);
+        } finally {
+            span.close();
+        }
+    }
+
+    private static Document toDocument(WeightedSentiment sentiment) {
+        return new Document("score", sentiment.getScore())
+                .append("polarity", sentiment.getPolarity())
+                .append("matched_words", sentiment.getMatchedWords())
+                .append("title_score", sentiment.getTitleResult().getSentimentScore())
+                .append("body_score", sentiment.getBodyResult().getSentimentScore());
+    }
+
+    /**
+     * Writes a batch of updates and its summaries, and only then moves the watermark past it, so a
+     * failed run re-scores at most the batch that was in progress.
+     */
+    private void commit(MongoCollection<Document> articles, MongoCollection<Document> state,
+                        List<WriteModel<Document>> updates, SentimentAggregates delta, Object lastId)
+            throws IOException {
+        if (updates.isEmpty()) {
+            return;
+        }
+        BULK_WRITE.time(() -> articles.bulkWrite(updates, new BulkWriteOptions().ordered(false)));
+        if (aggregates != null) {
+            aggregates.add(delta);
+            delta.clear();
+        }
+        state.updateOne(Filters.eq("_id", STATE_ID), Updates.set("lastId", lastId),
+                new UpdateOptions().upsert(true));
+        updates.clear();
+    }
+}
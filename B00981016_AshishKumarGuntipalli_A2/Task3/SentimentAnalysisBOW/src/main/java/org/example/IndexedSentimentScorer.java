@@ -0,0 +1,99 @@
+package org.example;
+
+import org.bson.Document;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scores articles by joining the opinion lexicon against an inverted index of titles built at
+ * ingest. Each lexicon word costs one posting-list read, so articles are never re-tokenized and
+ * articles without opinion words are never touched.
+ */
+public class IndexedSentimentScorer {
+
+    private final InvertedIndex index;
+    private final SentimentLexicon lexicon;
+
+    /**
+     * Constructs an IndexedSentimentScorer.
+     *
+     * @param index   The inverted index of article titles, keyed by NEWID.
+     * @param lexicon The lexicon giving the polarity of opinion words.
+     */
+    public IndexedSentimentScorer(InvertedIndex index, SentimentLexicon lexicon) {
+        this.index = index;
+        this.lexicon = lexicon;
+    }
+
+    /**
+     * Finds the articles containing at least one opinion word of the given polarity.
+     *
+     * @param weight 1 for positive words or -1 for negative words.
+     * @return The NEWIDs of the matching articles in ascending order.
+     */
+    public int[] articlesWithPolarity(int weight) {
+        return index.or(lexicon.words(weight));
+    }
+
+    /**
+     * Computes the score of every article containing an opinion word.
+     *
+     * @return The sentiment of each matching article by NEWID; the document text is not set.
+     */
+    public Map<Integer, SentimentAnalysisResult> join() {
+        Map<Integer, List<String>> matchedWords = new HashMap<>();
+        Map<Integer, Integer> scores = new HashMap<>();
+        lexicon.forEach((word, weight) -> {
+            InvertedIndex.PostingList postings = index.postings(word);
+            while (postings.next()) {
+                matchedWords.computeIfAbsent(postings.doc(), doc -> new ArrayList<>()).add(word);
+                scores.merge(postings.doc(), weight * postings.frequency(), Integer::sum);
+            }
+        });
+
+        Map<Integer, SentimentAnalysisResult> results = new HashMap<>(matchedWords.size() * 2);
+        matchedWords.forEach((doc, words) -> results.put(doc, new SentimentAnalysisResult(null, words, scores.get(doc))));
+        return results;
+    }
+
+    /**
+     * Writes the sentiment results from the joined scores. Titles are read from the store
+     * without being tokenized; articles without an opinion word are written as Neutral.
+     *
+     * @param store      The store of news articles that was indexed.
+     * @param outputPath The path of the CSV or columnar file to write.
+     * @return The number of titles written.
+     * @throws IOException If the articles cannot be read or the file cannot be written.
+     */
+    public long score(ArticleStore store, String outputPath) throws IOException {
+        Map<Integer, SentimentAnalysisResult> results = join();
+        long newsNo = 0;
+
+        try (ArticleCursor cursor = store.scan("title", "newid");
+             ResultSink sink = ResultSink.open(Paths.get(outputPath))) {
+            while (cursor.hasNext()) {
+                Document article = cursor.next();
+                String title = article.getString("title");
+                Object newId = article.get("newid");
+                SentimentAnalysisResult result = newId == null ? null
+                        : results.get(newId instanceof Number ? ((Number) newId).intValue() : Integer.parseInt(newId.toString()));
+                List<String> words = result == null ? List.of() : result.getMatchedWords();
+                int sentimentScore = result == null ? 0 : result.getSentimentScore();
+
+                sink.write(new SentimentRow(++newsNo, title == null ? "" : title, String.join(", ", words),
+                        sentimentScore, BOWSentiment.polarity(sentimentScore)));
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error scoring articles: " + e.getMessage(), e);
+        }
+        System.out.println("Data written successfully to " + outputPath);
+        return newsNo;
+    }
+}
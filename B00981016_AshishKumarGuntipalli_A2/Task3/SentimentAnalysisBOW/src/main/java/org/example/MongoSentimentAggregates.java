@@ -0,0 +1,199 @@
+package org.example;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the cells of {@link SentimentAggregates} in a MongoDB collection, one document per cell,
+ * and answers grouped queries with aggregation pipelines over them, so only the matching cells
+ * leave the server and no article is read. New articles are added by incrementing the counts of
+ * their cells, so the collection can be kept up to date by the incremental scorer.
+ *
+ * <p>A cell document holds its dimension, value and day, the labels of its day, week and month,
+ * its counts and score sum, and a "words" subdocument counting the articles matching each word.
+ * Words are escaped as field names, as they may hold '.' or start with '$'.
+ */
+public class MongoSentimentAggregates {
+
+    private static final Metrics.Timer BULK_WRITE =
+            Metrics.timer("mongo_bulk_write_seconds", "Latency of one MongoDB bulkWrite call");
+    private static final Metrics.Timer QUERY =
+            Metrics.timer("sentiment_aggregate_query_seconds", "Latency of one grouped sentiment query");
+
+    private final MongoCollection<Document> summaries;
+
+    /**
+     * Constructs a MongoSentimentAggregates.
+     *
+     * @param summaries The collection holding the cells, such as "sentiment_summaries".
+     */
+    public MongoSentimentAggregates(MongoCollection<Document> summaries) {
+        this.summaries = summaries;
+    }
+
+    /**
+     * Creates the index the queries select cells by, if it does not exist yet.
+     */
+    public void createIndex() {
+        summaries.createIndex(Indexes.ascending("dimension", "day"));
+    }
+
+    /**
+     * Adds the cells of aggregates built from new articles, creating the cells not stored yet.
+     *
+     * @param delta The aggregates of the new articles.
+     * @throws IOException If the cells cannot be written.
+     */
+    public void add(SentimentAggregates delta) throws IOException {
+        List<WriteModel<Document>> updates = new ArrayList<>();
+        delta.forEachCell((dimension, value, day, summary) -> {
+            List<Bson> changes = new ArrayList<>();
+            changes.add(Updates.set("dimension", dimension.name()));
+            changes.add(Updates.set("value", value));
+            changes.add(Updates.set("day", day));
+            changes.add(Updates.set("date", SentimentAggregates.bucket(SentimentAggregates.GroupBy.DAY, day)));
+            changes.add(Updates.set("week", SentimentAggregates.bucket(SentimentAggregates.GroupBy.WEEK, day)));
+            changes.add(Updates.set("month", SentimentAggregates.bucket(SentimentAggregates.GroupBy.MONTH, day)));
+            changes.add(Updates.inc("articles", summary.getArticleCount()));
+            changes.add(Updates.inc("positive", summary.getPositiveCount()));
+            changes.add(Updates.inc("negative", summary.getNegativeCount()));
+            changes.add(Updates.inc("neutral", summary.getNeutralCount()));
+            changes.add(Updates.inc("scoreSum", summary.getScoreSum()));
+            summary.getWordCounts().forEach((word, count) -> changes.add(Updates.inc("words." + escape(word), count)));
+            updates.add(new UpdateOneModel<>(Filters.eq("_id", cellId(dimension, value, day)),
+                    Updates.combine(changes), new UpdateOptions().upsert(true)));
+        });
+        if (updates.isEmpty()) {
+            return;
+        }
+        try {
+            BULK_WRITE.time(() -> summaries.bulkWrite(updates, new BulkWriteOptions().ordered(false)));
+        } catch (Exception e) {
+            throw new IOException("Error writing sentiment summaries: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Merges the stored cells in a date range into groups, ordered as by
+     * {@link SentimentAggregates#query(SentimentAggregates.GroupBy, LocalDate, LocalDate)}.
+     *
+     * @param groupBy How the results are grouped.
+     * @param from    The first day included, or null for no lower bound.
+     * @param to      The last day included, or null for no upper bound.
+     * @return The summary of each group, in order.
+     * @throws IOException If the cells cannot be read.
+     */
+    public Map<String, SentimentSummary> query(SentimentAggregates.GroupBy groupBy, LocalDate from, LocalDate to)
+            throws IOException {
+        Bson match = Aggregates.match(filter(groupBy, from, to));
+        String key = "$" + groupField(groupBy);
+        Map<String, SentimentSummary> groups = new HashMap<>();
+
+        Metrics.Span span = QUERY.start();
+        try {
+            try (MongoCursor<Document> cursor = summaries.aggregate(List.of(match,
+                    Aggregates.group(key,
+                            Accumulators.sum("articles", "$articles"),
+                            Accumulators.sum("positive", "$positive"),
+                            Accumulators.sum("negative", "$negative"),
+                            Accumulators.sum("neutral", "$neutral"),
+                            Accumulators.sum("scoreSum", "$scoreSum")))).iterator()) {
+                while (cursor.hasNext()) {
+                    Document group = cursor.next();
+                    SentimentSummary summary = new SentimentSummary();
+                    summary.add(number(group, "articles").longValue(), number(group, "positive").longValue(),
+                            number(group, "negative").longValue(), number(group, "neutral").longValue(),
+                            number(group, "scoreSum").doubleValue());
+                    groups.put(group.getString("_id"), summary);
+                }
+            }
+
+            // Word counts are summed separately, by unwinding each cell's words into one row per word
+            try (MongoCursor<Document> cursor = summaries.aggregate(List.of(match,
+                    Aggregates.project(new Document("group", key)
+                            .append("words", new Document("$objectToArray", "$words"))),
+                    Aggregates.unwind("$words"),
+                    Aggregates.group(new Document("group", "$group").append("word", "$words.k"),
+                            Accumulators.sum("count", "$words.v")))).iterator()) {
+                while (cursor.hasNext()) {
+                    Document row = cursor.next();
+                    Document id = row.get("_id", Document.class);
+                    SentimentSummary summary = groups.get(id.getString("group"));
+                    if (summary != null) {
+                        summary.addWord(unescape(id.getString("word")), number(row, "count").longValue());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            throw new IOException("Error querying sentiment summaries: " + e.getMessage(), e);
+        } finally {
+            span.close();
+        }
+        return SentimentAggregates.sort(groupBy, groups);
+    }
+
+    private static Bson filter(SentimentAggregates.GroupBy groupBy, LocalDate from, LocalDate to) {
+        List<Bson> filters = new ArrayList<>();
+        filters.add(Filters.eq("dimension", SentimentAggregates.dimension(groupBy).name()));
+        if (from != null || to != null) {
+            filters.add(Filters.ne("day", SentimentAggregates.UNKNOWN_DAY));
+        }
+        if (from != null) {
+            filters.add(Filters.gte("day", (int) from.toEpochDay()));
+        }
+        if (to != null) {
+            filters.add(Filters.lte("day", (int) to.toEpochDay()));
+        }
+        return Filters.and(filters);
+    }
+
+    private static String groupField(SentimentAggregates.GroupBy groupBy) {
+        switch (groupBy) {
+            case TOPIC:
+            case PLACE:
+                return "value";
+            case WEEK:
+                return "week";
+            case MONTH:
+                return "month";
+            default:
+                return "date";
+        }
+    }
+
+    private static Document cellId(SentimentAggregates.Dimension dimension, String value, int day) {
+        return new Document("dimension", dimension.name()).append("value", value).append("day", day);
+    }
+
+    private static Number number(Document document, String field) {
+        Object value = document.get(field);
+        return value instanceof Number ? (Number) value : 0;
+    }
+
+    // Field names cannot hold '.' or start with '$', so both are escaped, along with the escape character
+    private static String escape(String word) {
+        return word.replace("%", "%25").replace(".", "%2E").replace("$", "%24");
+    }
+
+    private static String unescape(String field) {
+        return field.replace("%24", "$").replace("%2E", ".").replace("%25", "%");
+    }
+}
@@ -0,0 +1,57 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Receives the scored rows of a sentiment run as they are produced. Rows are written through as
+ * they arrive, so a sink never holds more than the rows it is given.
+ */
+public interface ResultSink extends Closeable {
+
+    /**
+     * Writes one row.
+     *
+     * @param row The row to write.
+     * @throws IOException If the row cannot be written.
+     */
+    void write(SentimentRow row) throws IOException;
+
+    /**
+     * Writes rows in order.
+     *
+     * @param rows The rows to write.
+     * @throws IOException If a row cannot be written.
+     */
+    default void write(List<SentimentRow> rows) throws IOException {
+        for (SentimentRow row : rows) {
+            write(row);
+        }
+    }
+
+    /**
+     * Finishes the output. Nothing written is guaranteed to be readable before this returns.
+     *
+     * @throws IOException If the output cannot be completed.
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * Opens a sink for a path, choosing the format by its extension: files ending in
+     * {@link ColumnarResultSink#EXTENSION} are written in the columnar binary format and
+     * anything else as CSV.
+     *
+     * @param path The path of the file to write.
+     * @return A new sink writing to the path.
+     * @throws IOException If the file cannot be created.
+     */
+    static ResultSink open(Path path) throws IOException {
+        if (path.getFileName().toString().endsWith(ColumnarResultSink.EXTENSION)) {
+            return new ColumnarResultSink(path);
+        }
+        return new CsvResultSink(path);
+    }
+}
@@ -0,0 +1,119 @@
+package org.example;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Counts the rows of each polarity and of each score in a sentiment results file, built up one
+ * row at a time so the rows are never held together.
+ */
+public class ResultSummary {
+
+    private final Map<String, Long> polarityCounts = new LinkedHashMap<>();
+    private final SortedMap<Integer, Long> scoreHistogram = new TreeMap<>();
+    private long rows;
+    private long scoreSum;
+
+    /**
+     * Summarizes a results file in either format, reading it as a stream.
+     *
+     * @param path The path of a CSV or columnar results file.
+     * @return The summary of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    public static ResultSummary of(Path path) throws IOException {
+        if (path.getFileName().toString().endsWith(ColumnarResultSink.EXTENSION)) {
+            try (ColumnarResultReader reader = ColumnarResultReader.open(path)) {
+                return reader.summarize();
+            }
+        }
+        ResultSummary summary = new ResultSummary();
+        try (CSVReader reader = new CSVReader(new FileReader(path.toFile()))) {
+            // Skip the headings
+            String[] row = reader.readNext();
+            while ((row = reader.readNext()) != null) {
+                summary.addScore(Integer.parseInt(row[3]));
+                summary.addPolarity(row[4], 1);
+            }
+        } catch (CsvValidationException | RuntimeException e) {
+            throw new IOException("Error reading CSV: " + e.getMessage(), e);
+        }
+        return summary;
+    }
+
+    /**
+     * Counts rows of a polarity.
+     *
+     * @param polarity The polarity label.
+     * @param count    The number of rows with that polarity.
+     */
+    public void addPolarity(String polarity, long count) {
+        polarityCounts.merge(polarity, count, Long::sum);
+    }
+
+    /**
+     * Counts one row with a score.
+     *
+     * @param score The score of the row.
+     */
+    public void addScore(int score) {
+        scoreHistogram.merge(score, 1L, Long::sum);
+        scoreSum += score;
+        rows++;
+    }
+
+    /**
+     * Retrieves the number of rows summarized.
+     *
+     * @return The number of rows.
+     */
+    public long getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Retrieves the number of rows of each polarity.
+     *
+     * @return The counts by polarity label, in the order the labels were first seen.
+     */
+    public Map<String, Long> getPolarityCounts() {
+        return Collections.unmodifiableMap(polarityCounts);
+    }
+
+    /**
+     * Retrieves the number of rows with each score.
+     *
+     * @return The counts by score, in ascending score order.
+     */
+    public SortedMap<Integer, Long> getScoreHistogram() {
+        return Collections.unmodifiableSortedMap(scoreHistogram);
+    }
+
+    /**
+     * Retrieves the mean score.
+     *
+     * @return The mean score, or 0 if there are no rows.
+     */
+    public double getMeanScore() {
+        return rows == 0 ? 0 : (double) scoreSum / rows;
+    }
+
+    /**
+     * Prints the summary on console.
+     */
+    public void print() {
+        System.out.println("Total rows: " + rows);
+        polarityCounts.forEach((polarity, count) -> System.out.println(polarity + ": " + count));
+        System.out.printf("Mean score: %.3f%n", getMeanScore());
+        System.out.println("Rows by score (score=rows): " + scoreHistogram);
+    }
+}
@@ -0,0 +1,321 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the sentiment of titles, so repeated headlines such as recurring market summaries are
+ * tokenized and scored once. Entries are keyed by a 64-bit hash of the title with whitespace runs
+ * collapsed, mixed with a version of the lexicon and tokenizer that scored it, so results are
+ * never reused once either changes.
+ *
+ * <p>The cache is split into segments with a lock each, so parallel scorers rarely wait on one
+ * another. The segments share one bound on the number of entries: a title added once the cache is
+ * full evicts the least recently used entry of its own segment. The bound is therefore approximate;
+ * a segment never evicts the title just added, so the cache may hold up to one entry per segment
+ * more, and the eviction order is least recently used within each segment rather than overall. It
+ * can be saved to a file and loaded by the next run; a file saved under another version is discarded.
+ */
+public class ScoreCache {
+
+    static final int MAGIC = 0x53434348;
+    static final int VERSION = 1;
+
+    private static final int SEGMENTS = 16;
+
+    private static final Metrics.Counter HITS =
+            Metrics.counter("sentiment_cache_hits_total", "Titles whose sentiment was served from the cache");
+    private static final Metrics.Counter MISSES =
+            Metrics.counter("sentiment_cache_misses_total", "Titles scored because the cache did not hold them");
+
+    private final long version;
+    private final int maxEntries;
+    private final AtomicInteger entryCount = new AtomicInteger();
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs an empty ScoreCache.
+     *
+     * @param maxEntries The number of titles held, approximately.
+     * @param version    The version of the lexicon and tokenizer, from {@link BOWSentiment#cacheVersion(SentimentLexicon)}.
+     */
+    public ScoreCache(int maxEntries, long version) {
+        this.version = version;
+        this.maxEntries = maxEntries;
+        // Fewer segments for a small cache, as each may hold one entry over the bound
+        this.segments = new Segment[Integer.highestOneBit(Math.max(1, Math.min(SEGMENTS, maxEntries)))];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Loads a cache saved by {@link #save(Path)}, or starts an empty one if the file does not exist
+     * or was saved under another version.
+     *
+     * @param file       The path of the cache file.
+     * @param maxEntries The number of titles held, approximately.
+     * @param version    The version of the lexicon and tokenizer.
+     * @return The cache.
+     * @throws IOException If the file exists but cannot be read.
+     */
+    public static ScoreCache load(Path file, int maxEntries, long version) throws IOException {
+        ScoreCache cache = new ScoreCache(maxEntries, version);
+        if (!Files.exists(file)) {
+            return cache;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a score cache file: " + file);
+            }
+            if (in.readLong() != version) {
+                System.out.println("Discarding score cache " + file + ": the lexicon or tokenizer has changed");
+                return cache;
+            }
+            int entries = in.readInt();
+            for (int i = 0; i < entries; i++) {
+                long key = in.readLong();
+                int score = in.readInt();
+                int words = in.readUnsignedShort();
+                List<String> matchedWords = new ArrayList<>(words);
+                for (int w = 0; w < words; w++) {
+                    matchedWords.add(in.readUTF());
+                }
+                cache.segment(key).put(key, new SentimentAnalysisResult(null,
+                        Collections.unmodifiableList(matchedWords), score));
+            }
+        }
+        System.out.println("Loaded " + cache.size() + " cached title scores from " + file);
+        return cache;
+    }
+
+    /**
+     * Computes the key of a title. Runs of whitespace count as one space and leading and trailing
+     * whitespace is ignored, as neither changes the words of a title.
+     *
+     * @param title   The title.
+     * @param version The version of the lexicon and tokenizer.
+     * @return The 64-bit key.
+     */
+    public static long key(CharSequence title, long version) {
+        int start = 0;
+        int end = title.length();
+        while (start < end && isWhitespace(title.charAt(start))) {
+            start++;
+        }
+        while (end > start && isWhitespace(title.charAt(end - 1))) {
+            end--;
+        }
+        // 64-bit FNV-1a over the normalized characters, seeded with the version
+        long h = 0xCBF29CE484222325L ^ version;
+        boolean space = false;
+        for (int i = start; i < end; i++) {
+            char c = title.charAt(i);
+            if (isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space) {
+                h = (h ^ ' ') * 0x100000001B3L;
+                space = false;
+            }
+            h = (h ^ c) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Retrieves the version of the lexicon and tokenizer whose results the cache holds.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Looks up the cached sentiment of a title.
+     *
+     * @param key The key of the title, from {@link #key(CharSequence, long)}.
+     * @return The cached result without its document, or null if the title is not cached.
+     */
+    public SentimentAnalysisResult get(long key) {
+        SentimentAnalysisResult result = segment(key).get(key);
+        if (result == null) {
+            misses.increment();
+            MISSES.increment();
+        } else {
+            hits.increment();
+            HITS.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Caches the sentiment of a title. Only the matched words and score are kept.
+     *
+     * @param key    The key of the title, from {@link #key(CharSequence, long)}.
+     * @param result The result of scoring the title.
+     */
+    public void put(long key, SentimentAnalysisResult result) {
+        segment(key).put(key, new SentimentAnalysisResult(null,
+                Collections.unmodifiableList(new ArrayList<>(result.getMatchedWords())), result.getSentimentScore()));
+    }
+
+    /**
+     * Saves the cache, least recently used entries first, so loading it keeps their order. The file
+     * is written under a temporary name and then moved into place.
+     *
+     * @param file The path of the cache file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        List<Map.Entry<Long, SentimentAnalysisResult>> entries = new ArrayList<>();
+        for (Segment segment : segments) {
+            segment.copyEntries(entries);
+        }
+        AtomicFiles.writeStream(file, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(version);
+            out.writeInt(entries.size());
+            for (Map.Entry<Long, SentimentAnalysisResult> entry : entries) {
+                List<String> matchedWords = entry.getValue().getMatchedWords();
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue().getSentimentScore());
+                out.writeShort(matchedWords.size());
+                for (String word : matchedWords) {
+                    out.writeUTF(word);
+                }
+            }
+        });
+    }
+
+    /**
+     * Retrieves the number of titles cached.
+     *
+     * @return The number of entries.
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Retrieves the number of lookups served from the cache.
+     *
+     * @return The number of hits.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Retrieves the number of lookups the cache could not serve.
+     *
+     * @return The number of misses.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Retrieves the number of entries evicted to make room for newer ones.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Retrieves the share of lookups served from the cache.
+     *
+     * @return The hit rate between 0 and 1, or 0 if there were no lookups.
+     */
+    public double getHitRate() {
+        long lookups = getHitCount() + getMissCount();
+        return lookups == 0 ? 0 : (double) getHitCount() / lookups;
+    }
+
+    /**
+     * Prints the hit and miss statistics on console.
+     */
+    public void printStats() {
+        System.out.printf("Score cache: %d hits, %d misses (%.1f%% hit rate), %d evictions, %d entries%n",
+                getHitCount(), getMissCount(), 100 * getHitRate(), getEvictionCount(), size());
+    }
+
+    private Segment segment(long key) {
+        return segments[(int) (key >>> 60) & (segments.length - 1)];
+    }
+
+    /**
+     * Matches the characters of the regex class {@code \s}, which the tokenizer splits at in every mode.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * One lock's share of the entries, in least recently used order.
+     */
+    private class Segment {
+        private final Map<Long, SentimentAnalysisResult> entries;
+
+        Segment() {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                // Called once for every new key, after it is added, and not when an entry is replaced
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, SentimentAnalysisResult> eldest) {
+                    if (entryCount.incrementAndGet() > maxEntries && size() > 1) {
+                        entryCount.decrementAndGet();
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized SentimentAnalysisResult get(long key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(long key, SentimentAnalysisResult result) {
+            entries.put(key, result);
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized void copyEntries(List<Map.Entry<Long, SentimentAnalysisResult>> destination) {
+            for (Map.Entry<Long, SentimentAnalysisResult> entry : entries.entrySet()) {
+                destination.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+}
@@ -0,0 +1,480 @@
+package org.example;
+
+import org.bson.Document;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Pre-aggregates the sentiment of articles so grouped queries need not score anything again. Every
+ * article is summed into one cell per day for all articles, and into one cell per day for each of
+ * its topics and places. A query merges the cells in its date range by topic, by place or by day,
+ * week or month, which takes time in the number of cells rather than the number of articles.
+ *
+ * <p>Local stores are append-only, so the aggregates remember how many articles they cover and an
+ * update only scores the articles appended since. They can be saved to a file and loaded by later
+ * queries; a file built with another lexicon or tokenizer is refused.
+ */
+public class SentimentAggregates {
+
+    static final int MAGIC = 0x53414747;
+    static final int VERSION = 1;
+
+    /**
+     * The day of articles whose date is missing or cannot be read.
+     */
+    public static final int UNKNOWN_DAY = Integer.MIN_VALUE;
+    static final String UNKNOWN_LABEL = "unknown";
+
+    // Reuters dates look like "26-FEB-1987 15:01:01.79"; only the day is kept
+    private static final DateTimeFormatter REUTERS_DATE = new DateTimeFormatterBuilder()
+            .parseCaseInsensitive()
+            .appendPattern("d-MMM-yyyy")
+            .toFormatter(Locale.ENGLISH);
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM", Locale.ENGLISH);
+
+    private static final Metrics.Counter ARTICLES_AGGREGATED =
+            Metrics.counter("sentiment_articles_aggregated_total", "Articles summed into the sentiment aggregates");
+
+    /**
+     * The metadata an article is summed by.
+     */
+    public enum Dimension {
+        ALL, TOPIC, PLACE
+    }
+
+    /**
+     * How the results of a query are grouped.
+     */
+    public enum GroupBy {
+        TOPIC, PLACE, DAY, WEEK, MONTH
+    }
+
+    private final long version;
+    private final Map<Cell, SentimentSummary> cells = new HashMap<>();
+    private long articles;
+
+    /**
+     * Constructs empty SentimentAggregates.
+     *
+     * @param version The version of the lexicon and tokenizer, from {@link BOWSentiment#cacheVersion(SentimentLexicon)}.
+     */
+    public SentimentAggregates(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Loads aggregates saved by {@link #save(Path)}, or starts empty ones if the file does not exist.
+     *
+     * @param file    The path of the aggregates file.
+     * @param version The version of the lexicon and tokenizer the aggregates must have been built with.
+     * @return The aggregates.
+     * @throws IOException If the file cannot be read or was built with another lexicon or tokenizer.
+     */
+    public static SentimentAggregates load(Path file, long version) throws IOException {
+        SentimentAggregates aggregates = new SentimentAggregates(version);
+        if (!Files.exists(file)) {
+            return aggregates;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a sentiment aggregates file: " + file);
+            }
+            if (in.readLong() != version) {
+                throw new IOException("Sentiment aggregates " + file
+                        + " were built with another lexicon or tokenizer; delete the file to rebuild them");
+            }
+            aggregates.articles = in.readLong();
+            int cellCount = in.readInt();
+            for (int i = 0; i < cellCount; i++) {
+                Cell cell = new Cell(Dimension.values()[in.readUnsignedByte()], in.readUTF(), in.readInt());
+                SentimentSummary summary = new SentimentSummary();
+                summary.add(in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readDouble());
+                int words = in.readInt();
+                for (int w = 0; w < words; w++) {
+                    summary.addWord(in.readUTF(), in.readLong());
+                }
+                aggregates.cells.put(cell, summary);
+            }
+        }
+        return aggregates;
+    }
+
+    /**
+     * Parses the date of a Reuters article.
+     *
+     * @param date The date as written in the DATE tag, such as "26-FEB-1987 15:01:01.79".
+     * @return The day as a count of days since 1970-01-01, or {@link #UNKNOWN_DAY} if it cannot be read.
+     */
+    public static int parseDay(String date) {
+        if (date == null) {
+            return UNKNOWN_DAY;
+        }
+        String trimmed = date.trim();
+        int space = trimmed.indexOf(' ');
+        try {
+            return (int) LocalDate.parse(space < 0 ? trimmed : trimmed.substring(0, space), REUTERS_DATE).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return UNKNOWN_DAY;
+        }
+    }
+
+    /**
+     * Reads a list of topics or places from an article. MongoDB returns them as a list, while a
+     * local store holds the text of the list, such as "[usa, uk]".
+     *
+     * @param value The value of the field, or null if the article has none.
+     * @return The values in the list.
+     */
+    public static List<String> parseList(Object value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        if (value instanceof Collection) {
+            List<String> values = new ArrayList<>();
+            for (Object element : (Collection<?>) value) {
+                values.add(String.valueOf(element));
+            }
+            return values;
+        }
+        String text = value.toString().trim();
+        if (text.startsWith("[") && text.endsWith("]")) {
+            text = text.substring(1, text.length() - 1);
+        }
+        List<String> values = new ArrayList<>();
+        for (String element : text.split(",")) {
+            if (!element.isBlank()) {
+                values.add(element.trim());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Retrieves the version of the lexicon and tokenizer the aggregates were built with.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Retrieves the number of articles summed so far.
+     *
+     * @return The number of articles.
+     */
+    public synchronized long getArticleCount() {
+        return articles;
+    }
+
+    /**
+     * Retrieves the number of cells, one per day and per topic, place or all articles.
+     *
+     * @return The number of cells.
+     */
+    public synchronized int getCellCount() {
+        return cells.size();
+    }
+
+    /**
+     * Sums one scored article.
+     *
+     * @param article      The article, holding at least its "date", "topics" and "places" fields if it has them.
+     * @param score        The score of the article.
+     * @param matchedWords The opinion words matched in the article.
+     */
+    public synchronized void add(Document article, double score, Collection<String> matchedWords) {
+        int day = parseDay(article.getString("date"));
+        cell(Dimension.ALL, "", day).add(score, matchedWords);
+        for (String topic : parseList(article.get("topics"))) {
+            cell(Dimension.TOPIC, topic, day).add(score, matchedWords);
+        }
+        for (String place : parseList(article.get("places"))) {
+            cell(Dimension.PLACE, place, day).add(score, matchedWords);
+        }
+        articles++;
+        ARTICLES_AGGREGATED.increment();
+    }
+
+    /**
+     * Scores the titles of the articles appended to a store since the aggregates were last
+     * updated, and sums them in. If the store holds fewer articles than the aggregates cover, it
+     * was rebuilt and the aggregates start over.
+     *
+     * @param store   The store holding the articles, in append order.
+     * @param bow     The scorer used for titles.
+     * @param lexicon The lexicon giving the polarity of opinion words.
+     * @return The number of articles added.
+     * @throws IOException If the store cannot be read.
+     */
+    public long update(ArticleStore store, BOWSentiment bow, SentimentLexicon lexicon) throws IOException {
+        long covered = getArticleCount();
+        if (store.count() < covered) {
+            System.out.println("The article store holds fewer articles than the aggregates cover; rebuilding them");
+            clear();
+            covered = 0;
+        }
+        long added = 0;
+        try (ArticleCursor cursor = store.scan("title", "date", "topics", "places")) {
+            for (long skipped = 0; skipped < covered && cursor.hasNext(); skipped++) {
+                cursor.next();
+            }
+            while (cursor.hasNext()) {
+                Document article = cursor.next();
+                String title = article.getString("title");
+                SentimentAnalysisResult result = bow.countSentiment(title == null ? "" : title, lexicon);
+                add(article, result.getSentimentScore(), result.getMatchedWords());
+                added++;
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Error aggregating articles: " + e.getMessage(), e);
+        }
+        return added;
+    }
+
+    /**
+     * Adds the cells of other aggregates, such as those built from a batch of new articles.
+     *
+     * @param other The aggregates to add.
+     */
+    public synchronized void merge(SentimentAggregates other) {
+        synchronized (other) {
+            other.cells.forEach((cell, summary) -> cell(cell.dimension, cell.value, cell.day).merge(summary));
+            articles += other.articles;
+        }
+    }
+
+    /**
+     * Passes every cell to a consumer, such as a writer storing them elsewhere.
+     *
+     * @param consumer The consumer of the cells.
+     */
+    public synchronized void forEachCell(CellConsumer consumer) {
+        cells.forEach((cell, summary) -> consumer.accept(cell.dimension, cell.value, cell.day, summary));
+    }
+
+    /**
+     * Merges the cells in a date range into groups. Topic and place groups are ordered by
+     * descending number of articles, and day, week and month groups by ascending date. Articles
+     * without a topic or place are in no topic or place group; those without a readable date are
+     * in an "unknown" group when no range is given.
+     *
+     * @param groupBy How the results are grouped.
+     * @param from    The first day included, or null for no lower bound.
+     * @param to      The last day included, or null for no upper bound.
+     * @return The summary of each group, in order.
+     */
+    public synchronized Map<String, SentimentSummary> query(GroupBy groupBy, LocalDate from, LocalDate to) {
+        Dimension dimension = dimension(groupBy);
+        Map<String, SentimentSummary> groups = new HashMap<>();
+        cells.forEach((cell, summary) -> {
+            if (cell.dimension == dimension && inRange(cell.day, from, to)) {
+                String label = dimension == Dimension.ALL ? bucket(groupBy, cell.day) : cell.value;
+                groups.computeIfAbsent(label, l -> new SentimentSummary()).merge(summary);
+            }
+        });
+        return sort(groupBy, groups);
+    }
+
+    /**
+     * Removes every cell.
+     */
+    public synchronized void clear() {
+        cells.clear();
+        articles = 0;
+    }
+
+    /**
+     * Saves the aggregates. The file is written under a temporary name and then moved into place.
+     *
+     * @param file The path of the aggregates file.
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized void save(Path file) throws IOException {
+        AtomicFiles.writeStream(file, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(version);
+            out.writeLong(articles);
+            out.writeInt(cells.size());
+            for (Map.Entry<Cell, SentimentSummary> entry : cells.entrySet()) {
+                Cell cell = entry.getKey();
+                SentimentSummary summary = entry.getValue();
+                out.writeByte(cell.dimension.ordinal());
+                out.writeUTF(cell.value);
+                out.writeInt(cell.day);
+                out.writeLong(summary.getArticleCount());
+                out.writeLong(summary.getPositiveCount());
+                out.writeLong(summary.getNegativeCount());
+                out.writeLong(summary.getNeutralCount());
+                out.writeDouble(summary.getScoreSum());
+                out.writeInt(summary.getWordCounts().size());
+                for (Map.Entry<String, Long> word : summary.getWordCounts().entrySet()) {
+                    out.writeUTF(word.getKey());
+                    out.writeLong(word.getValue());
+                }
+            }
+        });
+    }
+
+    /**
+     * Prints the groups of a query on console, one line each with the top matched words.
+     *
+     * @param groups   The groups returned by a query.
+     * @param topWords The number of matched words printed per group.
+     * @param words    The matched words considered, such as only the negative ones.
+     */
+    public static void print(Map<String, SentimentSummary> groups, int topWords,
+                             Predicate<String> words) {
+        System.out.printf("%-24s %9s %9s %9s %9s %10s  %s%n",
+                "Group", "Articles", "Positive", "Negative", "Neutral", "Mean score", "Top words");
+        groups.forEach((label, summary) -> {
+            StringBuilder top = new StringBuilder();
+            for (WordCount word : summary.topWords(topWords, words)) {
+                top.append(top.length() == 0 ? "" : ", ").append(word.getWord()).append('=').append(word.getCount());
+            }
+            System.out.printf("%-24s %9d %9d %9d %9d %10.3f  %s%n", label, summary.getArticleCount(),
+                    summary.getPositiveCount(), summary.getNegativeCount(), summary.getNeutralCount(),
+                    summary.getMeanScore(), top);
+        });
+    }
+
+    /**
+     * Finds the dimension whose cells a query merges.
+     *
+     * @param groupBy How the results are grouped.
+     * @return TOPIC or PLACE, or ALL for date groups.
+     */
+    static Dimension dimension(GroupBy groupBy) {
+        switch (groupBy) {
+            case TOPIC:
+                return Dimension.TOPIC;
+            case PLACE:
+                return Dimension.PLACE;
+            default:
+                return Dimension.ALL;
+        }
+    }
+
+    /**
+     * Labels the date group of a day: the ISO date of the day, of the Monday of its week or the
+     * year and month.
+     *
+     * @param groupBy How the results are grouped, by day, week or month.
+     * @param day     The day as a count of days since 1970-01-01.
+     * @return The label of the group.
+     */
+    static String bucket(GroupBy groupBy, int day) {
+        if (day == UNKNOWN_DAY) {
+            return UNKNOWN_LABEL;
+        }
+        LocalDate date = LocalDate.ofEpochDay(day);
+        switch (groupBy) {
+            case WEEK:
+                return date.with(DayOfWeek.MONDAY).toString();
+            case MONTH:
+                return date.format(MONTH);
+            default:
+                return date.toString();
+        }
+    }
+
+    /**
+     * Orders the groups of a query: by descending number of articles for topics and places, by
+     * date for the rest, with the unknown date last.
+     */
+    static Map<String, SentimentSummary> sort(GroupBy groupBy, Map<String, SentimentSummary> groups) {
+        Map<String, SentimentSummary> sorted = new LinkedHashMap<>();
+        if (groupBy == GroupBy.TOPIC || groupBy == GroupBy.PLACE) {
+            List<Map.Entry<String, SentimentSummary>> entries = new ArrayList<>(groups.entrySet());
+            entries.sort((a, b) -> a.getValue().getArticleCount() != b.getValue().getArticleCount()
+                    ? Long.compare(b.getValue().getArticleCount(), a.getValue().getArticleCount())
+                    : a.getKey().compareTo(b.getKey()));
+            entries.forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+            return sorted;
+        }
+        SentimentSummary unknown = groups.remove(UNKNOWN_LABEL);
+        sorted.putAll(new TreeMap<>(groups));
+        if (unknown != null) {
+            sorted.put(UNKNOWN_LABEL, unknown);
+        }
+        return sorted;
+    }
+
+    private static boolean inRange(int day, LocalDate from, LocalDate to) {
+        if (day == UNKNOWN_DAY) {
+            return from == null && to == null;
+        }
+        return (from == null || day >= from.toEpochDay()) && (to == null || day <= to.toEpochDay());
+    }
+
+    private SentimentSummary cell(Dimension dimension, String value, int day) {
+        return cells.computeIfAbsent(new Cell(dimension, value, day), c -> new SentimentSummary());
+    }
+
+    /**
+     * Receives the cells of SentimentAggregates.
+     */
+    public interface CellConsumer {
+        /**
+         * Receives one cell.
+         *
+         * @param dimension The metadata the cell sums articles by.
+         * @param value     The topic or place, or "" for all articles.
+         * @param day       The day as a count of days since 1970-01-01, or {@link #UNKNOWN_DAY}.
+         * @param summary   The sentiment of the articles in the cell.
+         */
+        void accept(Dimension dimension, String value, int day, SentimentSummary summary);
+    }
+
+    /**
+     * The key of a cell: all articles, or those of one topic or place, on one day.
+     */
+    private static class Cell {
+        private final Dimension dimension;
+        private final String value;
+        private final int day;
+
+        Cell(Dimension dimension, String value, int day) {
+            this.dimension = dimension;
+            this.value = value;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Cell)) {
+                return false;
+            }
+            Cell other = (Cell) o;
+            return dimension == other.dimension && day == other.day && value.equals(other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dimension, value, day);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package org.example;
+
+import com.mongodb.client.*;
+import org.bson.Document;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Scores the sentiment of stored articles, or queries the stored sentiment summaries.
+ */
+public class SentimentJob {
+    // -Dsentiment.output=sentiments.cols writes the compact columnar format instead of CSV
+    private static final String OUTPUT = System.getProperty("sentiment.output", "sentiments.csv");
+    // -Dsentiment.cache=<file> keeps the score cache between runs
+    private static final String CACHE_PATH = System.getProperty("sentiment.cache");
+    // -Dsentiment.query=topic|place|day|week|month prints the stored sentiment summaries grouped that way
+    private static final String QUERY = System.getProperty("sentiment.query");
+
+    public static void main(String[] args) throws IOException {
+        Metrics.start();
+
+        // -Dsentiment.stem=true matches inflected forms; -Dsentiment.ngrams=2 or 3 scores negations like "not good"
+        Tokenizer tokenizer = new Tokenizer().ngrams(Integer.getInteger("sentiment.ngrams", 1));
+        if (Boolean.getBoolean("sentiment.stem")) {
+            tokenizer.stem();
+        }
+        BOWSentiment bow = new BOWSentiment(tokenizer);
+        // -Dsentiment.lexicon=<dir> reads positive-words.txt and negative-words.txt from another directory
+        String lexiconDir = System.getProperty("sentiment.lexicon", "opinion-lexicon-English");
+        SentimentLexicon lexicon = SentimentLexicon.load(lexiconDir + "/positive-words.txt",
+                lexiconDir + "/negative-words.txt", tokenizer);
+        ScoreCache cache = openCache(bow, lexicon);
+
+        if ("local".equals(System.getProperty("store"))) {
+            if ("aggregate".equals(System.getProperty("sentiment.mode")) || QUERY != null) {
+                aggregateLocal(bow, lexicon);
+                closeCache(cache);
+                return;
+            }
+            // Score titles from the local article store written by the ingest job, without MongoDB
+            try (ArticleStore store = LocalArticleStore.open(Paths.get(System.getProperty("store.path", "articles")))) {
+                scoreTitles(bow, lexicon, store);
+            }
+            closeCache(cache);
+            display(bow);
+            return;
+        }
+
+        MongoClient connection = MongoClients.create(MongoArticleStore.connectionString());
+
+        MongoDatabase db = connection.getDatabase("ReuterDb");
+        System.out.println("Connected Successfully");
+
+        MongoCollection<Document> collection = db.getCollection("news_articles");
+        System.out.println("Collection Retrieved Successfully");
+
+        MongoSentimentAggregates summaries = new MongoSentimentAggregates(db.getCollection("sentiment_summaries"));
+        if (QUERY != null) {
+            printQuery(bow, lexicon, summaries.query(groupBy(), date("sentiment.from"), date("sentiment.to")));
+            return;
+        }
+
+        if ("incremental".equals(System.getProperty("sentiment.mode"))) {
+            // Score title and body of articles added since the last run and store the result on each article
+            IncrementalSentimentScorer incremental = new IncrementalSentimentScorer(bow, lexicon,
+                    Double.parseDouble(System.getProperty("sentiment.titleWeight", "1.0")),
+                    Double.parseDouble(System.getProperty("sentiment.bodyWeight", "0.5")),
+                    Integer.getInteger("sentiment.batchSize", 1000));
+            if (Boolean.getBoolean("sentiment.summaries")) {
+                // Also sum each article's title and body sentiment into sentiment_summaries for -Dsentiment.query
+                summaries.createIndex();
+                incremental.aggregates(summaries);
+            }
+            incremental.run(collection, db.getCollection("scoring_state"));
+            closeCache(cache);
+            return;
+        }
+
+        // -Dsentiment.partitions=N reads N _id ranges of the collection at once, to overlap round trips
+        ArticleStore store = new MongoArticleStore(collection, null, Integer.getInteger("sentiment.batchSize", 1000),
+                Integer.getInteger("sentiment.partitions", 1));
+        scoreTitles(bow, lexicon, store);
+        closeCache(cache);
+        display(bow);
+    }
+
+    // -Dsentiment.mode=aggregate sums the titles added to the local store since the last run into the
+    // summaries file under -Dsentiment.aggregates, which -Dsentiment.query then reads without scoring anything
+    private static void aggregateLocal(BOWSentiment bow, SentimentLexicon lexicon) throws IOException {
+        Path file = Paths.get(System.getProperty("sentiment.aggregates", "sentiment-aggregates.bin"));
+        SentimentAggregates aggregates = SentimentAggregates.load(file, bow.cacheVersion(lexicon));
+        if ("aggregate".equals(System.getProperty("sentiment.mode"))) {
+            try (ArticleStore store = LocalArticleStore.open(Paths.get(System.getProperty("store.path", "articles")))) {
+                long added = aggregates.update(store, bow, lexicon);
+                System.out.println("Aggregated " + added + " new articles into " + aggregates.getCellCount() + " cells");
+            }
+            aggregates.save(file);
+        }
+        if (QUERY != null) {
+            printQuery(bow, lexicon, aggregates.query(groupBy(), date("sentiment.from"), date("sentiment.to")));
+        }
+    }
+
+    // -Dsentiment.from and -Dsentiment.to bound the query to ISO dates; -Dsentiment.words=positive|negative
+    // only lists matched words of that polarity, -Dsentiment.topWords of them per group
+    private static void printQuery(BOWSentiment bow, SentimentLexicon lexicon, Map<String, SentimentSummary> groups) {
+        String polarity = System.getProperty("sentiment.words", "all");
+        Predicate<String> words = word -> true;
+        if ("positive".equals(polarity)) {
+            words = word -> bow.wordWeight(word, lexicon) > 0;
+        } else if ("negative".equals(polarity)) {
+            words = word -> bow.wordWeight(word, lexicon) < 0;
+        }
+        SentimentAggregates.print(groups, Integer.getInteger("sentiment.topWords", 5), words);
+    }
+
+    private static SentimentAggregates.GroupBy groupBy() {
+        return SentimentAggregates.GroupBy.valueOf(QUERY.toUpperCase(Locale.ROOT));
+    }
+
+    private static LocalDate date(String property) {
+        String value = System.getProperty(property);
+        return value == null ? null : LocalDate.parse(value);
+    }
+
+    // -Dsentiment.cacheSize=N serves repeated titles from a cache of up to N titles; 100000 when -Dsentiment.cache is set
+    private static ScoreCache openCache(BOWSentiment bow, SentimentLexicon lexicon) throws IOException {
+        int cacheSize = Integer.getInteger("sentiment.cacheSize", CACHE_PATH == null ? 0 : 100000);
+        if (cacheSize <= 0) {
+            return null;
+        }
+        long version = bow.cacheVersion(lexicon);
+        ScoreCache cache = CACHE_PATH == null
+                ? new ScoreCache(cacheSize, version)
+                : ScoreCache.load(Paths.get(CACHE_PATH), cacheSize, version);
+        bow.cache(cache);
+        return cache;
+    }
+
+    private static void closeCache(ScoreCache cache) throws IOException {
+        if (cache == null) {
+            return;
+        }
+        cache.printStats();
+        if (CACHE_PATH != null) {
+            cache.save(Paths.get(CACHE_PATH));
+        }
+    }
+
+    private static void scoreTitles(BOWSentiment bow, SentimentLexicon lexicon, ArticleStore store) throws IOException {
+        String indexPath = System.getProperty("sentiment.index");
+        if (indexPath != null && bow.getTokenizer().getMaxNgram() > 1) {
+            // The index holds single words only, so negations can only be found by tokenizing the titles
+            System.out.println("Ignoring sentiment.index: n-grams are not indexed");
+            indexPath = null;
+        }
+        if (indexPath != null) {
+            // Join the lexicon against the title index built at ingest instead of tokenizing every title;
+            // build the index with -Dingest.stem=true when scoring with -Dsentiment.stem=true
+            InvertedIndex index = InvertedIndex.open(Paths.get(indexPath));
+            new IndexedSentimentScorer(index, lexicon).score(store, OUTPUT);
+        } else if (Boolean.getBoolean("sentiment.inMemory")) {
+            // Read the titles once into off-heap memory and score from there, so the cursor is released
+            // early and the heap only holds the rows being written
+            CompactCorpus corpus = store.load("title");
+            System.out.println("Loaded " + corpus.size() + " titles, " + corpus.getUsedBytes() + " bytes off-heap");
+            streamingScorer(bow, lexicon).score(corpus, OUTPUT);
+        } else {
+            streamingScorer(bow, lexicon).score(store, OUTPUT);
+        }
+    }
+
+    // A columnar file is summarized from its score and polarity columns rather than printed row by row;
+    // -Dsentiment.display=false prints nothing, as printing every row takes longer than scoring a small batch
+    private static void display(BOWSentiment bow) throws IOException {
+        if ("false".equals(System.getProperty("sentiment.display"))) {
+            return;
+        }
+        if (OUTPUT.endsWith(ColumnarResultSink.EXTENSION)) {
+            ResultSummary.of(Paths.get(OUTPUT)).print();
+        } else {
+            bow.readDisplayCSV(OUTPUT);
+        }
+    }
+
+    // Titles are streamed from the cursor and scored in parallel batches; tunable with -Dsentiment.*
+    private static StreamingSentimentScorer streamingScorer(BOWSentiment bow, SentimentLexicon lexicon) {
+        return new StreamingSentimentScorer(bow, lexicon,
+                Integer.getInteger("sentiment.batchSize", 1000),
+                Integer.getInteger("sentiment.parallelism", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("sentiment.maxInFlight", 2 * Runtime.getRuntime().availableProcessors()),
+                !"false".equals(System.getProperty("sentiment.ordered")));
+    }
+}
\ No newline at end of file
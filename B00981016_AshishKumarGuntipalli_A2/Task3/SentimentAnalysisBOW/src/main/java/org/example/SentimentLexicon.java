@@ -0,0 +1,222 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps opinion words to a signed weight: +1 for positive words and -1 for negative words.
+ * Words are kept in a single open-addressing table, so a lookup is one hash probe with no boxing
+ * instead of a scan over the word lists.
+ */
+public class SentimentLexicon {
+
+    /**
+     * Receives the words and weights of a SentimentLexicon.
+     */
+    public interface WordConsumer {
+        /**
+         * Accepts one word.
+         *
+         * @param word   The word.
+         * @param weight The weight of the word.
+         */
+        void accept(String word, int weight);
+    }
+
+    private String[] words;
+    private int[] hashes;
+    private byte[] weights;
+    private int mask;
+    private int size;
+    private long version;
+
+    /**
+     * Constructs an empty SentimentLexicon sized for the given number of words.
+     *
+     * @param expectedWords The number of words expected.
+     */
+    public SentimentLexicon(int expectedWords) {
+        allocate(Integer.highestOneBit(Math.max(8, expectedWords * 2) - 1) << 1);
+    }
+
+    /**
+     * Loads a lexicon from opinion-lexicon files with one word per line. Blank lines and comment
+     * lines starting with ';' are skipped. A word listed in both files is treated as positive.
+     *
+     * @param positivePath The path to the file of positive words.
+     * @param negativePath The path to the file of negative words.
+     * @return The loaded lexicon.
+     * @throws IOException If either file cannot be read.
+     */
+    public static SentimentLexicon load(String positivePath, String negativePath) throws IOException {
+        return load(positivePath, negativePath, null);
+    }
+
+    /**
+     * Loads a lexicon whose words are normalized by a tokenizer, so they match the bags of words
+     * it builds, e.g. "gains" and "gain" become the same entry when stemming. Words whose stems
+     * collide keep the polarity of the first, with positive words added first.
+     *
+     * @param positivePath The path to the file of positive words.
+     * @param negativePath The path to the file of negative words.
+     * @param tokenizer    The tokenizer normalizing each word, or null to keep the words as listed.
+     * @return The loaded lexicon.
+     * @throws IOException If either file cannot be read.
+     */
+    public static SentimentLexicon load(String positivePath, String negativePath, Tokenizer tokenizer)
+            throws IOException {
+        SentimentLexicon lexicon = new SentimentLexicon(8192);
+        lexicon.addAll(positivePath, 1, tokenizer);
+        lexicon.addAll(negativePath, -1, tokenizer);
+        return lexicon;
+    }
+
+    /**
+     * Adds a word with the given weight unless it is already present.
+     *
+     * @param word   The word to add.
+     * @param weight The weight of the word.
+     */
+    public void add(String word, int weight) {
+        int hash = mix(word.hashCode());
+        int slot = hash & mask;
+        while (words[slot] != null) {
+            if (hashes[slot] == hash && words[slot].equals(word)) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        words[slot] = word;
+        hashes[slot] = hash;
+        weights[slot] = (byte) weight;
+        version += fingerprint(word, weight);
+        if (++size > words.length / 2) {
+            resize();
+        }
+    }
+
+    /**
+     * Retrieves the weight of a word.
+     *
+     * @param word The word to look up.
+     * @return The weight of the word, or 0 if it is not an opinion word.
+     */
+    public int weight(String word) {
+        int hash = mix(word.hashCode());
+        int slot = hash & mask;
+        String key;
+        while ((key = words[slot]) != null) {
+            if (hashes[slot] == hash && key.equals(word)) {
+                return weights[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Passes every word and its weight to a consumer, in no particular order.
+     *
+     * @param consumer The consumer receiving the words.
+     */
+    public void forEach(WordConsumer consumer) {
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] != null) {
+                consumer.accept(words[i], weights[i]);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the words with the given weight, such as every negative word.
+     *
+     * @param weight The weight of the words to retrieve.
+     * @return The list of words.
+     */
+    public List<String> words(int weight) {
+        List<String> result = new ArrayList<>();
+        forEach((word, w) -> {
+            if (w == weight) {
+                result.add(word);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Retrieves the number of words in the lexicon.
+     *
+     * @return The number of words.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves a version computed from the words and weights, which changes whenever the lexicon
+     * files change, so results cached for an older lexicon are not reused.
+     *
+     * @return A 64-bit version that does not depend on the order the words were added in.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    private void addAll(String filePath, int weight, Tokenizer tokenizer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.ISO_8859_1)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && line.charAt(0) != ';') {
+                    add(tokenizer == null ? line : tokenizer.normalize(line), weight);
+                }
+            }
+        }
+    }
+
+    private void resize() {
+        String[] oldWords = words;
+        int[] oldHashes = hashes;
+        byte[] oldWeights = weights;
+        allocate(words.length * 2);
+        for (int i = 0; i < oldWords.length; i++) {
+            if (oldWords[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (words[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                words[slot] = oldWords[i];
+                hashes[slot] = oldHashes[i];
+                weights[slot] = oldWeights[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        words = new String[capacity];
+        hashes = new int[capacity];
+        weights = new byte[capacity];
+        mask = capacity - 1;
+    }
+
+    // 64-bit FNV-1a of the word and its weight, then spread, so summing entries rarely collides
+    private static long fingerprint(String word, int weight) {
+        long h = 0xCBF29CE484222325L ^ weight;
+        for (int i = 0; i < word.length(); i++) {
+            h = (h ^ word.charAt(i)) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,85 @@
+package org.example;
+
+/**
+ * One row of the sentiment results: an article title with the opinion words found in it, its
+ * score and polarity.
+ */
+public class SentimentRow {
+
+    private final long newsNo;
+    private final String title;
+    private final String matchedWords;
+    private final int score;
+    private final String polarity;
+
+    /**
+     * Constructs a SentimentRow.
+     *
+     * @param newsNo       The number of the article in the output.
+     * @param title        The title of the article.
+     * @param matchedWords The opinion words found in the title, separated by ", ".
+     * @param score        The sentiment score.
+     * @param polarity     The polarity label of the score.
+     */
+    public SentimentRow(long newsNo, String title, String matchedWords, int score, String polarity) {
+        this.newsNo = newsNo;
+        this.title = title;
+        this.matchedWords = matchedWords;
+        this.score = score;
+        this.polarity = polarity;
+    }
+
+    /**
+     * Retrieves the number of the article in the output.
+     *
+     * @return The News# of the row.
+     */
+    public long getNewsNo() {
+        return newsNo;
+    }
+
+    /**
+     * Retrieves the title of the article.
+     *
+     * @return The title.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Retrieves the opinion words found in the title.
+     *
+     * @return The matched words separated by ", ".
+     */
+    public String getMatchedWords() {
+        return matchedWords;
+    }
+
+    /**
+     * Retrieves the sentiment score.
+     *
+     * @return The score.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Retrieves the polarity label of the score.
+     *
+     * @return "Positive", "Negative" or "Neutral".
+     */
+    public String getPolarity() {
+        return polarity;
+    }
+
+    /**
+     * Formats the row as a row of the sentiments CSV file.
+     *
+     * @return The cells under {@link BOWSentiment#CSV_HEADINGS}.
+     */
+    public String[] toCsvRow() {
+        return new String[]{String.valueOf(newsNo), title, matchedWords, String.valueOf(score), polarity};
+    }
+}
@@ -0,0 +1,180 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Sums the sentiment of a group of articles: how many there are of each polarity, their total
+ * score and how many of them matched each opinion word. Summaries of disjoint groups merge into
+ * the summary of their union, so stored summaries can be combined at query time.
+ */
+public class SentimentSummary {
+
+    private long articles;
+    private long positive;
+    private long negative;
+    private long neutral;
+    private double scoreSum;
+    private final Map<String, Long> wordCounts = new HashMap<>();
+
+    /**
+     * Adds one scored article.
+     *
+     * @param score        The score of the article.
+     * @param matchedWords The opinion words matched in the article.
+     */
+    public void add(double score, Collection<String> matchedWords) {
+        articles++;
+        if (score > 0) {
+            positive++;
+        } else if (score < 0) {
+            negative++;
+        } else {
+            neutral++;
+        }
+        scoreSum += score;
+        for (String word : matchedWords) {
+            wordCounts.merge(word, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Adds the articles of another summary.
+     *
+     * @param other The summary to add.
+     */
+    public void merge(SentimentSummary other) {
+        add(other.articles, other.positive, other.negative, other.neutral, other.scoreSum);
+        other.wordCounts.forEach(this::addWord);
+    }
+
+    /**
+     * Adds counts read back from storage.
+     *
+     * @param articles The number of articles.
+     * @param positive The number of positive articles.
+     * @param negative The number of negative articles.
+     * @param neutral  The number of neutral articles.
+     * @param scoreSum The total score of the articles.
+     */
+    public void add(long articles, long positive, long negative, long neutral, double scoreSum) {
+        this.articles += articles;
+        this.positive += positive;
+        this.negative += negative;
+        this.neutral += neutral;
+        this.scoreSum += scoreSum;
+    }
+
+    /**
+     * Adds to the number of articles that matched a word.
+     *
+     * @param word  The matched word.
+     * @param count The number of articles.
+     */
+    public void addWord(String word, long count) {
+        wordCounts.merge(word, count, Long::sum);
+    }
+
+    /**
+     * Retrieves the number of articles.
+     *
+     * @return The number of articles.
+     */
+    public long getArticleCount() {
+        return articles;
+    }
+
+    /**
+     * Retrieves the number of positive articles.
+     *
+     * @return The number of articles with a score above 0.
+     */
+    public long getPositiveCount() {
+        return positive;
+    }
+
+    /**
+     * Retrieves the number of negative articles.
+     *
+     * @return The number of articles with a score below 0.
+     */
+    public long getNegativeCount() {
+        return negative;
+    }
+
+    /**
+     * Retrieves the number of neutral articles.
+     *
+     * @return The number of articles with a score of 0.
+     */
+    public long getNeutralCount() {
+        return neutral;
+    }
+
+    /**
+     * Retrieves the total score of the articles.
+     *
+     * @return The sum of the scores.
+     */
+    public double getScoreSum() {
+        return scoreSum;
+    }
+
+    /**
+     * Retrieves the mean score.
+     *
+     * @return The mean score, or 0 if there are no articles.
+     */
+    public double getMeanScore() {
+        return articles == 0 ? 0 : scoreSum / articles;
+    }
+
+    /**
+     * Retrieves the number of articles that matched each word.
+     *
+     * @return The counts by word.
+     */
+    public Map<String, Long> getWordCounts() {
+        return Collections.unmodifiableMap(wordCounts);
+    }
+
+    /**
+     * Retrieves the words matched by the most articles.
+     *
+     * @param k The number of words to return.
+     * @return Up to k words in descending order of count.
+     */
+    public List<WordCount> topWords(int k) {
+        return topWords(k, word -> true);
+    }
+
+    /**
+     * Retrieves the words matched by the most articles among those accepted by a filter, such as
+     * only the negative words.
+     *
+     * @param k      The number of words to return.
+     * @param filter The filter choosing the words considered.
+     * @return Up to k words in descending order of count.
+     */
+    public List<WordCount> topWords(int k, Predicate<String> filter) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : wordCounts.entrySet()) {
+            if (filter.test(entry.getKey())) {
+                entries.add(entry);
+            }
+        }
+        entries.sort((a, b) -> !a.getValue().equals(b.getValue())
+                ? Long.compare(b.getValue(), a.getValue())
+                : a.getKey().compareTo(b.getKey()));
+        List<WordCount> result = new ArrayList<>(Math.min(k, entries.size()));
+        for (int i = 0; i < Math.min(k, entries.size()); i++) {
+            result.add(new WordCount(entries.get(i).getKey(), entries.get(i).getValue()));
+        }
+        return result;
+    }
+}
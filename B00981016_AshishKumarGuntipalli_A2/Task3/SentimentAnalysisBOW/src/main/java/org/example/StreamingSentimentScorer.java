@@ -0,0 +1,230 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+/**
+ * Scores article titles straight from an article store cursor and streams the rows to a result
+ * sink, the sentiments CSV file or a columnar file. Titles are read in batches, each batch is
+ * scored on a work-stealing pool, and only a fixed number of batches is in flight at once, so
+ * memory stays flat regardless of collection size.
+ */
+public class StreamingSentimentScorer {
+
+    private static final Metrics.Timer RESULTS_WRITE =
+            Metrics.timer("results_write_seconds", "Time to write one batch of rows to the result sink");
+    private static final Metrics.Counter RESULTS_ROWS =
+            Metrics.counter("results_rows_written_total", "Rows written to the result sink");
+
+    private final BOWSentiment bow;
+    private final SentimentLexicon lexicon;
+    private final int batchSize;
+    private final int parallelism;
+    private final int maxInFlight;
+    private final boolean ordered;
+
+    /**
+     * Constructs a StreamingSentimentScorer.
+     *
+     * @param bow         The scorer used for each title.
+     * @param lexicon     The lexicon giving the polarity of opinion words.
+     * @param batchSize   The number of titles read and scored together.
+     * @param parallelism The number of threads scoring batches.
+     * @param maxInFlight The maximum number of batches read but not yet written.
+     * @param ordered     Whether rows must be written in News# order; otherwise batches are
+     *                    written as soon as they are scored.
+     */
+    public StreamingSentimentScorer(BOWSentiment bow, SentimentLexicon lexicon, int batchSize, int parallelism,
+                                    int maxInFlight, boolean ordered) {
+        this.bow = bow;
+        this.lexicon = lexicon;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.maxInFlight = maxInFlight;
+        this.ordered = ordered;
+    }
+
+    /**
+     * Scores every title in the store and writes the results to a file.
+     *
+     * @param store      The store of news articles.
+     * @param outputPath The path of the CSV or columnar file to write.
+     * @return The number of titles scored.
+     * @throws IOException If the articles cannot be read or the file cannot be written.
+     */
+    public long score(ArticleStore store, String outputPath) throws IOException {
+        try (ArticleCursor cursor = store.scan("title")) {
+            return score(new TitleIterator(cursor), outputPath);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error retrieving articles: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Scores every title from an iterator and writes the results to a file.
+     *
+     * @param titles     The titles to score, in News# order.
+     * @param outputPath The path of the CSV or columnar file to write.
+     * @return The number of titles scored.
+     * @throws IOException If the file cannot be written.
+     */
+    public long score(Iterator<String> titles, String outputPath) throws IOException {
+        return score(firstNewsNo -> {
+            if (!titles.hasNext()) {
+                return null;
+            }
+            List<String> batch = new ArrayList<>(batchSize);
+            while (batch.size() < batchSize && titles.hasNext()) {
+                batch.add(titles.next());
+            }
+            return new Batch(batch.size(), () -> scoreBatch(firstNewsNo, batch));
+        }, outputPath);
+    }
+
+    /**
+     * Scores the title of every article in an in-memory corpus and writes the results to a file.
+     * Batches are ranges of article indexes and each title is read through a view into the corpus,
+     * so titles are only copied to the heap for the rows being written.
+     *
+     * @param corpus     The corpus holding the titles, in News# order.
+     * @param outputPath The path of the CSV or columnar file to write.
+     * @return The number of titles scored.
+     * @throws IOException If the file cannot be written.
+     */
+    public long score(CompactCorpus corpus, String outputPath) throws IOException {
+        int field = corpus.fieldIndex("title");
+        int size = corpus.size();
+        return score(firstNewsNo -> {
+            int from = (int) firstNewsNo - 1;
+            if (from >= size) {
+                return null;
+            }
+            int to = Math.min(size, from + batchSize);
+            return new Batch(to - from, () -> scoreBatch(firstNewsNo, corpus, field, from, to));
+        }, outputPath);
+    }
+
+    private long score(LongFunction<Batch> batches, String outputPath) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        CompletionService<List<SentimentRow>> completed = new ExecutorCompletionService<>(pool);
+        Deque<Future<List<SentimentRow>>> pending = new ArrayDeque<>();
+        long newsNo = 0;
+
+        try (ResultSink writer = ResultSink.open(Paths.get(outputPath))) {
+            Batch batch;
+            while ((batch = batches.apply(newsNo + 1)) != null) {
+                newsNo += batch.size;
+                pending.add(ordered ? pool.submit(batch.task) : completed.submit(batch.task));
+
+                // Write whatever is ready, and wait once too many batches are outstanding
+                drain(writer, completed, pending, maxInFlight - 1);
+            }
+            drain(writer, completed, pending, 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scoring titles", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error scoring titles: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        System.out.println("Data written successfully to " + outputPath);
+        return newsNo;
+    }
+
+    private List<SentimentRow> scoreBatch(long firstNewsNo, List<String> titles) {
+        List<SentimentRow> rows = new ArrayList<>(titles.size());
+        for (int i = 0; i < titles.size(); i++) {
+            rows.add(bow.score(firstNewsNo + i, titles.get(i), lexicon));
+        }
+        return rows;
+    }
+
+    private List<SentimentRow> scoreBatch(long firstNewsNo, CompactCorpus corpus, int field, int from, int to) {
+        List<SentimentRow> rows = new ArrayList<>(to - from);
+        CompactCorpus.TextView view = new CompactCorpus.TextView();
+        for (int article = from; article < to; article++) {
+            CharSequence title = corpus.view(article, field, view) ? view : "";
+            rows.add(bow.score(firstNewsNo + article - from, title, lexicon));
+        }
+        return rows;
+    }
+
+    /**
+     * Writes finished batches until at most the given number of batches are still pending.
+     * Batches that are already done are always written, even below that limit.
+     */
+    private void drain(ResultSink writer, CompletionService<List<SentimentRow>> completed,
+                       Deque<Future<List<SentimentRow>>> pending, int keepPending)
+            throws InterruptedException, ExecutionException, IOException {
+        if (ordered) {
+            while (!pending.isEmpty() && (pending.size() > keepPending || pending.peekFirst().isDone())) {
+                writeRows(writer, pending.pollFirst().get());
+            }
+        } else {
+            Future<List<SentimentRow>> done;
+            while (!pending.isEmpty()) {
+                done = pending.size() > keepPending ? completed.take() : completed.poll();
+                if (done == null) {
+                    break;
+                }
+                pending.remove(done);
+                writeRows(writer, done.get());
+            }
+        }
+    }
+
+    private static void writeRows(ResultSink writer, List<SentimentRow> rows) throws IOException {
+        RESULTS_WRITE.time(() -> writer.write(rows));
+        RESULTS_ROWS.add(rows.size());
+    }
+
+    /**
+     * A batch of titles read for scoring: how many there are and the task that scores them.
+     */
+    private static class Batch {
+        private final int size;
+        private final Callable<List<SentimentRow>> task;
+
+        Batch(int size, Callable<List<SentimentRow>> task) {
+            this.size = size;
+            this.task = task;
+        }
+    }
+
+    /**
+     * Adapts a cursor over article documents to an iterator over their titles.
+     */
+    private static class TitleIterator implements Iterator<String> {
+        private final ArticleCursor cursor;
+
+        TitleIterator(ArticleCursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor.hasNext();
+        }
+
+        @Override
+        public String next() {
+            String title = cursor.next().getString("title");
+            return title == null ? "" : title;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Represents the combined sentiment of an article's title and body.
+ */
+public class WeightedSentiment {
+    private final SentimentAnalysisResult titleResult;
+    private final SentimentAnalysisResult bodyResult;
+    private final double score;
+
+    /**
+     * Constructs a WeightedSentiment object.
+     *
+     * @param titleResult The sentiment analysis result of the title.
+     * @param bodyResult  The sentiment analysis result of the body.
+     * @param titleWeight The weight given to the title score.
+     * @param bodyWeight  The weight given to the body score.
+     */
+    public WeightedSentiment(SentimentAnalysisResult titleResult, SentimentAnalysisResult bodyResult,
+                             double titleWeight, double bodyWeight) {
+        this.titleResult = titleResult;
+        this.bodyResult = bodyResult;
+        this.score = titleWeight * titleResult.getSentimentScore() + bodyWeight * bodyResult.getSentimentScore();
+    }
+
+    /**
+     * Retrieves the sentiment analysis result of the title.
+     *
+     * @return The title result.
+     */
+    public SentimentAnalysisResult getTitleResult() {
+        return titleResult;
+    }
+
+    /**
+     * Retrieves the sentiment analysis result of the body.
+     *
+     * @return The body result.
+     */
+    public SentimentAnalysisResult getBodyResult() {
+        return bodyResult;
+    }
+
+    /**
+     * Retrieves the weighted sum of the title and body scores.
+     *
+     * @return The combined score.
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Retrieves the polarity of the combined score.
+     *
+     * @return "Positive", "Negative" or "Neutral".
+     */
+    public String getPolarity() {
+        return BOWSentiment.polarity((int) Math.signum(score));
+    }
+
+    /**
+     * Retrieves the words matched in the title or the body, without duplicates.
+     *
+     * @return The list of matched words.
+     */
+    public List<String> getMatchedWords() {
+        Set<String> words = new LinkedHashSet<>(titleResult.getMatchedWords());
+        words.addAll(bodyResult.getMatchedWords());
+        return new ArrayList<>(words);
+    }
+}
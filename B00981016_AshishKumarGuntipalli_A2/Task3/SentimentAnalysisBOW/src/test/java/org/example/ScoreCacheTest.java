@@ -0,0 +1,120 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScoreCacheTest {
+
+    private static final long VERSION = 42;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keysIgnoreWhitespaceRunsButNotWordsOrVersion() {
+        long key = ScoreCache.key("Oil prices rose", VERSION);
+
+        assertEquals(key, ScoreCache.key(" \tOil  prices\r\nrose\f", VERSION));
+        assertEquals(key, ScoreCache.key(new StringBuilder("Oil prices rose"), VERSION));
+        assertNotEquals(key, ScoreCache.key("Oil pricesrose", VERSION));
+        assertNotEquals(key, ScoreCache.key("oil prices rose", VERSION));
+        assertNotEquals(key, ScoreCache.key("Oil prices rose", VERSION + 1));
+    }
+
+    @Test
+    void servesCachedScoresWithoutTheDocument() {
+        ScoreCache cache = new ScoreCache(100, VERSION);
+        long key = ScoreCache.key("Oil prices rose", VERSION);
+        List<String> words = new ArrayList<>(List.of("rose"));
+
+        assertNull(cache.get(key));
+        cache.put(key, new SentimentAnalysisResult("Oil prices rose", words, 1));
+        words.add("changed later");
+        SentimentAnalysisResult cached = cache.get(key);
+
+        assertNull(cached.getDocument());
+        assertEquals(List.of("rose"), cached.getMatchedWords());
+        assertEquals(1, cached.getSentimentScore());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        // Small keys all fall in the first segment
+        ScoreCache cache = new ScoreCache(2, VERSION);
+        cache.put(1, result(1));
+        cache.put(2, result(2));
+        cache.get(1);
+        cache.put(3, result(3));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get(2));
+        assertEquals(1, cache.get(1).getSentimentScore());
+        assertEquals(3, cache.get(3).getSentimentScore());
+    }
+
+    @Test
+    void staysNearItsBoundAcrossSegments() {
+        ScoreCache cache = new ScoreCache(100, VERSION);
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(random.nextLong(), result(i));
+        }
+
+        assertTrue(cache.size() >= 100 && cache.size() <= 116, "size " + cache.size());
+        assertEquals(1000, cache.size() + cache.getEvictionCount());
+    }
+
+    @Test
+    void loadsASavedCacheInItsUsageOrder() throws IOException {
+        Path file = directory.resolve("scores.cache");
+        ScoreCache cache = new ScoreCache(2, VERSION);
+        cache.put(1, new SentimentAnalysisResult(null, List.of("not good", "café"), -1));
+        cache.put(2, result(2));
+        cache.get(1);
+        cache.save(file);
+
+        ScoreCache loaded = ScoreCache.load(file, 2, VERSION);
+        assertEquals(2, loaded.size());
+        // The entry used least recently before saving is still the first evicted
+        loaded.put(3, result(3));
+        assertNull(loaded.get(2));
+        assertEquals(List.of("not good", "café"), loaded.get(1).getMatchedWords());
+        assertEquals(-1, loaded.get(1).getSentimentScore());
+    }
+
+    @Test
+    void discardsACacheSavedUnderAnotherVersion() throws IOException {
+        Path file = directory.resolve("scores.cache");
+        assertEquals(0, ScoreCache.load(file, 10, VERSION).size());
+
+        ScoreCache cache = new ScoreCache(10, VERSION);
+        cache.put(1, result(1));
+        cache.save(file);
+        assertEquals(0, ScoreCache.load(file, 10, VERSION + 1).size());
+        assertEquals(VERSION + 1, ScoreCache.load(file, 10, VERSION + 1).getVersion());
+
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class, () -> ScoreCache.load(file, 10, VERSION));
+    }
+
+    private static SentimentAnalysisResult result(int score) {
+        return new SentimentAnalysisResult(null, List.of("word" + score), score);
+    }
+}
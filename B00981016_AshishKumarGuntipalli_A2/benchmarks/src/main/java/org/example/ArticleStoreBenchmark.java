@@ -0,0 +1,139 @@
+package org.example;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures appending the cleaned articles to a store and scanning their titles back. The local
+ * store is the reference; the MongoDB store is measured against the server given by
+ * -Dbench.mongoUri when run with "-p backend=mongo".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArticleStoreBenchmark {
+
+    /** The backend measured: "local" or "mongo". */
+    @Param({"local"})
+    public String backend;
+
+    /** The number of copies of the bundled articles written. */
+    @Param({"1", "4"})
+    public int scale;
+
+    private final ReutReader reader = new ReutReader();
+    private final List<Document> documents = new ArrayList<>();
+    private MongoClient client;
+    private MongoDatabase database;
+    private Path root;
+    private ArticleStore scanStore;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (Stream<ReutersArticle> articles = reader.streamReuters(BenchmarkCorpus.scaledFile(scale).toString())) {
+            articles.forEach(article -> documents.add(reader.toDocument(article)));
+        }
+        if ("mongo".equals(backend)) {
+            client = MongoClients.create(System.getProperty("bench.mongoUri", "mongodb://localhost:27017"));
+            database = client.getDatabase("ReuterBench");
+        } else {
+            root = Files.createTempDirectory("article-store-bench-");
+        }
+        appendAll(create("scan"));
+        scanStore = reopen("scan");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        scanStore.close();
+        if (client != null) {
+            database.drop();
+            client.close();
+        } else {
+            delete(root);
+        }
+    }
+
+    @Benchmark
+    public long appendAll() throws IOException {
+        ArticleStore store = create("append");
+        appendAll(store);
+        return store.getWrittenCount();
+    }
+
+    @Benchmark
+    public void scanTitles(Blackhole blackhole) throws IOException {
+        try (ArticleCursor cursor = scanStore.scan("title")) {
+            while (cursor.hasNext()) {
+                blackhole.consume(cursor.next());
+            }
+        }
+    }
+
+    private void appendAll(ArticleStore store) throws IOException {
+        try {
+            for (Document document : documents) {
+                // MongoDB adds an _id to each inserted document, so every run gets fresh copies
+                store.append(new Document(document));
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    private ArticleStore create(String name) throws IOException {
+        if (database != null) {
+            MongoCollection<Document> collection = database.getCollection(name);
+            collection.drop();
+            return new MongoArticleStore(collection, reader.defaultWriter(collection), 1000);
+        }
+        delete(root.resolve(name));
+        return LocalArticleStore.open(root.resolve(name), "title", "body", "newid");
+    }
+
+    private ArticleStore reopen(String name) throws IOException {
+        if (database != null) {
+            return new MongoArticleStore(database.getCollection(name), 1000);
+        }
+        return LocalArticleStore.open(root.resolve(name));
+    }
+
+    private static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
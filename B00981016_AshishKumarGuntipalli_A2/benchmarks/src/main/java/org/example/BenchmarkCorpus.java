@@ -0,0 +1,92 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Locates the bundled Reuters file and opinion lexicon and builds larger synthetic corpora from
+ * them, so every benchmark runs against the same inputs.
+ */
+final class BenchmarkCorpus {
+
+    /** The bundled Reuters file; override with -Dbench.sgm. */
+    static final String SGM_PATH = System.getProperty("bench.sgm", "../Task1/FirstProb-1A/reut2-009.sgm");
+
+    /** The opinion lexicon directory; override with -Dbench.lexicon. */
+    static final String LEXICON_PATH = System.getProperty("bench.lexicon",
+            "../Task3/SentimentAnalysisBOW/opinion-lexicon-English");
+
+    private BenchmarkCorpus() {
+    }
+
+    /**
+     * Writes the bundled Reuters file repeated the given number of times to a temporary file.
+     *
+     * @param scale The number of copies of the bundled file.
+     * @return The path of the temporary file, deleted when the JVM exits.
+     * @throws IOException If the bundled file cannot be read or the copy cannot be written.
+     */
+    static Path scaledFile(int scale) throws IOException {
+        byte[] original = Files.readAllBytes(Paths.get(SGM_PATH));
+        Path file = Files.createTempFile("reut2-bench-", ".sgm");
+        file.toFile().deleteOnExit();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int i = 0; i < scale; i++) {
+                out.write(original);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Reads the bundled Reuters file repeated the given number of times.
+     *
+     * @param scale The number of copies of the bundled file.
+     * @return The text of the corpus.
+     * @throws IOException If the bundled file cannot be read.
+     */
+    static String text(int scale) throws IOException {
+        String original = new String(Files.readAllBytes(Paths.get(SGM_PATH)), StandardCharsets.ISO_8859_1);
+        return original.repeat(scale);
+    }
+
+    /**
+     * Retrieves the titles of the bundled articles repeated the given number of times.
+     *
+     * @param scale The number of copies of the bundled titles.
+     * @return The list of titles.
+     * @throws IOException If the bundled file cannot be read.
+     */
+    static List<String> titles(int scale) throws IOException {
+        List<String> titles = new ArrayList<>();
+        try (ReutersStreamParser parser = ReutersStreamParser.open(Paths.get(SGM_PATH))) {
+            while (parser.hasNext()) {
+                String title = parser.next().getTitle();
+                if (title != null) {
+                    titles.add(title);
+                }
+            }
+        }
+        List<String> scaled = new ArrayList<>(titles.size() * scale);
+        for (int i = 0; i < scale; i++) {
+            scaled.addAll(titles);
+        }
+        return scaled;
+    }
+
+    /**
+     * Loads the bundled opinion lexicon.
+     *
+     * @return The lexicon.
+     * @throws IOException If the lexicon files cannot be read.
+     */
+    static SentimentLexicon lexicon() throws IOException {
+        return SentimentLexicon.load(LEXICON_PATH + "/positive-words.txt", LEXICON_PATH + "/negative-words.txt");
+    }
+}
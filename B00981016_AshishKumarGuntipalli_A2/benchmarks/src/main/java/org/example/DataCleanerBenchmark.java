@@ -0,0 +1,74 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Measures each regex cleaning step of DataCleaner on the raw corpus, the three steps chained as
+ * the word count originally ran them, and the single-pass TextCleaner that replaced the chain.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataCleanerBenchmark {
+
+    private static final Pattern NON_LETTER = Pattern.compile("[^a-zA-Z\\s]");
+
+    /** The number of copies of the bundled file in the corpus. */
+    @Param({"1", "4", "16"})
+    public int scale;
+
+    private final DataCleaner cleaner = new DataCleaner();
+    private TextCleaner textCleaner;
+    private String text;
+
+    @Setup
+    public void setUp() throws IOException {
+        text = BenchmarkCorpus.text(scale);
+        textCleaner = cleaner.textCleaner();
+    }
+
+    @Benchmark
+    public String removeXmlTagsAndEntities() {
+        return cleaner.removeXmlTagsAndEntities(text);
+    }
+
+    @Benchmark
+    public String removeSingleCharacters() {
+        return cleaner.removeSingleCharacters(text);
+    }
+
+    @Benchmark
+    public String removeStopWords() {
+        return cleaner.removeStopWords(text);
+    }
+
+    @Benchmark
+    public String regexChain() {
+        String content = cleaner.removeXmlTagsAndEntities(text);
+        content = NON_LETTER.matcher(content).replaceAll(" ");
+        content = cleaner.removeSingleCharacters(content);
+        return cleaner.removeStopWords(content);
+    }
+
+    @Benchmark
+    public String textCleaner() {
+        return textCleaner.clean(text);
+    }
+}
@@ -0,0 +1,64 @@
+package org.example;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures scanning titles with one cursor against several cursors over _id ranges, using the
+ * in-memory store with a simulated round trip per batch in place of a MongoDB server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelScanBenchmark {
+
+    /** The number of _id ranges scanned at once. */
+    @Param({"1", "4", "16"})
+    public int partitions;
+
+    /** The simulated time of each round trip in microseconds. */
+    @Param({"0", "2000"})
+    public long roundTripMicros;
+
+    /** The number of articles fetched per round trip. */
+    @Param({"100"})
+    public int batchSize;
+
+    private InMemoryArticleStore store;
+
+    @Setup
+    public void setUp() throws IOException {
+        store = new InMemoryArticleStore(batchSize, roundTripMicros, partitions);
+        List<String> titles = BenchmarkCorpus.titles(4);
+        for (String title : titles) {
+            store.append(new Document("title", title));
+        }
+    }
+
+    @Benchmark
+    public void scanTitles(Blackhole blackhole) throws IOException {
+        try (ArticleCursor cursor = store.scan("title")) {
+            while (cursor.hasNext()) {
+                blackhole.consume(cursor.next());
+            }
+        }
+    }
+}
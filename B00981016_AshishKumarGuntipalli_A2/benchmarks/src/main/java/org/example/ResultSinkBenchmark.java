@@ -0,0 +1,81 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing the scored rows to the sentiments CSV file against the columnar format, and
+ * summarizing each file by polarity and score.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultSinkBenchmark {
+
+    /** The extension of the file written, which selects its format. */
+    @Param({".csv", ".cols"})
+    public String format;
+
+    /** The number of copies of the bundled titles written. */
+    @Param({"1", "16"})
+    public int scale;
+
+    private final List<SentimentRow> rows = new ArrayList<>();
+    private Path written;
+    private Path summarized;
+
+    @Setup
+    public void setUp() throws IOException {
+        BOWSentiment bow = new BOWSentiment();
+        SentimentLexicon lexicon = BenchmarkCorpus.lexicon();
+        List<String> titles = BenchmarkCorpus.titles(scale);
+        for (int i = 0; i < titles.size(); i++) {
+            rows.add(bow.score(i + 1, titles.get(i), lexicon));
+        }
+        written = Files.createTempFile("results-bench-", format);
+        summarized = Files.createTempFile("results-bench-", format);
+        write(summarized);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(written);
+        Files.deleteIfExists(summarized);
+    }
+
+    @Benchmark
+    public void writeRows() throws IOException {
+        write(written);
+    }
+
+    @Benchmark
+    public ResultSummary summarize() throws IOException {
+        return ResultSummary.of(summarized);
+    }
+
+    private void write(Path path) throws IOException {
+        try (ResultSink sink = ResultSink.open(path)) {
+            sink.write(rows);
+        }
+    }
+}
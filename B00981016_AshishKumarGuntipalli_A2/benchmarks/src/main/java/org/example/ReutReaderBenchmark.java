@@ -0,0 +1,87 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Measures parsing a Reuters file and turning articles into MongoDB documents, comparing the
+ * chunked section extraction with the streaming parser, and finding article boundaries alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReutReaderBenchmark {
+
+    /** The number of copies of the bundled file in the corpus. */
+    @Param({"1", "4", "16"})
+    public int scale;
+
+    private final ReutReader reader = new ReutReader();
+    private String filePath;
+    private List<String> sections;
+    private List<ReutersArticle> articles;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path file = BenchmarkCorpus.scaledFile(scale);
+        filePath = file.toString();
+        sections = reader.extractReuters(filePath);
+        try (Stream<ReutersArticle> stream = reader.streamReuters(filePath)) {
+            articles = stream.collect(Collectors.toList());
+        }
+    }
+
+    @Benchmark
+    public List<String> extractReuters() throws IOException {
+        return reader.extractReuters(filePath);
+    }
+
+    @Benchmark
+    public int scanBoundaries() throws IOException {
+        try (ReutersBoundaryScanner scanner = ReutersBoundaryScanner.open(Paths.get(filePath))) {
+            return scanner.scan(0, scanner.size()).size();
+        }
+    }
+
+    @Benchmark
+    public long streamReuters() throws IOException {
+        try (Stream<ReutersArticle> stream = reader.streamReuters(filePath)) {
+            return stream.count();
+        }
+    }
+
+    @Benchmark
+    public void toDocumentFromSection(Blackhole blackhole) {
+        for (String section : sections) {
+            blackhole.consume(reader.toDocument(section));
+        }
+    }
+
+    @Benchmark
+    public void toDocumentFromArticle(Blackhole blackhole) {
+        for (ReutersArticle article : articles) {
+            blackhole.consume(reader.toDocument(article));
+        }
+    }
+}
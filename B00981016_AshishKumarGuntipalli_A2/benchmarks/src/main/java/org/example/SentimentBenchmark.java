@@ -0,0 +1,106 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the bag of words for each title and scoring it against the opinion lexicon,
+ * with and without the score cache serving repeated titles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SentimentBenchmark {
+
+    /** The number of copies of the bundled titles scored. */
+    @Param({"1", "4", "16"})
+    public int scale;
+
+    private final BOWSentiment bow = new BOWSentiment();
+    private final BOWSentiment stemmedNgrams = new BOWSentiment(new Tokenizer().stem().ngrams(3));
+    private final BOWSentiment cached = new BOWSentiment();
+    private SentimentLexicon lexicon;
+    private List<String> titles;
+    private TermCounter[] bags;
+    private CompactCorpus corpus;
+
+    @Setup
+    public void setUp() throws IOException {
+        lexicon = BenchmarkCorpus.lexicon();
+        titles = BenchmarkCorpus.titles(scale);
+        bags = new TermCounter[titles.size()];
+        for (int i = 0; i < bags.length; i++) {
+            bags[i] = bow.createBagOfWords(titles.get(i));
+        }
+        // Warmed up with every title, so each scored title is a hit
+        cached.cache(new ScoreCache(100000, cached.cacheVersion(lexicon)));
+        for (int i = 0; i < titles.size(); i++) {
+            cached.score(i + 1, titles.get(i), lexicon);
+        }
+        corpus = new CompactCorpus("title");
+        for (String title : titles) {
+            corpus.add(title);
+        }
+    }
+
+    @Benchmark
+    public void createBagOfWords(Blackhole blackhole) {
+        for (String title : titles) {
+            blackhole.consume(bow.createBagOfWords(title));
+        }
+    }
+
+    @Benchmark
+    public void createBagOfWordsStemmedNgrams(Blackhole blackhole) {
+        for (String title : titles) {
+            blackhole.consume(stemmedNgrams.createBagOfWords(title));
+        }
+    }
+
+    @Benchmark
+    public void createBagOfWordsFromCorpus(Blackhole blackhole) {
+        CompactCorpus.TextView view = new CompactCorpus.TextView();
+        for (int i = 0; i < corpus.size(); i++) {
+            corpus.view(i, 0, view);
+            blackhole.consume(bow.createBagOfWords(view));
+        }
+    }
+
+    @Benchmark
+    public void countSentiment(Blackhole blackhole) {
+        for (int i = 0; i < bags.length; i++) {
+            blackhole.consume(bow.countSentiment(titles.get(i), bags[i], lexicon));
+        }
+    }
+
+    @Benchmark
+    public void scoreRow(Blackhole blackhole) {
+        for (int i = 0; i < titles.size(); i++) {
+            blackhole.consume(bow.scoreRow(i + 1, titles.get(i), lexicon));
+        }
+    }
+
+    @Benchmark
+    public void scoreRowCached(Blackhole blackhole) {
+        for (int i = 0; i < titles.size(); i++) {
+            blackhole.consume(cached.scoreRow(i + 1, titles.get(i), lexicon));
+        }
+    }
+}
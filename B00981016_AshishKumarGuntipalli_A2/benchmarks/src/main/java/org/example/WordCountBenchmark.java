@@ -0,0 +1,111 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures counting the cleaned words of the corpus with a boxed HashMap, as the word count
+ * originally did, against TermCounter fed from String tokens and straight from the cleaner's
+ * character buffer, and merging the counts of {@value #PARTS} threads with each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WordCountBenchmark {
+
+    /** The number of per-thread counts merged. */
+    static final int PARTS = 4;
+
+    /** The number of copies of the bundled file in the corpus. */
+    @Param({"1", "4", "16"})
+    public int scale;
+
+    private TextCleaner cleaner;
+    private String text;
+    private List<String> words;
+    private List<Map<String, Integer>> partMaps;
+    private List<TermCounter> partCounters;
+
+    @Setup
+    public void setUp() throws IOException {
+        cleaner = new DataCleaner().textCleaner();
+        text = BenchmarkCorpus.text(scale);
+        words = cleaner.tokens(text);
+
+        // Each part counts an interleaved share of the words, so the parts share most of their vocabulary
+        partMaps = new ArrayList<>(PARTS);
+        partCounters = new ArrayList<>(PARTS);
+        for (int p = 0; p < PARTS; p++) {
+            Map<String, Integer> map = new HashMap<>();
+            TermCounter counter = new TermCounter();
+            for (int i = p; i < words.size(); i += PARTS) {
+                map.merge(words.get(i), 1, Integer::sum);
+                counter.add(words.get(i));
+            }
+            partMaps.add(map);
+            partCounters.add(counter);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Integer> hashMap() {
+        Map<String, Integer> wordFreqMap = new HashMap<>();
+        for (String word : words) {
+            wordFreqMap.put(word, wordFreqMap.getOrDefault(word, 0) + 1);
+        }
+        return wordFreqMap;
+    }
+
+    @Benchmark
+    public TermCounter termCounter() {
+        TermCounter counter = new TermCounter();
+        for (String word : words) {
+            counter.add(word);
+        }
+        return counter;
+    }
+
+    @Benchmark
+    public TermCounter cleanAndCount() {
+        TermCounter counter = new TermCounter();
+        cleaner.tokenize(text, counter::add);
+        return counter;
+    }
+
+    @Benchmark
+    public Map<String, Integer> mergeHashMaps() {
+        Map<String, Integer> merged = new HashMap<>();
+        for (Map<String, Integer> part : partMaps) {
+            part.forEach((word, count) -> merged.merge(word, count, Integer::sum));
+        }
+        return merged;
+    }
+
+    @Benchmark
+    public TermCounter mergeTermCounters() {
+        TermCounter merged = new TermCounter();
+        for (TermCounter part : partCounters) {
+            merged.merge(part);
+        }
+        return merged;
+    }
+}
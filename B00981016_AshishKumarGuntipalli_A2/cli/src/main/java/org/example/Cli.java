@@ -0,0 +1,212 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the ingest, word frequency and sentiment jobs from one jar:
+ *
+ * <pre>
+ *   java -jar cli.jar ingest --store local --store-path articles reut2-009.sgm
+ *   java -jar cli.jar wordfreq --state counts.bin reuters/
+ *   java -jar cli.jar sentiment --store local --store-path articles --no-display
+ * </pre>
+ *
+ * <p>Each option sets the system property the job already reads, such as --store-path for
+ * -Dstore.path, so the jobs behave the same whichever way they are started, and any property
+ * without an option can still be given with -D. Run "java -jar cli.jar &lt;command&gt; --help"
+ * for the options of a command.
+ *
+ * <p>Short runs are dominated by JVM startup. The warmup command runs every job on a sample in
+ * one JVM, so a class data sharing archive dumped at its exit covers the classes they all load:
+ *
+ * <pre>
+ *   java -XX:ArchiveClassesAtExit=cli.jsa -jar cli.jar warmup reut2-009.sgm opinion-lexicon-English
+ *   java -XX:SharedArchiveFile=cli.jsa -XX:TieredStopAtLevel=1 -jar cli.jar sentiment ...
+ * </pre>
+ */
+public class Cli {
+
+    private static final Map<String, List<Option>> COMMANDS = new LinkedHashMap<>();
+
+    static {
+        List<Option> store = Arrays.asList(
+                new Option("--store", "store", "mongo|local", "Where articles are stored; MongoDB unless local"),
+                new Option("--store-path", "store.path", "dir", "The directory of the local article store"),
+                new Option("--mongo-uri", "mongo.uri", "uri", "The MongoDB connection string; MONGODB_URI if not given"));
+
+        List<Option> ingest = new ArrayList<>(store);
+        ingest.addAll(Arrays.asList(
+                new Option("--checkpoint", "ingest.checkpoint", "file", "Resume from and record progress in this file"),
+                new Option("--checkpoint-interval", "ingest.checkpointInterval", "n", "Articles between checkpoints"),
+                new Option("--index", "ingest.index", "dir", "Also build an inverted index of titles and bodies"),
+                new Option("--stem", "ingest.stem", null, "Stem the words of the inverted index"),
+                new Option("--upsert", "ingest.upsert", null, "Replace articles by NEWID instead of inserting copies"),
+                new Option("--batch-size", "ingest.batchSize", "n", "Articles per MongoDB bulk write"),
+                new Option("--columns", "store.columns", "a,b,..", "The fields kept by a new local store")));
+        COMMANDS.put("ingest", ingest);
+
+        COMMANDS.put("wordfreq", Arrays.asList(
+                new Option("--engine", "wordfreq.engine", "auto|local|spark", "Count in this JVM or on Spark; auto picks local for small local inputs"),
+                new Option("--local-max-bytes", "wordfreq.localMaxBytes", "n", "The largest input auto counts in this JVM"),
+                new Option("--parallelism", "wordfreq.parallelism", "n", "Threads used by the local engine"),
+                new Option("--state", "wordfreq.state", "file", "Keep the counts here so only new files are counted"),
+                new Option("--approximate", "wordfreq.approximate", null, "Count in fixed memory, approximately")));
+
+        List<Option> sentiment = new ArrayList<>(store);
+        sentiment.addAll(Arrays.asList(
+                new Option("--lexicon", "sentiment.lexicon", "dir", "The directory of positive-words.txt and negative-words.txt"),
+                new Option("--output", "sentiment.output", "file", "The results file; .cols for the columnar format"),
+                new Option("--no-display", "sentiment.display", "false", "Do not print the results"),
+                new Option("--mode", "sentiment.mode", "incremental|aggregate", "Score new MongoDB articles, or update the summaries file"),
+                new Option("--query", "sentiment.query", "topic|place|day|week|month", "Print the stored summaries grouped this way"),
+                new Option("--from", "sentiment.from", "yyyy-mm-dd", "The first day queried"),
+                new Option("--to", "sentiment.to", "yyyy-mm-dd", "The last day queried"),
+                new Option("--words", "sentiment.words", "positive|negative", "Only list matched words of this polarity"),
+                new Option("--aggregates", "sentiment.aggregates", "file", "The local summaries file"),
+                new Option("--cache", "sentiment.cache", "file", "Keep the title score cache in this file"),
+                new Option("--ngrams", "sentiment.ngrams", "n", "Score negations such as \"not good\" with 2 or 3"),
+                new Option("--stem", "sentiment.stem", null, "Match inflected forms of opinion words"),
+                new Option("--parallelism", "sentiment.parallelism", "n", "Threads scoring titles"),
+                new Option("--batch-size", "sentiment.batchSize", "n", "Titles per batch")));
+        COMMANDS.put("sentiment", sentiment);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || !COMMANDS.containsKey(args[0]) && !"warmup".equals(args[0])) {
+            usage();
+            System.exit(2);
+        }
+        if ("warmup".equals(args[0])) {
+            if (args.length != 3) {
+                System.err.println("Usage: cli warmup <sgm file> <lexicon dir>");
+                System.exit(2);
+            }
+            warmup(args[1], args[2]);
+            return;
+        }
+
+        String command = args[0];
+        List<Option> options = COMMANDS.get(command);
+        List<String> arguments = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if ("--help".equals(args[i])) {
+                usage(command, options);
+                return;
+            }
+            if (!args[i].startsWith("--")) {
+                arguments.add(args[i]);
+                continue;
+            }
+            Option option = find(options, args[i]);
+            if (option == null || option.takesValue() && i + 1 == args.length) {
+                System.err.println(option == null ? "Unknown option " + args[i] : "Missing value for " + args[i]);
+                usage(command, options);
+                System.exit(2);
+            }
+            System.setProperty(option.property, option.takesValue() ? args[++i] : option.fixedValue());
+        }
+
+        run(command, arguments.toArray(new String[0]));
+    }
+
+    private static void run(String command, String[] arguments) throws IOException {
+        switch (command) {
+            case "ingest":
+                IngestJob.main(arguments);
+                break;
+            case "wordfreq":
+                WordFrequencyJob.main(arguments);
+                break;
+            default:
+                SentimentJob.main(arguments);
+                break;
+        }
+    }
+
+    /**
+     * Ingests, counts and scores a sample in a scratch directory, loading the classes a real run
+     * of each command would.
+     */
+    private static void warmup(String sgmFile, String lexiconDir) throws IOException {
+        Path scratch = Files.createTempDirectory("cli-warmup");
+        System.setProperty("store", "local");
+        System.setProperty("store.path", scratch.resolve("articles").toString());
+        System.setProperty("wordfreq.engine", "local");
+        System.setProperty("sentiment.lexicon", lexiconDir);
+        System.setProperty("sentiment.output", scratch.resolve("sentiments.csv").toString());
+        System.setProperty("sentiment.display", "false");
+
+        run("ingest", new String[]{sgmFile});
+        run("wordfreq", new String[]{sgmFile});
+        run("sentiment", new String[0]);
+        System.out.println("Warmup finished in " + scratch);
+    }
+
+    private static Option find(List<Option> options, String name) {
+        for (Option option : options) {
+            if (option.name.equals(name)) {
+                return option;
+            }
+        }
+        return null;
+    }
+
+    private static void usage() {
+        System.err.println("Usage: cli <command> [options] [arguments]");
+        System.err.println("  ingest [options] <sgm file or directory>   Store Reuters articles");
+        System.err.println("  wordfreq [options] <file, directory or glob> Count cleaned words");
+        System.err.println("  sentiment [options]                         Score or query stored articles");
+        System.err.println("  warmup <sgm file> <lexicon dir>             Run every command on a sample, to train a CDS archive");
+        System.err.println("Run cli <command> --help for its options");
+    }
+
+    private static void usage(String command, List<Option> options) {
+        System.err.println("Options of " + command + ":");
+        for (Option option : options) {
+            String name = option.takesValue() ? option.name + " <" + option.value + ">" : option.name;
+            System.err.printf("  %-42s %s (-D%s)%n", name, option.description, option.property);
+        }
+    }
+
+    /**
+     * A command line option setting a system property, either to the value following it or, for
+     * a flag, to a fixed value.
+     */
+    private static class Option {
+        private final String name;
+        private final String property;
+        private final String value;
+        private final String description;
+
+        /**
+         * Constructs an Option.
+         *
+         * @param name        The option, such as "--store-path".
+         * @param property    The system property it sets.
+         * @param value       What the value following it looks like, or for a flag: null to set
+         *                    the property to "true", or the value "--no-" options set it to.
+         * @param description A one-line description.
+         */
+        Option(String name, String property, String value, String description) {
+            this.name = name;
+            this.property = property;
+            this.value = value;
+            this.description = description;
+        }
+
+        boolean takesValue() {
+            return value != null && !name.startsWith("--no-");
+        }
+
+        String fixedValue() {
+            return value == null ? "true" : value;
+        }
+    }
+}